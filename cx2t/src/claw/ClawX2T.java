@@ -6,16 +6,29 @@ package claw;
 
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.common.Context;
+import claw.tatsu.common.FileDependencies;
 import claw.tatsu.common.Target;
+import claw.tatsu.directive.configuration.OpenAccConfiguration;
+import claw.tatsu.xcodeml.backend.ModifiedUnitTracker;
 import claw.tatsu.xcodeml.backend.OmniBackendDriver;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.wani.ClawConstant;
+import claw.wani.language.ClawSourceProcessor;
+import claw.wani.report.ClawKernelTable;
 import claw.wani.report.ClawTransformationReport;
 import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.configuration.TuningConfig;
 import claw.wani.x2t.translator.ClawTranslatorDriver;
+import claw.wani.x2t.translator.TransformationCache;
 import org.apache.commons.cli.*;
 import xcodeml.util.XmOption;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * ClawX2T is the entry point of any CLAW XcodeML/F translation.
@@ -25,6 +38,8 @@ import java.io.File;
 public class ClawX2T {
 
   private static final String ERR_INTERNAL = "internal";
+  private static final String VARIANT_INFIX = ".v";
+  private static final String VARIANT_LIST_SUFFIX = ".variants";
 
   /**
    * Print an error message an abort.
@@ -50,6 +65,20 @@ public class ClawX2T {
     System.exit(1);
   }
 
+  /**
+   * Check whether a command line value is a strictly positive integer.
+   *
+   * @param value Value to be checked.
+   * @return True if the value is a strictly positive integer. False otherwise.
+   */
+  private static boolean isPositiveInteger(String value) {
+    try {
+      return Integer.parseInt(value) > 0;
+    } catch(NumberFormatException ignored) {
+      return false;
+    }
+  }
+
   /**
    * Print program usage.
    */
@@ -101,6 +130,9 @@ public class ClawX2T {
         "specify the target for the code transformation.");
     options.addOption("dir", "directive", true,
         "list all directive directive language available for code generation.");
+    options.addOption("mt", "multi-target", true,
+        "comma separated list of target:directive pairs generated from a " +
+            "single front-end parse. Cannot be used with -t and -dir.");
     options.addOption("d", "debug", false,
         "enable output debug message.");
     options.addOption("f", true,
@@ -127,6 +159,27 @@ public class ClawX2T {
     options.addOption("x", true,
         "override configuration option. Higher priority over base " +
             "configuration and user configuration.");
+    options.addOption("ss", "splice-source", true,
+        "preprocessed source of the input. Only the transformed program " +
+            "units are decompiled, the others are copied from the source.");
+    options.addOption("df", "depfile", true,
+        "write a Makefile dependency file listing the module, " +
+            "configuration and model files read by the translation.");
+    options.addOption("mo", "module-outputs", true,
+        "write the list of the CLAW module files produced by the " +
+            "translation.");
+    options.addOption("dt", "decompile-threads", true,
+        "number of threads used to decompile the program units " +
+            "concurrently.");
+    options.addOption("tc", "transformation-cache", true,
+        "directory of the cache reusing the transformation results of the " +
+            "unchanged functions across translations.");
+    options.addOption("at", "autotune", true,
+        "tuning configuration with the parameter grid. One instrumented " +
+            "variant is generated per grid point from a single front-end " +
+            "parse.");
+    options.addOption("tu", "tuning", true,
+        "tuning configuration with the tuned parameters of each kernel.");
     options.addOption("ap", "add-paren", false,
         "Force backend to add parenthesis in binary mathematical binary " +
             "operation.");
@@ -214,6 +267,13 @@ public class ClawX2T {
       maxColumns = Integer.parseInt(cmd.getOptionValue("w"));
     }
 
+    // Number of threads used by the decompiler
+    if(cmd.hasOption("dt") && !isPositiveInteger(cmd.getOptionValue("dt"))) {
+      error(ERR_INTERNAL, 0, 0, "Invalid number of decompile threads: "
+          + cmd.getOptionValue("dt"));
+      return;
+    }
+
     configurationFile = cmd.getOptionValue("c");
     configurationPath = cmd.getOptionValue("cp");
 
@@ -257,10 +317,224 @@ public class ClawX2T {
       input = cmd.getArgs()[0];
     }
 
+    // Multi-target generation from a single front-end parse
+    if(cmd.hasOption("mt")) {
+      if(cmd.hasOption("t") || cmd.hasOption("dir")) {
+        error(ERR_INTERNAL, 0, 0, "Options -t/--target and -dir/--directive " +
+            "cannot be used with -mt/--multi-target.");
+        return;
+      }
+      List<String[]> variants;
+      try {
+        variants = parseVariants(cmd.getOptionValue("mt"));
+      } catch(IllegalArgumentException ex) {
+        error(ERR_INTERNAL, 0, 0, ex.getMessage());
+        return;
+      }
+      if(targetLangOutput == null) {
+        error(ERR_INTERNAL, 0, 0,
+            "Multi-target generation requires a Fortran output file (-f).");
+        return;
+      }
+      XcodeProgram translationUnit = (input == null) ?
+          XcodeProgram.createFromStdInput() :
+          XcodeProgram.createFromFile(input);
+      List<String> targets = new ArrayList<>();
+      for(String[] variant : variants) {
+        loadConfiguration(cmd, configurationPath, configurationFile,
+            modelConfiguration, variant[0], variant[1], maxColumns);
+        translate(cmd, args, translationUnit.cloneProgram(),
+            getVariantFilename(xcmlOutput),
+            getVariantFilename(targetLangOutput),
+            getVariantFilename(cmd.getOptionValue("r")), maxColumns);
+        targets.add(getVariantFilename(targetLangOutput));
+      }
+      writeDependencies(cmd, input, targets);
+      return;
+    }
+
+    // Autotuning variants over a parameter grid from a single parse
+    if(cmd.hasOption("at")) {
+      if(targetLangOutput == null) {
+        error(ERR_INTERNAL, 0, 0,
+            "Autotuning requires a Fortran output file (-f).");
+        return;
+      }
+      TuningConfig tuning = new TuningConfig();
+      try {
+        tuning.load(cmd.getOptionValue("at"));
+      } catch(Exception ex) {
+        error(ERR_INTERNAL, 0, 0, ex.getMessage());
+        return;
+      }
+      List<Map<String, String>> points = tuning.getGridPoints();
+      if(points.isEmpty()) {
+        error(ERR_INTERNAL, 0, 0, "No parameter grid defined in: "
+            + cmd.getOptionValue("at"));
+        return;
+      }
+      XcodeProgram translationUnit = (input == null) ?
+          XcodeProgram.createFromStdInput() :
+          XcodeProgram.createFromFile(input);
+      List<String> targets = new ArrayList<>();
+      try(FileWriter variants =
+              new FileWriter(targetLangOutput + VARIANT_LIST_SUFFIX))
+      {
+        for(int i = 0; i < points.size(); ++i) {
+          loadConfiguration(cmd, configurationPath, configurationFile,
+              modelConfiguration, targetOption, directiveOption, maxColumns);
+          // Kernels are timed to select the best grid point of each of them
+          Configuration.get().overrideConfigurationParameter(
+              Configuration.INSTRUMENTATION_MODE,
+              Configuration.INSTRUMENTATION_MODE_TIMER);
+          Configuration.get().overrideConfigurationParameter(
+              OpenAccConfiguration.OPENACC_LAUNCH_CLAUSES,
+              Boolean.TRUE.toString());
+          StringBuilder parameters = new StringBuilder();
+          for(Map.Entry<String, String> parameter : points.get(i).entrySet()) {
+            Configuration.get().overrideConfigurationParameter(
+                parameter.getKey(), parameter.getValue());
+            parameters.append(' ').append(parameter.getKey()).append('=')
+                .append(parameter.getValue());
+          }
+          String infix = VARIANT_INFIX + i;
+          String output = insertInfix(targetLangOutput, infix);
+          translate(cmd, args, translationUnit.cloneProgram(),
+              insertInfix(xcmlOutput, infix), output,
+              insertInfix(cmd.getOptionValue("r"), infix), maxColumns);
+          variants.write(output + parameters + System.lineSeparator());
+          targets.add(output);
+        }
+      }
+      writeDependencies(cmd, input, targets);
+      return;
+    }
+
+    loadConfiguration(cmd, configurationPath, configurationFile,
+        modelConfiguration, targetOption, directiveOption, maxColumns);
+    translate(cmd, args, input == null ? XcodeProgram.createFromStdInput() :
+        XcodeProgram.createFromFile(input), xcmlOutput, targetLangOutput,
+        cmd.getOptionValue("r"), maxColumns);
+    List<String> targets = new ArrayList<>();
+    if(targetLangOutput != null) {
+      targets.add(targetLangOutput);
+    } else if(xcmlOutput != null) {
+      targets.add(xcmlOutput);
+    }
+    writeDependencies(cmd, input, targets);
+  }
+
+  /**
+   * Write the dependency file and the list of produced module files if they
+   * are requested on the command line.
+   *
+   * @param cmd     Parsed command line.
+   * @param input   XcodeML input file. Null if read from standard input.
+   * @param targets Output files of the translation.
+   */
+  private static void writeDependencies(CommandLine cmd, String input,
+                                        List<String> targets)
+  {
+    FileDependencies dependencies = Context.get().getDependencies();
+    dependencies.addInput(input);
+    dependencies.addInput(cmd.getOptionValue("ss"));
+    try {
+      if(cmd.hasOption("df")) {
+        if(targets.isEmpty()) {
+          error(ERR_INTERNAL, 0, 0,
+              "Dependency file requires an output file (-f or -o).");
+          return;
+        }
+        dependencies.writeDepfile(cmd.getOptionValue("df"), targets);
+      }
+      if(cmd.hasOption("mo")) {
+        dependencies.writeOutputs(cmd.getOptionValue("mo"));
+      }
+    } catch(IOException e) {
+      error(ERR_INTERNAL, 0, 0, "Cannot write dependencies: " +
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Parse the list of target/directive pairs given to the multi-target option.
+   *
+   * @param value Comma separated list of target:directive pairs.
+   * @return List of pairs. First element is the target, second the directive.
+   * @throws IllegalArgumentException If a pair is malformed.
+   */
+  static List<String[]> parseVariants(String value) {
+    List<String[]> variants = new ArrayList<>();
+    for(String pair : value.split(",", -1)) {
+      String[] variant = pair.trim().split(":", -1);
+      if(variant.length != 2 || variant[0].isEmpty()
+          || variant[1].isEmpty())
+      {
+        throw new IllegalArgumentException(
+            "Malformed target:directive pair: " + pair);
+      }
+      variants.add(variant);
+    }
+    return variants;
+  }
+
+  /**
+   * Get a filename specific to the current target/directive pair. The
+   * directive and target are inserted before the file extension in the same
+   * order as in the CLAW module file suffix.
+   *
+   * @param filename Original filename.
+   * @return Filename specific to the current variant. Null if filename is
+   * null.
+   */
+  static String getVariantFilename(String filename) {
+    return insertInfix(filename, "." +
+        Configuration.get().getCurrentDirective() + "." +
+        Configuration.get().getCurrentTarget());
+  }
+
+  /**
+   * Insert an infix before the file extension.
+   *
+   * @param filename Original filename.
+   * @param infix    Infix to be inserted.
+   * @return Filename with the infix. Null if filename is null.
+   */
+  private static String insertInfix(String filename, String infix) {
+    if(filename == null) {
+      return null;
+    }
+    int dot = filename.lastIndexOf('.');
+    if(dot <= filename.lastIndexOf(File.separatorChar)) {
+      return filename + infix;
+    }
+    return filename.substring(0, dot) + infix + filename.substring(dot);
+  }
+
+  /**
+   * Load the configuration for the given target and directive and apply the
+   * command line options depending on it. The translation context is
+   * re-initialized by this call.
+   *
+   * @param cmd                Parsed command line.
+   * @param configurationPath  Path to the configuration directory.
+   * @param configurationFile  User configuration file if any.
+   * @param modelConfiguration Model configuration file if any.
+   * @param target             Target for the translation.
+   * @param directive          Directive language for the translation.
+   * @param maxColumns         Max columns for the generated code.
+   */
+  private static void loadConfiguration(CommandLine cmd,
+                                        String configurationPath,
+                                        String configurationFile,
+                                        String modelConfiguration,
+                                        String target, String directive,
+                                        int maxColumns)
+  {
     // Read the configuration file
     try {
       Configuration.get().load(configurationPath, configurationFile,
-          modelConfiguration, targetOption, directiveOption, maxColumns);
+          modelConfiguration, target, directive, maxColumns);
     } catch(Exception ex) {
       error(ERR_INTERNAL, 0, 0, ex.getMessage());
       return;
@@ -292,20 +566,65 @@ public class ClawX2T {
       XmOption.setAddPar(true);
     }
 
+    // Tuned kernel parameters. Not applied when exploring the grid.
+    if(cmd.hasOption("tu") && !cmd.hasOption("at")) {
+      try {
+        Configuration.get().loadTuning(cmd.getOptionValue("tu"));
+      } catch(Exception ex) {
+        error(ERR_INTERNAL, 0, 0, ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Translate and decompile a translation unit with the current configuration.
+   *
+   * @param cmd              Parsed command line.
+   * @param args             Arguments of the program.
+   * @param translationUnit  Translation unit to be translated.
+   * @param xcmlOutput       XcodeML/F output file.
+   * @param targetLangOutput Fortran output file.
+   * @param reportFile       Transformation report file. Null if no report.
+   * @param maxColumns       Max columns for the generated code.
+   * @throws Exception if translation failed.
+   */
+  private static void translate(CommandLine cmd, String[] args,
+                                XcodeProgram translationUnit,
+                                String xcmlOutput, String targetLangOutput,
+                                String reportFile, int maxColumns)
+      throws Exception
+  {
     ClawTranslatorDriver translatorDriver =
-        new ClawTranslatorDriver(input, xcmlOutput);
+        new ClawTranslatorDriver(null, xcmlOutput);
 
-    translatorDriver.analyze();
+    // Snapshot before the analysis as it already modifies the program units
+    ModifiedUnitTracker tracker = cmd.hasOption("ss") ?
+        new ModifiedUnitTracker(translationUnit) : null;
+
+    if(cmd.hasOption("tc")) {
+      translatorDriver.setTransformationCache(
+          new TransformationCache(cmd.getOptionValue("tc")));
+    }
+    translatorDriver.analyze(translationUnit);
     translatorDriver.transform();
     translatorDriver.flush();
 
     // Produce report (unless we've used the Python driver)
-    if(cmd.hasOption("r")) {
+    if(reportFile != null) {
       ClawTransformationReport report =
-          new ClawTransformationReport(cmd.getOptionValue("r"));
+          new ClawTransformationReport(reportFile);
       report.generate(args, translatorDriver);
     }
 
+    // Produce the kernel name table next to the output for instrumented code
+    if(!translatorDriver.getTranslator().getKernelInfos().isEmpty()
+        && targetLangOutput != null)
+    {
+      ClawKernelTable table = new ClawKernelTable(targetLangOutput
+          + ClawKernelTable.KERNEL_TABLE_SUFFIX);
+      table.generate(translatorDriver.getTranslator());
+    }
+
     // Decompile XcodeML/F to target language
     OmniBackendDriver backend;
     if(Configuration.get().getCurrentTarget() == Target.FPGA) {
@@ -315,6 +634,19 @@ public class ClawX2T {
     } else {
       backend = new OmniBackendDriver(OmniBackendDriver.Lang.FORTRAN);
     }
+    // Revert ignore and verbatim directives while writing the output
+    backend.setLineFilter(ClawSourceProcessor::postprocessLine);
+    if(cmd.hasOption("dt")) {
+      backend.setThreads(Integer.parseInt(cmd.getOptionValue("dt")));
+    }
+
+    if(tracker != null && backend.decompileSpliced(targetLangOutput,
+        translatorDriver.getTranslationUnit(), tracker,
+        cmd.getOptionValue("ss"), maxColumns,
+        XmOption.isSuppressLineDirective()))
+    {
+      return; // Only transformed units decompiled
+    }
 
     if(xcmlOutput == null) { // XcodeML output not written to file. Use pipe.
       if(!backend.decompile(targetLangOutput,
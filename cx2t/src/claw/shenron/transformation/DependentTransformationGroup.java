@@ -5,6 +5,7 @@
 package claw.shenron.transformation;
 
 import claw.shenron.translator.Translator;
+import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 
@@ -44,6 +45,7 @@ public class DependentTransformationGroup extends TransformationGroup {
           continue;
         }
         if(base.canBeTransformedWith(xcodeml, candidate)) {
+          selectKernel(base);
           try {
             base.transform(xcodeml, translator, candidate);
             if(candidate.isTransformed()) {
@@ -55,6 +57,8 @@ public class DependentTransformationGroup extends TransformationGroup {
               itex.setStartLine(base.getStartLine());
             }
             throw itex;
+          } finally {
+            Context.get().selectKernel(null);
           }
         }
       }
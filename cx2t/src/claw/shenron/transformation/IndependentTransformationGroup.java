@@ -5,6 +5,7 @@
 package claw.shenron.transformation;
 
 import claw.shenron.translator.Translator;
+import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 
@@ -33,6 +34,7 @@ public class IndependentTransformationGroup extends TransformationGroup {
       throws Exception
   {
     for(Transformation trans : getTransformations()) {
+      selectKernel(trans);
       try {
         trans.transform(xcodeml, translator, null);
         if(trans.isTransformed()) {
@@ -44,6 +46,8 @@ public class IndependentTransformationGroup extends TransformationGroup {
           itex.setStartLine(trans.getStartLine());
         }
         throw itex;
+      } finally {
+        Context.get().selectKernel(null);
       }
     }
   }
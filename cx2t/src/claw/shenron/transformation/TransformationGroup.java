@@ -5,8 +5,11 @@
 package claw.shenron.transformation;
 
 import claw.shenron.translator.Translator;
+import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -98,6 +101,22 @@ public abstract class TransformationGroup {
     ++_appliedTransformation;
   }
 
+  /**
+   * Select the accelerator configuration of the function/subroutine holding
+   * the directive of the transformation. The configuration of a tuned kernel
+   * is used for the whole transformation and the global configuration must be
+   * selected back once it is applied.
+   *
+   * @param transformation Transformation about to be applied.
+   */
+  protected static void selectKernel(Transformation transformation) {
+    Xnode pragma = transformation.getDirective() == null ?
+        null : transformation.getDirective().getPragma();
+    FfunctionDefinition fctDef = pragma == null ?
+        null : pragma.findParentFunction();
+    Context.get().selectKernel(fctDef == null ? null : fctDef.getName());
+  }
+
   /**
    * Apply all transformation stored in this group. Method transform from each
    * transformation is called.
@@ -0,0 +1,159 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.analysis.dependency;
+
+import claw.tatsu.directive.common.ReductionOperator;
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+import java.util.*;
+
+/**
+ * Detect scalar reductions in a block of statements. A scalar is a reduction
+ * variable if all its assignments in the block are reduction statements with
+ * the same operator and if it is not used anywhere else in the block. Such a
+ * scalar carries a dependence over the enclosing parallel loop which can be
+ * removed with a reduction clause.
+ *
+ * @author clementval
+ */
+public class ReductionAnalysis {
+
+  private final Map<ReductionOperator, List<String>> _reductions;
+
+  /**
+   * Constructs and run the analysis of reductions between the two statements.
+   *
+   * @param xcodeml   Current translation unit.
+   * @param startStmt First statement of the block to be analyzed.
+   * @param endStmt   Last statement of the block to be analyzed. Can be the
+   *                  same as the start statement.
+   */
+  public ReductionAnalysis(XcodeProgram xcodeml, Xnode startStmt,
+                           Xnode endStmt)
+  {
+    _reductions = new EnumMap<>(ReductionOperator.class);
+    analyze(xcodeml, startStmt, endStmt);
+  }
+
+  /**
+   * Perform the analysis on the given block of statements.
+   *
+   * @param xcodeml   Current translation unit.
+   * @param startStmt First statement of the block to be analyzed.
+   * @param endStmt   Last statement of the block to be analyzed.
+   */
+  private void analyze(XcodeProgram xcodeml, Xnode startStmt, Xnode endStmt) {
+    if(startStmt == null || endStmt == null) {
+      return;
+    }
+
+    List<Xnode> assignStmts = new ArrayList<>();
+    List<Xnode> vars = new ArrayList<>();
+    Xnode crt = startStmt;
+    while(crt != null) {
+      if(crt.is(Xcode.F_ASSIGN_STATEMENT)) {
+        assignStmts.add(crt);
+      }
+      assignStmts.addAll(crt.matchAll(Xcode.F_ASSIGN_STATEMENT));
+      vars.addAll(crt.matchAll(Xcode.VAR));
+      if(crt.equals(endStmt)) {
+        break;
+      }
+      crt = crt.nextSibling();
+    }
+
+    Map<String, ReductionOperator> candidates = new HashMap<>();
+    Map<String, Integer> statements = new HashMap<>();
+    Set<String> rejected = new HashSet<>();
+    for(Xnode node : assignStmts) {
+      AssignStatement assign = new AssignStatement(node.element());
+      if(!Xnode.isOfCode(assign.getLhs(), Xcode.VAR)) {
+        continue;
+      }
+      String name = assign.getLhsName().toLowerCase();
+      ReductionOperator operator = assign.getReductionOperator();
+      if(operator == null || !isScalar(xcodeml, assign.getLhs())
+          || (candidates.containsKey(name)
+          && candidates.get(name) != operator))
+      {
+        rejected.add(name);
+        continue;
+      }
+      candidates.put(name, operator);
+      statements.merge(name, 1, Integer::sum);
+    }
+
+    // Each reduction statement uses the variable twice. Any other use breaks
+    // the reduction pattern.
+    Map<String, Integer> uses = new HashMap<>();
+    for(Xnode var : vars) {
+      uses.merge(var.value().toLowerCase(), 1, Integer::sum);
+    }
+
+    for(Map.Entry<String, ReductionOperator> candidate :
+        candidates.entrySet())
+    {
+      String name = candidate.getKey();
+      if(rejected.contains(name)
+          || uses.getOrDefault(name, 0) != 2 * statements.get(name))
+      {
+        continue;
+      }
+      _reductions.computeIfAbsent(candidate.getValue(),
+          k -> new ArrayList<>()).add(name);
+    }
+    _reductions.values().forEach(Collections::sort);
+  }
+
+  /**
+   * Check whether the variable is a scalar of intrinsic type.
+   *
+   * @param xcodeml Current translation unit.
+   * @param var     Var node.
+   * @return True if the variable is a scalar. False otherwise.
+   */
+  private boolean isScalar(XcodeProgram xcodeml, Xnode var) {
+    String type = var.getType();
+    if(type == null || xcodeml.getTypeTable().isStructType(type)) {
+      return false;
+    }
+    return !xcodeml.getTypeTable().isBasicType(type)
+        || !xcodeml.getTypeTable().getBasicType(type).isArray();
+  }
+
+  /**
+   * Get the reduction variables grouped by operator.
+   *
+   * @return Map of reduction variables. Empty if no reduction is detected.
+   */
+  public Map<ReductionOperator, List<String>> getReductions() {
+    return _reductions;
+  }
+
+  /**
+   * Remove the given variables from the detected reductions. Used when the
+   * variables are privatized.
+   *
+   * @param vars List of variables to be removed.
+   */
+  public void exclude(Collection<String> vars) {
+    for(String var : vars) {
+      _reductions.values().forEach(l -> l.remove(var.toLowerCase()));
+    }
+    _reductions.values().removeIf(List::isEmpty);
+  }
+
+  /**
+   * Check whether at least one reduction is detected.
+   *
+   * @return True if a reduction is detected. False otherwise.
+   */
+  public boolean hasReduction() {
+    return !_reductions.isEmpty();
+  }
+}
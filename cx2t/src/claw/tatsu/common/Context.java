@@ -13,6 +13,9 @@ import claw.tatsu.directive.configuration.AcceleratorConfiguration;
 import claw.tatsu.directive.configuration.OpenAccConfiguration;
 import claw.tatsu.directive.configuration.OpenMpConfiguration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Class holding all information needed during a translation.
  *
@@ -23,9 +26,13 @@ public class Context {
   private int _maxColumns;
   private DirectiveGenerator _directiveGenerator;
   private AcceleratorConfiguration _acceleratorConfiguration;
+  private AcceleratorConfiguration _currentConfiguration;
+  private final Map<String, AcceleratorConfiguration> _kernelConfigurations =
+      new HashMap<>();
   private CompilerDirective _compilerDirective;
   private Target _target;
   private ModuleCache _moduleCache;
+  private final FileDependencies _dependencies = new FileDependencies();
 
   /**
    * Lazy holder pattern.
@@ -66,19 +73,9 @@ public class Context {
     if(compilerDirective != null) {
       _compilerDirective = compilerDirective;
       if(compilerDirective == CompilerDirective.OPENACC) {
-        OpenAcc gen = new OpenAcc();
-        _directiveGenerator = gen;
-        if(acceleratorConfiguration != null) {
-          gen.setExecutionMode(
-              ((OpenAccConfiguration) acceleratorConfiguration).getMode());
-        }
+        _directiveGenerator = new OpenAcc();
       } else if(compilerDirective == CompilerDirective.OPENMP) {
-        OpenMp gen = new OpenMp();
-        _directiveGenerator = gen;
-        if(acceleratorConfiguration != null) {
-          gen.setExecutionMode(
-              ((OpenMpConfiguration) acceleratorConfiguration).getMode());
-        }
+        _directiveGenerator = new OpenMp();
       } else {
         _directiveGenerator = new DirectiveNone();
       }
@@ -86,7 +83,9 @@ public class Context {
       _compilerDirective = CompilerDirective.NONE;
       _directiveGenerator = new DirectiveNone();
     }
-    _acceleratorConfiguration = acceleratorConfiguration;
+    _kernelConfigurations.clear();
+    _currentConfiguration = null;
+    setAcceleratorConfig(acceleratorConfiguration);
 
     if(target == null) {
       _target = Target.NONE;
@@ -118,8 +117,88 @@ public class Context {
     return _moduleCache;
   }
 
+  /**
+   * Get the files read and written by the translations. The recorded files are
+   * kept when the context is initialized again.
+   *
+   * @return File dependencies of the translations.
+   */
+  public FileDependencies getDependencies() {
+    return _dependencies;
+  }
+
+  /**
+   * Get the accelerator configuration of the kernel being generated. This is
+   * the global configuration unless a tuned kernel is selected.
+   *
+   * @return Current accelerator configuration.
+   */
   public AcceleratorConfiguration getAcceleratorConfig() {
-    return _acceleratorConfiguration;
+    return _currentConfiguration;
+  }
+
+  /**
+   * Set the global accelerator configuration. Tuned kernel configurations are
+   * kept but the global configuration is selected.
+   *
+   * @param acceleratorConfiguration Global accelerator configuration.
+   */
+  public void setAcceleratorConfig(
+      AcceleratorConfiguration acceleratorConfiguration)
+  {
+    _acceleratorConfiguration = acceleratorConfiguration;
+    selectConfiguration(acceleratorConfiguration);
+  }
+
+  /**
+   * Set the accelerator configuration of a tuned kernel. The configuration is
+   * used for the directives generated in the given function/subroutine.
+   *
+   * @param kernel                   Name of the function/subroutine.
+   * @param acceleratorConfiguration Configuration of the kernel.
+   */
+  public void setKernelConfig(String kernel,
+                              AcceleratorConfiguration acceleratorConfiguration)
+  {
+    _kernelConfigurations.put(kernel.toLowerCase(), acceleratorConfiguration);
+  }
+
+  /**
+   * Select the accelerator configuration used to generate the directives of a
+   * function/subroutine. Functions without tuned configuration get the global
+   * one.
+   *
+   * @param kernel Name of the function/subroutine. Null to select the global
+   *               configuration.
+   */
+  public void selectKernel(String kernel) {
+    AcceleratorConfiguration config = kernel == null ?
+        null : _kernelConfigurations.get(kernel.toLowerCase());
+    selectConfiguration(config == null ? _acceleratorConfiguration : config);
+  }
+
+  /**
+   * Make the given configuration current and apply its execution mode to the
+   * directive generator.
+   *
+   * @param config Configuration to be selected.
+   */
+  private void selectConfiguration(AcceleratorConfiguration config) {
+    if(config == _currentConfiguration) {
+      return;
+    }
+    _currentConfiguration = config;
+    if(config instanceof OpenAccConfiguration
+        && _directiveGenerator instanceof OpenAcc)
+    {
+      ((OpenAcc) _directiveGenerator).setExecutionMode(
+          ((OpenAccConfiguration) config).getMode());
+    } else if(config instanceof OpenMpConfiguration
+        && _directiveGenerator instanceof OpenMp)
+    {
+      ((OpenMp) _directiveGenerator).setExecutionMode(
+          ((OpenMpConfiguration) config).getMode());
+    }
   }
 
   /**
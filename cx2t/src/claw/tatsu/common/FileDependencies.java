@@ -0,0 +1,160 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.common;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Record the files read and the module files written during a translation so
+ * build tools can schedule the translations precisely. Inputs are written as
+ * a Makefile dependency file and outputs as a plain list.
+ *
+ * @author clementval
+ */
+public class FileDependencies {
+
+  private final Set<String> _inputs = new TreeSet<>();
+  private final Set<String> _outputs = new TreeSet<>();
+
+  /**
+   * Record a file read by the translation.
+   *
+   * @param path Path of the file.
+   */
+  public void addInput(String path) {
+    if(path != null && !path.isEmpty()) {
+      _inputs.add(Paths.get(path).normalize().toString());
+    }
+  }
+
+  /**
+   * Record a module file written by the translation.
+   *
+   * @param path Path of the file.
+   */
+  public void addOutput(String path) {
+    if(path != null && !path.isEmpty()) {
+      _outputs.add(Paths.get(path).normalize().toString());
+    }
+  }
+
+  /**
+   * Get the recorded input files.
+   *
+   * @return Sorted set of input files.
+   */
+  public Set<String> getInputs() {
+    return Collections.unmodifiableSet(_inputs);
+  }
+
+  /**
+   * Get the recorded output files.
+   *
+   * @return Sorted set of output files.
+   */
+  public Set<String> getOutputs() {
+    return Collections.unmodifiableSet(_outputs);
+  }
+
+  /**
+   * Forget all the recorded files.
+   */
+  public void clear() {
+    _inputs.clear();
+    _outputs.clear();
+  }
+
+  /**
+   * Write the inputs as a Makefile dependency file. A phony rule is added for
+   * each input so a removed file does not break the build.
+   *
+   * @param depfile Path of the dependency file.
+   * @param targets Targets depending on the inputs.
+   * @throws IOException If the file cannot be written.
+   */
+  public void writeDepfile(String depfile, Collection<String> targets)
+      throws IOException
+  {
+    try(BufferedWriter out = Files.newBufferedWriter(Paths.get(depfile),
+        StandardCharsets.UTF_8))
+    {
+      out.write(formatDepfile(targets));
+    }
+  }
+
+  /**
+   * Write the outputs one per line.
+   *
+   * @param file Path of the list file.
+   * @throws IOException If the file cannot be written.
+   */
+  public void writeOutputs(String file) throws IOException {
+    try(BufferedWriter out = Files.newBufferedWriter(Paths.get(file),
+        StandardCharsets.UTF_8))
+    {
+      for(String output : _outputs) {
+        out.write(output);
+        out.write("\n");
+      }
+    }
+  }
+
+  /**
+   * Format the inputs as Makefile rules.
+   *
+   * @param targets Targets depending on the inputs.
+   * @return Content of the dependency file.
+   */
+  String formatDepfile(Collection<String> targets) {
+    StringBuilder sb = new StringBuilder();
+    for(String target : targets) {
+      if(sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append(escape(target));
+    }
+    sb.append(':');
+    for(String input : _inputs) {
+      sb.append(" \\\n  ").append(escape(input));
+    }
+    sb.append('\n');
+    for(String input : _inputs) {
+      sb.append('\n').append(escape(input)).append(":\n");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Escape a path for a Makefile rule.
+   *
+   * @param path Path to escape.
+   * @return Escaped path.
+   */
+  static String escape(String path) {
+    StringBuilder sb = new StringBuilder();
+    for(char c : path.toCharArray()) {
+      switch(c) {
+        case ' ':
+        case '#':
+          sb.append('\\').append(c);
+          break;
+        case '$':
+          sb.append("$$");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+}
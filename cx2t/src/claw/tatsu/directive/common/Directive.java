@@ -5,9 +5,11 @@
 package claw.tatsu.directive.common;
 
 import claw.tatsu.TatsuConstant;
+import claw.tatsu.analysis.dependency.ReductionAnalysis;
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.common.Context;
 import claw.tatsu.common.Message;
+import claw.tatsu.directive.configuration.AcceleratorDataStrategy;
 import claw.tatsu.directive.generator.DirectiveGenerator;
 
 import claw.tatsu.primitive.Function;
@@ -34,6 +36,7 @@ public final class Directive {
 
   public static final int NO_COLLAPSE = 0;
   private static final String NO_CLAUSES = "";
+  private static final String REDUCTION_CLAUSE = "reduction";
 
   // Avoid potential instantiation of this class
   private Directive() {
@@ -161,6 +164,7 @@ public final class Directive {
   public static Xnode generateParallelRegion(XcodeProgram xcodeml,
                                              Xnode startStmt, Xnode endStmt)
   {
+    selectKernel(startStmt);
     return insertPragmas(xcodeml, startStmt, endStmt,
         Context.get().getGenerator().getStartParallelDirective(NO_CLAUSES),
         Context.get().getGenerator().getEndParallelDirective());
@@ -193,19 +197,71 @@ public final class Directive {
     {
       return null;
     }
+    selectKernel(startStmt);
 
     DirectiveGenerator dg = Context.get().getGenerator();
+    String clauses = format(dg.getPrivateClause(privates),
+        getReductionClause(xcodeml, privates, startStmt, endStmt,
+            extraDirective));
     Xnode startBlock = addPragmasBefore(xcodeml,
         dg.getStartParallelDirective(null), startStmt);
     addPragmasBefore(xcodeml, dg.getStartLoopDirective(collapse, false,
-        false, format(dg.getPrivateClause(privates), extraDirective)),
-        startStmt);
+        false, format(clauses, extraDirective)), startStmt);
     Xnode endBlock =
         addPragmaAfter(xcodeml, dg.getEndParallelDirective(), endStmt);
     addPragmaAfter(xcodeml, dg.getEndLoopDirective(), endStmt);
     return new Xblock(startBlock, endBlock);
   }
 
+  /**
+   * Detect the scalar reductions in the parallel loop and get the
+   * corresponding reduction clauses. Privatized variables and variables
+   * already part of a user defined reduction clause are skipped.
+   *
+   * @param xcodeml        Current translation unit.
+   * @param privates       List of variables to be set privates.
+   * @param startStmt      Start statement of the parallel loop.
+   * @param endStmt        End statement of the parallel loop.
+   * @param extraDirective User defined clauses. Can be null.
+   * @return Reduction clauses or empty string if no reduction is detected.
+   */
+  private static String getReductionClause(XcodeProgram xcodeml,
+                                           List<String> privates,
+                                           Xnode startStmt, Xnode endStmt,
+                                           String extraDirective)
+  {
+    if(extraDirective != null
+        && extraDirective.toLowerCase().contains(REDUCTION_CLAUSE))
+    {
+      return "";
+    }
+    ReductionAnalysis reductions =
+        new ReductionAnalysis(xcodeml, startStmt, endStmt);
+    if(privates != null) {
+      reductions.exclude(privates);
+    }
+    if(!reductions.hasReduction()) {
+      return "";
+    }
+    Message.debug(String.format(
+        "%s generated reduction clause for loop at line: %d",
+        Context.get().getGenerator().getPrefix(), startStmt.lineNo()));
+    return Context.get().getGenerator()
+        .getReductionClause(reductions.getReductions());
+  }
+
+  /**
+   * Select the accelerator configuration of the function/subroutine holding
+   * the statement. Tuned kernels get their own clause values.
+   *
+   * @param stmt Statement where the directives are generated.
+   */
+  private static void selectKernel(Xnode stmt) {
+    FfunctionDefinition fctDef = stmt == null ?
+        null : stmt.findParentFunction();
+    Context.get().selectKernel(fctDef == null ? null : fctDef.getName());
+  }
+
   /**
    * Format two string together.
    *
@@ -233,15 +289,115 @@ public final class Directive {
                                             Xnode startStmt, Xnode endStmt,
                                             int collapse)
   {
+    selectKernel(startStmt);
     insertPragmas(xcodeml, startStmt, endStmt, Context.get().getGenerator().
             getStartLoopDirective(collapse, false, false, ""),
         Context.get().getGenerator().getEndLoopDirective());
   }
 
+  /**
+   * Generates directive directive for a loop region with private variables.
+   *
+   * @param xcodeml   Object representation of the current XcodeML
+   *                  representation in which the pragmas will be generated.
+   * @param startStmt Start statement representing the beginning of the loop
+   *                  region.
+   * @param endStmt   End statement representing the end of the loop region.
+   * @param collapse  If value bigger than 0, a corresponding collapse
+   *                  constructs can be generated.
+   * @param privates  List of variables to be set privates.
+   */
+  public static void generateLoopDirectives(XcodeProgram xcodeml,
+                                            Xnode startStmt, Xnode endStmt,
+                                            int collapse,
+                                            List<String> privates)
+  {
+    selectKernel(startStmt);
+    DirectiveGenerator dg = Context.get().getGenerator();
+    insertPragmas(xcodeml, startStmt, endStmt,
+        dg.getStartLoopDirective(collapse, false, false,
+            dg.getPrivateClause(privates)), dg.getEndLoopDirective());
+  }
+
+  /**
+   * Generates SIMD directive around a loop.
+   *
+   * @param xcodeml  Object representation of the current XcodeML
+   *                 representation in which the pragmas will be generated.
+   * @param doStmt   Do statement to be vectorized.
+   * @param combined If true, the SIMD construct is combined with the loop
+   *                 work-sharing construct.
+   * @param privates List of variables to be set privates.
+   * @param aligned  List of arrays assumed to be aligned.
+   */
+  public static void generateSimdDirectives(XcodeProgram xcodeml,
+                                            Xnode doStmt, boolean combined,
+                                            List<String> privates,
+                                            List<String> aligned)
+  {
+    selectKernel(doStmt);
+    DirectiveGenerator dg = Context.get().getGenerator();
+    insertPragmas(xcodeml, doStmt, doStmt,
+        dg.getStartSimdDirective(combined,
+            dg.getSimdClauses(privates, aligned)),
+        dg.getEndSimdDirective(combined));
+  }
+
+  /**
+   * Generates a loop directive with a native tile clause around a loop nest.
+   *
+   * @param xcodeml Object representation of the current XcodeML
+   *                representation in which the pragmas will be generated.
+   * @param doStmt  Outer do statement of the nest to be tiled.
+   * @param sizes   Tile sizes. First value is for the outer loop.
+   * @return True if the directive language supports native tiling and the
+   * directive has been generated. False otherwise.
+   */
+  public static boolean generateTileDirectives(XcodeProgram xcodeml,
+                                               Xnode doStmt,
+                                               List<Integer> sizes)
+  {
+    selectKernel(doStmt);
+    DirectiveGenerator dg = Context.get().getGenerator();
+    String tileClause = dg.getTileClause(sizes);
+    if(tileClause.isEmpty()) {
+      return false;
+    }
+    insertPragmas(xcodeml, doStmt, doStmt,
+        dg.getStartLoopDirective(NO_COLLAPSE, false, false, tileClause),
+        dg.getEndLoopDirective());
+    return true;
+  }
+
+  /**
+   * Generates a cache directive at the beginning of the body of a do
+   * statement.
+   *
+   * @param xcodeml   Object representation of the current XcodeML
+   *                  representation in which the pragmas will be generated.
+   * @param doStmt    Do statement in which the directive is generated.
+   * @param subArrays Sub-arrays to be cached. e.g. a(i-1:i+1,j)
+   * @return True if the directive language supports the cache directive and
+   * the directive has been generated. False otherwise.
+   */
+  public static boolean generateCacheDirective(XcodeProgram xcodeml,
+                                               Xnode doStmt,
+                                               List<String> subArrays)
+  {
+    String[] directive =
+        Context.get().getGenerator().getCacheDirective(subArrays);
+    if(directive.length == 0 || doStmt.body().firstChild() == null) {
+      return false;
+    }
+    addPragmasBefore(xcodeml, directive, doStmt.body().firstChild());
+    return true;
+  }
+
   /**
    * Generate directive directive for a data region. Some clauses can be ignored
    * depending on the configuration, if this results to discard all variables
-   * then the directive is not generated.
+   * then the directive is not generated. No data region is generated with the
+   * managed data strategy.
    *
    * @param xcodeml  Object representation of the current XcodeML
    *                 representation in which the pragmas will be generated.
@@ -255,6 +411,12 @@ public final class Directive {
                                                 List<String> creates,
                                                 Xblock hook)
   {
+    if(Context.get().getAcceleratorConfig() != null
+        && Context.get().getAcceleratorConfig().getDataStrategy()
+        == AcceleratorDataStrategy.MANAGED)
+    {
+      return null;
+    }
     DirectiveGenerator generator = Context.get().getGenerator();
     List<String> clauses = new ArrayList<>(Arrays.asList(
         generator.getPresentClause(presents),
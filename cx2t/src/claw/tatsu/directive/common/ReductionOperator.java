@@ -0,0 +1,36 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.directive.common;
+
+/**
+ * ReductionOperator enumeration represents the reduction operators that can
+ * be expressed in a reduction clause. The operator string is the same for
+ * OpenACC and OpenMP in Fortran.
+ *
+ * @author clementval
+ */
+public enum ReductionOperator {
+  SUM("+"),
+  PRODUCT("*"),
+  MAX("max"),
+  MIN("min"),
+  AND(".and."),
+  OR(".or.");
+
+  private final String _operator;
+
+  ReductionOperator(String operator) {
+    _operator = operator;
+  }
+
+  /**
+   * Get the operator string used in a reduction clause.
+   *
+   * @return Operator string.
+   */
+  public String getOperator() {
+    return _operator;
+  }
+}
@@ -18,12 +18,18 @@ public class AcceleratorConfiguration {
   private static final String ACCELERATOR_LOCAL_STRATEGY =
       "accelerator_local_strategy";
   private static final String ACCELERATOR_COLLAPSE = "accelerator_collapse";
+  private static final String ACCELERATOR_CONTRACTION =
+      "accelerator_contraction";
+  private static final String ACCELERATOR_FISSION_SIZE =
+      "accelerator_fission_size";
 
   private AcceleratorDataStrategy _dataStrategy =
       AcceleratorDataStrategy.PRESENT;
   private AcceleratorLocalStrategy _localStrategy =
       AcceleratorLocalStrategy.PRIVATE;
   private boolean _collapseStrategy = false;
+  private boolean _contraction = false;
+  private int _fissionSize = 0;
 
   /**
    * Constructs a AcceleratorConfiguration object holding accelerator
@@ -44,6 +50,14 @@ public class AcceleratorConfiguration {
       _collapseStrategy =
           Boolean.parseBoolean(parameters.get(ACCELERATOR_COLLAPSE));
     }
+    if(parameters.containsKey(ACCELERATOR_CONTRACTION)) {
+      _contraction =
+          Boolean.parseBoolean(parameters.get(ACCELERATOR_CONTRACTION));
+    }
+    if(parameters.containsKey(ACCELERATOR_FISSION_SIZE)) {
+      _fissionSize =
+          Integer.parseInt(parameters.get(ACCELERATOR_FISSION_SIZE).trim());
+    }
   }
 
   /**
@@ -66,4 +80,27 @@ public class AcceleratorConfiguration {
    * @return True if collapse strategy is on. False otherwise.
    */
   public boolean hasCollapseStrategy() { return _collapseStrategy; }
+
+  /**
+   * Get the contraction strategy for promoted local arrays.
+   *
+   * @return True if column local arrays are kept private instead of being
+   * promoted. False by default.
+   */
+  public boolean hasContraction() { return _contraction; }
+
+  /**
+   * Get the maximum number of statements in a kernel before it is split in
+   * several parallel loops.
+   *
+   * @return Maximum number of statements. 0 if fission is disabled.
+   */
+  public int getFissionSize() { return _fissionSize; }
+
+  /**
+   * Check whether kernel fission is enabled.
+   *
+   * @return True if large kernels are split. False by default.
+   */
+  public boolean hasFission() { return _fissionSize > 0; }
 }
@@ -12,11 +12,13 @@ package claw.tatsu.directive.configuration;
 public enum AcceleratorDataStrategy {
   NONE,
   PRESENT,
-  KERNEL;
+  KERNEL,
+  MANAGED;
 
   static final String DATA_STRATEGY_NONE = "none";
   static final String DATA_STRATEGY_PRESENT = "present";
   static final String DATA_STRATEGY_KERNEL = "kernel";
+  static final String DATA_STRATEGY_MANAGED = "managed";
 
   /**
    * Get enum value from configuration string.
@@ -33,6 +35,8 @@ public enum AcceleratorDataStrategy {
         return KERNEL;
       case DATA_STRATEGY_PRESENT:
         return PRESENT;
+      case DATA_STRATEGY_MANAGED:
+        return MANAGED;
       case DATA_STRATEGY_NONE:
       default:
         return NONE;
@@ -19,10 +19,12 @@ public class OpenAccConfiguration extends AcceleratorConfiguration {
   private static final String OPENACC_NUM_GANGS = "acc_num_gangs";
   private static final String OPENACC_VECTOR_LENGTH = "acc_vector_length";
   private static final String OPENACC_EXECUTION_MODE = "acc_execution_mode";
+  public static final String OPENACC_LAUNCH_CLAUSES = "acc_launch_clauses";
 
   private int _numWorkers = 0;
   private int _numGangs = 0;
   private int _vectorLength = 0;
+  private boolean _launchClauses = false;
 
   private OpenAccExecutionMode _mode = OpenAccExecutionMode.VECTOR;
 
@@ -48,6 +50,20 @@ public class OpenAccConfiguration extends AcceleratorConfiguration {
       _mode = OpenAccExecutionMode.
           fromString(parameters.get(OPENACC_EXECUTION_MODE));
     }
+    if(parameters.containsKey(OPENACC_LAUNCH_CLAUSES)) {
+      _launchClauses =
+          Boolean.parseBoolean(parameters.get(OPENACC_LAUNCH_CLAUSES));
+    }
+  }
+
+  /**
+   * Check whether the num_gangs, num_workers and vector_length clauses are
+   * generated on the parallel regions.
+   *
+   * @return True if the launch clauses are generated. False by default.
+   */
+  public boolean hasLaunchClauses() {
+    return _launchClauses;
   }
 
   /**
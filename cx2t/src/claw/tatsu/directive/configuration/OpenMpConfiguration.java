@@ -20,11 +20,23 @@ public class OpenMpConfiguration extends AcceleratorConfiguration {
   private static final String OPENMP_SCHEDULER_CHUNK_SIZE =
       "omp_scheduler_chunk_size";
   private static final String OPENMP_EXECUTION_MODE = "omp_execution_mode";
+  private static final String OPENMP_SIMD = "omp_simd";
+  private static final String OPENMP_SIMDLEN = "omp_simdlen";
+  private static final String OPENMP_SAFELEN = "omp_safelen";
+  private static final String OPENMP_SIMD_ALIGNED = "omp_simd_aligned";
+  private static final String OPENMP_SIMD_ALIGNMENT = "omp_simd_alignment";
+  private static final String OPENMP_SIMD_CONTIGUOUS = "omp_simd_contiguous";
 
   private int _numThreads = 0;
   private int _numTeams = 0;
   private int _schedulerChunkSize = 0;
   private OpenMpExecutionMode _mode = OpenMpExecutionMode.TEAMS_DISTRIBUTE;
+  private boolean _simd = false;
+  private int _simdlen = 0;
+  private int _safelen = 0;
+  private boolean _simdAligned = false;
+  private int _simdAlignment = 0;
+  private boolean _simdContiguous = true;
 
   /**
    * Constructs a OpenMpConfiguration object holding OpenMP configuration
@@ -49,6 +61,25 @@ public class OpenMpConfiguration extends AcceleratorConfiguration {
       _mode = OpenMpExecutionMode.
           fromString(parameters.get(OPENMP_EXECUTION_MODE));
     }
+    if(parameters.containsKey(OPENMP_SIMD)) {
+      _simd = Boolean.parseBoolean(parameters.get(OPENMP_SIMD));
+    }
+    if(parameters.containsKey(OPENMP_SIMDLEN)) {
+      _simdlen = Integer.parseInt(parameters.get(OPENMP_SIMDLEN));
+    }
+    if(parameters.containsKey(OPENMP_SAFELEN)) {
+      _safelen = Integer.parseInt(parameters.get(OPENMP_SAFELEN));
+    }
+    if(parameters.containsKey(OPENMP_SIMD_ALIGNED)) {
+      _simdAligned = Boolean.parseBoolean(parameters.get(OPENMP_SIMD_ALIGNED));
+    }
+    if(parameters.containsKey(OPENMP_SIMD_ALIGNMENT)) {
+      _simdAlignment = Integer.parseInt(parameters.get(OPENMP_SIMD_ALIGNMENT));
+    }
+    if(parameters.containsKey(OPENMP_SIMD_CONTIGUOUS)) {
+      _simdContiguous =
+          Boolean.parseBoolean(parameters.get(OPENMP_SIMD_CONTIGUOUS));
+    }
   }
 
   /**
@@ -86,4 +117,60 @@ public class OpenMpConfiguration extends AcceleratorConfiguration {
   public OpenMpExecutionMode getMode() {
     return _mode;
   }
+
+  /**
+   * Check whether simd directives are generated for vectorizable loops.
+   *
+   * @return True if simd generation is enabled. False otherwise.
+   */
+  public boolean hasSimd() {
+    return _simd;
+  }
+
+  /**
+   * Get the simdlen value.
+   *
+   * @return simdlen value. 0 if not defined.
+   */
+  public int getSimdlen() {
+    return _simdlen;
+  }
+
+  /**
+   * Get the safelen value.
+   *
+   * @return safelen value. 0 if not defined.
+   */
+  public int getSafelen() {
+    return _safelen;
+  }
+
+  /**
+   * Check whether the aligned clause is generated for the arrays promoted by
+   * the translator. The alignment must be defined as well.
+   *
+   * @return True if the aligned clause is generated. False by default.
+   */
+  public boolean isSimdAligned() {
+    return _simdAligned && _simdAlignment > 0;
+  }
+
+  /**
+   * Get the alignment in bytes used in the aligned clause.
+   *
+   * @return Alignment value. 0 if not defined.
+   */
+  public int getSimdAlignment() {
+    return _simdAlignment;
+  }
+
+  /**
+   * Check whether arrays promoted by the translator are assumed to be
+   * contiguous along the promoted dimension.
+   *
+   * @return True if promoted arrays are assumed contiguous. True by default.
+   */
+  public boolean isSimdContiguous() {
+    return _simdContiguous;
+  }
 }
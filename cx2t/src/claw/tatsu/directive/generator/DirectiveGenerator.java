@@ -6,10 +6,13 @@ package claw.tatsu.directive.generator;
 
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.directive.common.DataMovement;
+import claw.tatsu.directive.common.ReductionOperator;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Interface for directive directive generator.
@@ -223,4 +226,97 @@ public abstract class DirectiveGenerator {
   public String[] getUpdateClause(DataMovement direction, List<String> vars) {
     return new String[0];
   }
+
+  /**
+   * Get the start pragma to vectorize a loop with SIMD instructions.
+   *
+   * @param combined If true, the SIMD construct is combined with the loop
+   *                 work-sharing construct.
+   * @param clauses  Additional clauses append at the start directive.
+   * @return String value that represents the pragma. Empty if SIMD directive
+   * is not supported.
+   */
+  public String[] getStartSimdDirective(boolean combined, String clauses) {
+    return new String[0];
+  }
+
+  /**
+   * Get the end pragma to vectorize a loop with SIMD instructions.
+   *
+   * @param combined If true, the SIMD construct is combined with the loop
+   *                 work-sharing construct.
+   * @return String value that represents the pragma. Empty if SIMD directive
+   * is not supported.
+   */
+  public String[] getEndSimdDirective(boolean combined) {
+    return new String[0];
+  }
+
+  /**
+   * Get the clauses for a SIMD directive based on the configuration.
+   *
+   * @param privates List of variables to be set privates.
+   * @param aligned  List of arrays assumed to be aligned.
+   * @return String value that represents the clauses.
+   */
+  public String getSimdClauses(List<String> privates, List<String> aligned) {
+    return EMPTY;
+  }
+
+  /**
+   * Get the clause to tile a loop nest with the given tile sizes.
+   *
+   * @param sizes Tile sizes. First value is for the outer loop.
+   * @return String value that represents the clause. Empty if tiling is not
+   * supported natively.
+   */
+  public String getTileClause(List<Integer> sizes) {
+    return EMPTY;
+  }
+
+  /**
+   * Get the directive to cache the given sub-arrays in the fastest memory
+   * during the execution of a loop iteration.
+   *
+   * @param subArrays Sub-arrays to be cached. e.g. a(i-1:i+1,j)
+   * @return String value that represents the directive. Empty if the cache
+   * directive is not supported.
+   */
+  public String[] getCacheDirective(List<String> subArrays) {
+    return new String[0];
+  }
+
+  /**
+   * Get the reduction clauses for the given reduction variables.
+   *
+   * @param reductions Reduction variables grouped by operator.
+   * @return String value that represents the clauses. Empty if reduction is
+   * not supported or no reduction is given.
+   */
+  public String getReductionClause(
+      Map<ReductionOperator, List<String>> reductions)
+  {
+    return EMPTY;
+  }
+
+  /**
+   * Format reduction clauses with the given keyword.
+   * e.g. reduction(+:a,b) reduction(max:c)
+   *
+   * @param keyword    Reduction keyword of the directive language.
+   * @param reductions Reduction variables grouped by operator.
+   * @return String value that represents the clauses.
+   */
+  String formatReductionClause(String keyword,
+                               Map<ReductionOperator, List<String>> reductions)
+  {
+    if(reductions == null || reductions.isEmpty()) {
+      return EMPTY;
+    }
+    return reductions.entrySet().stream()
+        .filter(e -> !e.getValue().isEmpty())
+        .map(e -> String.format(FORMATPAR, keyword,
+            e.getKey().getOperator() + ":" + String.join(",", e.getValue())))
+        .collect(Collectors.joining(" "));
+  }
 }
@@ -5,12 +5,18 @@
 package claw.tatsu.directive.generator;
 
 import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
 import claw.tatsu.common.Message;
 import claw.tatsu.directive.common.DataMovement;
+import claw.tatsu.directive.common.ReductionOperator;
+import claw.tatsu.directive.configuration.OpenAccConfiguration;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * OpenACC specific directive directive generator.
@@ -24,17 +30,23 @@ public class OpenAcc extends DirectiveGenerator {
   public static final String OPENACC_NAME = "openacc";
 
   private static final String OPENACC_DEBUG_PREFIX = "CLAW-OpenACC:";
+  private static final String OPENACC_CACHE = "cache";
   private static final String OPENACC_COLLAPSE = "collapse";
   private static final String OPENACC_DATA = "data";
   private static final String OPENACC_END = "end";
   private static final String OPENACC_LOOP = "loop";
+  private static final String OPENACC_NUM_GANGS = "num_gangs";
+  private static final String OPENACC_NUM_WORKERS = "num_workers";
   private static final String OPENACC_PARALLEL = "parallel";
   private static final String OPENACC_PRIVATE = "private";
+  private static final String OPENACC_REDUCTION = "reduction";
   private static final String OPENACC_PRESENT = "present";
   private static final String OPENACC_PCREATE = "pcreate";
   private static final String OPENACC_ROUTINE = "routine";
   private static final String OPENACC_SEQUENTIAL = "seq";
+  private static final String OPENACC_TILE = "tile";
   private static final String OPENACC_UPDATE = "update";
+  private static final String OPENACC_VECTOR_LENGTH = "vector_length";
   private static final String OPENACC_DEVICE = "device";
   private static final String OPENACC_HOST = "host";
 
@@ -64,7 +76,12 @@ public class OpenAcc extends DirectiveGenerator {
   @Override
   public String[] getStartParallelDirective(String clauses) {
     //!$acc parallel [vector_length()] [num_gang()] [num_worker()]
-    if(clauses == null || clauses.isEmpty()) {
+    clauses = clauses == null ? "" : clauses.trim();
+    String launch = getLaunchClauses();
+    if(!launch.isEmpty()) {
+      clauses = clauses.isEmpty() ? launch : launch + " " + clauses;
+    }
+    if(clauses.isEmpty()) {
       return new String[]{
           String.format(FORMAT2, OPENACC_PREFIX, OPENACC_PARALLEL)
       };
@@ -75,6 +92,39 @@ public class OpenAcc extends DirectiveGenerator {
     };
   }
 
+  /**
+   * Get the num_gangs, num_workers and vector_length clauses of the current
+   * accelerator configuration. Values set to 0 are left to the compiler.
+   *
+   * @return Launch clauses or empty string if they are not generated.
+   */
+  private String getLaunchClauses() {
+    if(!(Context.get().getAcceleratorConfig()
+        instanceof OpenAccConfiguration))
+    {
+      return "";
+    }
+    OpenAccConfiguration accConfig =
+        (OpenAccConfiguration) Context.get().getAcceleratorConfig();
+    if(!accConfig.hasLaunchClauses()) {
+      return "";
+    }
+    List<String> clauses = new ArrayList<>();
+    if(accConfig.getNumGangs() > 0) {
+      clauses.add(String.format("%s(%d)", OPENACC_NUM_GANGS,
+          accConfig.getNumGangs()));
+    }
+    if(accConfig.getNumWorkers() > 0) {
+      clauses.add(String.format("%s(%d)", OPENACC_NUM_WORKERS,
+          accConfig.getNumWorkers()));
+    }
+    if(accConfig.getVectorLength() > 0) {
+      clauses.add(String.format("%s(%d)", OPENACC_VECTOR_LENGTH,
+          accConfig.getVectorLength()));
+    }
+    return String.join(" ", clauses);
+  }
+
   @Override
   public String[] getEndParallelDirective() {
     //!$acc end parallel
@@ -265,4 +315,34 @@ public class OpenAcc extends DirectiveGenerator {
         String.format(FORMAT3, OPENACC_PREFIX, OPENACC_UPDATE, updates)
     };
   }
+
+  @Override
+  public String getTileClause(List<Integer> sizes) {
+    //tile(<size>,<size>)
+    if(sizes == null || sizes.isEmpty()) {
+      return EMPTY;
+    }
+    return String.format(FORMATPAR, OPENACC_TILE, sizes.stream().
+        map(String::valueOf).collect(Collectors.joining(",")));
+  }
+
+  @Override
+  public String[] getCacheDirective(List<String> subArrays) {
+    //!$acc cache(<sub-arrays>)
+    if(subArrays == null || subArrays.isEmpty()) {
+      return new String[0];
+    }
+    return new String[]{
+        String.format(FORMAT2, OPENACC_PREFIX, String.format(FORMATPAR,
+            OPENACC_CACHE, String.join(",", subArrays)))
+    };
+  }
+
+  @Override
+  public String getReductionClause(
+      Map<ReductionOperator, List<String>> reductions)
+  {
+    //reduction(<op>:<vars>)
+    return formatReductionClause(OPENACC_REDUCTION, reductions);
+  }
 }
@@ -6,11 +6,14 @@ package claw.tatsu.directive.generator;
 
 import claw.tatsu.common.*;
 import claw.tatsu.directive.common.DataMovement;
+import claw.tatsu.directive.common.ReductionOperator;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.directive.configuration.OpenMpConfiguration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * OpenMP base directive directive generator. Implements everything that is
@@ -31,9 +34,11 @@ public class OpenMp extends DirectiveGenerator {
   private static final String OPENMP_TEAMS = "teams";
   private static final String OPENMP_THREADS_LIMIT = "thread_limit";
   private static final String OPENMP_NUM_TEAMS = "num_teams";
+  private static final String OPENMP_NUM_THREADS = "num_threads";
   private static final String OPENMP_DISTRIBUTE = "distribute";
   private static final String OPENMP_COLLAPSE = "collapse";
   private static final String OPENMP_DIST_SCHEDULE = "dist_schedule";
+  private static final String OPENMP_SCHEDULE = "schedule";
   private static final String OPENMP_SCHEDULE_KIND = "static";
   private static final String OPENMP_PARALLEL = "parallel";
   private static final String OPENMP_SEQUENTIAL = "single";
@@ -42,9 +47,14 @@ public class OpenMp extends DirectiveGenerator {
   private static final String OPENMP_TO = "to";
   private static final String OPENMP_UPDATE = "update";
   private static final String OPENMP_PRIVATE = "private";
+  private static final String OPENMP_REDUCTION = "reduction";
   private static final String OPENMP_ALLOC = "alloc";
   private static final String OPENMP_DO = "do";
   private static final String OPENMP_END = "end";
+  private static final String OPENMP_SIMD = "simd";
+  private static final String OPENMP_SIMDLEN = "simdlen";
+  private static final String OPENMP_SAFELEN = "safelen";
+  private static final String OPENMP_ALIGNED = "aligned";
 
   private OpenMpExecutionMode _mode;
 
@@ -119,7 +129,16 @@ public class OpenMp extends DirectiveGenerator {
         };
       }
     } else {
-      //!$omp parallel
+      //!$omp parallel [num_threads(#)]
+      OpenMpConfiguration ompConfig =
+          (OpenMpConfiguration) Context.get().getAcceleratorConfig();
+      if(ompConfig != null && ompConfig.getNumThreads() > 0) {
+        return new String[]{
+            String.format(FORMAT3, OPENMP_PREFIX, OPENMP_PARALLEL,
+                String.format("%s(%d)", OPENMP_NUM_THREADS,
+                    ompConfig.getNumThreads()))
+        };
+      }
       return new String[]{
           String.format(FORMAT2, OPENMP_PREFIX, OPENMP_PARALLEL)
       };
@@ -302,7 +321,11 @@ public class OpenMp extends DirectiveGenerator {
         };
       }
     } else {
-      //!$omp do [collapse(#)]
+      //!$omp do [collapse(#)] [schedule(static,#)]
+      if(chunkSize > 0) {
+        clauses += String.format("%s(%s, %d)", OPENMP_SCHEDULE,
+            OPENMP_SCHEDULE_KIND, chunkSize);
+      }
       if(clauses.isEmpty()) {
         return new String[]{
             String.format(FORMAT2, OPENMP_PREFIX, OPENMP_DO),
@@ -369,4 +392,72 @@ public class OpenMp extends DirectiveGenerator {
             OPENMP_PREFIX, OPENMP_TARGET, OPENMP_UPDATE, updates)
     };
   }
+
+  @Override
+  public String[] getStartSimdDirective(boolean combined, String clauses) {
+    String directive;
+    if(combined) {
+      //!$omp do simd / !$omp distribute simd
+      directive = String.format(FORMAT3, OPENMP_PREFIX,
+          Context.isTarget(Target.GPU) ? OPENMP_DISTRIBUTE : OPENMP_DO,
+          OPENMP_SIMD);
+    } else {
+      //!$omp simd
+      directive = String.format(FORMAT2, OPENMP_PREFIX, OPENMP_SIMD);
+    }
+    if(clauses != null && !clauses.trim().isEmpty()) {
+      directive += " " + clauses.trim();
+    }
+    return new String[]{directive};
+  }
+
+  @Override
+  public String[] getEndSimdDirective(boolean combined) {
+    if(combined) {
+      //!$omp end do simd / !$omp end distribute simd
+      return new String[]{
+          String.format(FORMAT4, OPENMP_PREFIX, OPENMP_END,
+              Context.isTarget(Target.GPU) ? OPENMP_DISTRIBUTE : OPENMP_DO,
+              OPENMP_SIMD)
+      };
+    } else {
+      //!$omp end simd
+      return new String[]{
+          String.format(FORMAT3, OPENMP_PREFIX, OPENMP_END, OPENMP_SIMD)
+      };
+    }
+  }
+
+  @Override
+  public String getSimdClauses(List<String> privates, List<String> aligned) {
+    OpenMpConfiguration ompConfig =
+        (OpenMpConfiguration) Context.get().getAcceleratorConfig();
+    List<String> clauses = new ArrayList<>();
+    if(ompConfig.getSimdlen() > 0) {
+      clauses.add(String.format("%s(%d)", OPENMP_SIMDLEN,
+          ompConfig.getSimdlen()));
+    }
+    if(ompConfig.getSafelen() > 0) {
+      clauses.add(String.format("%s(%d)", OPENMP_SAFELEN,
+          ompConfig.getSafelen()));
+    }
+    if(ompConfig.isSimdAligned() && aligned != null && !aligned.isEmpty())
+    {
+      clauses.add(String.format("%s(%s:%d)", OPENMP_ALIGNED,
+          String.join(",", aligned), ompConfig.getSimdAlignment()));
+    }
+    String privateClause = getPrivateClause(privates);
+    if(!privateClause.isEmpty()) {
+      clauses.add(privateClause);
+    }
+    return String.join(" ", clauses);
+  }
+
+  @Override
+  public String getReductionClause(
+      Map<ReductionOperator, List<String>> reductions)
+  {
+    //reduction(<op>:<vars>)
+    return formatReductionClause(OPENMP_REDUCTION, reductions);
+  }
 }
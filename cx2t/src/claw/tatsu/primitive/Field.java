@@ -14,6 +14,7 @@ import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +24,7 @@ import java.util.Map;
  * - Adaptation of scalar reference to array reference for promoted scalar.
  * - Adaptation of allocate statement for promoted field.
  * - Demote array reference to fewer dimension or scalar.
+ * - Demote the precision of real fields (demotePrecision).
  *
  * @author clementval
  */
@@ -189,6 +191,75 @@ public final class Field {
     }
   }
 
+  /**
+   * Change the kind of a real field declared in a function definition. The
+   * type of the field is duplicated with the new kind and the references to
+   * the field in the body are updated. If the field is a dummy argument, the
+   * parameter in the function type is updated and flagged with the new kind
+   * so calling transformations can convert the actual argument.
+   *
+   * @param fieldId Identifier of the field to be demoted.
+   * @param kind    New kind. Integer value or name of an integer constant.
+   * @param fctDef  Function definition in which the field is declared.
+   * @param xcodeml Current XcodeML translation unit.
+   * @return True if the field is a dummy argument of the function.
+   * @throws IllegalTransformationException If the field is not a real field
+   *                                        declared in the function.
+   */
+  public static boolean demotePrecision(String fieldId, String kind,
+                                        FfunctionDefinition fctDef,
+                                        XcodeProgram xcodeml)
+      throws IllegalTransformationException
+  {
+    Xid id = fctDef.getSymbolTable().get(fieldId);
+    Xnode decl = fctDef.getDeclarationTable().get(fieldId);
+    if(id == null || decl == null) {
+      throw new IllegalTransformationException("Variable " + fieldId +
+          " is not declared in " + fctDef.getName(), fctDef.lineNo());
+    }
+    if(!Type.isReal(id.getType(), xcodeml)) {
+      throw new IllegalTransformationException("Variable " + fieldId +
+          " is not a real and cannot be demoted", decl.lineNo());
+    }
+    FfunctionType fctType = xcodeml.getTypeTable().getFunctionType(fctDef);
+    if(fctType == null) {
+      throw new IllegalTransformationException("Function type " +
+          fctDef.getType() + " could not be found", fctDef.lineNo());
+    }
+
+    Map<String, String> mapping = new HashMap<>();
+    String type =
+        Type.duplicateWithKind(id.getType(), kind, xcodeml, mapping).getType();
+    id.setType(type);
+    decl.matchSeq(Xcode.NAME).setType(type);
+
+    boolean isParam = false;
+    for(Xnode param : fctType.getParameters()) {
+      if(param.value().equalsIgnoreCase(fieldId)) {
+        param.setType(type);
+        param.setAttribute(Xattr.DEMOTION_INFO, kind);
+        isParam = true;
+      }
+    }
+
+    // Update the references and the array references built on them
+    for(Xnode var : fctDef.body().matchAll(Xcode.VAR)) {
+      if(!var.value().equalsIgnoreCase(fieldId)) {
+        continue;
+      }
+      Xnode ref = var;
+      while(ref != null && (ref.is(Xcode.VAR) || ref.is(Xcode.VAR_REF)
+          || ref.is(Xcode.F_ARRAY_REF)))
+      {
+        if(mapping.containsKey(ref.getType())) {
+          ref.setType(mapping.get(ref.getType()));
+        }
+        ref = ref.ancestor();
+      }
+    }
+    return isParam;
+  }
+
   /**
    * Adapt all the array references of the variable in the data clause in the
    * current function/subroutine definition.
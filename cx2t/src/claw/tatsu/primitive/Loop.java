@@ -12,15 +12,14 @@ import claw.tatsu.xcodeml.abstraction.HoistedNestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
-import claw.tatsu.xcodeml.xnode.common.Xcode;
-import claw.tatsu.xcodeml.xnode.common.XcodeML;
-import claw.tatsu.xcodeml.xnode.common.Xnode;
-import claw.tatsu.xcodeml.xnode.common.Xscope;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import claw.tatsu.xcodeml.xnode.fortran.Xintrinsic;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * Primitive transformation and test applied on FdoStatement. This included:
@@ -28,7 +27,8 @@ import java.util.List;
  * - loop reorder (reorder)
  * - loop hoisting (hoist)
  * - extract body of a loop
- * - check iteration range
+ * - check iteration range and step
+ * - loop-invariant code motion (hoistInvariant)
  *
  * @author clementval
  */
@@ -36,6 +36,19 @@ public final class Loop {
 
   private static final String[] prevToDelete = {"acc loop", "omp do"};
   private static final String[] nextToDelete = {"omp end do"};
+  private static final String INVARIANT_PREFIX =
+      TatsuConstant.CLAW_PREFIX + "_inv_";
+
+  // Expressions worth being computed once before the loop
+  private static final List<Xcode> INVARIANT_EXPRESSIONS = Arrays.asList(
+      Xcode.PLUS_EXPR, Xcode.MINUS_EXPR, Xcode.MUL_EXPR, Xcode.DIV_EXPR,
+      Xcode.F_POWER_EXPR, Xcode.FUNCTION_CALL);
+
+  // Statements other than assignments modifying the variables they reference
+  private static final List<Xcode> WRITING_STATEMENTS = Arrays.asList(
+      Xcode.F_POINTER_ASSIGN_STATEMENT, Xcode.F_ALLOCATE_STATEMENT,
+      Xcode.F_DEALLOCATE_STATEMENT, Xcode.F_NULLIFY_STATEMENT,
+      Xcode.F_READ_STATEMENT);
 
   // Avoid potential instantiation of this class
   private Loop() {
@@ -455,6 +468,26 @@ public final class Loop {
     return compareIndexRanges(l1, l2, false);
   }
 
+  /**
+   * Check whether the do statement iterates with a unit step. A missing step
+   * is a unit step.
+   *
+   * @param doStmt Do statement to be checked.
+   * @return True if the step is 1. False otherwise or if the node is not a do
+   * statement.
+   */
+  public static boolean hasUnitStep(Xnode doStmt) {
+    Xnode indexRange = doStmt == null
+        ? null : doStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    if(!Xnode.isOfCode(doStmt, Xcode.F_DO_STATEMENT) || indexRange == null) {
+      return false;
+    }
+    Xnode step = indexRange.matchDirectDescendant(Xcode.STEP);
+    return step == null || step.firstChild() == null
+        || (step.firstChild().is(Xcode.F_INT_CONSTANT)
+        && step.firstChild().value().trim().equals("1"));
+  }
+
   /**
    * Create a do statement to iterate over an array from 1 to size.
    *
@@ -499,4 +532,203 @@ public final class Loop {
     return xcodeml.createDoStmt(induction, range);
   }
 
+  /**
+   * Move loop-invariant computations out of a nested do statement group.
+   * Only the statements directly located in the body of the inner do statement
+   * are considered as they are executed unconditionally at each iteration.
+   * - A scalar assignment is moved before the nest if its right hand side is
+   *   invariant, if the scalar is not assigned elsewhere in the nest and if it
+   *   is not read before the assignment in the loop body.
+   * - Invariant arithmetic sub-expressions and intrinsic calls of the
+   *   remaining assignments are computed once in a new scalar temporary
+   *   before the nest.
+   * An expression is invariant if none of the variables it references is
+   * written in the nest or is part of the given variant variables. The nest
+   * is assumed to iterate at least once, which is the case for the column
+   * loops generated by CLAW.
+   *
+   * @param xcodeml  Current translation unit.
+   * @param fctDef   Function definition in which the nest is located.
+   * @param nest     Nested do statement group.
+   * @param variants Variables varying in the nest even if not written in it
+   *                 (e.g. promoted fields).
+   * @return Names of the scalars now assigned before the nest. Newly created
+   * temporaries are included.
+   */
+  public static List<String> hoistInvariant(XcodeML xcodeml,
+                                            FfunctionDefinition fctDef,
+                                            NestedDoStatement nest,
+                                            Collection<String> variants)
+  {
+    List<String> hoisted = new ArrayList<>();
+    Xnode outer = nest.getOuterStatement();
+
+    // Procedure calls might modify any variable
+    for(Xnode call : outer.matchAll(Xcode.FUNCTION_CALL)) {
+      if(!call.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        return hoisted;
+      }
+    }
+
+    // Gather all variables written in the nest
+    Set<String> written = new HashSet<>();
+    variants.forEach(v -> written.add(v.toLowerCase()));
+    written.addAll(nest.getInductionVariables());
+    for(Xnode doStmt : outer.matchAll(Xcode.F_DO_STATEMENT)) {
+      written.add(extractInductionVariable(doStmt));
+    }
+    Map<String, Integer> assignments = new HashMap<>();
+    for(Xnode assign : outer.matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      for(String name : XnodeUtil.findAllReferences(assign.firstChild())) {
+        written.add(name.toLowerCase());
+        assignments.merge(name.toLowerCase(), 1, Integer::sum);
+      }
+    }
+    for(Xnode stmt : XnodeUtil.getNodes(outer, WRITING_STATEMENTS)) {
+      XnodeUtil.findAllReferences(stmt).
+          forEach(name -> written.add(name.toLowerCase()));
+    }
+
+    // Move invariant scalar assignments before the nest
+    Set<String> read = new HashSet<>();
+    List<Xnode> remaining = new ArrayList<>();
+    for(Xnode stmt : nest.getInnerStatement().body().children()) {
+      if(stmt.is(Xcode.F_ASSIGN_STATEMENT)
+          && Xnode.isOfCode(stmt.firstChild(), Xcode.VAR))
+      {
+        String name = stmt.firstChild().value().toLowerCase();
+        if(!variants.contains(name) && !read.contains(name)
+            && assignments.getOrDefault(name, 0) == 1
+            && isScalar(xcodeml, stmt.firstChild().getType())
+            && isInvariant(stmt.lastChild(), written))
+        {
+          outer.insertBefore(stmt);
+          written.remove(name);
+          hoisted.add(name);
+          continue;
+        }
+      }
+      if(stmt.is(Xcode.F_ASSIGN_STATEMENT)) {
+        remaining.add(stmt);
+      }
+      stmt.matchAll(Xcode.VAR).forEach(v -> read.add(v.value().toLowerCase()));
+    }
+
+    // Compute invariant sub-expressions in temporaries before the nest
+    for(Xnode assign : remaining) {
+      List<Xnode> expressions = new ArrayList<>();
+      gatherInvariantExpressions(xcodeml, assign.lastChild(), written,
+          expressions);
+      for(Xnode expr : expressions) {
+        String temporary = getTemporaryName(fctDef);
+        xcodeml.createIdAndDecl(temporary, expr.getType(),
+            XstorageClass.F_LOCAL, fctDef, DeclarationPosition.LAST);
+        expr.insertBefore(
+            xcodeml.createVar(expr.getType(), temporary, Xscope.LOCAL));
+        Xnode tmpAssign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+        tmpAssign.append(
+            xcodeml.createVar(expr.getType(), temporary, Xscope.LOCAL));
+        tmpAssign.append(expr);
+        assign.copyEnhancedInfo(tmpAssign);
+        outer.insertBefore(tmpAssign);
+        hoisted.add(temporary);
+      }
+    }
+    return hoisted;
+  }
+
+  /**
+   * Get a name for a new temporary not yet declared in the function.
+   *
+   * @param fctDef Function definition in which the temporary is declared.
+   * @return New temporary name.
+   */
+  private static String getTemporaryName(FfunctionDefinition fctDef) {
+    int counter = 0;
+    while(fctDef.getSymbolTable().contains(INVARIANT_PREFIX + counter)) {
+      ++counter;
+    }
+    return INVARIANT_PREFIX + counter;
+  }
+
+  /**
+   * Gather the largest invariant sub-expressions of an expression.
+   *
+   * @param xcodeml     Current translation unit.
+   * @param expr        Expression to be inspected.
+   * @param written     Variables written in the nest.
+   * @param expressions List filled with the invariant sub-expressions.
+   */
+  private static void gatherInvariantExpressions(XcodeML xcodeml, Xnode expr,
+                                                 Set<String> written,
+                                                 List<Xnode> expressions)
+  {
+    // Index computations are left to the compiler
+    if(expr == null || expr.is(Xcode.F_ARRAY_REF)) {
+      return;
+    }
+    if(INVARIANT_EXPRESSIONS.contains(expr.opcode())
+        && isNumericScalar(xcodeml, expr.getType())
+        && !expr.matchAll(Xcode.VAR).isEmpty()
+        && isInvariant(expr, written))
+    {
+      expressions.add(expr);
+      return;
+    }
+    for(Xnode child : expr.children()) {
+      gatherInvariantExpressions(xcodeml, child, written, expressions);
+    }
+  }
+
+  /**
+   * Check whether an expression is invariant in the nest.
+   *
+   * @param expr    Expression to be checked.
+   * @param written Variables written in the nest.
+   * @return True if no referenced variable is written in the nest.
+   */
+  private static boolean isInvariant(Xnode expr, Set<String> written) {
+    if(expr == null) {
+      return false;
+    }
+    for(Xnode call : expr.matchAll(Xcode.FUNCTION_CALL)) {
+      if(!call.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        return false;
+      }
+    }
+    List<Xnode> vars = expr.matchAll(Xcode.VAR);
+    if(expr.is(Xcode.VAR)) {
+      vars.add(expr);
+    }
+    return vars.stream().
+        noneMatch(v -> written.contains(v.value().toLowerCase()));
+  }
+
+  /**
+   * Check whether the type is a scalar type.
+   *
+   * @param xcodeml Current translation unit.
+   * @param type    Type hash or built-in type.
+   * @return True if the type is not an array nor a derived type.
+   */
+  private static boolean isScalar(XcodeML xcodeml, String type) {
+    if(type == null || xcodeml.getTypeTable().isStructType(type)) {
+      return false;
+    }
+    return !xcodeml.getTypeTable().isBasicType(type)
+        || !xcodeml.getTypeTable().getBasicType(type).isArray();
+  }
+
+  /**
+   * Check whether the type is a numeric scalar type.
+   *
+   * @param xcodeml Current translation unit.
+   * @param type    Type hash or built-in type.
+   * @return True if the type is a scalar integer, real or complex.
+   */
+  private static boolean isNumericScalar(XcodeML xcodeml, String type) {
+    return isScalar(xcodeml, type) && (FortranType.INTEGER.isOfType(type)
+        || FortranType.REAL.isOfType(type)
+        || FortranType.COMPLEX.isOfType(type));
+  }
 }
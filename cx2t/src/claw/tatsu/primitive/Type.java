@@ -6,13 +6,17 @@ package claw.tatsu.primitive;
 
 import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeML;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.Xscope;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author clementval
@@ -97,6 +101,92 @@ public class Type {
     return newType;
   }
 
+  /**
+   * Check whether a type is a real type or an array of real.
+   *
+   * @param hash    Hash of the type to be checked.
+   * @param xcodeml Current XcodeML unit.
+   * @return True if the type or its element type is real.
+   */
+  public static boolean isReal(String hash, XcodeML xcodeml) {
+    while(xcodeml.getTypeTable().isBasicType(hash)) {
+      hash = xcodeml.getTypeTable().getBasicType(hash).getRef();
+    }
+    return Xname.TYPE_F_REAL.equals(hash);
+  }
+
+  /**
+   * Get the kind of a real type or of the elements of an array of real.
+   *
+   * @param hash    Hash of the type.
+   * @param xcodeml Current XcodeML unit.
+   * @return Value of the kind. Empty string for the default kind or if the
+   * type is not a real type.
+   */
+  public static String getRealKind(String hash, XcodeML xcodeml) {
+    while(xcodeml.getTypeTable().isBasicType(hash)) {
+      FbasicType type = xcodeml.getTypeTable().getBasicType(hash);
+      if(Xname.TYPE_F_REAL.equals(type.getRef())) {
+        return type.hasKind() && type.getKind().firstChild() != null ?
+            type.getKind().firstChild().value() : "";
+      }
+      hash = type.getRef();
+    }
+    return "";
+  }
+
+  /**
+   * Duplicates a real type with another kind. The types referenced by an
+   * array type are duplicated as well so the kind of the elements changes.
+   *
+   * @param hash    Hash of the real type to be duplicated.
+   * @param kind    New kind. Integer value or name of an integer constant.
+   * @param xcodeml Current XcodeML unit. Duplicates are created here.
+   * @param mapping Filled with the hash of each duplicated type associated
+   *                with the hash of its duplicate.
+   * @return The new type added to the type table.
+   * @throws IllegalTransformationException If the type is not a real type.
+   */
+  public static FbasicType duplicateWithKind(String hash, String kind,
+                                             XcodeML xcodeml,
+                                             Map<String, String> mapping)
+      throws IllegalTransformationException
+  {
+    FbasicType newType;
+    if(Xname.TYPE_F_REAL.equals(hash)) {
+      newType = xcodeml.createBasicType(FortranType.REAL, Intent.NONE);
+    } else {
+      FbasicType base = xcodeml.getTypeTable().getBasicType(hash);
+      if(base == null || !isReal(hash, xcodeml)) {
+        throw new IllegalTransformationException("Type " + hash +
+            " is not a real type and its kind cannot be changed.");
+      }
+      newType = base.cloneNode();
+      newType.setType(xcodeml.getTypeTable().generateHash(
+          base.isArray() ? FortranType.ARRAY : FortranType.REAL));
+      if(!Xname.TYPE_F_REAL.equals(base.getRef())) {
+        newType.setRef(duplicateWithKind(base.getRef(), kind, xcodeml,
+            mapping).getType());
+        xcodeml.getTypeTable().add(newType);
+        mapping.put(hash, newType.getType());
+        return newType;
+      }
+      if(newType.hasKind()) {
+        newType.getKind().delete();
+      }
+    }
+
+    Xnode kindNode = xcodeml.createNode(Xcode.KIND);
+    kindNode.append(kind.matches("[0-9]+") ?
+        xcodeml.createIntConstant(Integer.parseInt(kind)) :
+        xcodeml.createVar(FortranType.INTEGER, kind, Xscope.LOCAL));
+    newType.insert(kindNode);
+    newType = new FbasicType(newType);
+    xcodeml.getTypeTable().add(newType);
+    mapping.put(hash, newType.getType());
+    return newType;
+  }
+
   /**
    * Duplicate a lower or an upper bound between two different XcodeML units.
    *
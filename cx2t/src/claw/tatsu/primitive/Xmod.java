@@ -7,6 +7,7 @@ package claw.tatsu.primitive;
 import claw.tatsu.common.Context;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.module.SignatureUpdate;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
@@ -77,6 +78,7 @@ public final class Xmod {
       String path = dir + "/" + moduleName + moduleSuffix;
       File f = new File(path);
       if(f.exists()) {
+        Context.get().getDependencies().addInput(path);
         Document doc = XnodeUtil.readXmlFile(path);
         return doc != null ? new FortranModule(doc, moduleName, dir) : null;
       }
@@ -157,6 +159,9 @@ public final class Xmod {
       }
       Context.get().getModuleCache().add(moduleName, mod);
     }
+    Context.get().getModuleCache().markDirty(moduleName);
+    Context.get().getModuleCache().recordSignatureUpdate(
+        new SignatureUpdate(moduleName, fctDef, fctType, importFctType));
 
     FfunctionType fctTypeMod;
     if(importFctType) {
@@ -197,9 +202,8 @@ public final class Xmod {
       }
     }
 
-    FbasicType modIntTypeIntentIn =
-        mod.createBasicType(FortranType.INTEGER, Intent.IN);
-    mod.getTypeTable().add(modIntTypeIntentIn);
+    // Only added when needed so an unchanged signature gives the same file
+    FbasicType modIntTypeIntentIn = null;
 
     List<Xnode> paramsLocal = fctType.getParameters();
     List<Xnode> paramsMod = fctTypeMod.getParameters();
@@ -213,11 +217,24 @@ public final class Xmod {
       Xnode pLocal = paramsLocal.get(i);
       // Number of parameters in the module function as been
       if(pLocal.getBooleanAttribute(Xattr.IS_INSERTED)) {
-        // new parameter
+        // new parameter. Promoted fields keep their type, others are sizes.
+        String type;
+        if(pLocal.hasAttribute(Xattr.PROMOTION_INFO)) {
+          mod.importType(xcodeml, pLocal.getType());
+          type = pLocal.getType();
+        } else {
+          if(modIntTypeIntentIn == null) {
+            modIntTypeIntentIn =
+                mod.createBasicType(FortranType.INTEGER, Intent.IN);
+            mod.getTypeTable().add(modIntTypeIntentIn);
+          }
+          type = modIntTypeIntentIn.getType();
+        }
         Xnode param = mod.createAndAddParamIfNotExists(pLocal.value(),
-            modIntTypeIntentIn.getType(), fctTypeMod);
+            type, fctTypeMod);
         if(param != null) {
           param.setBooleanAttribute(Xattr.IS_INSERTED, true);
+          pLocal.copyAttribute(param, Xattr.PROMOTION_INFO);
         }
       } else {
         Xnode pMod = paramsMod.get(i);
@@ -4,10 +4,13 @@
  */
 package claw.tatsu.xcodeml.abstraction;
 
+import claw.tatsu.directive.common.ReductionOperator;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.Xintrinsic;
 import org.w3c.dom.Element;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -128,4 +131,86 @@ public class AssignStatement extends Xnode {
         || Xnode.isOfCode(getLhs(), Xcode.F_REAL_CONSTANT)
         || usedVars.isEmpty();
   }
+
+  /**
+   * Check whether the assignment is a reduction statement. The left
+   * hand-side must be a scalar variable which is used exactly once in the
+   * right hand-side as an operand of an associative operator or of a MAX/MIN
+   * intrinsic call.
+   * e.g. s = s + a(i), s = a(i) * s, s = MAX(s, a(i)), s = s - a(i)
+   *
+   * @return Reduction operator if the assignment is a reduction. Null
+   * otherwise.
+   */
+  public ReductionOperator getReductionOperator() {
+    Xnode lhs = getLhs();
+    Xnode rhs = getRhs();
+    if(!Xnode.isOfCode(lhs, Xcode.VAR) || rhs == null) {
+      return null;
+    }
+
+    ReductionOperator operator;
+    List<Xnode> operands = new ArrayList<>();
+    switch(rhs.opcode()) {
+      case PLUS_EXPR:
+        operator = ReductionOperator.SUM;
+        gatherOperands(rhs, operands);
+        break;
+      case MINUS_EXPR:
+        // Only s = s - x is a reduction. s = x - s is not.
+        operator = ReductionOperator.SUM;
+        operands.add(rhs.firstChild());
+        break;
+      case MUL_EXPR:
+        operator = ReductionOperator.PRODUCT;
+        gatherOperands(rhs, operands);
+        break;
+      case LOG_AND_EXPR:
+        operator = ReductionOperator.AND;
+        gatherOperands(rhs, operands);
+        break;
+      case LOG_OR_EXPR:
+        operator = ReductionOperator.OR;
+        gatherOperands(rhs, operands);
+        break;
+      case FUNCTION_CALL:
+        FunctionCall fctCall = new FunctionCall(rhs);
+        if(fctCall.isIntrinsicCall(Xintrinsic.MAX)) {
+          operator = ReductionOperator.MAX;
+        } else if(fctCall.isIntrinsicCall(Xintrinsic.MIN)) {
+          operator = ReductionOperator.MIN;
+        } else {
+          return null;
+        }
+        operands.addAll(fctCall.arguments());
+        break;
+      default:
+        return null;
+    }
+
+    String name = lhs.value();
+    long asOperand = operands.stream()
+        .filter(o -> Xnode.isOfCode(o, Xcode.VAR)
+            && o.value().equalsIgnoreCase(name)).count();
+    long inRhs = rhs.matchAll(Xcode.VAR).stream()
+        .filter(v -> v.value().equalsIgnoreCase(name)).count();
+    return asOperand == 1 && inRhs == 1 ? operator : null;
+  }
+
+  /**
+   * Gather the operands of a chain of the same associative operator.
+   * e.g. (a + s) + b gives a, s and b.
+   *
+   * @param expr     Binary expression node.
+   * @param operands List in which the operands are added.
+   */
+  private void gatherOperands(Xnode expr, List<Xnode> operands) {
+    for(Xnode operand : expr.children()) {
+      if(operand.opcode() == expr.opcode()) {
+        gatherOperands(operand, operands);
+      } else {
+        operands.add(operand);
+      }
+    }
+  }
 }
@@ -0,0 +1,83 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.backend;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writer applying a filter on each line before forwarding it to the
+ * underlying writer. Used to post-process the decompiled code while it is
+ * written instead of rewriting the output file afterwards.
+ *
+ * @author clementval
+ */
+class LineFilterWriter extends FilterWriter {
+
+  private final UnaryOperator<String> _filter;
+  private final StringBuilder _line = new StringBuilder();
+
+  /**
+   * Constructs a new line filtering writer.
+   *
+   * @param out    Underlying writer.
+   * @param filter Filter applied on each line without its line terminator.
+   */
+  LineFilterWriter(Writer out, UnaryOperator<String> filter) {
+    super(out);
+    _filter = filter;
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    if(c == '\n') {
+      flushLine();
+      out.write(c);
+    } else {
+      _line.append((char) c);
+    }
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    for(int i = off; i < off + len; ++i) {
+      write(cbuf[i]);
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    for(int i = off; i < off + len; ++i) {
+      write(str.charAt(i));
+    }
+  }
+
+  /**
+   * Flush the pending line, even if not terminated, and the underlying
+   * writer. The decompiler only flushes once its output is complete.
+   *
+   * @throws IOException If the underlying writer fails.
+   */
+  @Override
+  public void flush() throws IOException {
+    flushLine();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushLine();
+    out.close();
+  }
+
+  private void flushLine() throws IOException {
+    if(_line.length() > 0) {
+      out.write(_filter.apply(_line.toString()));
+      _line.setLength(0);
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.backend;
+
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Keep track of the top level program units (FfunctionDefinition and
+ * FmoduleDefinition elements of the global declarations) modified since the
+ * tracker was created. A digest of each unit is computed when the tracker is
+ * created and compared with the digest of the current tree. The digest of a
+ * unit covers its whole subtree and the type table entries it references
+ * directly or indirectly.
+ *
+ * @author clementval
+ */
+public class ModifiedUnitTracker {
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final List<Xattr> TYPE_ATTRIBUTES =
+      Arrays.asList(Xattr.TYPE, Xattr.REF, Xattr.RETURN_TYPE, Xattr.EXTENDS);
+
+  private final XcodeProgram _xcodeml;
+  private final List<Node> _units;
+  private final List<byte[]> _unitDigests;
+  private final byte[] _globalDigest;
+
+  /**
+   * Constructs a new tracker and take a snapshot of the current state of the
+   * program units.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   */
+  public ModifiedUnitTracker(XcodeProgram xcodeml) {
+    _xcodeml = xcodeml;
+    _units = new ArrayList<>();
+    _unitDigests = new ArrayList<>();
+    Map<String, Node> types = getTypes();
+    for(Xnode unit : getUnits()) {
+      _units.add(unit.element());
+      _unitDigests.add(digestUnit(unit.element(), types));
+    }
+    _globalDigest = digestGlobal();
+  }
+
+  /**
+   * Get the top level program units in their current order.
+   *
+   * @return List of FfunctionDefinition and FmoduleDefinition nodes.
+   */
+  public List<Xnode> getUnits() {
+    List<Xnode> units = new ArrayList<>();
+    Xnode globalDeclarations = _xcodeml.getGlobalDeclarationsTable();
+    if(globalDeclarations == null || globalDeclarations.element() == null) {
+      return units;
+    }
+    for(Xnode child : globalDeclarations.children()) {
+      if(isUnit(child)) {
+        units.add(child);
+      }
+    }
+    return units;
+  }
+
+  /**
+   * Check whether units have been added, removed, replaced or reordered or
+   * whether the global symbols or the other global declarations changed. In
+   * this case, the program cannot be decompiled unit by unit.
+   *
+   * @return True if the structure of the program changed.
+   */
+  public boolean hasStructuralChange() {
+    List<Xnode> units = getUnits();
+    if(units.size() != _units.size()) {
+      return true;
+    }
+    for(int i = 0; i < units.size(); ++i) {
+      if(units.get(i).element() != _units.get(i)) {
+        return true;
+      }
+    }
+    return !Arrays.equals(_globalDigest, digestGlobal());
+  }
+
+  /**
+   * Get the units modified since the tracker was created. Units that were not
+   * present when the tracker was created are reported as modified.
+   *
+   * @return Set of modified units in their current order.
+   */
+  public List<Xnode> getModifiedUnits() {
+    List<Xnode> modified = new ArrayList<>();
+    Map<String, Node> types = getTypes();
+    for(Xnode unit : getUnits()) {
+      int idx = indexOf(unit.element());
+      if(idx < 0 || !Arrays.equals(_unitDigests.get(idx),
+          digestUnit(unit.element(), types)))
+      {
+        modified.add(unit);
+      }
+    }
+    return modified;
+  }
+
+  private int indexOf(Node unit) {
+    for(int i = 0; i < _units.size(); ++i) {
+      if(_units.get(i) == unit) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Check whether the node is a top level program unit.
+   *
+   * @param node Node to check.
+   * @return True if the node is a function or module definition.
+   */
+  private static boolean isUnit(Xnode node) {
+    return node.is(Xcode.F_FUNCTION_DEFINITION)
+        || node.is(Xcode.F_MODULE_DEFINITION);
+  }
+
+  /**
+   * Map the type hashes to their type table entry.
+   *
+   * @return Map of type hash to type table node.
+   */
+  private Map<String, Node> getTypes() {
+    Map<String, Node> types = new HashMap<>();
+    if(_xcodeml.getTypeTable() == null) {
+      return types;
+    }
+    for(Xnode type : _xcodeml.getTypeTable().values()) {
+      types.put(type.getAttribute(Xattr.TYPE), type.element());
+    }
+    return types;
+  }
+
+  /**
+   * Compute the digest of a unit and of the type table entries it uses.
+   *
+   * @param unit  Unit element.
+   * @param types Type table entries by type hash.
+   * @return Digest of the unit.
+   */
+  private static byte[] digestUnit(Node unit, Map<String, Node> types) {
+    MessageDigest md = createDigest();
+    Set<String> usedTypes = new LinkedHashSet<>();
+    update(md, unit, usedTypes);
+    Set<String> visited = new HashSet<>();
+    Deque<String> pending = new ArrayDeque<>(usedTypes);
+    while(!pending.isEmpty()) {
+      String hash = pending.poll();
+      if(!visited.add(hash)) {
+        continue;
+      }
+      Node type = types.get(hash);
+      if(type == null) {
+        continue;
+      }
+      Set<String> referenced = new LinkedHashSet<>();
+      update(md, type, referenced);
+      pending.addAll(referenced);
+    }
+    return md.digest();
+  }
+
+  /**
+   * Compute the digest of the global symbols and of the global declarations
+   * that are not program units.
+   *
+   * @return Digest of the global information.
+   */
+  private byte[] digestGlobal() {
+    MessageDigest md = createDigest();
+    Set<String> ignored = new HashSet<>();
+    if(_xcodeml.getGlobalSymbolsTable() != null
+        && _xcodeml.getGlobalSymbolsTable().element() != null)
+    {
+      update(md, _xcodeml.getGlobalSymbolsTable().element(), ignored);
+    }
+    Xnode globalDeclarations = _xcodeml.getGlobalDeclarationsTable();
+    if(globalDeclarations != null && globalDeclarations.element() != null) {
+      for(Xnode child : globalDeclarations.children()) {
+        if(!isUnit(child)) {
+          update(md, child.element(), ignored);
+        }
+      }
+    }
+    return md.digest();
+  }
+
+  /**
+   * Feed a subtree into the digest and collect the referenced type hashes.
+   *
+   * @param md        Digest to update.
+   * @param node      Root of the subtree.
+   * @param usedTypes Set receiving the referenced type hashes.
+   */
+  private static void update(MessageDigest md, Node node,
+                             Set<String> usedTypes)
+  {
+    switch(node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        md.update((byte) '<');
+        updateString(md, node.getNodeName());
+        updateAttributes(md, (Element) node, usedTypes);
+        for(Node child = node.getFirstChild(); child != null;
+            child = child.getNextSibling())
+        {
+          update(md, child, usedTypes);
+        }
+        md.update((byte) '>');
+        break;
+      case Node.TEXT_NODE:
+      case Node.CDATA_SECTION_NODE:
+      case Node.COMMENT_NODE:
+        md.update((byte) node.getNodeType());
+        updateString(md, node.getNodeValue());
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static void updateAttributes(MessageDigest md, Element element,
+                                       Set<String> usedTypes)
+  {
+    NamedNodeMap attributes = element.getAttributes();
+    SortedMap<String, String> sorted = new TreeMap<>();
+    for(int i = 0; i < attributes.getLength(); ++i) {
+      Node attribute = attributes.item(i);
+      sorted.put(attribute.getNodeName(), attribute.getNodeValue());
+    }
+    for(Map.Entry<String, String> attribute : sorted.entrySet()) {
+      md.update((byte) '@');
+      updateString(md, attribute.getKey());
+      updateString(md, attribute.getValue());
+    }
+    for(Xattr typeAttribute : TYPE_ATTRIBUTES) {
+      String hash = sorted.get(typeAttribute.toString());
+      if(hash != null && !hash.isEmpty()) {
+        usedTypes.add(hash);
+      }
+    }
+  }
+
+  private static void updateString(MessageDigest md, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    md.update((byte) (bytes.length >>> 24));
+    md.update((byte) (bytes.length >>> 16));
+    md.update((byte) (bytes.length >>> 8));
+    md.update((byte) bytes.length);
+    md.update(bytes);
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch(NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
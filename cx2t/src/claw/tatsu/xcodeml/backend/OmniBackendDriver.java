@@ -4,8 +4,15 @@
  */
 package claw.tatsu.xcodeml.backend;
 
+import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.XcodeML;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 import xcodeml.util.*;
 
@@ -13,6 +20,15 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
 
 /**
  * Wrapper class to call the Fortran decompiler of OMNI Compiler directly
@@ -24,6 +40,8 @@ public class OmniBackendDriver {
 
   private BufferedReader _reader;
   private XmToolFactory _toolFactory;
+  private UnaryOperator<String> _lineFilter;
+  private int _threads = 1;
 
   /**
    * Constructs a new OmniBackendDriver object.
@@ -39,6 +57,27 @@ public class OmniBackendDriver {
     }
   }
 
+  /**
+   * Set a filter applied on each line of the decompiled code while it is
+   * written.
+   *
+   * @param lineFilter Filter applied on each line without its line
+   *                   terminator. Null to disable filtering.
+   */
+  public void setLineFilter(UnaryOperator<String> lineFilter) {
+    _lineFilter = lineFilter;
+  }
+
+  /**
+   * Set the number of threads used to decompile the program units of a
+   * translation unit concurrently.
+   *
+   * @param threads Number of threads. 1 or less decompiles sequentially.
+   */
+  public void setThreads(int threads) {
+    _threads = threads;
+  }
+
   private boolean openXcodeMLFile(String inputFilepath)
   {
     if(_reader != null) {
@@ -85,40 +124,23 @@ public class OmniBackendDriver {
   private boolean decompile(String outputFilepath, Document xcodeml,
                             int maxColumns, boolean lineDirectives)
   {
-    if(!lineDirectives) {
-      XmOption.setIsSuppressLineDirective(true);
-    }
-    XmOption.setDebugOutput(false);
+    setDecompilerOptions(lineDirectives);
 
     PrintWriter writer = null;
     try {
-      if(outputFilepath == null || outputFilepath.isEmpty()) {
-        writer = new PrintWriter(System.out);
-      } else {
-        writer = new PrintWriter(new BufferedWriter(new
-            FileWriter(outputFilepath)));
-      }
+      writer = new PrintWriter(openOutput(outputFilepath));
     } catch(IOException e) {
       System.err.println(e.getMessage());
     }
 
     try {
-      XmDecompiler decompiler = _toolFactory.createDecompiler();
-      XmDecompilerContext context = _toolFactory.createDecompilerContext();
-
-      if(maxColumns > 0) {
-        context.setProperty(XmDecompilerContext.KEY_MAX_COLUMNS, "" +
-            maxColumns);
-      }
-
-      decompiler.decompile(context, xcodeml, writer);
-
-      if(writer != null) {
-        writer.flush();
-      } else {
+      if(writer == null) {
         return false;
       }
-      return true;
+      if(_threads > 1 && decompileParallel(xcodeml, writer, maxColumns)) {
+        return true;
+      }
+      return decompile(xcodeml, writer, maxColumns);
     } catch(Exception ex) {
       if(_reader != null) {
         try {
@@ -134,6 +156,343 @@ public class OmniBackendDriver {
     return false;
   }
 
+  /**
+   * Decompile only the modified program units of the translation unit and
+   * splice them into the original source. Unmodified units are copied as they
+   * are from the source. Nothing is written if the splicing is not possible
+   * and the caller must then decompile the whole translation unit.
+   *
+   * @param outputFilepath Fortran output file path.
+   * @param xcodeml        XcodeML translation unit.
+   * @param tracker        Tracker created before the translation.
+   * @param sourceFilepath Preprocessed source file of the translation unit.
+   * @param maxColumns     Maximum number of column for the output file.
+   * @param lineDirectives If true, preprocessor line directives are added.
+   * @return True if the spliced source has been written. False otherwise.
+   */
+  public boolean decompileSpliced(String outputFilepath, XcodeProgram xcodeml,
+                                  ModifiedUnitTracker tracker,
+                                  String sourceFilepath, int maxColumns,
+                                  boolean lineDirectives)
+  {
+    setDecompilerOptions(lineDirectives);
+    Node declarations = xcodeml.getGlobalDeclarationsTable() == null ?
+        null : xcodeml.getGlobalDeclarationsTable().element();
+    if(declarations == null) {
+      return false;
+    }
+    try {
+      List<String> lines = Files.readAllLines(Paths.get(sourceFilepath),
+          StandardCharsets.ISO_8859_1);
+      SourceSplicer splicer = new SourceSplicer(sourceFilepath, lines,
+          !XmOption.isSuppressLineDirective());
+      StringWriter spliced = new StringWriter();
+      if(!splicer.splice(tracker, unit -> decompileUnit(xcodeml.getDocument(),
+          declarations, unit, maxColumns), spliced))
+      {
+        return false;
+      }
+      try(Writer out = openOutput(outputFilepath)) {
+        out.write(spliced.toString());
+      }
+      return true;
+    } catch(Exception ex) {
+      System.err.println(ex.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Decompile a single program unit. The other global declarations are
+   * detached from the document during the decompilation and restored
+   * afterwards in their original order.
+   *
+   * @param xcodeml      XcodeML document.
+   * @param declarations Global declarations element.
+   * @param unit         Unit to be decompiled.
+   * @param maxColumns   Maximum number of column for the output file.
+   * @return Decompiled code. Null if the decompilation failed.
+   * @throws Exception If the decompiler failed.
+   */
+  private String decompileUnit(Document xcodeml, Node declarations,
+                               Xnode unit, int maxColumns)
+      throws Exception
+  {
+    List<Node> children = new ArrayList<>();
+    for(Node child = declarations.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      children.add(child);
+    }
+    for(Node child : children) {
+      if(child != unit.element()) {
+        declarations.removeChild(child);
+      }
+    }
+    try {
+      StringWriter code = new StringWriter();
+      return decompile(xcodeml, new PrintWriter(code), maxColumns) ?
+          code.toString() : null;
+    } finally {
+      declarations.removeChild(unit.element());
+      for(Node child : children) {
+        declarations.appendChild(child);
+      }
+    }
+  }
+
+  /**
+   * Decompile the program units of the document concurrently and write their
+   * code in the original order. The decompiler options are static. They are
+   * set on the calling thread before the units are submitted and must not be
+   * modified by the decompiler. This is checked once all the units are
+   * decompiled and nothing is written if an option changed.
+   *
+   * @param xcodeml    XcodeML document.
+   * @param writer     Writer receiving the decompiled code.
+   * @param maxColumns Maximum number of column for the output file.
+   * @return True if the decompilation succeeded. False if the document cannot
+   * be split into program units or if the decompiler options changed. Nothing
+   * is written in this case.
+   * @throws Exception If the decompiler failed.
+   */
+  private boolean decompileParallel(Document xcodeml, PrintWriter writer,
+                                    int maxColumns)
+      throws Exception
+  {
+    List<Document> units = splitUnits(xcodeml);
+    if(units.size() < 2) {
+      return false;
+    }
+    boolean suppressLineDirective = XmOption.isSuppressLineDirective();
+    boolean debugOutput = XmOption.isDebugOutput();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(_threads, units.size()));
+    List<String> codes = new ArrayList<>();
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for(Document unit : units) {
+        results.add(executor.submit(() -> {
+          StringWriter code = new StringWriter();
+          decompile(unit, new PrintWriter(code), maxColumns);
+          return code.toString();
+        }));
+      }
+      for(Future<String> result : results) {
+        try {
+          codes.add(result.get());
+        } catch(ExecutionException e) {
+          throw e.getCause() instanceof Exception ?
+              (Exception) e.getCause() : e;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    if(suppressLineDirective != XmOption.isSuppressLineDirective()
+        || debugOutput != XmOption.isDebugOutput())
+    {
+      XmOption.setIsSuppressLineDirective(suppressLineDirective);
+      XmOption.setDebugOutput(debugOutput);
+      return false;
+    }
+    for(String code : codes) {
+      writer.write(code);
+    }
+    writer.flush();
+    return true;
+  }
+
+  /**
+   * Split a document into one document per program unit. Each document holds
+   * a single unit of the global declarations, a copy of the global symbols
+   * and a copy of the type table entries reachable from them. DOM trees are
+   * not safe for concurrent reads so the shared context is copied instead of
+   * being shared between threads. Only the reachable types are copied so the
+   * cost of the split does not grow with the number of units times the size
+   * of the type table.
+   *
+   * @param xcodeml XcodeML document.
+   * @return One document per program unit. Empty if the global declarations
+   * contain anything else than function and module definitions.
+   * @throws ParserConfigurationException If documents cannot be created.
+   */
+  static List<Document> splitUnits(Document xcodeml)
+      throws ParserConfigurationException
+  {
+    Element root = xcodeml.getDocumentElement();
+    Element declarations = null;
+    Node typeTable = null;
+    for(Node child = root.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      if(Xname.GLOBAL_DECLARATIONS.equals(child.getNodeName())) {
+        declarations = (Element) child;
+      } else if(Xname.TYPE_TABLE.equals(child.getNodeName())) {
+        typeTable = child;
+      }
+    }
+    List<Document> units = new ArrayList<>();
+    if(declarations == null) {
+      return units;
+    }
+
+    List<Node> unitNodes = new ArrayList<>();
+    for(Node child = declarations.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      if(child.getNodeType() != Node.ELEMENT_NODE) {
+        continue;
+      }
+      if(!Xname.F_FUNCTION_DEFINITION.equals(child.getNodeName())
+          && !Xname.F_MODULE_DEFINITION.equals(child.getNodeName()))
+      {
+        return units;
+      }
+      unitNodes.add(child);
+    }
+
+    // Type table entries by name and position
+    Map<String, Node> types = new HashMap<>();
+    Map<Node, Integer> positions = new HashMap<>();
+    if(typeTable != null) {
+      for(Node type = typeTable.getFirstChild(); type != null;
+          type = type.getNextSibling())
+      {
+        if(type.getNodeType() == Node.ELEMENT_NODE) {
+          types.put(((Element) type).getAttribute(Xname.ATTR_TYPE), type);
+          positions.put(type, positions.size());
+        }
+      }
+    }
+
+    // Types used by the other sections are needed by every unit
+    Set<Node> sharedTypes = new HashSet<>();
+    for(Node child = root.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      if(child != declarations && child != typeTable) {
+        collectTypes(child, types, sharedTypes);
+      }
+    }
+
+    DocumentBuilder builder = XnodeUtil.createDocumentBuilder();
+    for(Node unitNode : unitNodes) {
+      Set<Node> unitTypes = new HashSet<>(sharedTypes);
+      collectTypes(unitNode, types, unitTypes);
+      List<Node> orderedTypes = new ArrayList<>(unitTypes);
+      orderedTypes.sort(Comparator.comparing(positions::get));
+
+      Document unit = builder.newDocument();
+      Node unitRoot = unit.importNode(root, false);
+      unit.appendChild(unitRoot);
+      for(Node child = root.getFirstChild(); child != null;
+          child = child.getNextSibling())
+      {
+        if(child == declarations) {
+          Node unitDeclarations = unit.importNode(declarations, false);
+          unitDeclarations.appendChild(unit.importNode(unitNode, true));
+          unitRoot.appendChild(unitDeclarations);
+        } else if(child == typeTable) {
+          Node unitTypeTable = unit.importNode(typeTable, false);
+          for(Node type : orderedTypes) {
+            unitTypeTable.appendChild(unit.importNode(type, true));
+          }
+          unitRoot.appendChild(unitTypeTable);
+        } else {
+          unitRoot.appendChild(unit.importNode(child, true));
+        }
+      }
+      units.add(unit);
+    }
+    return units;
+  }
+
+  /**
+   * Collect the type table entries referenced from a node and, transitively,
+   * from the entries themselves. Any attribute value naming an entry of the
+   * type table is a reference.
+   *
+   * @param from  Root of the search.
+   * @param types Type table entries by name.
+   * @param used  Set receiving the referenced entries.
+   */
+  private static void collectTypes(Node from, Map<String, Node> types,
+                                   Set<Node> used)
+  {
+    Deque<Node> pending = new ArrayDeque<>();
+    pending.push(from);
+    while(!pending.isEmpty()) {
+      Node node = pending.pop();
+      NamedNodeMap attributes = node.getAttributes();
+      for(int i = 0; attributes != null && i < attributes.getLength(); ++i) {
+        Node type = types.get(attributes.item(i).getNodeValue());
+        if(type != null && used.add(type)) {
+          pending.push(type);
+        }
+      }
+      for(Node child = node.getFirstChild(); child != null;
+          child = child.getNextSibling())
+      {
+        pending.push(child);
+      }
+    }
+  }
+
+  /**
+   * Run the OMNI decompiler on a document.
+   *
+   * @param xcodeml    XcodeML document.
+   * @param writer     Writer receiving the decompiled code.
+   * @param maxColumns Maximum number of column for the output file.
+   * @return True if the decompilation succeeded. False otherwise.
+   * @throws Exception If the decompiler failed.
+   */
+  private boolean decompile(Document xcodeml, PrintWriter writer,
+                            int maxColumns)
+      throws Exception
+  {
+    XmDecompiler decompiler = _toolFactory.createDecompiler();
+    XmDecompilerContext context = _toolFactory.createDecompilerContext();
+
+    if(maxColumns > 0) {
+      context.setProperty(XmDecompilerContext.KEY_MAX_COLUMNS, "" +
+          maxColumns);
+    }
+
+    decompiler.decompile(context, xcodeml, writer);
+    writer.flush();
+    return true;
+  }
+
+  private static void setDecompilerOptions(boolean lineDirectives) {
+    if(!lineDirectives) {
+      XmOption.setIsSuppressLineDirective(true);
+    }
+    XmOption.setDebugOutput(false);
+  }
+
+  /**
+   * Open the output of the decompiled code. The line filter is applied on the
+   * output if it is set.
+   *
+   * @param outputFilepath Output file path. Standard output if null or empty.
+   * @return Writer on the output.
+   * @throws IOException If the output file cannot be opened.
+   */
+  private Writer openOutput(String outputFilepath) throws IOException {
+    Writer out;
+    if(outputFilepath == null || outputFilepath.isEmpty()) {
+      out = new OutputStreamWriter(System.out);
+    } else {
+      out = new BufferedWriter(new FileWriter(outputFilepath));
+    }
+    if(_lineFilter != null) {
+      out = new LineFilterWriter(out, _lineFilter);
+    }
+    return out;
+  }
+
   /**
    * Decompile the XcodeML file into Fortran code.
    *
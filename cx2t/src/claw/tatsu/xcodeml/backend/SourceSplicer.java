@@ -0,0 +1,270 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.backend;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splice the decompiled code of the modified program units into the original
+ * preprocessed source. The unmodified units are copied byte for byte from the
+ * source so only the transformed code differs from the input.
+ *
+ * Units are located in the source with their lineno and file attributes. The
+ * preprocessor line markers of the source are used to map these positions to
+ * physical lines. The splicing is refused when the units cannot be located
+ * safely and the caller must then fall back to a full decompilation.
+ *
+ * @author clementval
+ */
+class SourceSplicer {
+
+  private static final Pattern LINE_MARKER =
+      Pattern.compile("^#\\s*(?:line\\s+)?(\\d+)\\s+\"([^\"]*)\".*$");
+  private static final List<String> FIXED_FORM_EXTENSIONS =
+      Arrays.asList("f", "for", "ftn", "f77");
+  private static final List<String> FUNCTION_KEYWORDS =
+      Arrays.asList("program", "subroutine", "function", "block");
+  private static final String MODULE_KEYWORD = "module";
+  private static final String END_KEYWORD = "end";
+
+  private final String _sourceFile;
+  private final List<String> _lines;
+  private final boolean _lineDirectives;
+  private final boolean[] _markers;
+  private final int[] _lineNos;
+  private final String[] _files;
+
+  /**
+   * Unit decompiler used to produce the code of a modified unit.
+   */
+  @FunctionalInterface
+  interface UnitDecompiler {
+    /**
+     * Decompile a single program unit.
+     *
+     * @param unit Unit to be decompiled.
+     * @return Decompiled code of the unit. Null if the decompilation failed.
+     * @throws Exception If the decompilation failed.
+     */
+    String decompile(Xnode unit) throws Exception;
+  }
+
+  /**
+   * Constructs a new splicer on the lines of a preprocessed source.
+   *
+   * @param sourceFile     Name of the preprocessed source file.
+   * @param lines          Lines of the source without line terminator.
+   * @param lineDirectives If false, preprocessor line markers are removed
+   *                       from the copied code.
+   */
+  SourceSplicer(String sourceFile, List<String> lines, boolean lineDirectives)
+  {
+    _sourceFile = sourceFile;
+    _lines = lines;
+    _lineDirectives = lineDirectives;
+    _markers = new boolean[lines.size()];
+    _lineNos = new int[lines.size()];
+    _files = new String[lines.size()];
+    mapLines();
+  }
+
+  /**
+   * Map each physical line of the source to its line number and file
+   * according to the preprocessor line markers.
+   */
+  private void mapLines() {
+    int lineNo = 1;
+    String file = null;
+    for(int i = 0; i < _lines.size(); ++i) {
+      Matcher m = LINE_MARKER.matcher(_lines.get(i));
+      if(m.matches()) {
+        _markers[i] = true;
+        lineNo = Integer.parseInt(m.group(1));
+        file = m.group(2);
+        continue;
+      }
+      _lineNos[i] = lineNo++;
+      _files[i] = file;
+    }
+  }
+
+  /**
+   * Write the spliced source. Nothing is written if the splicing is not
+   * possible.
+   *
+   * @param tracker    Tracker giving the modified units.
+   * @param decompiler Decompiler used for the modified units.
+   * @param out        Writer receiving the spliced source.
+   * @return True if the spliced source has been written. False if the caller
+   * must decompile the whole program.
+   * @throws Exception If the decompilation of a unit or the writing failed.
+   */
+  boolean splice(ModifiedUnitTracker tracker, UnitDecompiler decompiler,
+                 Writer out)
+      throws Exception
+  {
+    if(isFixedForm(_sourceFile) || tracker.hasStructuralChange()) {
+      return false;
+    }
+    List<Xnode> units = tracker.getUnits();
+    if(units.isEmpty()) {
+      return false;
+    }
+
+    int[] starts = new int[units.size()];
+    int from = 0;
+    for(int i = 0; i < units.size(); ++i) {
+      starts[i] = locate(units.get(i), from);
+      if(starts[i] < 0) {
+        return false;
+      }
+      from = starts[i] + 1;
+    }
+
+    // Decompile before writing anything so a failure leaves the output empty
+    List<Xnode> modified = tracker.getModifiedUnits();
+    List<String> codes = new ArrayList<>();
+    for(Xnode unit : units) {
+      String code = null;
+      if(modified.contains(unit)) {
+        code = decompiler.decompile(unit);
+        if(code == null) {
+          return false;
+        }
+      }
+      codes.add(code);
+    }
+
+    copy(out, 0, starts[0]);
+    boolean afterDecompiled = false;
+    for(int i = 0; i < units.size(); ++i) {
+      int end = (i + 1 < units.size()) ? starts[i + 1] : _lines.size();
+      if(codes.get(i) != null) {
+        out.write(codes.get(i));
+        if(!codes.get(i).endsWith("\n")) {
+          out.write("\n");
+        }
+        afterDecompiled = true;
+      } else {
+        if(afterDecompiled) {
+          writeLineMarker(out, starts[i]);
+        }
+        copy(out, starts[i], end);
+        afterDecompiled = false;
+      }
+    }
+    out.flush();
+    return true;
+  }
+
+  /**
+   * Find the physical line where a unit starts.
+   *
+   * @param unit Unit to locate.
+   * @param from First physical line to be considered.
+   * @return Physical line index. -1 if the unit cannot be located safely.
+   */
+  private int locate(Xnode unit, int from) {
+    int lineNo = unit.lineNo();
+    String file = unit.filename();
+    if(lineNo <= 0 || isFixedForm(file)) {
+      return -1;
+    }
+    for(int i = from; i < _lines.size(); ++i) {
+      if(_markers[i] || _lineNos[i] != lineNo) {
+        continue;
+      }
+      if(_files[i] != null && !file.isEmpty() && !_files[i].equals(file)) {
+        continue;
+      }
+      return startsUnit(unit, _lines.get(i)) ? i : -1;
+    }
+    return -1;
+  }
+
+  /**
+   * Check that the source line looks like the first statement of the unit.
+   *
+   * @param unit Unit to be checked.
+   * @param line Source line.
+   * @return True if the line contains the keyword of the unit and is not an
+   * end statement.
+   */
+  private static boolean startsUnit(Xnode unit, String line) {
+    String lower = line.trim().toLowerCase(Locale.ROOT);
+    if(lower.startsWith(END_KEYWORD)) {
+      return false;
+    }
+    if(unit.is(Xcode.F_MODULE_DEFINITION)) {
+      return lower.contains(MODULE_KEYWORD);
+    }
+    for(String keyword : FUNCTION_KEYWORDS) {
+      if(lower.contains(keyword)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Copy a range of physical lines.
+   *
+   * @param out   Writer receiving the lines.
+   * @param start First physical line (inclusive).
+   * @param end   Last physical line (exclusive).
+   * @throws IOException If writing fails.
+   */
+  private void copy(Writer out, int start, int end) throws IOException {
+    for(int i = start; i < end; ++i) {
+      if(_markers[i] && !_lineDirectives) {
+        continue;
+      }
+      out.write(_lines.get(i));
+      out.write("\n");
+    }
+  }
+
+  /**
+   * Write a line marker restoring the position of the copied code after a
+   * decompiled unit.
+   *
+   * @param out  Writer receiving the marker.
+   * @param line Physical line following the marker.
+   * @throws IOException If writing fails.
+   */
+  private void writeLineMarker(Writer out, int line) throws IOException {
+    if(!_lineDirectives || _files[line] == null) {
+      return;
+    }
+    out.write("# " + _lineNos[line] + " \"" + _files[line] + "\"\n");
+  }
+
+  /**
+   * Check whether a file uses the fixed source form according to its
+   * extension. Decompiled code is in free form and cannot be mixed with fixed
+   * form code.
+   *
+   * @param filename File name.
+   * @return True if the extension denotes a fixed form source.
+   */
+  static boolean isFixedForm(String filename) {
+    if(filename == null) {
+      return false;
+    }
+    int dot = filename.lastIndexOf('.');
+    return dot >= 0 && FIXED_FORM_EXTENSIONS.contains(
+        filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+  }
+}
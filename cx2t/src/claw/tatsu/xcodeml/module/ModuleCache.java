@@ -4,14 +4,18 @@
  */
 package claw.tatsu.xcodeml.module;
 
+import claw.tatsu.common.Context;
 import claw.tatsu.primitive.Xmod;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.fortran.FortranModule;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.*;
 
 /**
  * Translator interface
@@ -23,6 +27,8 @@ import java.util.Map;
 public class ModuleCache {
 
   private final Map<String, FortranModule> _moduleCache;
+  private final Set<String> _dirtyModules;
+  private final List<SignatureUpdate> _signatureUpdates;
   private final List<String> _searchPaths;
 
   /**
@@ -30,6 +36,8 @@ public class ModuleCache {
    */
   public ModuleCache() {
     _moduleCache = new HashMap<>();
+    _dirtyModules = new HashSet<>();
+    _signatureUpdates = new ArrayList<>();
     _searchPaths = new ArrayList<>();
   }
 
@@ -53,6 +61,47 @@ public class ModuleCache {
   public void add(String moduleName, FortranModule module) {
     _moduleCache.remove(moduleName.toLowerCase());
     _moduleCache.put(moduleName.toLowerCase(), module);
+    _dirtyModules.remove(moduleName.toLowerCase());
+  }
+
+  /**
+   * Mark a cached module as modified. Only modified modules are written.
+   *
+   * @param moduleName Name of the module.
+   */
+  public void markDirty(String moduleName) {
+    if(isModuleLoaded(moduleName)) {
+      _dirtyModules.add(moduleName.toLowerCase());
+    }
+  }
+
+  /**
+   * Check whether a cached module has been modified since it was loaded or
+   * written.
+   *
+   * @param moduleName Name of the module.
+   * @return True if the module has been modified. False otherwise.
+   */
+  public boolean isDirty(String moduleName) {
+    return _dirtyModules.contains(moduleName.toLowerCase());
+  }
+
+  /**
+   * Record an update of a function signature in a cached module.
+   *
+   * @param update Signature update.
+   */
+  public void recordSignatureUpdate(SignatureUpdate update) {
+    _signatureUpdates.add(update);
+  }
+
+  /**
+   * Get the signature updates recorded in the order they were applied.
+   *
+   * @return List of signature updates.
+   */
+  public List<SignatureUpdate> getSignatureUpdates() {
+    return _signatureUpdates;
   }
 
   /**
@@ -66,7 +115,9 @@ public class ModuleCache {
   }
 
   /**
-   * Write all modules in the cache to files.
+   * Write all modified modules in the cache to files. A module file is only
+   * replaced when its content changed so its modification time is kept for
+   * the build system. The file is replaced atomically.
    *
    * @param ident Number of spaces used to indent the XML file.
    * @throws IllegalTransformationException If module cannot be written.
@@ -75,11 +126,109 @@ public class ModuleCache {
       throws IllegalTransformationException
   {
     String suffix = Xmod.getSuffix();
-    for(Map.Entry<String, FortranModule> pair : _moduleCache.entrySet()) {
-      FortranModule module = pair.getValue();
+    for(String moduleName : new TreeSet<>(_dirtyModules)) {
+      FortranModule module = _moduleCache.get(moduleName);
       String newModuleName = module.getPath() + module.getName() + suffix;
-      module.write(newModuleName, ident);
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      module.write(content, ident);
+      Context.get().getDependencies().addOutput(newModuleName);
+      try {
+        writeIfChanged(Paths.get(newModuleName), content.toByteArray());
+      } catch(IOException e) {
+        throw new IllegalTransformationException("Cannot output file: " +
+            newModuleName + " (" + e.getMessage() + ")", 0);
+      }
+    }
+    _dirtyModules.clear();
+  }
+
+  /**
+   * Write the content to the file only if it differs from the current content
+   * of the file. The content is written to a uniquely named file in the same
+   * directory and then renamed. The new file gets the default permissions of
+   * the process or the permissions of the file it replaces.
+   *
+   * @param file    Path of the file.
+   * @param content New content of the file.
+   * @return True if the file has been written. False if it was up to date.
+   * @throws IOException If the file cannot be read or written.
+   */
+  public static boolean writeIfChanged(Path file, byte[] content)
+      throws IOException
+  {
+    if(hasContent(file, content)) {
+      return false;
+    }
+    Path dir = file.toAbsolutePath().getParent();
+    Path tmp = dir.resolve(file.getFileName() + "." + UUID.randomUUID()
+        + ".tmp");
+    try {
+      try(OutputStream out = Files.newOutputStream(tmp,
+          StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+      {
+        out.write(content);
+      }
+      copyPermissions(file, tmp);
+      try {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch(AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    return true;
+  }
+
+  /**
+   * Copy the POSIX permissions of an existing file to another file. Nothing is
+   * done if the source does not exist or the file system is not POSIX.
+   *
+   * @param from File to copy the permissions from.
+   * @param to   File to copy the permissions to.
+   * @throws IOException If the permissions cannot be read or set.
+   */
+  private static void copyPermissions(Path from, Path to)
+      throws IOException
+  {
+    if(Files.isRegularFile(from) && Files.getFileStore(from)
+        .supportsFileAttributeView(PosixFileAttributeView.class))
+    {
+      Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+    }
+  }
+
+  /**
+   * Check whether the file has exactly the given content.
+   *
+   * @param file    Path of the file.
+   * @param content Expected content.
+   * @return True if the file exists and has the content. False otherwise.
+   * @throws IOException If the file cannot be read.
+   */
+  private static boolean hasContent(Path file, byte[] content)
+      throws IOException
+  {
+    if(!Files.isRegularFile(file) || Files.size(file) != content.length) {
+      return false;
+    }
+    byte[] buffer = new byte[8192];
+    int offset = 0;
+    try(InputStream in = Files.newInputStream(file)) {
+      int read;
+      while((read = in.read(buffer)) > 0) {
+        for(int i = 0; i < read; ++i) {
+          if(offset + i >= content.length
+              || buffer[i] != content[offset + i])
+          {
+            return false;
+          }
+        }
+        offset += read;
+      }
     }
+    return offset == content.length;
   }
 
   /**
@@ -0,0 +1,76 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+
+/**
+ * Update of a function signature replicated in a module file. Updates are
+ * recorded by the module cache so they can be replayed on a later
+ * translation.
+ *
+ * @author clementval
+ */
+public class SignatureUpdate {
+
+  private final String _moduleName;
+  private final FfunctionDefinition _fctDef;
+  private final FfunctionType _fctType;
+  private final boolean _importFctType;
+
+  /**
+   * Constructs a new signature update.
+   *
+   * @param moduleName    Name of the updated module.
+   * @param fctDef        Function definition that has been changed.
+   * @param fctType       Function type that has been changed.
+   * @param importFctType If true, the function type is imported.
+   */
+  public SignatureUpdate(String moduleName, FfunctionDefinition fctDef,
+                         FfunctionType fctType, boolean importFctType)
+  {
+    _moduleName = moduleName;
+    _fctDef = fctDef;
+    _fctType = fctType;
+    _importFctType = importFctType;
+  }
+
+  /**
+   * Get the name of the updated module.
+   *
+   * @return Module name.
+   */
+  public String getModuleName() {
+    return _moduleName;
+  }
+
+  /**
+   * Get the function definition that has been changed.
+   *
+   * @return Function definition.
+   */
+  public FfunctionDefinition getFctDef() {
+    return _fctDef;
+  }
+
+  /**
+   * Get the function type that has been changed.
+   *
+   * @return Function type.
+   */
+  public FfunctionType getFctType() {
+    return _fctType;
+  }
+
+  /**
+   * Check whether the function type is imported in the module.
+   *
+   * @return True if the function type is imported.
+   */
+  public boolean isImportFctType() {
+    return _importFctType;
+  }
+}
@@ -89,6 +89,7 @@ public final class Xname {
   public static final String ATTR_PROMOTION_INFO = "promotion_info";
   public static final String ATTR_IS_FORCE_ASSUMED = "is_force_assumed";
   public static final String ATTR_WAS_ELEMENTAL = "was_elemental";
+  public static final String ATTR_DEMOTION_INFO = "demotion_info";
   // Element names
   public static final String ALLOC = "alloc";
   public static final String ALLOC_OPT = "allocOpt";
@@ -0,0 +1,300 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventTarget;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Structural index of the elements of a document. Each element attached to
+ * the document gets its depth and a nested interval. The interval of an
+ * element contains the intervals of all its descendants and the intervals are
+ * ordered as the elements in the document. Ancestor tests are then done in
+ * constant time and the elements located between two elements are found in
+ * logarithmic time.
+ *
+ * The index of a document is built on the first query and kept up to date
+ * with the DOM mutation events. Intervals are spaced so an inserted subtree
+ * gets its intervals without relabelling the document. When there is no room
+ * left, the index is rebuilt on the next query.
+ *
+ * @author clementval
+ */
+public final class StructureIndex {
+
+  private static final String USER_DATA_KEY = "claw.structure.index";
+  private static final String NODE_INSERTED = "DOMNodeInserted";
+  private static final String NODE_REMOVED = "DOMNodeRemoved";
+  private static final long GAP = 1L << 16;
+
+  private final Document _document;
+  private final Map<Node, Interval> _intervals;
+  private final TreeMap<Long, Node> _order;
+  private boolean _valid;
+
+  /**
+   * Position of an element in the index.
+   */
+  private static final class Interval {
+    private final long _begin;
+    private final long _end;
+    private final int _depth;
+
+    Interval(long begin, long end, int depth) {
+      _begin = begin;
+      _end = end;
+      _depth = depth;
+    }
+  }
+
+  private StructureIndex(Document document) {
+    _document = document;
+    _intervals = new HashMap<>();
+    _order = new TreeMap<>();
+    _valid = false;
+  }
+
+  /**
+   * Get the index of a document. The index is attached to the document and
+   * kept up to date on mutation.
+   *
+   * @param document Document to be indexed.
+   * @return Index of the document. Null if the DOM implementation does not
+   * report mutations.
+   */
+  public static StructureIndex of(Document document) {
+    if(document == null || !(document instanceof EventTarget)) {
+      return null;
+    }
+    Object data = document.getUserData(USER_DATA_KEY);
+    if(data instanceof StructureIndex) {
+      return (StructureIndex) data;
+    }
+    StructureIndex index = new StructureIndex(document);
+    EventTarget target = (EventTarget) document;
+    target.addEventListener(NODE_INSERTED, index::inserted, true);
+    target.addEventListener(NODE_REMOVED, index::removed, true);
+    document.setUserData(USER_DATA_KEY, index, null);
+    return index;
+  }
+
+  /**
+   * Get an index of the current state of a document. The index is not kept
+   * up to date and must be discarded after any mutation.
+   *
+   * @param document Document to be indexed.
+   * @return Index of the document.
+   */
+  public static StructureIndex snapshot(Document document) {
+    StructureIndex index = new StructureIndex(document);
+    index.ensureValid();
+    return index;
+  }
+
+  /**
+   * Get the depth of an element. The document element has a depth of 0.
+   *
+   * @param node Element to be queried.
+   * @return Depth of the element. Xnode.UNDEF_DEPTH if the element is not
+   * attached to the document.
+   */
+  public int depth(Node node) {
+    Interval interval = get(node);
+    return interval == null ? Xnode.UNDEF_DEPTH : interval._depth;
+  }
+
+  /**
+   * Check whether an element is a strict ancestor of another one.
+   *
+   * @param ancestor Possible ancestor.
+   * @param node     Element to be checked.
+   * @return True if ancestor contains node. False otherwise or if one of the
+   * elements is not attached to the document.
+   */
+  public boolean isAncestor(Node ancestor, Node node) {
+    Interval a = get(ancestor);
+    Interval n = get(node);
+    return a != null && n != null && a._begin < n._begin && n._end < a._end;
+  }
+
+  /**
+   * Get the elements located strictly between two elements. An element is
+   * between them when it starts after the end of the first one and ends
+   * before the start of the second one. Ancestors of the two elements are
+   * therefore excluded.
+   *
+   * @param from First element.
+   * @param to   Second element.
+   * @return Elements in document order. Empty if one of the elements is not
+   * attached to the document or if they are not in order.
+   */
+  public List<Node> between(Node from, Node to) {
+    List<Node> nodes = new ArrayList<>();
+    Interval f = get(from);
+    Interval t = get(to);
+    if(f == null || t == null || f._end >= t._begin) {
+      return nodes;
+    }
+    for(Node node : _order.subMap(f._end, false, t._begin, false).values()) {
+      if(_intervals.get(node)._end < t._begin) {
+        nodes.add(node);
+      }
+    }
+    return nodes;
+  }
+
+  private Interval get(Node node) {
+    if(node == null) {
+      return null;
+    }
+    ensureValid();
+    return _intervals.get(node);
+  }
+
+  /**
+   * Label all the elements of the document if the index is not valid.
+   */
+  private void ensureValid() {
+    if(_valid) {
+      return;
+    }
+    _intervals.clear();
+    _order.clear();
+    Element root = _document.getDocumentElement();
+    if(root != null) {
+      label(root, 0, Long.MAX_VALUE, 0);
+    }
+    _valid = true;
+  }
+
+  /**
+   * Label a subtree with intervals evenly spaced in an open range.
+   *
+   * @param root  Root element of the subtree.
+   * @param lo    Lower bound of the range (exclusive).
+   * @param hi    Upper bound of the range (exclusive).
+   * @param depth Depth of the root element.
+   * @return False if the range is too small for the subtree.
+   */
+  private boolean label(Element root, long lo, long hi, int depth) {
+    long count = 2L * countElements(root);
+    long step = (hi == Long.MAX_VALUE) ? GAP : (hi - lo) / (count + 1);
+    if(step < 1) {
+      return false;
+    }
+    label(root, new long[]{lo}, step, depth);
+    return true;
+  }
+
+  private void label(Element element, long[] counter, long step, int depth) {
+    long begin = counter[0] += step;
+    for(Node child = element.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      if(child.getNodeType() == Node.ELEMENT_NODE) {
+        label((Element) child, counter, step, depth + 1);
+      }
+    }
+    long end = counter[0] += step;
+    _intervals.put(element, new Interval(begin, end, depth));
+    _order.put(begin, element);
+  }
+
+  private static long countElements(Element root) {
+    long count = 1;
+    for(Node child = root.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      if(child.getNodeType() == Node.ELEMENT_NODE) {
+        count += countElements((Element) child);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Label a subtree inserted in the document between its siblings.
+   *
+   * @param event Mutation event targeting the inserted node.
+   */
+  private void inserted(Event event) {
+    if(!_valid || !(event.getTarget() instanceof Element)) {
+      return;
+    }
+    Element element = (Element) event.getTarget();
+    Interval parent = _intervals.get(element.getParentNode());
+    if(parent == null) {
+      _valid = false;
+      return;
+    }
+    long lo = parent._begin;
+    long hi = parent._end;
+    Node previous = previousElement(element);
+    Node next = nextElement(element);
+    if(previous != null) {
+      Interval interval = _intervals.get(previous);
+      lo = interval == null ? hi : interval._end;
+    }
+    if(next != null) {
+      Interval interval = _intervals.get(next);
+      hi = interval == null ? lo : interval._begin;
+    }
+    if(lo >= hi || !label(element, lo, hi, parent._depth + 1)) {
+      _valid = false;
+    }
+  }
+
+  /**
+   * Drop the labels of a subtree removed from the document. The order of the
+   * remaining elements is not affected.
+   *
+   * @param event Mutation event targeting the removed node.
+   */
+  private void removed(Event event) {
+    if(!_valid || !(event.getTarget() instanceof Element)) {
+      return;
+    }
+    unlabel((Element) event.getTarget());
+  }
+
+  private void unlabel(Element element) {
+    Interval interval = _intervals.remove(element);
+    if(interval != null) {
+      _order.remove(interval._begin);
+    }
+    for(Node child = element.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      if(child.getNodeType() == Node.ELEMENT_NODE) {
+        unlabel((Element) child);
+      }
+    }
+  }
+
+  private static Node previousElement(Node node) {
+    Node sibling = node.getPreviousSibling();
+    while(sibling != null && sibling.getNodeType() != Node.ELEMENT_NODE) {
+      sibling = sibling.getPreviousSibling();
+    }
+    return sibling;
+  }
+
+  private static Node nextElement(Node node) {
+    Node sibling = node.getNextSibling();
+    while(sibling != null && sibling.getNodeType() != Node.ELEMENT_NODE) {
+      sibling = sibling.getNextSibling();
+    }
+    return sibling;
+  }
+}
@@ -86,6 +86,7 @@ public enum Xattr {
   VERSION(Xname.ATTR_VERSION),
 
   // FortranModule extension to share promotion information
+  DEMOTION_INFO(Xname.ATTR_DEMOTION_INFO),
   IS_INSERTED(Xname.ATTR_IS_INSERTED),
   IS_FORCE_ASSUMED(Xname.ATTR_IS_FORCE_ASSUMED),
   PROMOTION_INFO(Xname.ATTR_PROMOTION_INFO),
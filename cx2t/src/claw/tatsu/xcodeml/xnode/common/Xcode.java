@@ -179,6 +179,11 @@ public enum Xcode {
     for(Xcode code : values()) {
       _stringToEnum.put(code.toString().toLowerCase(), code);
     }
+    for(Xcode code : values()) {
+      if(_stringToEnum.get(code.toString().toLowerCase()) == code) {
+        _stringToEnum.putIfAbsent(code.toString(), code);
+      }
+    }
   }
 
   private final String _irValue;
@@ -206,8 +211,15 @@ public enum Xcode {
   }
 
   public static Xcode fromString(String value) {
-    return (value == null || !_stringToEnum.containsKey(value.toLowerCase())) ?
-        NONE : _stringToEnum.get(value.toLowerCase());
+    if(value == null) {
+      return NONE;
+    }
+    // Tag names are looked up as is first to avoid a lower case copy.
+    Xcode code = _stringToEnum.get(value);
+    if(code == null) {
+      code = _stringToEnum.get(value.toLowerCase());
+    }
+    return code == null ? NONE : code;
   }
 
   @Override
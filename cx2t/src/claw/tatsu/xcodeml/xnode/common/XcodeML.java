@@ -10,14 +10,12 @@ import claw.tatsu.primitive.Pragma;
 import claw.tatsu.xcodeml.abstraction.FunctionCall;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.fortran.*;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -25,6 +23,7 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -72,10 +71,8 @@ public class XcodeML extends Xnode {
       if(input == null) {
         return null;
       }
-      DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-      Document doc = dBuilder.parse(input);
-      doc.getDocumentElement().normalize();
+      Document doc = XnodeUtil.createDocumentBuilder().parse(input);
+      XnodeUtil.compact(doc);
       return doc;
     } catch(Exception ignored) {
     }
@@ -292,24 +289,12 @@ public class XcodeML extends Xnode {
       throws IllegalTransformationException
   {
     try {
-      cleanEmptyTextNodes(this.getDocument());
-      TransformerFactory factory = TransformerFactory.newInstance();
-      factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-      factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
-      Transformer transformer = factory.newTransformer();
-      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      transformer.setOutputProperty(
-          "{http://xml.apache.org/xslt}indent-amount",
-          Integer.toString(indent));
-      DOMSource source = new DOMSource(this.getDocument());
       if(outputFile == null) {
         // Output to console
-        StreamResult console = new StreamResult(System.out);
-        transformer.transform(source, console);
+        transform(new StreamResult(System.out), indent);
       } else {
         // Output to file
-        StreamResult console = new StreamResult(new File(outputFile));
-        transformer.transform(source, console);
+        transform(new StreamResult(new File(outputFile)), indent);
       }
     } catch(Exception ignored) {
       throw new IllegalTransformationException("Cannot output file: " +
@@ -318,69 +303,40 @@ public class XcodeML extends Xnode {
   }
 
   /**
-   * Removes text nodes that only contains whitespace. The conditions for
-   * removing text nodes, besides only containing whitespace, are: If the
-   * parent node has at least one child of any of the following types, all
-   * whitespace-only text-node children will be removed: - ELEMENT child -
-   * CDATA child - COMMENT child.
+   * Write the XcodeML to a stream. The same document always gives the same
+   * bytes.
    *
-   * @param parentNode Root node to start the cleaning.
+   * @param output Stream receiving the XML document.
+   * @param indent Number of spaces used for the indentation
+   * @throws IllegalTransformationException if XML cannot be written.
    */
-  private void cleanEmptyTextNodes(Node parentNode) {
-    boolean removeEmptyTextNodes = false;
-    Node childNode = parentNode.getFirstChild();
-    while(childNode != null) {
-      removeEmptyTextNodes |= checkNodeTypes(childNode);
-      childNode = childNode.getNextSibling();
-    }
-
-    if(removeEmptyTextNodes) {
-      removeEmptyTextNodes(parentNode);
+  public void write(OutputStream output, int indent)
+      throws IllegalTransformationException
+  {
+    try {
+      transform(new StreamResult(output), indent);
+    } catch(Exception ignored) {
+      throw new IllegalTransformationException("Cannot output XcodeML", 0);
     }
   }
 
-  /**
-   * Remove all empty text nodes in the subtree.
-   *
-   * @param parentNode Root node to start the search.
-   */
-  private void removeEmptyTextNodes(Node parentNode) {
-    Node childNode = parentNode.getFirstChild();
-    while(childNode != null) {
-      // grab the "nextSibling" before the child node is removed
-      Node nextChild = childNode.getNextSibling();
-      short nodeType = childNode.getNodeType();
-      if(nodeType == Node.TEXT_NODE) {
-        boolean containsOnlyWhitespace = childNode.getNodeValue()
-            .trim().isEmpty();
-        if(containsOnlyWhitespace) {
-          parentNode.removeChild(childNode);
-        }
-      }
-      childNode = nextChild;
-    }
+  private void transform(StreamResult result, int indent) throws Exception {
+    XnodeUtil.cleanEmptyTextNodes(this.getDocument());
+    TransformerFactory factory = TransformerFactory.newInstance();
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    Transformer transformer = factory.newTransformer();
+    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+    transformer.setOutputProperty(
+        "{http://xml.apache.org/xslt}indent-amount",
+        Integer.toString(indent));
+    transformer.transform(new DOMSource(this.getDocument()), result);
   }
 
-
   /*
    * Node creation section
    */
 
-  /**
-   * Check the type of the given node.
-   *
-   * @param childNode Node to be checked.
-   * @return True if the node contains data. False otherwise.
-   */
-  private boolean checkNodeTypes(Node childNode) {
-    short nodeType = childNode.getNodeType();
-    if(nodeType == Node.ELEMENT_NODE) {
-      cleanEmptyTextNodes(childNode); // recurse into subtree
-    }
-    return nodeType == Node.ELEMENT_NODE || nodeType == Node.CDATA_SECTION_NODE
-        || nodeType == Node.COMMENT_NODE;
-  }
-
   /**
    * Constructs a new name node with name value and optional type.
    *
@@ -983,6 +939,23 @@ public class XcodeML extends Xnode {
         .setType(Xname.TYPE_F_INT).setValue(String.valueOf(value));
   }
 
+  /**
+   * Create an integer binary expression with the given operands.
+   *
+   * {@code
+   * <plusExpr type="Fint">lhs rhs</plusExpr>
+   * }
+   *
+   * @param opcode Opcode of the binary expression.
+   * @param lhs    Left hand side operand.
+   * @param rhs    Right hand side operand.
+   * @return Newly created node.
+   */
+  public Xnode createIntBinaryExpr(Xcode opcode, Xnode lhs, Xnode rhs) {
+    return createNode(opcode).setType(Xname.TYPE_F_INT).append(lhs)
+        .append(rhs);
+  }
+
   /**
    * Create a single FpragmaStatement with the given value.
    *
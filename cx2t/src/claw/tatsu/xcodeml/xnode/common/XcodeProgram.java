@@ -104,6 +104,19 @@ public class XcodeProgram extends XcodeML {
     return createFromDocument(doc);
   }
 
+  /**
+   * Create a deep copy of this XcodeProgram. The underlying DOM document is
+   * cloned so the copy can be transformed independently of the original one.
+   *
+   * @return A new XcodeProgram object backed by a copy of the document.
+   */
+  public XcodeProgram cloneProgram() {
+    if(getDocument() == null) {
+      return createFromDocument(null);
+    }
+    return createFromDocument((Document) getDocument().cloneNode(true));
+  }
+
   /**
    * Read all the XcodeML document information: version, language, time, source,
    * compiler info.
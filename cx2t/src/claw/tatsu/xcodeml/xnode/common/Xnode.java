@@ -9,6 +9,7 @@ import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -29,6 +30,7 @@ public class Xnode {
   public static final int UNDEF_DEPTH = -1;
   final Element _baseElement;
   private boolean _isDeleted = false;
+  private Xcode _opcode;
 
   /**
    * Constructs an Xnode object from an element in the AST.
@@ -64,7 +66,11 @@ public class Xnode {
     if(_baseElement == null) {
       return Xcode.NONE;
     }
-    return Xcode.fromString(_baseElement.getTagName().toLowerCase());
+    // Tag name of an element cannot change so the opcode is resolved once.
+    if(_opcode == null) {
+      _opcode = Xcode.fromString(_baseElement.getTagName());
+    }
+    return _opcode;
   }
 
   /**
@@ -104,11 +110,11 @@ public class Xnode {
    * @return Attribute's value.
    */
   private String getAttribute(String attrCode) {
-    if(_baseElement != null && _baseElement.hasAttribute(attrCode)) {
-      return _baseElement.getAttribute(attrCode);
-    } else {
+    if(_baseElement == null) {
       return null;
     }
+    Attr attribute = _baseElement.getAttributeNode(attrCode);
+    return attribute == null ? null : attribute.getValue();
   }
 
   /**
@@ -128,8 +134,7 @@ public class Xnode {
    * @return Attribute's value. False if attribute doesn't exist.
    */
   private boolean getBooleanAttribute(String attrCode) {
-    return hasAttribute(attrCode) &&
-        _baseElement.getAttribute(attrCode).equals(Xname.TRUE);
+    return Xname.TRUE.equals(getAttribute(attrCode));
   }
 
   /**
@@ -239,11 +244,18 @@ public class Xnode {
    * @return Child at the corresponding position.
    */
   public Xnode child(int pos) {
-    List<Xnode> children = children();
-    if(pos < 0 || pos > children.size() - 1) {
+    if(_baseElement == null || pos < 0) {
       return null;
     }
-    return children.get(pos);
+    int crt = 0;
+    for(Node n = _baseElement.getFirstChild(); n != null;
+        n = n.getNextSibling())
+    {
+      if(n.getNodeType() == Node.ELEMENT_NODE && crt++ == pos) {
+        return new Xnode((Element) n);
+      }
+    }
+    return null;
   }
 
   /**
@@ -272,8 +284,7 @@ public class Xnode {
    * @return First child or null if no child exists.
    */
   public Xnode firstChild() {
-    List<Xnode> children = this.children();
-    return children.isEmpty() ? null : children.get(0);
+    return child(0);
   }
 
   /**
@@ -282,8 +293,17 @@ public class Xnode {
    * @return Last child or null if no child exists.
    */
   public Xnode lastChild() {
-    List<Xnode> children = this.children();
-    return children.isEmpty() ? null : children.get(children.size() - 1);
+    if(_baseElement == null) {
+      return null;
+    }
+    for(Node n = _baseElement.getLastChild(); n != null;
+        n = n.getPreviousSibling())
+    {
+      if(n.getNodeType() == Node.ELEMENT_NODE) {
+        return new Xnode((Element) n);
+      }
+    }
+    return null;
   }
 
   /**
@@ -697,6 +717,16 @@ public class Xnode {
       return Xnode.UNDEF_DEPTH;
     }
 
+    StructureIndex index =
+        StructureIndex.of(_baseElement.getOwnerDocument());
+    if(index != null) {
+      int depth = index.depth(_baseElement);
+      if(depth != Xnode.UNDEF_DEPTH) {
+        return depth;
+      }
+    }
+
+    // Element not attached to its document
     Node parent = _baseElement.getParentNode();
     int depth = 0;
     while(parent != null && parent.getNodeType() == Node.ELEMENT_NODE) {
@@ -837,6 +867,12 @@ public class Xnode {
     if(ancestor == null || element() == null) {
       return false;
     }
+    StructureIndex index = StructureIndex.of(element().getOwnerDocument());
+    if(index != null && index.depth(element()) != Xnode.UNDEF_DEPTH
+        && index.depth(ancestor.element()) != Xnode.UNDEF_DEPTH)
+    {
+      return index.isAncestor(ancestor.element(), element());
+    }
     Node possibleAncestor = element().getParentNode();
     while(possibleAncestor != null) {
       if(possibleAncestor == ancestor.element()) {
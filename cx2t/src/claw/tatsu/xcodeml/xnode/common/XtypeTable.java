@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * The XtypeTable represents the typeTable (3.1) element in XcodeML intermediate
@@ -29,6 +30,7 @@ import java.util.Map;
 public class XtypeTable extends Xnode {
 
   private final Map<String, Xnode> _table;
+  private Random _hashRandom = null;
 
   /**
    * Element standard ctor. Pass the base element to the base class and read
@@ -163,6 +165,45 @@ public class XtypeTable extends Xnode {
     }
   }
 
+  /**
+   * Add an element in the type table or replace the element with the same
+   * hash. The element must belong to the same document as the type table.
+   *
+   * @param type The type to be added or replaced.
+   */
+  public void set(Xnode type) {
+    String hash = type.getType();
+    if(hash.isEmpty()) {
+      return;
+    }
+    // Entries added with add() are mapped to a node outside of the table
+    Xnode current = null;
+    for(Xnode child : children()) {
+      if(hash.equals(child.getType())) {
+        current = child;
+        break;
+      }
+    }
+    if(current != null) {
+      _baseElement.replaceChild(type.element(), current.element());
+    } else {
+      _baseElement.appendChild(type.element());
+    }
+    switch(type.opcode()) {
+      case F_BASIC_TYPE:
+        _table.put(hash, new FbasicType(type));
+        break;
+      case F_FUNCTION_TYPE:
+        _table.put(hash, new FfunctionType(type));
+        break;
+      case F_STRUCT_TYPE:
+        _table.put(hash, new FstructType(type));
+        break;
+      default:
+        _table.put(hash, type);
+    }
+  }
+
   /**
    * Get the FbasicType associated with the node if any.
    *
@@ -255,6 +296,16 @@ public class XtypeTable extends Xnode {
     return _table.containsKey(hash);
   }
 
+  /**
+   * Make the hashes generated in this type table reproducible. The same seed
+   * and the same sequence of generations give the same hashes.
+   *
+   * @param seed Seed of the hash generation.
+   */
+  public void setHashSeed(long seed) {
+    _hashRandom = new Random(seed);
+  }
+
   /**
    * Generate a unique hash in the current type table.
    *
@@ -267,7 +318,8 @@ public class XtypeTable extends Xnode {
     }
     String hash;
     do {
-      hash = type.generateHash();
+      hash = _hashRandom == null ?
+          type.generateHash() : type.generateHash(_hashRandom);
     } while(hasType(hash));
     return hash;
   }
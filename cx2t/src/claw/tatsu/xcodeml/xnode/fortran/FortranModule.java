@@ -40,6 +40,10 @@ public class FortranModule extends XcodeML {
     _name = name;
     _path = path.endsWith("/") ? path : path + "/";
     _identifiers = new XsymbolTable(matchSeq(Xcode.IDENTIFIERS));
+    // Types added to the module file must not change from one run to another
+    if(getTypeTable() != null) {
+      getTypeTable().setHashSeed(name.toLowerCase().hashCode());
+    }
   }
 
   /**
@@ -97,9 +97,21 @@ public enum FortranType {
    * @return The new unique hash.
    */
   public String generateHash() {
+    return generateHash(rand);
+  }
+
+  /**
+   * Get a new hash with the current FortranType prefix drawn from the given
+   * random generator. A seeded generator gives a reproducible sequence of
+   * hashes.
+   *
+   * @param random Random generator used to draw the hash.
+   * @return The new hash.
+   */
+  public String generateHash(Random random) {
     StringBuilder sb = new StringBuilder();
     while(sb.length() < HASH_LENGTH) {
-      sb.append(Integer.toHexString(this.rand.nextInt()));
+      sb.append(Integer.toHexString(random.nextInt()));
     }
     return _prefix + sb.toString().substring(0, HASH_LENGTH);
   }
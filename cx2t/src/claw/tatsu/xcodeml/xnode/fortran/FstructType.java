@@ -5,6 +5,8 @@
 package claw.tatsu.xcodeml.xnode.fortran;
 
 import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.Xid;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 
 /**
@@ -104,4 +106,24 @@ public class FstructType extends Xnode {
   public boolean isAbstract() {
     return getBooleanAttribute(Xattr.IS_ABSTRACT);
   }
+
+  /**
+   * Get a member of the struct type by its name.
+   *
+   * @param name Name of the member.
+   * @return Id of the member if found. Null otherwise.
+   */
+  public Xid getMember(String name) {
+    Xnode symbols = matchDirectDescendant(Xcode.SYMBOLS);
+    if(symbols == null || name == null) {
+      return null;
+    }
+    for(Xnode id : symbols.matchAll(Xcode.ID)) {
+      Xid member = new Xid(id);
+      if(name.equalsIgnoreCase(member.getName())) {
+        return member;
+      }
+    }
+    return null;
+  }
 }
@@ -0,0 +1,153 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.instrumentation;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.wani.language.ClawPragma;
+import claw.wani.report.KernelInfo;
+import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.translator.ClawTranslator;
+
+/**
+ * Helper class to insert runtime profiling calls around the parallel regions
+ * generated by the transformations. Calls are made to a timing module
+ * providing two subroutines:
+ *
+ * {@code
+ * <module>_start(name)
+ * <module>_stop(name)
+ * }
+ *
+ * The calls are inserted directly around the given statements. When the
+ * parallel region directives are generated afterwards around the same
+ * statements, they end up between the timing calls. The calls can also be
+ * inserted around already generated directives.
+ *
+ * @author clementval
+ */
+public class Instrumentation {
+
+  private static final String DEFAULT_TIMER_MODULE = "claw_timer";
+  private static final String TIMER_START_SUFFIX = "_start";
+  private static final String TIMER_STOP_SUFFIX = "_stop";
+
+  // Avoid potential instantiation of this class
+  private Instrumentation() {
+  }
+
+  /**
+   * Check whether the instrumentation of parallel regions is enabled.
+   *
+   * @return True if the timer instrumentation mode is selected and a directive
+   * language is used. False otherwise.
+   */
+  public static boolean isEnabled() {
+    String mode =
+        Configuration.get().getParameter(Configuration.INSTRUMENTATION_MODE);
+    return Configuration.INSTRUMENTATION_MODE_TIMER.equalsIgnoreCase(mode)
+        && Context.get().getCompilerDirective() != CompilerDirective.NONE;
+  }
+
+  /**
+   * Surround the block of statements, that will become a parallel region, with
+   * calls to the timing module. The kernel is recorded in the translator to be
+   * part of the kernel name table.
+   *
+   * @param xcodeml    Current XcodeML/F translation unit.
+   * @param translator Current translator.
+   * @param directive  Directive triggering the transformation generating the
+   *                   parallel region.
+   * @param startStmt  First statement of the parallel region.
+   * @param endStmt    Last statement of the parallel region.
+   * @return Call stopping the timer or null if nothing is inserted.
+   */
+  public static Xnode generateRegionTimer(XcodeProgram xcodeml,
+                                          ClawTranslator translator,
+                                          ClawPragma directive,
+                                          Xnode startStmt, Xnode endStmt)
+  {
+    if(!isEnabled() || startStmt == null || endStmt == null) {
+      return null;
+    }
+    FfunctionDefinition fctDef = startStmt.findParentFunction();
+    if(fctDef == null) {
+      return null;
+    }
+
+    String module = getTimerModule();
+    String kernelName = getKernelName(xcodeml, translator, fctDef);
+    Xnode stopCall =
+        createTimerCall(xcodeml, module + TIMER_STOP_SUFFIX, kernelName);
+    startStmt.insertBefore(
+        createTimerCall(xcodeml, module + TIMER_START_SUFFIX, kernelName));
+    endStmt.insertAfter(stopCall);
+    fctDef.getDeclarationTable().insertUseDecl(xcodeml, module);
+
+    int lineNo = directive.getPragma().lineNo();
+    translator.addKernelInfo(new KernelInfo(kernelName,
+        xcodeml.getSourceFileOnly(), fctDef.getName(),
+        lineNo > 0 ? lineNo : startStmt.lineNo(),
+        directive.getDirective().name().toLowerCase().replace('_', '-')));
+    return stopCall;
+  }
+
+  /**
+   * Get the name of the timing module from the configuration.
+   *
+   * @return Name of the timing module.
+   */
+  private static String getTimerModule() {
+    String module =
+        Configuration.get().getParameter(Configuration.INSTRUMENTATION_MODULE);
+    return module == null || module.trim().isEmpty()
+        ? DEFAULT_TIMER_MODULE : module.trim().toLowerCase();
+  }
+
+  /**
+   * Compute a unique kernel name in the translation unit. The name is made of
+   * the source file, the function name and the kernel index.
+   *
+   * @param xcodeml    Current XcodeML/F translation unit.
+   * @param translator Current translator.
+   * @param fctDef     Function definition holding the kernel.
+   * @return Kernel name.
+   */
+  private static String getKernelName(XcodeProgram xcodeml,
+                                      ClawTranslator translator,
+                                      FfunctionDefinition fctDef)
+  {
+    String source = xcodeml.getSourceFileOnly();
+    int dot = source.lastIndexOf('.');
+    if(dot > 0) {
+      source = source.substring(0, dot);
+    }
+    String name = String.format("%s_%s_%d", source, fctDef.getName(),
+        translator.getKernelInfos().size() + 1);
+    return name.toLowerCase().replaceAll("[^a-z0-9_]", "_");
+  }
+
+  /**
+   * Create a call to a subroutine of the timing module.
+   *
+   * @param xcodeml    Current XcodeML/F translation unit.
+   * @param fctName    Name of the subroutine.
+   * @param kernelName Name of the kernel passed as argument.
+   * @return Newly created exprStmt node encapsulating the function call.
+   */
+  private static Xnode createTimerCall(XcodeProgram xcodeml, String fctName,
+                                       String kernelName)
+  {
+    FunctionCall timerCall =
+        xcodeml.createFctCall(xcodeml.createSubroutineType(), fctName);
+    timerCall.addArguments(xcodeml.createCharConstant(kernelName));
+    return xcodeml.createNode(Xcode.EXPR_STATEMENT).insert(timerCall);
+  }
+}
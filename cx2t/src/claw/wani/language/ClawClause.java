@@ -40,5 +40,9 @@ public enum ClawClause {
   NO_PROMOTE,
   FCT_NAME,
   ARRAY_NAME,
-  FCT_PARAMETERS
+  FCT_PARAMETERS,
+  NATIVE,
+  JAM,
+  KIND,
+  INLINE
 }
@@ -13,7 +13,9 @@ package claw.wani.language;
 public enum ClawDirective {
   ARRAY_TO_CALL,
   DEFINE,
+  DEMOTE,
   EXPAND,
+  HCACHE,
   IGNORE,
   IF_EXTRACT,
   KCACHE,
@@ -21,6 +23,8 @@ public enum ClawDirective {
   LOOP_INTERCHANGE,
   LOOP_HOIST,
   LOOP_EXTRACT,
+  LOOP_TILE,
+  LOOP_UNROLL,
   MODEL_DATA,
   NO_DEP,
   PRIMITIVE,
@@ -47,6 +47,8 @@ public class ClawPragma extends AnalyzedPragma {
 
   private List<ClawMapping> _mappingValues;
   private List<Integer> _offsetValues;
+  private List<Integer> _tileSizes;
+  private int _unrollFactor;
   private ClawRange _rangeValue;
   private List<ReshapeInfo> _reshapeInfos;
   private Set<String> _overDataValues;
@@ -321,6 +323,8 @@ public class ClawPragma extends AnalyzedPragma {
     _collapseClauseValue = 1;
     _mappingValues = null;
     _offsetValues = null;
+    _tileSizes = null;
+    _unrollFactor = 1;
     _overDataValues = null;
     _rangeValue = null;
     _reshapeInfos = null;
@@ -439,6 +443,46 @@ public class ClawPragma extends AnalyzedPragma {
     _offsetValues = offsets;
   }
 
+  // loop tile clauses
+
+  /**
+   * Get the list of tile sizes. First value is for the outer loop.
+   *
+   * @return List of tile sizes.
+   */
+  public List<Integer> getTileSizes() {
+    return _tileSizes;
+  }
+
+  /**
+   * Set the tile sizes list extracted from the loop-tile directive.
+   *
+   * @param sizes A list of tile sizes.
+   */
+  public void setTileSizes(List<Integer> sizes) {
+    _tileSizes = sizes;
+  }
+
+  // loop unroll clauses
+
+  /**
+   * Get the unroll factor.
+   *
+   * @return An integer value. Default is 1.
+   */
+  public int getUnrollFactor() {
+    return _unrollFactor;
+  }
+
+  /**
+   * Set the unroll factor extracted from the loop-unroll directive.
+   *
+   * @param n Unroll factor. Will be converted to integer.
+   */
+  public void setUnrollFactor(String n) {
+    _unrollFactor = Integer.parseInt(n);
+  }
+
   // Directive generic method
 
   /**
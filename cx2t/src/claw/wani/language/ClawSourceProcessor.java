@@ -0,0 +1,197 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.language;
+
+import claw.tatsu.xcodeml.exception.IllegalDirectiveException;
+import org.apache.commons.cli.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Source processor applying the textual part of the ignore and verbatim
+ * directives. The pre pass runs on the preprocessed Fortran file before the
+ * front-end. It hides the lines of each ignore block behind the ignore prefix
+ * and adapts the filenames of the preprocessor line markers. The post pass is
+ * applied line by line on the decompiled code to revert the ignore prefix,
+ * the hidden continuation and the verbatim prefix.
+ *
+ * @author clementval
+ */
+public final class ClawSourceProcessor {
+
+  static final String IGNORE = "!$claw ignore";
+  static final String END_IGNORE = "!$claw end ignore";
+  static final String VERBATIM = "!$claw verbatim ";
+  static final String CONTINUATION = "&";
+  static final String HIDDEN_CONTINUATION = "__CLAWAMP__";
+
+  private ClawSourceProcessor() {
+    // Avoid possible instantiation of this class.
+  }
+
+  /**
+   * Apply the pre pass on a source file in a single read.
+   *
+   * All lines between `!$claw ignore` and `!$claw end ignore` are prefixed
+   * with the ignore directive and their continuation symbol is hidden so the
+   * front-end keeps them as separate comment lines. Every occurrence of the
+   * keys of the replacement map is replaced by its value in all lines.
+   *
+   * @param reader       Reader on the source file.
+   * @param writer       Writer receiving the processed source.
+   * @param replacements Literal replacements applied in order on every line.
+   * @throws IOException               If reading or writing fails.
+   * @throws IllegalDirectiveException If ignore blocks are not balanced.
+   */
+  public static void preprocess(BufferedReader reader, Writer writer,
+                                Map<String, String> replacements)
+      throws IOException, IllegalDirectiveException
+  {
+    int lineNo = 0;
+    int ignoreStart = 0;
+    String line;
+    while((line = reader.readLine()) != null) {
+      ++lineNo;
+      for(Map.Entry<String, String> replacement : replacements.entrySet()) {
+        line = line.replace(replacement.getKey(), replacement.getValue());
+      }
+      if(line.contains(END_IGNORE)) {
+        if(ignoreStart == 0) {
+          throw new IllegalDirectiveException(END_IGNORE,
+              "end ignore directive without ignore directive", lineNo);
+        }
+        ignoreStart = 0;
+      } else if(line.contains(IGNORE)) {
+        if(ignoreStart != 0) {
+          throw new IllegalDirectiveException(IGNORE,
+              "nested ignore directive", lineNo);
+        }
+        ignoreStart = lineNo;
+      } else if(ignoreStart != 0) {
+        line = IGNORE + replaceFirst(line, CONTINUATION, HIDDEN_CONTINUATION);
+      }
+      writer.write(line);
+      writer.write("\n");
+    }
+    if(ignoreStart != 0) {
+      throw new IllegalDirectiveException(IGNORE,
+          "Missing end ignore directive", ignoreStart);
+    }
+  }
+
+  /**
+   * Apply the post pass on one line of decompiled code. The ignore prefixes
+   * are removed, the hidden continuation is restored and the verbatim prefix
+   * is removed.
+   *
+   * @param line Line of decompiled code without line terminator.
+   * @return Processed line.
+   */
+  public static String postprocessLine(String line) {
+    String processed = replaceFirst(line, IGNORE, "");
+    processed = replaceFirst(processed, END_IGNORE, "");
+    processed = replaceFirst(processed, HIDDEN_CONTINUATION, CONTINUATION);
+    return replaceFirst(processed, VERBATIM, "");
+  }
+
+  /**
+   * Replace the first occurrence of the literal target.
+   *
+   * @param str         Input string.
+   * @param target      Literal string to be replaced.
+   * @param replacement Replacement string.
+   * @return String with the first occurrence replaced.
+   */
+  private static String replaceFirst(String str, String target,
+                                     String replacement)
+  {
+    int idx = str.indexOf(target);
+    if(idx < 0) {
+      return str;
+    }
+    return str.substring(0, idx) + replacement +
+        str.substring(idx + target.length());
+  }
+
+  /**
+   * Apply the pre pass in place on a preprocessed file.
+   *
+   * @param ppFile   Preprocessed file to be processed.
+   * @param baseName Name reported for the file in the line markers.
+   * @param tempDir  Temporary directory removed from the line markers. Can
+   *                 be null.
+   * @throws IOException               If the file cannot be processed.
+   * @throws IllegalDirectiveException If ignore blocks are not balanced.
+   */
+  private static void preprocessFile(String ppFile, String baseName,
+                                     String tempDir)
+      throws IOException, IllegalDirectiveException
+  {
+    Path input = Paths.get(ppFile);
+    Path output = Paths.get(ppFile + ".tmp");
+    Map<String, String> replacements = new LinkedHashMap<>();
+    replacements.put(input.getFileName().toString(), baseName);
+    if(tempDir != null && !tempDir.isEmpty()) {
+      replacements.put(tempDir + File.separator, "");
+    }
+    try(BufferedReader reader =
+            Files.newBufferedReader(input, StandardCharsets.ISO_8859_1);
+        Writer writer =
+            Files.newBufferedWriter(output, StandardCharsets.ISO_8859_1))
+    {
+      preprocess(reader, writer, replacements);
+    } catch(IOException | IllegalDirectiveException e) {
+      Files.deleteIfExists(output);
+      throw e;
+    }
+    Files.move(output, input, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Apply the pre pass on all the files given as argument. Arguments are
+   * pairs of preprocessed file and original base filename.
+   *
+   * @param args Arguments of the program.
+   */
+  public static void main(String[] args) {
+    Options options = new Options();
+    options.addOption("t", "temp-dir", true,
+        "temporary directory to be removed from the line markers.");
+    CommandLine cmd;
+    try {
+      cmd = new DefaultParser().parse(options, args);
+    } catch(ParseException pex) {
+      System.err.println(pex.getMessage());
+      System.exit(1);
+      return;
+    }
+
+    String[] files = cmd.getArgs();
+    if(files.length % 2 != 0) {
+      System.err.println("Arguments must be pairs of preprocessed file and " +
+          "base filename");
+      System.exit(1);
+    }
+    for(int i = 0; i < files.length; i += 2) {
+      try {
+        preprocessFile(files[i], files[i + 1], cmd.getOptionValue("t"));
+      } catch(IllegalDirectiveException ide) {
+        System.err.println(files[i + 1] + ":" + ide.getDirectiveLine() + ":" +
+            ide.getMessage());
+        System.exit(1);
+      } catch(IOException ioe) {
+        System.err.println(files[i + 1] + ":" + ioe.getMessage());
+        System.exit(1);
+      }
+    }
+  }
+}
@@ -47,6 +47,7 @@ directive[ClawPragma l]
     List<ClawMapping> m = new ArrayList<>();
     List<String> o = new ArrayList<>();
     List<String> s = new ArrayList<>();
+    List<Integer> i = new ArrayList<>();
   }
   :
 
@@ -58,6 +59,20 @@ directive[ClawPragma l]
   | LOOP_INTERCHANGE loop_interchange_clauses[$l] EOF
     { $l.setDirective(ClawDirective.LOOP_INTERCHANGE); }
 
+  // loop-tile directive
+  | LOOP_TILE SIZE '(' integers_list[i] ')' loop_tile_clauses[$l] EOF
+    {
+      $l.setDirective(ClawDirective.LOOP_TILE);
+      $l.setTileSizes(i);
+    }
+
+  // loop-unroll directive
+  | LOOP_UNROLL FACTOR '(' n=NUMBER ')' loop_unroll_clauses[$l] EOF
+    {
+      $l.setDirective(ClawDirective.LOOP_UNROLL);
+      $l.setUnrollFactor($n.text);
+    }
+
   // loop-extract directive
   | LOOP_EXTRACT range_option mapping_option_list[m]
     loop_extract_clauses[$l] EOF
@@ -82,6 +97,18 @@ directive[ClawPragma l]
       $l.setDirective(ClawDirective.KCACHE);
     }
 
+  // Hcache directive
+  | HCACHE data_clause[$l] hcache_clauses[$l] EOF
+    {
+      $l.setDirective(ClawDirective.HCACHE);
+    }
+
+  // Demote directive
+  | DEMOTE demote_clauses[$l] EOF
+    {
+      $l.setDirective(ClawDirective.DEMOTE);
+    }
+
   // Array notation transformation directive
   | EXPAND expand_clauses[$l] savepoint_clause[$l] EOF
     {  $l.setDirective(ClawDirective.EXPAND); }
@@ -373,13 +400,10 @@ identifiers_list[List<String> ids]:
   | i=IDENTIFIER { $ids.add($i.text); } ',' identifiers_list[$ids]
 ;
 
-integers[List<Integer> ints]:
-
-;
-
 integers_list[List<Integer> ints]:
     i=NUMBER { $ints.add(Integer.parseInt($i.text)); }
-  | i=NUMBER { $ints.add(Integer.parseInt($i.text)); } ',' integers[$ints]
+  | i=NUMBER { $ints.add(Integer.parseInt($i.text)); } ','
+    integers_list[$ints]
 ;
 
 indexes_option[ClawPragma l]
@@ -499,6 +523,8 @@ foward_clauses[ClawPragma l]:
   | { !$l.hasClause(ClawClause.UPDATE) }? update_clause[$l]
   | { !$l.hasClause(ClawClause.CREATE) }? create_clause[$l]
   | { !$l.hasClause(ClawClause.PARALLEL) }? parallel_clause[$l]
+  | { !$l.hasClause(ClawClause.INLINE) }? INLINE
+    { $l.setClause(ClawClause.INLINE); }
   )*
 ;
 
@@ -537,6 +563,11 @@ update_clause[ClawPragma l]:
     { $l.setUpdateClauseValue(DataMovement.DEVICE_TO_HOST); }
 ;
 
+kind_clause[ClawPragma l]:
+    KIND '(' k=range_id ')'
+    { $l.setValue(ClawClause.KIND, $k.text); }
+;
+
 create_clause[ClawPragma l]:
     CREATE
     { $l.setClause(ClawClause.CREATE); }
@@ -591,6 +622,25 @@ loop_interchange_clauses[ClawPragma l]:
   )*
 ;
 
+// Possible permutation of clauses for the loop-tile directive
+loop_tile_clauses[ClawPragma l]:
+  (
+    { !$l.hasClause(ClawClause.NATIVE) }?   NATIVE
+    { $l.setClause(ClawClause.NATIVE); }
+  | { !$l.hasClause(ClawClause.PARALLEL) }? parallel_clause[$l]
+  | { !$l.hasClause(ClawClause.ACC) }?      acc_clause[$l]
+  | { !$l.hasClause(ClawClause.TARGET) }?   target_clause[$l]
+  )*
+;
+
+// Possible permutation of clauses for the loop-unroll directive
+loop_unroll_clauses[ClawPragma l]:
+  (
+    { !$l.hasClause(ClawClause.JAM) }?    JAM { $l.setClause(ClawClause.JAM); }
+  | { !$l.hasClause(ClawClause.TARGET) }? target_clause[$l]
+  )*
+;
+
 // Possible permutation of clauses for the loop-extract directive
 loop_extract_clauses[ClawPragma l]:
   (
@@ -632,6 +682,22 @@ kcache_clauses[ClawPragma l]
   }
 ;
 
+// Possible permutation of clauses for the hcache directive
+hcache_clauses[ClawPragma l]:
+  (
+    { !$l.hasClause(ClawClause.TARGET) }?   target_clause[$l]
+  )*
+;
+
+// Possible permutation of clauses for the demote directive
+demote_clauses[ClawPragma l]:
+  (
+    { !$l.hasClause(ClawClause.DATA) }?     data_clause[$l]
+  | { !$l.hasClause(ClawClause.KIND) }?     kind_clause[$l]
+  | { !$l.hasClause(ClawClause.TARGET) }?   target_clause[$l]
+  )*
+;
+
 // Possible permutation of clauses for the loop-hoist directive
 loop_hoist_clauses[ClawPragma l]:
   (
@@ -654,8 +720,10 @@ CLAW         : 'claw';
 // CLAW Directives
 ARRAY_TO_CALL    : 'call';
 DEFINE           : 'define';
+DEMOTE           : 'demote';
 END              : 'end';
 EXPAND           : 'expand';
+HCACHE           : 'hcache';
 IF_EXTRACT       : 'if-extract';
 IGNORE           : 'ignore';
 KCACHE           : 'kcache';
@@ -663,6 +731,8 @@ LOOP_EXTRACT     : 'loop-extract';
 LOOP_FUSION      : 'loop-fusion';
 LOOP_HOIST       : 'loop-hoist';
 LOOP_INTERCHANGE : 'loop-interchange';
+LOOP_TILE        : 'loop-tile';
+LOOP_UNROLL      : 'loop-unroll';
 MODEL_DATA       : 'model-data';
 PARALLELIZE      : 'parallelize';  // TODO to be removed
 REMOVE           : 'remove';
@@ -677,14 +747,19 @@ COPY         : 'copy';
 CREATE       : 'create';
 DATA         : 'data';
 DIMENSION    : 'dimension';
+FACTOR       : 'factor';
 FORWARD      : 'forward';
 FUSION       : 'fusion';
 GROUP        : 'group';
 INDUCTION    : 'induction';
 INIT         : 'init';
+INLINE       : 'inline';
 INTERCHANGE  : 'interchange';
+JAM          : 'jam';
+KIND         : 'kind';
 LAYOUT       : 'layout';
 MAP          : 'map';
+NATIVE       : 'native';
 NOPROMOTE    : 'nopromote';
 OFFSET       : 'offset';
 OVER         : 'over';
@@ -696,6 +771,7 @@ ROUTINE      : 'routine';
 SAVEPOINT    : 'savepoint';
 SCALAR       : 'scalar';
 SERIALIZE    : 'serialize';
+SIZE         : 'size';
 TARGET       : 'target';
 UPDATE       : 'update';
 NODEP        : 'nodep';
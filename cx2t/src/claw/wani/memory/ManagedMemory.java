@@ -0,0 +1,187 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.memory;
+
+import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.directive.configuration.AcceleratorConfiguration;
+import claw.tatsu.directive.configuration.AcceleratorDataStrategy;
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.wani.x2t.configuration.Configuration;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Helper class to insert the prefetch calls of the managed data strategy.
+ * With this strategy, the arrays are allocated in managed memory and no data
+ * region is generated. The fields used by a kernel are prefetched before it
+ * with calls to a runtime module providing three subroutines:
+ *
+ * {@code
+ * <module>_prefetch_in(array)     ! array only read by the kernel
+ * <module>_prefetch_out(array)    ! array only written by the kernel
+ * <module>_prefetch_inout(array)  ! array read and written by the kernel
+ * }
+ *
+ * The calls are inserted directly before the given kernel. When the parallel
+ * region directives are generated afterwards around the kernel, the calls
+ * stay outside of the region.
+ *
+ * @author clementval
+ */
+public class ManagedMemory {
+
+  private static final String DEFAULT_MANAGED_MODULE = "claw_managed";
+  private static final String PREFETCH_IN_SUFFIX = "_prefetch_in";
+  private static final String PREFETCH_OUT_SUFFIX = "_prefetch_out";
+  private static final String PREFETCH_INOUT_SUFFIX = "_prefetch_inout";
+
+  // Avoid potential instantiation of this class
+  private ManagedMemory() {
+  }
+
+  /**
+   * Check whether the managed data strategy is selected.
+   *
+   * The configuration of the kernel being generated is used so the check is
+   * consistent with the data region generation.
+   *
+   * @return True if the managed data strategy is selected and a directive
+   * language is used. False otherwise.
+   */
+  public static boolean isEnabled() {
+    AcceleratorConfiguration config = Context.get().getAcceleratorConfig();
+    return config != null
+        && config.getDataStrategy() == AcceleratorDataStrategy.MANAGED
+        && Context.get().getCompilerDirective() != CompilerDirective.NONE;
+  }
+
+  /**
+   * Insert the prefetch calls of the fields used by a kernel before it. Each
+   * field is prefetched with the subroutine corresponding to its use in the
+   * kernel. Fields that are not arrays declared in the function are ignored.
+   *
+   * @param xcodeml Current XcodeML/F translation unit.
+   * @param fctDef  Function definition holding the kernel.
+   * @param kernel  Outer statement of the kernel.
+   * @param fields  Candidate fields.
+   * @return Number of prefetch calls inserted.
+   */
+  public static int generatePrefetch(XcodeProgram xcodeml,
+                                     FfunctionDefinition fctDef,
+                                     Xnode kernel, Collection<String> fields)
+  {
+    if(!isEnabled() || kernel == null || fctDef == null) {
+      return 0;
+    }
+
+    Set<String> candidates = new HashSet<>();
+    for(String field : fields) {
+      candidates.add(field.toLowerCase());
+    }
+
+    // Gather how the fields are used in the kernel
+    Set<String> read = new HashSet<>();
+    Set<String> written = new HashSet<>();
+    for(Xnode var : kernel.matchAll(Xcode.VAR)) {
+      String name = var.value().toLowerCase();
+      if(!candidates.contains(name)) {
+        continue;
+      }
+      if(isAssigned(var)) {
+        written.add(name);
+      } else {
+        read.add(name);
+        // Actual argument of a procedure can be modified by the procedure
+        Xnode call = var.matchAncestor(Xcode.FUNCTION_CALL);
+        if(call != null && !call.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+          written.add(name);
+        }
+      }
+    }
+
+    Set<String> used = new TreeSet<>(read);
+    used.addAll(written);
+    String module = getManagedModule();
+    int inserted = 0;
+    for(String field : used) {
+      Xid id = fctDef.getSymbolTable().get(field);
+      if(id == null || !xcodeml.getTypeTable().isBasicType(id.getType())) {
+        continue;
+      }
+      FbasicType bt = xcodeml.getTypeTable().getBasicType(id);
+      if(!bt.isArray() || bt.isParameter()) {
+        continue;
+      }
+      String suffix;
+      if(!written.contains(field)) {
+        suffix = PREFETCH_IN_SUFFIX;
+      } else if(!read.contains(field)) {
+        suffix = PREFETCH_OUT_SUFFIX;
+      } else {
+        suffix = PREFETCH_INOUT_SUFFIX;
+      }
+      kernel.insertBefore(createPrefetchCall(xcodeml, module + suffix,
+          xcodeml.createVar(id.getType(), id.getName(), Xscope.LOCAL)));
+      ++inserted;
+    }
+    if(inserted > 0) {
+      fctDef.getDeclarationTable().insertUseDecl(xcodeml, module);
+    }
+    return inserted;
+  }
+
+  /**
+   * Check whether a variable is the one assigned by an assignment statement.
+   *
+   * @param var Var node to be checked.
+   * @return True if the variable, or the array it references, is the left
+   * hand-side of an assignment.
+   */
+  private static boolean isAssigned(Xnode var) {
+    Xnode base = var;
+    if(Xnode.isOfCode(var.ancestor(), Xcode.VAR_REF)) {
+      base = var.ancestor().ancestor();
+    }
+    Xnode parent = base == null ? null : base.ancestor();
+    return Xnode.isOfCode(parent, Xcode.F_ASSIGN_STATEMENT)
+        && base.equals(parent.firstChild());
+  }
+
+  /**
+   * Get the name of the managed memory module from the configuration.
+   *
+   * @return Name of the managed memory module.
+   */
+  private static String getManagedModule() {
+    String module =
+        Configuration.get().getParameter(Configuration.MANAGED_MEMORY_MODULE);
+    return module == null || module.trim().isEmpty()
+        ? DEFAULT_MANAGED_MODULE : module.trim().toLowerCase();
+  }
+
+  /**
+   * Create a call to a subroutine of the managed memory module.
+   *
+   * @param xcodeml Current XcodeML/F translation unit.
+   * @param fctName Name of the subroutine.
+   * @param field   Var node of the field passed as argument.
+   * @return Newly created exprStmt node encapsulating the function call.
+   */
+  private static Xnode createPrefetchCall(XcodeProgram xcodeml, String fctName,
+                                          Xnode field)
+  {
+    FunctionCall prefetchCall =
+        xcodeml.createFctCall(xcodeml.createSubroutineType(), fctName);
+    prefetchCall.addArguments(field);
+    return xcodeml.createNode(Xcode.EXPR_STATEMENT).insert(prefetchCall);
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.report;
+
+import claw.wani.x2t.translator.ClawTranslator;
+
+import java.io.FileWriter;
+
+/**
+ * Generation of the kernel name table. The table maps the name of each
+ * instrumented kernel, as printed by the timing module at runtime, back to the
+ * original source file and line.
+ *
+ * @author clementval
+ */
+public class ClawKernelTable {
+
+  public static final String KERNEL_TABLE_SUFFIX = ".kernels";
+
+  private final FileWriter _table;
+
+  /**
+   * Constructs a kernel table object.
+   *
+   * @param tablePath Path of the kernel table file.
+   * @throws Exception If file cannot be created or cannot be written.
+   */
+  public ClawKernelTable(String tablePath) throws Exception {
+    _table = new FileWriter(tablePath);
+  }
+
+  /**
+   * Generate the kernel table to file. One line per kernel with its name,
+   * location and the transformation that generated it.
+   *
+   * @param translator Current translator used during the transformation.
+   * @throws Exception If file cannot be created or cannot be written.
+   */
+  public void generate(ClawTranslator translator) throws Exception {
+    String format = "%-32s %-24s %-24s %6s %s%n";
+    _table.write(String.format(format, "# kernel", "source", "function",
+        "line", "transformation"));
+    for(KernelInfo info : translator.getKernelInfos()) {
+      _table.write(String.format(format, info.getName(), info.getSource(),
+          info.getFunction(),
+          info.getLineNo() > 0 ? String.valueOf(info.getLineNo()) : "-",
+          info.getTransformation()));
+    }
+    _table.close();
+  }
+}
@@ -53,7 +53,7 @@ public class ClawTransformationReport {
     printHeader("CLAW Transformation Report");
     printMainInfo(translator, args);
     printTransformationOrderInfo(translator.getTranslator());
-    printTransformationInfo();
+    printTransformationInfo(translator.getTranslator());
     _report.flush();
   }
 
@@ -145,9 +145,26 @@ public class ClawTransformationReport {
     }
   }
 
-  private void printTransformationInfo() throws Exception {
+  /**
+   * Print information recorded by the transformations during their
+   * application.
+   *
+   * @param translator Current translator used during the transformation.
+   * @throws Exception If file cannot be created or cannot be written.
+   */
+  private void printTransformationInfo(ClawTranslator translator)
+      throws Exception
+  {
     printTitle("Transformation");
-    // TODO
+
+    String format = "%-7s %-20s %s";
+    printLine(String.format(format, "Line", "Transformation", "Information"));
+    printLine(String.format(format, "----", "--------------", "-----------"));
+    for(TransformationInfo info : translator.getTransformationInfos()) {
+      printLine(String.format(format,
+          info.getLineNo() > 0 ? String.valueOf(info.getLineNo()) : "-",
+          info.getTransformation(), info.getMessage()));
+    }
   }
 
   /**
@@ -0,0 +1,85 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.report;
+
+/**
+ * Information about an instrumented kernel. The name is the one passed to the
+ * timing module at runtime. The other fields allow to map it back to the
+ * original code.
+ *
+ * @author clementval
+ */
+public class KernelInfo {
+
+  private final String _name;
+  private final String _source;
+  private final String _function;
+  private final int _lineNo;
+  private final String _transformation;
+
+  /**
+   * Constructs a new kernel information.
+   *
+   * @param name           Name of the kernel passed to the timing module.
+   * @param source         Source file of the kernel.
+   * @param function       Name of the function/subroutine holding the kernel.
+   * @param lineNo         Line number in the original code.
+   * @param transformation Name of the transformation generating the kernel.
+   */
+  public KernelInfo(String name, String source, String function, int lineNo,
+                    String transformation)
+  {
+    _name = name;
+    _source = source;
+    _function = function;
+    _lineNo = lineNo;
+    _transformation = transformation;
+  }
+
+  /**
+   * Get the name of the kernel passed to the timing module.
+   *
+   * @return Kernel name.
+   */
+  public String getName() {
+    return _name;
+  }
+
+  /**
+   * Get the source file of the kernel.
+   *
+   * @return Source file name.
+   */
+  public String getSource() {
+    return _source;
+  }
+
+  /**
+   * Get the name of the function/subroutine holding the kernel.
+   *
+   * @return Function name.
+   */
+  public String getFunction() {
+    return _function;
+  }
+
+  /**
+   * Get the line number associated with the kernel.
+   *
+   * @return Line number. 0 if unknown.
+   */
+  public int getLineNo() {
+    return _lineNo;
+  }
+
+  /**
+   * Get the name of the transformation generating the kernel.
+   *
+   * @return Transformation name.
+   */
+  public String getTransformation() {
+    return _transformation;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.report;
+
+/**
+ * Information recorded by a transformation during its application. This
+ * information is included in the transformation report.
+ *
+ * @author clementval
+ */
+public class TransformationInfo {
+
+  private final String _transformation;
+  private final int _lineNo;
+  private final String _message;
+
+  /**
+   * Constructs a new transformation information.
+   *
+   * @param transformation Name of the transformation recording the info.
+   * @param lineNo         Line number in the original code.
+   * @param message        Information message.
+   */
+  public TransformationInfo(String transformation, int lineNo, String message)
+  {
+    _transformation = transformation;
+    _lineNo = lineNo;
+    _message = message;
+  }
+
+  /**
+   * Get the name of the transformation recording the information.
+   *
+   * @return Transformation name.
+   */
+  public String getTransformation() {
+    return _transformation;
+  }
+
+  /**
+   * Get the line number associated with the information.
+   *
+   * @return Line number. 0 if unknown.
+   */
+  public int getLineNo() {
+    return _lineNo;
+  }
+
+  /**
+   * Get the information message.
+   *
+   * @return Information message.
+   */
+  public String getMessage() {
+    return _message;
+  }
+}
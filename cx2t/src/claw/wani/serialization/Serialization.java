@@ -4,11 +4,11 @@
  */
 package claw.wani.serialization;
 
+import claw.tatsu.TatsuConstant;
 import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.common.*;
-import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
-import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
-import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.*;
 import claw.wani.x2t.configuration.Configuration;
 
 import java.util.*;
@@ -35,6 +35,8 @@ public class Serialization {
 
   private static final String SAVEPOINT_IN_SUFFIX = "in";
   private static final String SAVEPOINT_OUT_SUFFIX = "out";
+  private static final String SAVEPOINT_COUNTER_PREFIX =
+      TatsuConstant.CLAW_PREFIX + "_ser_";
 
   // Avoid potential instantiation of this class
   private Serialization() {
@@ -291,7 +293,7 @@ public class Serialization {
           entry.getValue()));
     }
 
-    Set<String> uniqueFields = new HashSet<>(fields);
+    Set<String> uniqueFields = selectFields(fields);
     Map<String, Integer> fieldNames = new HashMap<>();
     for(String field : uniqueFields) {
       String fieldName = cleanUpFieldName(field);
@@ -312,9 +314,187 @@ public class Serialization {
       }
     }
 
+    nodes = applySampling(xcodeml, hook, savepointName, nodes);
     return insertNodes(step, hook, nodes);
   }
 
+  /**
+   * Select the fields to be serialized. If a list of fields is given in the
+   * configuration, only the fields from this list are kept.
+   *
+   * @param fields List of fields of the savepoint.
+   * @return Set of fields to be serialized.
+   */
+  private static Set<String> selectFields(List<String> fields) {
+    String subset = Configuration.get().
+        getParameter(Configuration.SCA_SERIALIZATION_FIELDS);
+    if(subset == null || subset.trim().isEmpty()) {
+      return new HashSet<>(fields);
+    }
+    Set<String> selected = new HashSet<>();
+    for(String name : subset.split(",")) {
+      selected.add(name.trim().toLowerCase());
+    }
+    Set<String> uniqueFields = new HashSet<>();
+    for(String field : fields) {
+      if(selected.contains(cleanUpFieldName(field).toLowerCase())) {
+        uniqueFields.add(field);
+      }
+    }
+    return uniqueFields;
+  }
+
+  /**
+   * Wrap the savepoint calls in a guard if sampling or a window of invocations
+   * is defined in the configuration. A counter of invocations is kept for the
+   * savepoint and the calls are only executed for every Nth invocation in the
+   * window.
+   *
+   * {@code
+   * claw_ser_savepoint = claw_ser_savepoint + 1
+   * IF (claw_ser_savepoint >= start .AND. claw_ser_savepoint <= end
+   *     .AND. MOD(claw_ser_savepoint - start, N) == 0) THEN
+   *   ! savepoint calls
+   * END IF
+   * }
+   *
+   * @param xcodeml       Current XcodeML translation unit.
+   * @param hook          Hook for node insertion.
+   * @param savepointName Name of the savepoint.
+   * @param nodes         Savepoint calls.
+   * @return List of nodes to be inserted.
+   */
+  private static List<Xnode> applySampling(XcodeProgram xcodeml, Xnode hook,
+                                           String savepointName,
+                                           List<Xnode> nodes)
+  {
+    int sampling = Configuration.get().
+        getIntParameter(Configuration.SCA_SERIALIZATION_SAMPLING, 1);
+    int start = Configuration.get().
+        getIntParameter(Configuration.SCA_SERIALIZATION_WINDOW_START, 1);
+    int end = Configuration.get().
+        getIntParameter(Configuration.SCA_SERIALIZATION_WINDOW_END, 0);
+    FfunctionDefinition fctDef = hook.findParentFunction();
+    if((sampling <= 1 && start <= 1 && end <= 0) || fctDef == null) {
+      return nodes;
+    }
+    start = Math.max(start, 1);
+
+    String counter = createCounter(xcodeml, fctDef, savepointName);
+
+    // counter = counter + 1
+    Xnode increment = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    Xnode plus = xcodeml.createNode(Xcode.PLUS_EXPR).setType(Xname.TYPE_F_INT);
+    plus.append(xcodeml.createVar(FortranType.INTEGER, counter, Xscope.LOCAL));
+    plus.append(xcodeml.createIntConstant(1));
+    increment.append(
+        xcodeml.createVar(FortranType.INTEGER, counter, Xscope.LOCAL));
+    increment.append(plus);
+
+    Xnode condition = null;
+    if(start > 1) {
+      condition = createComparison(xcodeml, Xcode.LOG_GE_EXPR,
+          xcodeml.createVar(FortranType.INTEGER, counter, Xscope.LOCAL),
+          xcodeml.createIntConstant(start));
+    }
+    if(end > 0) {
+      condition = createAnd(xcodeml, condition,
+          createComparison(xcodeml, Xcode.LOG_LE_EXPR,
+              xcodeml.createVar(FortranType.INTEGER, counter, Xscope.LOCAL),
+              xcodeml.createIntConstant(end)));
+    }
+    if(sampling > 1) {
+      Xnode minus =
+          xcodeml.createNode(Xcode.MINUS_EXPR).setType(Xname.TYPE_F_INT);
+      minus.append(
+          xcodeml.createVar(FortranType.INTEGER, counter, Xscope.LOCAL));
+      minus.append(xcodeml.createIntConstant(start));
+      FunctionCall mod =
+          xcodeml.createIntrinsicFctCall(FortranType.INTEGER, Xintrinsic.MOD);
+      mod.addArguments(minus);
+      mod.addArguments(xcodeml.createIntConstant(sampling));
+      condition = createAnd(xcodeml, condition,
+          createComparison(xcodeml, Xcode.LOG_EQ_EXPR, mod,
+              xcodeml.createIntConstant(0)));
+    }
+
+    Xnode guard = xcodeml.createIfThen();
+    guard.matchDirectDescendant(Xcode.CONDITION).append(condition);
+    Xnode body = guard.matchDirectDescendant(Xcode.THEN).body();
+    for(Xnode node : nodes) {
+      body.append(node);
+    }
+    return Arrays.asList(increment, guard);
+  }
+
+  /**
+   * Create the counter of invocations of a savepoint. The counter is a local
+   * integer variable with the SAVE attribute initialized to 0.
+   *
+   * @param xcodeml       Current XcodeML translation unit.
+   * @param fctDef        Function definition holding the savepoint.
+   * @param savepointName Name of the savepoint.
+   * @return Name of the counter variable.
+   */
+  private static String createCounter(XcodeProgram xcodeml,
+                                      FfunctionDefinition fctDef,
+                                      String savepointName)
+  {
+    String base = (SAVEPOINT_COUNTER_PREFIX + savepointName).toLowerCase()
+        .replaceAll("[^a-z0-9_]", "_");
+    String counter = base;
+    int index = 1;
+    while(fctDef.getSymbolTable().contains(counter)) {
+      counter = String.format("%s_%d", base, index++);
+    }
+
+    FbasicType counterType = xcodeml.createBasicType(FortranType.INTEGER,
+        Intent.NONE);
+    counterType.setBooleanAttribute(Xattr.IS_SAVE, true);
+    xcodeml.getTypeTable().add(counterType);
+
+    Xid id = xcodeml.createId(counterType.getType(), XstorageClass.F_LOCAL,
+        counter);
+    fctDef.getSymbolTable().add(id, false);
+    Xnode decl = xcodeml.createVarDecl(counterType.getType(), counter);
+    decl.append(xcodeml.createNode(Xcode.VALUE)
+        .append(xcodeml.createIntConstant(0)));
+    fctDef.getDeclarationTable().add(decl);
+    return counter;
+  }
+
+  /**
+   * Create a logical comparison between two expressions.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param opcode  Opcode of the comparison.
+   * @param lhs     Left hand side expression.
+   * @param rhs     Right hand side expression.
+   * @return Newly created comparison node.
+   */
+  private static Xnode createComparison(XcodeProgram xcodeml, Xcode opcode,
+                                        Xnode lhs, Xnode rhs)
+  {
+    return xcodeml.createNode(opcode).setType(Xname.TYPE_F_LOGICAL)
+        .append(lhs).append(rhs);
+  }
+
+  /**
+   * Combine two conditions with a logical and. If the first condition is
+   * null, the second one is returned.
+   *
+   * @param xcodeml Current XcodeML translation unit.
+   * @param lhs     First condition. Can be null.
+   * @param rhs     Second condition.
+   * @return Combined condition.
+   */
+  private static Xnode createAnd(XcodeProgram xcodeml, Xnode lhs, Xnode rhs) {
+    if(lhs == null) {
+      return rhs;
+    }
+    return createComparison(xcodeml, Xcode.LOG_AND_EXPR, lhs, rhs);
+  }
+
   /**
    * Insert nodes for an input or output serialization.
    *
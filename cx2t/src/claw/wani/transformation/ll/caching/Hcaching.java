@@ -0,0 +1,681 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.caching;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.directive.common.Directive;
+import claw.tatsu.primitive.Loop;
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import claw.wani.language.ClawClause;
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+
+import java.util.*;
+
+/**
+ * A Hcaching transformation is an independent transformation. It caches the
+ * neighbouring values of read-only arrays accessed with a stencil pattern
+ * (e.g. a(i-1,j), a(i,j), a(i+1,j)) in a horizontal loop nest.
+ *
+ * On GPU, an OpenACC cache directive is generated at the beginning of the
+ * innermost loop with the sub-array covering all the accessed neighbours.
+ * On other targets, the values are rotated through scalar variables along the
+ * innermost loop so that each array element is loaded only once per row.
+ *
+ * @author clementval
+ */
+public class Hcaching extends ClawTransformation {
+
+  private NestedDoStatement _nest;
+  private final Map<String, List<StencilAccess>> _accesses;
+
+  /**
+   * Constructs a new Hcaching transformation triggered from a specific pragma.
+   *
+   * @param directive The directive that triggered the h caching
+   *                  transformation.
+   */
+  public Hcaching(ClawPragma directive) {
+    super(directive);
+    _accesses = new LinkedHashMap<>();
+  }
+
+  /**
+   * @see Transformation#analyze(XcodeProgram, Translator)
+   */
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    Xnode doStmt = _claw.getPragma().matchSibling(Xcode.F_DO_STATEMENT);
+    if(doStmt == null) {
+      xcodeml.addError("The hcache directive is not followed by a do " +
+          "statement", _claw.getPragma().lineNo());
+      return false;
+    }
+    _nest = new NestedDoStatement(doStmt);
+
+    List<String> inductionVars = _nest.getInductionVariables();
+    Set<String> assigned = getAssignedVariables(doStmt);
+    Xnode innerBody = _nest.getInnerStatement().body();
+
+    for(String data : _claw.values(ClawClause.DATA)) {
+      if(assigned.contains(data.toLowerCase())) {
+        xcodeml.addWarning(String.format("Variable %s is written in the loop " +
+            "nest and cannot be cached", data), _claw.getPragma().lineNo());
+        continue;
+      }
+
+      List<Xnode> refs = XnodeUtil.getAllArrayReferences(innerBody, data);
+      if(refs.isEmpty()) {
+        xcodeml.addWarning(String.format("Variable %s defined in the data " +
+            "clause has not been found", data), _claw.getPragma().lineNo());
+        continue;
+      }
+      if(XnodeUtil.getAllArrayReferences(doStmt, data).size()
+          != XnodeUtil.getAllVarReferences(doStmt, data).size())
+      {
+        xcodeml.addWarning(String.format("Variable %s is used outside of an " +
+            "element reference in the loop nest and cannot be cached", data),
+            _claw.getPragma().lineNo());
+        continue;
+      }
+
+      List<StencilAccess> accesses = new ArrayList<>();
+      for(Xnode ref : refs) {
+        StencilAccess access =
+            StencilAccess.analyze(ref, inductionVars, assigned);
+        if(access == null) {
+          break;
+        }
+        accesses.add(access);
+      }
+      if(accesses.size() != refs.size() || !isConsistent(accesses)) {
+        xcodeml.addWarning(String.format("Array references of %s are not " +
+                "supported by the hcache directive", data),
+            _claw.getPragma().lineNo());
+        continue;
+      }
+      if(!hasReuse(accesses)) {
+        xcodeml.addWarning(String.format("No stencil reuse detected for %s",
+            data), _claw.getPragma().lineNo());
+        continue;
+      }
+      _accesses.put(data, accesses);
+    }
+    return true;
+  }
+
+  /**
+   * Gather all variables assigned in the given block. Variables passed as
+   * actual arguments, even element-wise, to a non intrinsic procedure are
+   * considered as assigned as the procedure can modify them.
+   *
+   * @param block Block to be inspected.
+   * @return Set of lower case identifiers of the assigned variables.
+   */
+  private Set<String> getAssignedVariables(Xnode block) {
+    Set<String> assigned = new HashSet<>();
+    for(Xnode node : block.matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      String name = new AssignStatement(node.element()).getLhsName();
+      if(name != null) {
+        assigned.add(name.toLowerCase());
+      }
+    }
+    for(Xnode doStmt : block.matchAll(Xcode.F_DO_STATEMENT)) {
+      assigned.add(doStmt.matchDirectDescendant(Xcode.VAR).value()
+          .toLowerCase());
+    }
+    for(Xnode call : block.matchAll(Xcode.FUNCTION_CALL)) {
+      if(call.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        continue;
+      }
+      for(Xnode arg : new FunctionCall(call).arguments()) {
+        Xnode value = arg.is(Xcode.NAMED_VALUE) ? arg.firstChild() : arg;
+        if(Xnode.isOfCode(value, Xcode.F_ARRAY_REF)) {
+          value = value.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+        }
+        if(Xnode.isOfCode(value, Xcode.VAR)) {
+          assigned.add(value.value().toLowerCase());
+        }
+      }
+    }
+    return assigned;
+  }
+
+  /**
+   * Check that all accesses have the same rank and use the same induction
+   * variable in each dimension.
+   *
+   * @param accesses List of accesses to the same array.
+   * @return True if the accesses are consistent. False otherwise.
+   */
+  private boolean isConsistent(List<StencilAccess> accesses) {
+    StencilAccess first = accesses.get(0);
+    for(StencilAccess access : accesses) {
+      if(access.rank() != first.rank()) {
+        return false;
+      }
+      for(int i = 0; i < first.rank(); ++i) {
+        if(!Objects.equals(access._vars.get(i), first._vars.get(i))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether at least one dimension is accessed with different offsets.
+   *
+   * @param accesses List of accesses to the same array.
+   * @return True if the same elements are accessed by several iterations.
+   */
+  private boolean hasReuse(List<StencilAccess> accesses) {
+    for(int i = 0; i < accesses.get(0).rank(); ++i) {
+      if(accesses.get(0)._vars.get(i) != null
+          && getMinOffset(accesses, i) != getMaxOffset(accesses, i))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation other)
+  {
+    // independent transformation
+    return false;
+  }
+
+  /**
+   * @see Transformation#transform(XcodeProgram, Translator, Transformation)
+   */
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation other) throws Exception
+  {
+    if(Context.get().getTarget() == Target.GPU) {
+      generateCacheDirective(xcodeml);
+    } else {
+      FfunctionDefinition fctDef = _claw.getPragma().findParentFunction();
+      for(Map.Entry<String, List<StencilAccess>> entry :
+          _accesses.entrySet())
+      {
+        rotateThroughScalars(xcodeml, fctDef, entry.getKey(),
+            entry.getValue());
+      }
+    }
+    removePragma();
+    transformed();
+  }
+
+  /**
+   * Generate the cache directive with the sub-arrays covering all the
+   * accessed elements of the cached arrays.
+   *
+   * @param xcodeml Current translation unit.
+   */
+  private void generateCacheDirective(XcodeProgram xcodeml) {
+    List<String> subArrays = new ArrayList<>();
+    for(Map.Entry<String, List<StencilAccess>> entry : _accesses.entrySet()) {
+      String subArray = getSubArray(entry.getKey(), entry.getValue());
+      if(subArray == null) {
+        xcodeml.addWarning(String.format("Array references of %s cannot be " +
+                "expressed as a single sub-array", entry.getKey()),
+            _claw.getPragma().lineNo());
+      } else {
+        subArrays.add(subArray);
+      }
+    }
+    if(!subArrays.isEmpty() && !Directive.generateCacheDirective(xcodeml,
+        _nest.getInnerStatement(), subArrays))
+    {
+      xcodeml.addWarning("Cache directive not supported by the current " +
+          "directive language", _claw.getPragma().lineNo());
+    }
+  }
+
+  /**
+   * Construct the sub-array representation covering all accesses.
+   *
+   * @param data     Array identifier.
+   * @param accesses List of accesses to the array.
+   * @return Sub-array representation. Null if invariant indexes differ.
+   */
+  private String getSubArray(String data, List<StencilAccess> accesses) {
+    List<String> dims = new ArrayList<>();
+    for(int i = 0; i < accesses.get(0).rank(); ++i) {
+      String var = accesses.get(0)._vars.get(i);
+      if(var == null) {
+        String invariant = accesses.get(0)._invariants.get(i);
+        for(StencilAccess access : accesses) {
+          if(!invariant.equals(access._invariants.get(i))) {
+            return null;
+          }
+        }
+        dims.add(invariant);
+      } else {
+        int min = getMinOffset(accesses, i);
+        int max = getMaxOffset(accesses, i);
+        dims.add(min == max ? withOffset(var, min) :
+            withOffset(var, min) + ":" + withOffset(var, max));
+      }
+    }
+    return data + "(" + String.join(",", dims) + ")";
+  }
+
+  /**
+   * Replace the array references by scalars rotated along the innermost
+   * loop. For a row accessed with offsets dmin to dmax, the scalars are
+   * preloaded before the innermost loop and shifted at the beginning of each
+   * iteration so that only the element at offset dmax is loaded.
+   *
+   * The preload reads the elements accessed by the first iteration of the
+   * innermost loop even if the loop has no iteration. As the leading element
+   * is loaded at each iteration, arrays referenced under a conditional or in
+   * a loop body altering the control flow are not rotated.
+   *
+   * @param xcodeml  Current translation unit.
+   * @param fctDef   Function definition in which the nest is located.
+   * @param data     Array identifier.
+   * @param accesses List of accesses to the array.
+   */
+  private void rotateThroughScalars(XcodeProgram xcodeml,
+                                    FfunctionDefinition fctDef, String data,
+                                    List<StencilAccess> accesses)
+  {
+    Xnode innerLoop = _nest.getInnerStatement();
+    String innerVar = innerLoop.matchDirectDescendant(Xcode.VAR).value();
+    int dim = accesses.get(0)._vars.indexOf(innerVar);
+    if(!Loop.hasUnitStep(innerLoop) || dim < 0
+        || accesses.get(0)._vars.lastIndexOf(innerVar) != dim)
+    {
+      xcodeml.addWarning(String.format("Variable %s cannot be rotated along " +
+          "the innermost loop", data), _claw.getPragma().lineNo());
+      return;
+    }
+    if(hasControlFlow(innerLoop) || accesses.stream()
+        .anyMatch(access -> isConditional(access._ref, innerLoop)))
+    {
+      xcodeml.addWarning(String.format("Variable %s is conditionally " +
+          "referenced in the innermost loop and cannot be rotated", data),
+          _claw.getPragma().lineNo());
+      return;
+    }
+
+    // Group the accesses by row (all dimensions but the rotated one)
+    Map<String, List<StencilAccess>> rows = new LinkedHashMap<>();
+    for(StencilAccess access : accesses) {
+      rows.computeIfAbsent(access.getRowKey(dim), k -> new ArrayList<>())
+          .add(access);
+    }
+
+    Xnode lowerBound = innerLoop.matchSeq(Xcode.INDEX_RANGE,
+        Xcode.LOWER_BOUND).firstChild();
+    List<Xnode> rotations = new ArrayList<>();
+    boolean rotated = false;
+    for(List<StencilAccess> row : rows.values()) {
+      int min = getMinOffset(row, dim);
+      int max = getMaxOffset(row, dim);
+      if(min == max) {
+        continue;
+      }
+      rotated = true;
+
+      String type = getScalarType(xcodeml, row.get(0)._ref.getType());
+      Map<Integer, Xnode> scalars = new HashMap<>();
+      for(int d = min; d <= max; ++d) {
+        scalars.put(d, createScalar(xcodeml, fctDef, type,
+            row.get(0).getScalarName(data, dim, d)));
+      }
+
+      StencilAccess last = null;
+      for(StencilAccess access : row) {
+        if(access._offsets.get(dim) == max) {
+          last = access;
+        }
+      }
+
+      // Preload the values used by the first iteration
+      for(int d = min + 1; d <= max; ++d) {
+        Xnode load = last._ref.cloneNode();
+        Xnode index = load.matchDirectDescendant(Xcode.ARRAY_INDEX);
+        for(int i = 0; i < dim; ++i) {
+          index = index.nextSibling();
+        }
+        index.firstChild().delete();
+        index.append(createOffsetExpr(xcodeml, lowerBound, d - 1));
+        innerLoop.insertBefore(createAssign(xcodeml, scalars.get(d), load));
+      }
+
+      // Shift the values and load the new one
+      for(int d = min; d < max; ++d) {
+        rotations.add(createAssign(xcodeml, scalars.get(d),
+            scalars.get(d + 1)));
+      }
+      rotations.add(createAssign(xcodeml, scalars.get(max),
+          last._ref.cloneNode()));
+
+      for(StencilAccess access : row) {
+        access._ref.insertAfter(
+            scalars.get(access._offsets.get(dim)).cloneNode());
+        access._ref.delete();
+      }
+    }
+
+    if(!rotated) {
+      xcodeml.addWarning(String.format("No reuse of %s along the innermost " +
+          "loop", data), _claw.getPragma().lineNo());
+    }
+    Collections.reverse(rotations);
+    for(Xnode rotation : rotations) {
+      innerLoop.body().insert(rotation);
+    }
+  }
+
+  /**
+   * Check whether the body of the loop contains statements skipping the end
+   * of an iteration.
+   *
+   * @param loop Do statement to be checked.
+   * @return True if the loop body alters the control flow.
+   */
+  private static boolean hasControlFlow(Xnode loop) {
+    for(Xcode opcode : Arrays.asList(Xcode.F_CYCLE_STATEMENT,
+        Xcode.F_EXIT_STATEMENT, Xcode.F_RETURN_STATEMENT,
+        Xcode.F_STOP_STATEMENT, Xcode.GOTO_STATEMENT))
+    {
+      if(loop.body().matchDescendant(opcode) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Check whether a reference is only evaluated under a condition in the loop.
+   *
+   * @param ref  Array reference.
+   * @param loop Do statement holding the reference.
+   * @return True if the reference is nested in a conditional or loop construct
+   * inside the given loop.
+   */
+  private static boolean isConditional(Xnode ref, Xnode loop) {
+    for(Xnode node = ref.ancestor(); node != null && !node.equals(loop);
+        node = node.ancestor())
+    {
+      if(node.is(Xcode.F_IF_STATEMENT) || node.is(Xcode.F_WHERE_STATEMENT)
+          || node.is(Xcode.F_SELECT_CASE_STATEMENT)
+          || node.is(Xcode.F_DO_STATEMENT)
+          || node.is(Xcode.F_DO_WHILE_STATEMENT))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the type to be used for the cache scalars. Intent and allocatable
+   * attributes of the array element type are removed.
+   *
+   * @param xcodeml Current translation unit.
+   * @param type    Type of the array element.
+   * @return Type hash to be used for the scalars.
+   */
+  private String getScalarType(XcodeProgram xcodeml, String type) {
+    FbasicType t = xcodeml.getTypeTable().getBasicType(type);
+    if(t == null || (t.getIntent() == Intent.NONE && !t.isAllocatable())) {
+      return type;
+    }
+    FortranType baseType = FortranType.fromString(t.getRef());
+    FbasicType newType = t.cloneNode();
+    String newHash = xcodeml.getTypeTable().generateHash(
+        baseType == FortranType.NONE ? FortranType.REAL : baseType);
+    newType.setType(newHash);
+    newType.removeAttribute(Xattr.INTENT);
+    newType.removeAttribute(Xattr.IS_ALLOCATABLE);
+    xcodeml.getTypeTable().add(newType);
+    return newHash;
+  }
+
+  /**
+   * Create a new local scalar variable. The name is made unique in the
+   * function.
+   *
+   * @param xcodeml Current translation unit.
+   * @param fctDef  Function definition in which the scalar is declared.
+   * @param type    Type of the scalar.
+   * @param name    Base name of the scalar.
+   * @return Var node referencing the new scalar.
+   */
+  private Xnode createScalar(XcodeProgram xcodeml, FfunctionDefinition fctDef,
+                             String type, String name)
+  {
+    String uniqueName = name;
+    int counter = 1;
+    while(fctDef.getSymbolTable().contains(uniqueName)) {
+      uniqueName = name + counter++;
+    }
+    Xid id = xcodeml.createId(type, XstorageClass.F_LOCAL, uniqueName);
+    fctDef.getSymbolTable().add(id, false);
+    fctDef.getDeclarationTable().add(xcodeml.createVarDecl(type, uniqueName));
+    return xcodeml.createVar(type, uniqueName, Xscope.LOCAL);
+  }
+
+  /**
+   * Create an assign statement. Both nodes are cloned.
+   *
+   * @param xcodeml Current translation unit.
+   * @param lhs     Left hand side of the assignment.
+   * @param rhs     Right hand side of the assignment.
+   * @return The new assign statement.
+   */
+  private Xnode createAssign(XcodeProgram xcodeml, Xnode lhs, Xnode rhs) {
+    Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    assign.append(lhs, true);
+    assign.append(rhs, true);
+    return assign;
+  }
+
+  /**
+   * Create the expression base + offset.
+   *
+   * @param xcodeml Current translation unit.
+   * @param base    Base expression. Cloned.
+   * @param offset  Integer offset.
+   * @return The new expression.
+   */
+  private Xnode createOffsetExpr(XcodeProgram xcodeml, Xnode base,
+                                 int offset)
+  {
+    if(offset == 0) {
+      return base.cloneNode();
+    }
+    Xnode expr = xcodeml.createNode(offset > 0
+        ? Xcode.PLUS_EXPR : Xcode.MINUS_EXPR);
+    expr.setType(base.getType());
+    expr.append(base, true);
+    expr.append(xcodeml.createIntConstant(Math.abs(offset)));
+    return expr;
+  }
+
+  /**
+   * Get the representation of a variable with an offset.
+   *
+   * @param var    Variable name.
+   * @param offset Integer offset.
+   * @return Representation such as i, i+1 or i-1.
+   */
+  private static String withOffset(String var, int offset) {
+    if(offset == 0) {
+      return var;
+    }
+    return var + (offset > 0 ? "+" : "-") + Math.abs(offset);
+  }
+
+  private static int getMinOffset(List<StencilAccess> accesses, int dim) {
+    int min = Integer.MAX_VALUE;
+    for(StencilAccess access : accesses) {
+      min = Math.min(min, access._offsets.get(dim));
+    }
+    return min;
+  }
+
+  private static int getMaxOffset(List<StencilAccess> accesses, int dim) {
+    int max = Integer.MIN_VALUE;
+    for(StencilAccess access : accesses) {
+      max = Math.max(max, access._offsets.get(dim));
+    }
+    return max;
+  }
+
+  /**
+   * Description of an array reference in the loop nest. Each dimension is
+   * either indexed by an induction variable of the nest plus a constant
+   * offset or by an expression invariant in the nest.
+   */
+  private static class StencilAccess {
+
+    private final Xnode _ref;
+    private final List<String> _vars = new ArrayList<>();
+    private final List<Integer> _offsets = new ArrayList<>();
+    private final List<String> _invariants = new ArrayList<>();
+
+    private StencilAccess(Xnode ref) {
+      _ref = ref;
+    }
+
+    /**
+     * Analyze the indexes of an array reference.
+     *
+     * @param ref           Array reference.
+     * @param inductionVars Induction variables of the nest.
+     * @param assigned      Variables assigned in the nest.
+     * @return The access description. Null if an index is not supported.
+     */
+    static StencilAccess analyze(Xnode ref, List<String> inductionVars,
+                                 Set<String> assigned)
+    {
+      StencilAccess access = new StencilAccess(ref);
+      for(Xnode child : ref.children()) {
+        if(child.is(Xcode.VAR_REF)) {
+          continue;
+        }
+        if(!child.is(Xcode.ARRAY_INDEX) || child.firstChild() == null) {
+          return null;
+        }
+        Xnode expr = child.firstChild();
+        Xnode var = null;
+        int offset = 0;
+        if(expr.is(Xcode.VAR)) {
+          var = expr;
+        } else if((expr.is(Xcode.PLUS_EXPR) || expr.is(Xcode.MINUS_EXPR))
+            && expr.child(0).is(Xcode.VAR)
+            && expr.child(1).is(Xcode.F_INT_CONSTANT))
+        {
+          var = expr.child(0);
+          offset = Integer.parseInt(expr.child(1).value());
+          if(expr.is(Xcode.MINUS_EXPR)) {
+            offset = -offset;
+          }
+        } else if(expr.is(Xcode.PLUS_EXPR)
+            && expr.child(0).is(Xcode.F_INT_CONSTANT)
+            && expr.child(1).is(Xcode.VAR))
+        {
+          var = expr.child(1);
+          offset = Integer.parseInt(expr.child(0).value());
+        }
+
+        if(var != null && inductionVars.contains(var.value())) {
+          access._vars.add(var.value());
+          access._offsets.add(offset);
+          access._invariants.add(null);
+        } else {
+          String invariant = expr.constructRepresentation(false, false);
+          if(invariant == null || invariant.isEmpty()) {
+            return null;
+          }
+          for(Xnode v : expr.matchAll(Xcode.VAR)) {
+            if(assigned.contains(v.value().toLowerCase())) {
+              return null;
+            }
+          }
+          if(expr.is(Xcode.VAR)
+              && assigned.contains(expr.value().toLowerCase()))
+          {
+            return null;
+          }
+          access._vars.add(null);
+          access._offsets.add(0);
+          access._invariants.add(invariant);
+        }
+      }
+      return access;
+    }
+
+    int rank() {
+      return _vars.size();
+    }
+
+    /**
+     * Get a key identifying the row of the access, i.e. all the indexes
+     * except the given dimension.
+     *
+     * @param dim Dimension excluded from the key.
+     * @return Row key.
+     */
+    String getRowKey(int dim) {
+      List<String> key = new ArrayList<>();
+      for(int i = 0; i < rank(); ++i) {
+        if(i != dim) {
+          key.add(_vars.get(i) == null ? _invariants.get(i)
+              : withOffset(_vars.get(i), _offsets.get(i)));
+        }
+      }
+      return String.join(",", key);
+    }
+
+    /**
+     * Generate the scalar name with the offsets information in the same way
+     * as the kcache directive.
+     *
+     * @param data   Array identifier.
+     * @param dim    Rotated dimension.
+     * @param offset Offset in the rotated dimension.
+     * @return Scalar name.
+     */
+    String getScalarName(String data, int dim, int offset) {
+      StringBuilder name = new StringBuilder(data + "_h");
+      for(int i = 0; i < rank(); ++i) {
+        int o = i == dim ? offset : _offsets.get(i);
+        if(o > 0) {
+          name.append("p").append(o);
+        } else if(o < 0) {
+          name.append("m").append(Math.abs(o));
+        } else {
+          name.append("_");
+        }
+      }
+      return name.toString();
+    }
+  }
+}
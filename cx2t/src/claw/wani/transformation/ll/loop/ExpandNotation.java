@@ -19,6 +19,7 @@ import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.Xintrinsic;
+import claw.wani.instrumentation.Instrumentation;
 import claw.wani.language.ClawPragma;
 import claw.wani.language.ClawClause;
 import claw.wani.serialization.Serialization;
@@ -220,6 +221,11 @@ public class ExpandNotation extends ClawBlockTransformation {
               readArrays, writtenArrays);
         }
 
+        if(parallelRegionBlock != null) {
+          Instrumentation.generateRegionTimer(xcodeml, ct, _clawStart,
+              parallelRegionBlock.getStart(), parallelRegionBlock.getEnd());
+        }
+
         if(updateRegionBlock == null) {
           updateRegionBlock = parallelRegionBlock;
         }
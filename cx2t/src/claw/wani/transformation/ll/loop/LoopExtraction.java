@@ -18,6 +18,7 @@ import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
 import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import claw.wani.ClawConstant;
+import claw.wani.instrumentation.Instrumentation;
 import claw.wani.language.ClawMapping;
 import claw.wani.language.ClawMappingVar;
 import claw.wani.language.ClawPragma;
@@ -403,6 +404,8 @@ public class LoopExtraction extends ClawTransformation {
     }
 
     if(_claw.hasClause(ClawClause.PARALLEL)) {
+      Instrumentation.generateRegionTimer(xcodeml, ct, _claw,
+          (grip == null) ? extractedLoop : grip, extractedLoop);
       Directive.generateParallelRegion(xcodeml,
           (grip == null) ? extractedLoop : grip, extractedLoop);
     }
@@ -13,9 +13,11 @@ import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.wani.instrumentation.Instrumentation;
 import claw.wani.language.ClawPragma;
 import claw.wani.language.ClawClause;
 import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.translator.ClawTranslator;
 
 import java.util.List;
 
@@ -70,6 +72,8 @@ public class LoopInterchange extends ClawTransformation {
     }
 
     if(_claw.hasClause(ClawClause.PARALLEL)) {
+      Instrumentation.generateRegionTimer(xcodeml, (ClawTranslator) translator,
+          _claw, _doStmts.getOuterStatement(), _doStmts.getOuterStatement());
       Directive.generateParallelRegion(xcodeml, _doStmts.getOuterStatement(),
           _doStmts.getOuterStatement());
     }
@@ -0,0 +1,306 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.loop;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.common.Message;
+import claw.tatsu.directive.common.Directive;
+import claw.tatsu.primitive.Loop;
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Xintrinsic;
+import claw.wani.instrumentation.Instrumentation;
+import claw.wani.language.ClawClause;
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.translator.ClawTranslator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A LoopTiling transformation is an independent transformation. It tiles a
+ * group of nested loops with the given tile sizes. Each loop of the nest is
+ * strip-mined and the tile loops are then moved outside of the element loops.
+ *
+ * {@code
+ * DO i_tile = istart, iend, size_i
+ *   DO j_tile = jstart, jend, size_j
+ *     DO i = i_tile, MIN(i_tile + size_i - 1, iend)
+ *       DO j = j_tile, MIN(j_tile + size_j - 1, jend)
+ * }
+ *
+ * When the native clause is given and the directive language supports it,
+ * the loop nest is left untouched and tiled with a directive clause instead.
+ *
+ * @author clementval
+ */
+public class LoopTiling extends ClawTransformation {
+
+  private static final String TILE_SUFFIX = "_tile";
+
+  private NestedDoStatement _doStmts = null;
+
+  /**
+   * Constructs a new LoopTiling triggered from a specific pragma.
+   *
+   * @param directive The directive that triggered the loop tiling
+   *                  transformation.
+   */
+  public LoopTiling(ClawPragma directive) {
+    super(directive);
+  }
+
+  /**
+   * Loop tiling analysis:
+   * - Find the nested do statements to be tiled.
+   * - Check that the iteration space can be tiled.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param translator The translator used to applied the transformations.
+   * @return True if the transformation can be performed. False otherwise.
+   */
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    Xnode outerDoStatement =
+        _claw.getPragma().matchSibling(Xcode.F_DO_STATEMENT);
+    if(outerDoStatement == null) {
+      xcodeml.addError("top level loop not found",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    List<Integer> sizes = _claw.getTileSizes();
+    _doStmts = new NestedDoStatement(outerDoStatement, sizes.size());
+    if(_doStmts.size() != sizes.size()) {
+      xcodeml.addError("Not enough nested do statements to tile",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    for(Integer size : sizes) {
+      if(size <= 0) {
+        xcodeml.addError("Tile size must be greater than 0",
+            _claw.getPragma().lineNo());
+        return false;
+      }
+    }
+
+    List<String> inductionVars = _doStmts.getInductionVariables();
+    for(int i = 0; i < _doStmts.size(); ++i) {
+      Xnode indexRange =
+          _doStmts.get(i).matchDirectDescendant(Xcode.INDEX_RANGE);
+      if(!Loop.hasUnitStep(_doStmts.get(i))) {
+        xcodeml.addError("Only loops with a unit step can be tiled",
+            _doStmts.get(i).lineNo());
+        return false;
+      }
+      // Bounds of inner loops cannot depend on outer induction variables
+      Set<String> boundVars = XnodeUtil.findAllReferences(indexRange);
+      for(int j = 0; j < i; ++j) {
+        if(boundVars.contains(inductionVars.get(j))) {
+          xcodeml.addError("Iteration space is not rectangular. Loop " +
+              "bounds depend on " + inductionVars.get(j),
+              _doStmts.get(i).lineNo());
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Apply the transformation.
+   *
+   * @param xcodeml        The XcodeML on which the transformations are applied.
+   * @param translator     The translator used to applied the transformations.
+   * @param transformation Only for dependent transformation. The other
+   *                       transformation part of the transformation.
+   * @throws IllegalTransformationException if the transformation cannot be
+   *                                        applied.
+   */
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation transformation)
+      throws IllegalTransformationException
+  {
+    // Nest might have been modified by previous transformations
+    if(!analyze(xcodeml, translator)) {
+      throw new IllegalTransformationException("Loop nest cannot be tiled",
+          _claw.getPragma().lineNo());
+    }
+    Xnode outerStmt = _doStmts.getOuterStatement();
+
+    if(_claw.hasClause(ClawClause.NATIVE)) {
+      if(Directive.generateTileDirectives(xcodeml, outerStmt,
+          _claw.getTileSizes()))
+      {
+        Message.debug("Loop tiling: native tile clause generated");
+        generateParallelRegion(xcodeml, translator, outerStmt);
+        removePragma();
+        transformed();
+        return;
+      }
+      xcodeml.addWarning("Native tiling not supported by the directive " +
+          "language. Loops are tiled by CLAW.", _claw.getPragma().lineNo());
+    }
+
+    FfunctionDefinition fctDef = _claw.getPragma().findParentFunction();
+    if(fctDef == null) {
+      throw new IllegalTransformationException("Cannot locate function " +
+          "definition for loop-tile", _claw.getPragma().lineNo());
+    }
+
+    // Strip-mine each loop of the nest: T0,L0,T1,L1,...
+    List<Integer> sizes = _claw.getTileSizes();
+    Xnode newOuterStmt = null;
+    for(int i = 0; i < _doStmts.size(); ++i) {
+      Xnode tileLoop =
+          stripMine(xcodeml, fctDef, _doStmts.get(i), sizes.get(i));
+      if(newOuterStmt == null) {
+        newOuterStmt = tileLoop;
+      }
+    }
+
+    // Move the tile loops outside of the element loops: T0,T1,...,L0,L1,...
+    NestedDoStatement tiledNest =
+        new NestedDoStatement(newOuterStmt, 2 * _doStmts.size());
+    List<Boolean> isTileLoop = new ArrayList<>();
+    for(int i = 0; i < _doStmts.size(); ++i) {
+      isTileLoop.add(true);
+      isTileLoop.add(false);
+    }
+    for(int pass = 0; pass < tiledNest.size(); ++pass) {
+      for(int i = 0; i < tiledNest.size() - 1; ++i) {
+        if(!isTileLoop.get(i) && isTileLoop.get(i + 1)) {
+          swap(tiledNest, i);
+          isTileLoop.set(i, true);
+          isTileLoop.set(i + 1, false);
+        }
+      }
+    }
+
+    if(_claw.hasClause(ClawClause.ACC)) {
+      Directive.generateAcceleratorClause(xcodeml, newOuterStmt,
+          _claw.value(ClawClause.ACC));
+    }
+    generateParallelRegion(xcodeml, translator, newOuterStmt);
+
+    removePragma();
+    transformed();
+  }
+
+  /**
+   * Generate the parallel region around the tiled loop nest if requested.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
+   * @param outerStmt  Outer do statement of the tiled nest.
+   */
+  private void generateParallelRegion(XcodeProgram xcodeml,
+                                      Translator translator, Xnode outerStmt)
+  {
+    if(_claw.hasClause(ClawClause.PARALLEL)) {
+      Instrumentation.generateRegionTimer(xcodeml, (ClawTranslator) translator,
+          _claw, outerStmt, outerStmt);
+      Directive.generateParallelRegion(xcodeml, outerStmt, outerStmt);
+    }
+  }
+
+  /**
+   * Swap two consecutive do statements of the nest by reordering their
+   * iteration ranges.
+   *
+   * @param nest  Nested do statements.
+   * @param outer Index of the outer do statement to be swapped.
+   * @throws IllegalTransformationException If the reordering fails.
+   */
+  private void swap(NestedDoStatement nest, int outer)
+      throws IllegalTransformationException
+  {
+    NestedDoStatement pair = new NestedDoStatement(nest.get(outer), 2);
+    List<String> inductionVars = pair.getInductionVariables();
+    Loop.reorder(pair, Arrays.asList(inductionVars.get(1),
+        inductionVars.get(0)));
+  }
+
+  /**
+   * Strip-mine a do statement. A new tile loop is created around the do
+   * statement which then iterates over a single tile.
+   *
+   * @param xcodeml Current translation unit.
+   * @param fctDef  Function definition in which the loop is located.
+   * @param doStmt  Do statement to be strip-mined.
+   * @param size    Tile size.
+   * @return Newly created tile loop.
+   */
+  private Xnode stripMine(XcodeProgram xcodeml, FfunctionDefinition fctDef,
+                          Xnode doStmt, int size)
+  {
+    String inductionVar = Loop.extractInductionVariable(doStmt);
+    String tileVar = inductionVar + TILE_SUFFIX;
+    if(!fctDef.getSymbolTable().contains(tileVar)) {
+      xcodeml.createIdAndDecl(tileVar, FortranType.INTEGER,
+          XstorageClass.F_LOCAL, fctDef, DeclarationPosition.LAST);
+    }
+
+    Xnode indexRange = doStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    Xnode lowerBound = indexRange.matchDirectDescendant(Xcode.LOWER_BOUND);
+    Xnode upperBound = indexRange.matchDirectDescendant(Xcode.UPPER_BOUND);
+
+    // DO i_tile = istart, iend, size
+    Xnode tileRange = xcodeml.createNode(Xcode.INDEX_RANGE);
+    tileRange.append(xcodeml.createNode(Xcode.LOWER_BOUND).
+        append(lowerBound.firstChild(), true));
+    tileRange.append(xcodeml.createNode(Xcode.UPPER_BOUND).
+        append(upperBound.firstChild(), true));
+    tileRange.append(xcodeml.createNode(Xcode.STEP).
+        append(xcodeml.createIntConstant(size)));
+    Xnode tileLoop = xcodeml.createDoStmt(
+        xcodeml.createVar(FortranType.INTEGER, tileVar, Xscope.LOCAL),
+        tileRange);
+    doStmt.copyEnhancedInfo(tileLoop);
+
+    // DO i = i_tile, MIN(i_tile + size - 1, iend) handles the remainder
+    Xnode plus = xcodeml.createIntBinaryExpr(Xcode.PLUS_EXPR,
+        xcodeml.createVar(FortranType.INTEGER, tileVar, Xscope.LOCAL),
+        xcodeml.createIntConstant(size));
+    Xnode minus = xcodeml.createIntBinaryExpr(Xcode.MINUS_EXPR, plus,
+        xcodeml.createIntConstant(1));
+    FunctionCall min =
+        xcodeml.createIntrinsicFctCall(FortranType.INTEGER, Xintrinsic.MIN);
+    min.addArguments(minus);
+    min.addArguments(upperBound.firstChild().cloneNode());
+    upperBound.firstChild().delete();
+    upperBound.append(min);
+    lowerBound.firstChild().delete();
+    lowerBound.append(
+        xcodeml.createVar(FortranType.INTEGER, tileVar, Xscope.LOCAL));
+
+    doStmt.insertBefore(tileLoop);
+    tileLoop.body().append(doStmt);
+    return tileLoop;
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation transformation)
+  {
+    return false; // independent transformation
+  }
+}
@@ -0,0 +1,342 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.loop;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.dependency.DependenceAnalysis;
+import claw.tatsu.analysis.dependency.IterationSpace;
+import claw.tatsu.common.Message;
+import claw.tatsu.primitive.Loop;
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.wani.language.ClawClause;
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.translator.ClawTranslator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A LoopUnroll transformation is an independent transformation. It unrolls
+ * the do statement following the directive by the given factor. Iterations
+ * not covered by the unrolled loop are executed by an epilogue loop.
+ *
+ * {@code
+ * DO k = kstart, kend - (factor - 1), factor
+ *   body(k)
+ *   body(k + 1)
+ *   ...
+ * END DO
+ * DO k = kstart + ((kend - kstart + 1) / factor) * factor, kend
+ *   body(k)
+ * END DO
+ * }
+ *
+ * With the jam clause, the outer loop of a group of two nested loops is
+ * unrolled and the copies of the body are fused in the inner loop.
+ *
+ * @author clementval
+ */
+public class LoopUnroll extends ClawTransformation {
+
+  private static final List<Xcode> UNSUPPORTED_STATEMENTS = Arrays.asList(
+      Xcode.F_CYCLE_STATEMENT, Xcode.F_EXIT_STATEMENT,
+      Xcode.F_RETURN_STATEMENT, Xcode.F_STOP_STATEMENT, Xcode.GOTO_STATEMENT
+  );
+
+  private Xnode _doStmt = null;
+  private Xnode _innerDoStmt = null;
+  private String _inductionVar = null;
+
+  /**
+   * Constructs a new LoopUnroll triggered from a specific pragma.
+   *
+   * @param directive The directive that triggered the loop unroll
+   *                  transformation.
+   */
+  public LoopUnroll(ClawPragma directive) {
+    super(directive);
+  }
+
+  /**
+   * Loop unroll analysis:
+   * - Find the do statement to be unrolled.
+   * - Check that the loop body can be replicated.
+   * - For unroll-and-jam, check that the loops are perfectly nested and that
+   * the outer loop does not carry any dependence.
+   *
+   * @param xcodeml    The XcodeML on which the transformations are applied.
+   * @param translator The translator used to applied the transformations.
+   * @return True if the transformation can be performed. False otherwise.
+   */
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    _doStmt = _claw.getPragma().matchSibling(Xcode.F_DO_STATEMENT);
+    if(_doStmt == null) {
+      xcodeml.addError("top level loop not found",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    if(_claw.getUnrollFactor() < 2) {
+      xcodeml.addError("Unroll factor must be greater than 1",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    if(!Loop.hasUnitStep(_doStmt)) {
+      xcodeml.addError("Only loops with a unit step can be unrolled",
+          _doStmt.lineNo());
+      return false;
+    }
+
+    _inductionVar = Loop.extractInductionVariable(_doStmt);
+    for(Xnode stmt :
+        XnodeUtil.getNodes(_doStmt.body(), UNSUPPORTED_STATEMENTS))
+    {
+      xcodeml.addError("Loop body cannot be unrolled because of " +
+          stmt.opcode().code() + " statement", stmt.lineNo());
+      return false;
+    }
+    for(Xnode assign : _doStmt.body().matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      if(_inductionVar.equalsIgnoreCase(
+          new AssignStatement(assign.element()).getLhsName()))
+      {
+        xcodeml.addError("Induction variable " + _inductionVar +
+            " is assigned in the loop body", assign.lineNo());
+        return false;
+      }
+    }
+
+    return !_claw.hasClause(ClawClause.JAM) || analyzeJam(xcodeml);
+  }
+
+  /**
+   * Check that the outer loop can be unrolled and jammed in the inner loop.
+   *
+   * @param xcodeml Current translation unit.
+   * @return True if unroll-and-jam can be applied. False otherwise.
+   */
+  private boolean analyzeJam(XcodeProgram xcodeml) {
+    _innerDoStmt = _doStmt.body().matchDirectDescendant(Xcode.F_DO_STATEMENT);
+    if(_innerDoStmt == null) {
+      xcodeml.addError("Inner loop not found for unroll-and-jam",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    try {
+      IterationSpace iterationSpace =
+          new IterationSpace(Arrays.asList(_doStmt, _innerDoStmt));
+      if(!iterationSpace.isPerfectlyNested()) {
+        xcodeml.addError("Loops must be perfectly nested for " +
+            "unroll-and-jam", _claw.getPragma().lineNo());
+        return false;
+      }
+      DependenceAnalysis outer = iterationSpace.getLevel(0).get(0);
+      if(!outer.isIndependent()) {
+        xcodeml.addError("Unroll-and-jam not possible." + outer.getInfoMsg(),
+            _claw.getPragma().lineNo());
+        return false;
+      }
+    } catch(Exception e) {
+      xcodeml.addError("Unable to analyze dependencies for unroll-and-jam",
+          _claw.getPragma().lineNo());
+      return false;
+    }
+
+    Xnode innerRange = _innerDoStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    if(innerRange != null &&
+        XnodeUtil.findAllReferences(innerRange).contains(_inductionVar))
+    {
+      xcodeml.addError("Inner loop bounds depend on " + _inductionVar,
+          _innerDoStmt.lineNo());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Apply the transformation.
+   *
+   * @param xcodeml        The XcodeML on which the transformations are applied.
+   * @param translator     The translator used to applied the transformations.
+   * @param transformation Only for dependent transformation. The other
+   *                       transformation part of the transformation.
+   * @throws IllegalTransformationException if the transformation cannot be
+   *                                        applied.
+   */
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation transformation)
+      throws IllegalTransformationException
+  {
+    // Loop body might have been modified by previous transformations
+    if(!analyze(xcodeml, translator)) {
+      throw new IllegalTransformationException("Loop cannot be unrolled",
+          _claw.getPragma().lineNo());
+    }
+
+    int factor = _claw.getUnrollFactor();
+    Xnode indexRange = _doStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    Xnode lowerBound =
+        indexRange.matchDirectDescendant(Xcode.LOWER_BOUND).firstChild();
+    Xnode upperBound =
+        indexRange.matchDirectDescendant(Xcode.UPPER_BOUND).firstChild();
+
+    // Epilogue loop is a copy of the original loop
+    Integer tripCount = getConstantTripCount(lowerBound, upperBound);
+    if(tripCount == null || tripCount % factor != 0) {
+      Xnode epilogue = _doStmt.cloneNode();
+      Xnode epilogueLower = epilogue.matchDirectDescendant(Xcode.INDEX_RANGE).
+          matchDirectDescendant(Xcode.LOWER_BOUND);
+      Xnode epilogueStart = tripCount != null
+          ? xcodeml.createIntConstant(getConstant(lowerBound) +
+          (tripCount / factor) * factor)
+          : createEpilogueStart(xcodeml, lowerBound, upperBound, factor);
+      epilogueLower.firstChild().delete();
+      epilogueLower.append(epilogueStart);
+      _doStmt.insertAfter(epilogue);
+    }
+
+    // Unrolled loop
+    Xnode newUpperBound = tripCount != null
+        ? xcodeml.createIntConstant(getConstant(upperBound) - (factor - 1))
+        : xcodeml.createIntBinaryExpr(Xcode.MINUS_EXPR,
+        upperBound.cloneNode(), xcodeml.createIntConstant(factor - 1));
+    upperBound.insertAfter(newUpperBound);
+    upperBound.delete();
+    Xnode step = indexRange.matchDirectDescendant(Xcode.STEP);
+    if(step == null) {
+      step = xcodeml.createNode(Xcode.STEP);
+      indexRange.append(step);
+    } else {
+      step.firstChild().delete();
+    }
+    step.append(xcodeml.createIntConstant(factor));
+
+    if(_claw.hasClause(ClawClause.JAM)) {
+      replicateBody(xcodeml, _innerDoStmt.body(), factor, null);
+    } else {
+      // Cache initialization generated by kcache is only needed in the first
+      // iteration. Cached values are then rotated through the unrolled copies.
+      Object kcacheInit = translator instanceof ClawTranslator
+          ? ((ClawTranslator) translator).hasElement(_doStmt) : null;
+      replicateBody(xcodeml, _doStmt.body(), factor,
+          kcacheInit instanceof Xnode ? (Xnode) kcacheInit : null);
+    }
+    Message.debug("Loop unroll: " + _inductionVar + " unrolled by " + factor);
+
+    removePragma();
+    transformed();
+  }
+
+  /**
+   * Append factor - 1 copies of the body statements. In copy j, the induction
+   * variable i is replaced by i + j.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param body       Body to be replicated.
+   * @param factor     Unroll factor.
+   * @param skipInCopy Statement not replicated in the copies. Can be null.
+   */
+  private void replicateBody(XcodeProgram xcodeml, Xnode body, int factor,
+                             Xnode skipInCopy)
+  {
+    List<Xnode> statements = new ArrayList<>(body.children());
+    for(int j = 1; j < factor; ++j) {
+      for(Xnode stmt : statements) {
+        if(stmt.equals(skipInCopy)) {
+          continue;
+        }
+        Xnode copy = stmt.cloneNode();
+        for(Xnode var : copy.matchAll(Xcode.VAR)) {
+          if(var.value().equalsIgnoreCase(_inductionVar)) {
+            var.insertAfter(xcodeml.createIntBinaryExpr(Xcode.PLUS_EXPR,
+                var.cloneNode(), xcodeml.createIntConstant(j)));
+            var.delete();
+          }
+        }
+        body.append(copy);
+      }
+    }
+  }
+
+  /**
+   * Create the lower bound of the epilogue loop.
+   * lb + ((ub - lb + 1) / factor) * factor
+   *
+   * @param xcodeml    Current translation unit.
+   * @param lowerBound Lower bound of the original loop.
+   * @param upperBound Upper bound of the original loop.
+   * @param factor     Unroll factor.
+   * @return Newly created expression.
+   */
+  private Xnode createEpilogueStart(XcodeProgram xcodeml, Xnode lowerBound,
+                                    Xnode upperBound, int factor)
+  {
+    Xnode tripCount = xcodeml.createIntBinaryExpr(Xcode.PLUS_EXPR,
+        xcodeml.createIntBinaryExpr(Xcode.MINUS_EXPR,
+            upperBound.cloneNode(), lowerBound.cloneNode()),
+        xcodeml.createIntConstant(1));
+    Xnode unrolledCount = xcodeml.createIntBinaryExpr(Xcode.MUL_EXPR,
+        xcodeml.createIntBinaryExpr(Xcode.DIV_EXPR, tripCount,
+            xcodeml.createIntConstant(factor)),
+        xcodeml.createIntConstant(factor));
+    return xcodeml.createIntBinaryExpr(Xcode.PLUS_EXPR,
+        lowerBound.cloneNode(), unrolledCount);
+  }
+
+  /**
+   * Compute the trip count of the loop if both bounds are constant.
+   *
+   * @param lowerBound Lower bound expression.
+   * @param upperBound Upper bound expression.
+   * @return Trip count. Null if it cannot be computed.
+   */
+  private Integer getConstantTripCount(Xnode lowerBound, Xnode upperBound) {
+    Integer lower = getConstant(lowerBound);
+    Integer upper = getConstant(upperBound);
+    if(lower == null || upper == null) {
+      return null;
+    }
+    return Math.max(upper - lower + 1, 0);
+  }
+
+  /**
+   * Get the value of an integer constant node.
+   *
+   * @param node Node to be evaluated.
+   * @return Integer value. Null if the node is not an integer constant.
+   */
+  private Integer getConstant(Xnode node) {
+    if(!Xnode.isOfCode(node, Xcode.F_INT_CONSTANT)) {
+      return null;
+    }
+    try {
+      return Integer.parseInt(node.value().trim());
+    } catch(NumberFormatException ignored) {
+      return null;
+    }
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation transformation)
+  {
+    return false; // independent transformation
+  }
+}
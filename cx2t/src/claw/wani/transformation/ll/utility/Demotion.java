@@ -0,0 +1,183 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.utility;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.translator.Translator;
+import claw.tatsu.primitive.Field;
+import claw.tatsu.primitive.Function;
+import claw.tatsu.primitive.Type;
+import claw.tatsu.primitive.Xmod;
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.wani.ClawConstant;
+import claw.wani.language.ClawClause;
+import claw.wani.language.ClawPragma;
+import claw.wani.transformation.ClawTransformation;
+import claw.wani.x2t.translator.ClawTranslator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Demotion transformation is an independent transformation. It changes the
+ * kind of real variables of a function/subroutine, usually to single
+ * precision. The variables are listed in the data clause. Without data
+ * clause, all the real variables declared in the function/subroutine are
+ * demoted.
+ *
+ * Demoted dummy arguments change the signature of the function/subroutine.
+ * The new signature is propagated to the module file and the sca forward
+ * transformation converts the actual arguments at the call.
+ *
+ * @author clementval
+ */
+public class Demotion extends ClawTransformation {
+
+  private static final String REPORT_NAME = "demote";
+
+  private final List<String> _fields;
+  private FfunctionDefinition _fctDef;
+
+  /**
+   * Constructs a new Demotion transformation triggered from a specific pragma.
+   *
+   * @param directive The directive that triggered the demote transformation.
+   */
+  public Demotion(ClawPragma directive) {
+    super(directive);
+    _fields = new ArrayList<>();
+  }
+
+  /**
+   * @see Transformation#analyze(XcodeProgram, Translator)
+   */
+  @Override
+  public boolean analyze(XcodeProgram xcodeml, Translator translator) {
+    _fctDef = _claw.getPragma().findParentFunction();
+    if(_fctDef == null) {
+      xcodeml.addError("The demote directive is not nested in a " +
+          "function/subroutine", _claw.getPragma().lineNo());
+      return false;
+    }
+
+    FfunctionType fctType = xcodeml.getTypeTable().getFunctionType(_fctDef);
+    String resultName = fctType == null ?
+        "" : fctType.getAttribute(Xattr.RESULT_NAME);
+
+    if(_claw.hasClause(ClawClause.DATA)) {
+      for(String field : _claw.values(ClawClause.DATA)) {
+        Xid id = _fctDef.getSymbolTable().get(field);
+        if(id == null || _fctDef.getDeclarationTable().get(field) == null) {
+          xcodeml.addError(String.format("Variable %s is not declared in %s",
+              field, _fctDef.getName()), _claw.getPragma().lineNo());
+          return false;
+        }
+        if(!Type.isReal(id.getType(), xcodeml)
+            || field.equalsIgnoreCase(resultName))
+        {
+          xcodeml.addError(String.format("Variable %s is not a real " +
+              "variable and cannot be demoted", field),
+              _claw.getPragma().lineNo());
+          return false;
+        }
+        _fields.add(field.toLowerCase());
+      }
+    } else {
+      for(Xnode node : _fctDef.getSymbolTable().children()) {
+        Xid id = new Xid(node);
+        if(Type.isReal(id.getType(), xcodeml)
+            && !id.getName().equalsIgnoreCase(resultName)
+            && _fctDef.getDeclarationTable().get(id.getName()) != null)
+        {
+          _fields.add(id.getName().toLowerCase());
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return Always false as independent transformation are applied one by one.
+   * @see Transformation#canBeTransformedWith(XcodeProgram, Transformation)
+   */
+  @Override
+  public boolean canBeTransformedWith(XcodeProgram xcodeml,
+                                      Transformation other)
+  {
+    // independent transformation
+    return false;
+  }
+
+  /**
+   * @see Transformation#transform(XcodeProgram, Translator, Transformation)
+   */
+  @Override
+  public void transform(XcodeProgram xcodeml, Translator translator,
+                        Transformation other) throws Exception
+  {
+    String kind = _claw.hasClause(ClawClause.KIND) ?
+        _claw.value(ClawClause.KIND) : ClawConstant.DEFAULT_DEMOTION_KIND;
+
+    boolean signatureChanged = false;
+    for(String field : _fields) {
+      signatureChanged |= Field.demotePrecision(field, kind, _fctDef, xcodeml);
+    }
+
+    // Propagate the new signature to the module file
+    FfunctionType fctType = xcodeml.getTypeTable().getFunctionType(_fctDef);
+    if(signatureChanged && (Function.isModuleProcedure(_fctDef, xcodeml)
+        || !fctType.getBooleanAttribute(Xattr.IS_PRIVATE)))
+    {
+      FmoduleDefinition modDef = _fctDef.findParentModule();
+      if(modDef != null) {
+        Xmod.updateSignature(modDef.getName(), xcodeml, _fctDef, fctType,
+            false);
+      }
+    }
+
+    checkCallArguments(xcodeml);
+
+    if(!_fields.isEmpty()) {
+      ((ClawTranslator) translator).addTransformationInfo(REPORT_NAME,
+          _claw.getPragma().lineNo(), String.format("demoted to kind %s: %s",
+              kind, String.join(", ", _fields)));
+    }
+    removePragma();
+  }
+
+  /**
+   * Warn about demoted variables passed to procedures. Their dummy arguments
+   * keep their kind unless the procedure is demoted as well.
+   *
+   * @param xcodeml Current translation unit.
+   */
+  private void checkCallArguments(XcodeProgram xcodeml) {
+    for(Xnode node : _fctDef.body().matchAll(Xcode.FUNCTION_CALL)) {
+      FunctionCall fctCall = new FunctionCall(node);
+      if(fctCall.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        continue;
+      }
+      for(Xnode arg : fctCall.arguments()) {
+        Xnode actual = arg.is(Xcode.NAMED_VALUE) ? arg.firstChild() : arg;
+        if(Xnode.isOfCode(actual, Xcode.VAR)
+            && _fields.contains(actual.value().toLowerCase()))
+        {
+          Xnode stmt = fctCall.ancestor();
+          while(stmt != null && stmt.lineNo() == 0) {
+            stmt = stmt.ancestor();
+          }
+          xcodeml.addWarning(String.format("Demoted variable %s is passed " +
+                  "to %s. Its kind must match the dummy argument.",
+              actual.value(), fctCall.getFctName()),
+              stmt == null ? 0 : stmt.lineNo());
+        }
+      }
+    }
+  }
+}
@@ -9,6 +9,7 @@ import claw.shenron.translator.Translator;
 import claw.tatsu.common.*;
 import claw.tatsu.primitive.*;
 import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.*;
@@ -47,6 +48,7 @@ public class Sca extends ClawTransformation {
   protected boolean forceAssumedShapedArrayPromotion = false;
 
   static final String SCA_DEBUG_PREFIX = "SCA:";
+  static final String SCA_REPORT_NAME = "sca";
 
   /**
    * Constructs a new Sca transformation triggered from a specific
@@ -313,6 +315,9 @@ public class Sca extends ClawTransformation {
       removeAttributesWithWaring(xcodeml, _fctType, Xattr.IS_PURE);
     }
 
+    // Demote the fields listed in the model configuration.
+    demoteFields(xcodeml, (ClawTranslator) translator);
+
     // Insert the declarations of variables to iterate over the new dimensions.
     insertVariableToIterateOverDimension(xcodeml);
 
@@ -334,6 +339,9 @@ public class Sca extends ClawTransformation {
       }
     }
 
+    // Store selected derived type members as separate promoted fields.
+    applyStructOfArrays(xcodeml, adaptedNakedArrayRef);
+
     removePragma();
   }
 
@@ -355,6 +363,37 @@ public class Sca extends ClawTransformation {
     }
   }
 
+  /**
+   * Move loop-invariant computations out of a generated column loop if
+   * enabled in the configuration. Promoted fields and fields with the column
+   * dimension vary from one column to another.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
+   * @param loops      Generated column loops.
+   * @param lineNo     Line used in the transformation report.
+   * @return Names of the scalars now assigned before the column loop.
+   */
+  List<String> hoistInvariant(XcodeProgram xcodeml, ClawTranslator translator,
+                              NestedDoStatement loops, int lineNo)
+  {
+    if(!Configuration.get().
+        getBooleanParameter(Configuration.SCA_LOOP_INVARIANT_MOTION))
+    {
+      return Collections.emptyList();
+    }
+    Set<String> variants = new HashSet<>(_arrayFieldsInOut);
+    variants.addAll(_promotions.keySet());
+    List<String> hoisted =
+        Loop.hoistInvariant(xcodeml, _fctDef, loops, variants);
+    if(!hoisted.isEmpty()) {
+      translator.addTransformationInfo(SCA_REPORT_NAME, lineNo,
+          "loop invariant computed before column loop: "
+              + String.join(", ", hoisted));
+    }
+    return hoisted;
+  }
+
   /**
    * This method should be call by any class inheriting this class to apply
    * the last steps fo the transformation common to all SCA transformation.
@@ -380,6 +419,39 @@ public class Sca extends ClawTransformation {
     }
   }
 
+  /**
+   * Demote the real fields of the kernel listed in the precision section of
+   * the model configuration. Demoted dummy arguments are part of the updated
+   * signature and are converted by the calling sca forward.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
+   * @throws IllegalTransformationException If a field cannot be demoted.
+   */
+  private void demoteFields(XcodeProgram xcodeml, ClawTranslator translator)
+      throws IllegalTransformationException
+  {
+    ModelConfig config = Configuration.get().getModelConfig();
+    String kind = config.getDemotionKind();
+    List<String> demoted = new ArrayList<>();
+    for(String fieldId : config.getDemotedFields()) {
+      Xid id = _fctDef.getSymbolTable().get(fieldId);
+      if(id == null || _fctDef.getDeclarationTable().get(fieldId) == null
+          || !Type.isReal(id.getType(), xcodeml)
+          || kind.equals(Type.getRealKind(id.getType(), xcodeml)))
+      {
+        continue;
+      }
+      Field.demotePrecision(fieldId, kind, _fctDef, xcodeml);
+      demoted.add(fieldId);
+    }
+    if(!demoted.isEmpty()) {
+      translator.addTransformationInfo(SCA_REPORT_NAME,
+          _claw.getPragma().lineNo(), String.format("demoted to kind %s: %s",
+              kind, String.join(", ", demoted)));
+    }
+  }
+
   /**
    * Promote all fields declared in the data clause with the additional
    * dimensions.
@@ -413,6 +485,208 @@ public class Sca extends ClawTransformation {
     }
   }
 
+  /**
+   * Store the members of derived type dummy arguments listed in the model
+   * configuration as separate fields. For a member m of an argument s, a new
+   * dummy argument s_m is inserted and all references s%m are replaced by
+   * references to it. The new argument is then promoted like any other field.
+   * As an inserted parameter, it is passed by the calling sca forward from a
+   * copy of the member of the actual argument.
+   *
+   * @param xcodeml         Current translation unit.
+   * @param adaptNakedArray Adapt references with no index.
+   * @throws IllegalTransformationException If a new argument conflicts with an
+   *                                        existing variable or cannot be
+   *                                        promoted.
+   */
+  private void applyStructOfArrays(XcodeProgram xcodeml,
+                                   boolean adaptNakedArray)
+      throws IllegalTransformationException
+  {
+    ModelConfig config = Configuration.get().getModelConfig();
+    for(String typeName : config.getStructTypes()) {
+      String structHash = findStructType(xcodeml, typeName);
+      if(structHash == null) {
+        continue;
+      }
+      FstructType structType =
+          xcodeml.getTypeTable().getStructType(structHash);
+
+      // Iterate over a copy as new parameters are inserted
+      for(Xnode param : new ArrayList<>(_fctType.getParameters())) {
+        FbasicType paramType = xcodeml.getTypeTable().getBasicType(param);
+        String ref = paramType != null ? paramType.getRef() : param.getType();
+        if(!structHash.equals(ref) || paramType != null && paramType.isArray())
+        {
+          continue;
+        }
+
+        // The whole argument must not be used as members would be stale
+        String argName = param.value();
+        List<Xnode> memberRefs = new ArrayList<>();
+        boolean wholeArgUsed = false;
+        for(Xnode var : _fctDef.body().matchAll(Xcode.VAR)) {
+          if(!var.value().equalsIgnoreCase(argName)) {
+            continue;
+          }
+          Xnode memberRef = var.ancestor() != null
+              ? var.ancestor().ancestor() : null;
+          if(Xnode.isOfCode(var.ancestor(), Xcode.VAR_REF)
+              && Xnode.isOfCode(memberRef, Xcode.F_MEMBER_REF))
+          {
+            memberRefs.add(memberRef);
+          } else {
+            wholeArgUsed = true;
+          }
+        }
+        if(wholeArgUsed) {
+          xcodeml.addWarning(String.format("Argument %s is used as a whole. " +
+              "Members are not stored as separate fields.", argName),
+              _claw.getPragma().lineNo());
+          continue;
+        }
+
+        for(String member : config.getStructMembers(typeName)) {
+          List<Xnode> refs = new ArrayList<>();
+          for(Xnode memberRef : memberRefs) {
+            if(member.equalsIgnoreCase(
+                memberRef.getAttribute(Xattr.MEMBER)))
+            {
+              refs.add(memberRef);
+            }
+          }
+          Xid memberId = structType.getMember(member);
+          if(refs.isEmpty() || memberId == null) {
+            continue;
+          }
+          splitMember(xcodeml, typeName, argName + "_" + member, memberId,
+              paramType != null ? paramType.getIntent() : Intent.NONE, refs,
+              adaptNakedArray);
+        }
+      }
+    }
+  }
+
+  /**
+   * Create and promote a new dummy argument for a member of a derived type
+   * argument and replace the member references with it.
+   *
+   * @param xcodeml         Current translation unit.
+   * @param typeName        Name of the derived type.
+   * @param fieldName       Name of the new dummy argument.
+   * @param memberId        Id of the member in the derived type.
+   * @param intent          Intent of the derived type argument.
+   * @param refs            References to the member.
+   * @param adaptNakedArray Adapt references with no index.
+   * @throws IllegalTransformationException If the new argument conflicts with
+   *                                        an existing variable or cannot be
+   *                                        promoted.
+   */
+  private void splitMember(XcodeProgram xcodeml, String typeName,
+                           String fieldName, Xid memberId, Intent intent,
+                           List<Xnode> refs, boolean adaptNakedArray)
+      throws IllegalTransformationException
+  {
+    if(_fctDef.getSymbolTable().contains(fieldName)) {
+      throw new IllegalTransformationException(String.format(
+          "Cannot store member %s as a separate field. %s is already declared.",
+          memberId.getName(), fieldName), _claw.getPragma().lineNo());
+    }
+
+    FbasicType memberType = xcodeml.getTypeTable().getBasicType(memberId);
+    FbasicType fieldType;
+    if(memberType != null && memberType.isArray()) {
+      if(memberType.isAllocatable() || memberType.isPointer()) {
+        xcodeml.addWarning(String.format("Member %s is allocatable or " +
+                "pointer. It is not stored as a separate field.",
+            memberId.getName()), _claw.getPragma().lineNo());
+        return;
+      }
+      fieldType = memberType.cloneNode();
+      fieldType.setType(xcodeml.getTypeTable().generateHash(FortranType.ARRAY));
+      fieldType.setIntent(intent);
+    } else {
+      // Keep the kind information by referencing the member type
+      String builtIn = memberId.getType();
+      while(xcodeml.getTypeTable().isBasicType(builtIn)) {
+        builtIn = xcodeml.getTypeTable().getBasicType(builtIn).getRef();
+      }
+      fieldType = xcodeml.createBasicType(xcodeml.getTypeTable().
+              generateHash(FortranType.fromString(builtIn)),
+          memberId.getType(), intent);
+    }
+    xcodeml.getTypeTable().add(fieldType);
+
+    // Id and declaration are not cloned as they are updated by the promotion
+    Xid id = xcodeml.createId(fieldType.getType(), XstorageClass.F_PARAM,
+        fieldName);
+    _fctDef.getSymbolTable().add(id, false);
+    _fctDef.getDeclarationTable().replace(
+        xcodeml.createVarDecl(fieldType.getType(), fieldName), fieldName);
+    Xnode param = xcodeml.createAndAddParam(fieldName, fieldType.getType(),
+        _fctType);
+    param.setBooleanAttribute(Xattr.IS_INSERTED, true);
+
+    for(Xnode ref : refs) {
+      ref.insertBefore(
+          xcodeml.createVar(fieldType.getType(), fieldName, Xscope.LOCAL));
+      ref.delete();
+    }
+
+    // Apply the layout of the struct if any
+    ModelConfig global = Configuration.get().getModelConfig();
+    String layoutName = global.getStructLayout(typeName);
+    if(layoutName != null && global.hasLayout(layoutName)) {
+      _claw.getLocalModelConfig().putLayout(fieldName,
+          global.getLayout(layoutName));
+    }
+
+    if(_claw.getLayoutForData(fieldName).isEmpty()) {
+      // Layout without new dimension. The member keeps its shape and is
+      // flagged like a promoted field for the calling sca forward.
+      param.setAttribute(Xattr.PROMOTION_INFO, DimensionDefinition.BASE_DIM);
+      Message.debug(String.format("%s member %s%%%s stored in field %s",
+          SCA_DEBUG_PREFIX, typeName, memberId.getName(), fieldName));
+      return;
+    }
+
+    PromotionInfo promotionInfo =
+        new PromotionInfo(fieldName, _claw.getLayoutForData(fieldName));
+    Field.promote(promotionInfo, _fctDef, xcodeml);
+    _promotions.put(fieldName, promotionInfo);
+    Field.adaptArrayRef(promotionInfo, _fctDef.body(), adaptNakedArray,
+        xcodeml);
+    _arrayFieldsInOut.add(fieldName);
+
+    Message.debug(String.format("%s member %s%%%s stored in field %s",
+        SCA_DEBUG_PREFIX, typeName, memberId.getName(), fieldName));
+  }
+
+  /**
+   * Find the type hash of a derived type from its name. The name is looked up
+   * in the function, in its module and in the global symbols.
+   *
+   * @param xcodeml  Current translation unit.
+   * @param typeName Name of the derived type.
+   * @return Type hash of the derived type if found. Null otherwise.
+   */
+  private String findStructType(XcodeProgram xcodeml, String typeName) {
+    List<XsymbolTable> tables = new ArrayList<>();
+    tables.add(_fctDef.getSymbolTable());
+    FmoduleDefinition modDef = _fctDef.findParentModule();
+    if(modDef != null) {
+      tables.add(modDef.getSymbolTable());
+    }
+    tables.add(xcodeml.getGlobalSymbolsTable());
+    for(XsymbolTable table : tables) {
+      Xid id = table != null ? table.get(typeName) : null;
+      if(id != null && xcodeml.getTypeTable().isStructType(id.getType())) {
+        return id.getType();
+      }
+    }
+    return null;
+  }
+
   /**
    * Insert the declaration of the different variables needed to iterate over
    * the additional dimensions.
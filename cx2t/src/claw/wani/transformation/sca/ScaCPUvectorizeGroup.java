@@ -6,21 +6,28 @@ package claw.wani.transformation.sca;
 
 import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
+import claw.tatsu.analysis.dependency.DependenceAnalysis;
+import claw.tatsu.analysis.dependency.DependenceDirection;
 import claw.tatsu.common.*;
 import claw.tatsu.directive.common.Directive;
+import claw.tatsu.directive.configuration.OpenMpConfiguration;
 import claw.tatsu.primitive.Body;
 import claw.tatsu.primitive.Condition;
 import claw.tatsu.primitive.Field;
 import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
-import claw.tatsu.xcodeml.xnode.common.Xcode;
-import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
-import claw.tatsu.xcodeml.xnode.common.Xid;
-import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Xintrinsic;
+import claw.wani.instrumentation.Instrumentation;
 import claw.wani.language.ClawPragma;
 import claw.wani.x2t.translator.ClawTranslator;
 
@@ -28,16 +35,24 @@ import java.util.*;
 
 /**
  * Single Column Abstraction (SCA) CPU target transformation. This
- * transformation has two modes:
+ * transformation has three modes:
  * - single: single statements are wrapped in do statements
  * - fusion: merge adjacent statements together to maximize vectorization.
+ * - blocked: strip-mine the horizontal dimension and fuse all statements
+ * inside each block iteration. Promoted temporaries are sized to the block.
  *
  * @author clementval
  */
 public class ScaCPUvectorizeGroup extends Sca {
 
+  private static final String BLOCK_SUFFIX = "_blk";
+  private static final String BLOCK_INDEX_SUFFIX = "_blk_idx";
+
   private final boolean _applyFusion;
+  private final int _blockSize;
   private final Set<String> _temporaryFieldsToPromote = new HashSet<>();
+  private final Set<String> _regionScalars = new LinkedHashSet<>();
+  private DimensionDefinition _blockedDimension = null;
 
   /**
    * Constructs a new SCA transformation triggered from a specific
@@ -46,8 +61,7 @@ public class ScaCPUvectorizeGroup extends Sca {
    * @param directive The directive that triggered the define transformation.
    */
   public ScaCPUvectorizeGroup(ClawPragma directive) {
-    super(directive);
-    _applyFusion = false;
+    this(directive, false);
   }
 
   /**
@@ -58,8 +72,24 @@ public class ScaCPUvectorizeGroup extends Sca {
    * @param fusion    If true, the fusion algorithm to the transformation.
    */
   public ScaCPUvectorizeGroup(ClawPragma directive, boolean fusion) {
+    this(directive, fusion, 0);
+  }
+
+  /**
+   * Constructs a new SCA transformation triggered from a specific
+   * pragma for a CPU target.
+   *
+   * @param directive The directive that triggered the define transformation.
+   * @param fusion    If true, the fusion algorithm to the transformation.
+   * @param blockSize If bigger than 0, the horizontal dimension is
+   *                  strip-mined in blocks of this size.
+   */
+  public ScaCPUvectorizeGroup(ClawPragma directive, boolean fusion,
+                              int blockSize)
+  {
     super(directive);
     _applyFusion = fusion;
+    _blockSize = blockSize;
   }
 
   @Override
@@ -94,7 +124,7 @@ public class ScaCPUvectorizeGroup extends Sca {
     super.transform(xcodeml, translator, other);
 
     // Apply specific steps for CPU smart fusion
-    applySpecificTransformation(xcodeml);
+    applySpecificTransformation(xcodeml, (ClawTranslator) translator);
 
     // Finalize the common steps
     super.finalizeTransformation(xcodeml);
@@ -104,10 +134,12 @@ public class ScaCPUvectorizeGroup extends Sca {
    * Apply specific step of the transformation for a CPU target with naive DO
    * statement generation.
    *
-   * @param xcodeml Current translation unit.
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
    * @throws IllegalTransformationException If any transformation fails.
    */
-  private void applySpecificTransformation(XcodeProgram xcodeml)
+  private void applySpecificTransformation(XcodeProgram xcodeml,
+                                           ClawTranslator translator)
       throws IllegalTransformationException
   {
     /* Create a group of nested loop with the newly defined dimension and wrap
@@ -129,16 +161,242 @@ public class ScaCPUvectorizeGroup extends Sca {
       removeUselessPromotion(mergedBlocks);
     }
 
+    if(_blockSize > 0 && canApplyBlocking(xcodeml, mergedBlocks)) {
+      DimensionDefinition horizontal = _claw.getDefaultLayout().get(0);
+      _blockedDimension = new DimensionDefinition(
+          horizontal.getIdentifier() + BLOCK_INDEX_SUFFIX, "1",
+          String.valueOf(_blockSize));
+    }
+
     for(String temporary : _temporaryFieldsToPromote) {
       promote(xcodeml, temporary);
     }
 
     // Generate loops around statements flagged in previous stage
-    generateDoStatements(xcodeml, mergedBlocks);
+    if(_blockedDimension != null) {
+      generateBlockedDoStatements(xcodeml, translator, mergedBlocks);
+    } else {
+      generateDoStatements(xcodeml, translator, mergedBlocks);
+    }
 
-    // Generate the parallel region
-    Directive.generateParallelRegion(xcodeml,
-        _fctDef.body().firstChild(), _fctDef.body().lastChild());
+    // Generate the parallel region. Timer calls are kept outside of it.
+    Xnode first = _fctDef.body().firstChild();
+    Xnode last = _fctDef.body().lastChild();
+    Instrumentation.generateRegionTimer(xcodeml, translator, _claw, first,
+        last);
+    Directive.generateParallelRegion(xcodeml, first, last);
+  }
+
+  /**
+   * Check whether the blocked strategy can be applied. All statements between
+   * the first and the last vector blocks are executed once per block
+   * iteration. Statements outside of vector blocks in this region must then be
+   * safe to be repeated. Scalars written by these statements are private to a
+   * block. They must be local variables, written before being read in the
+   * region and not read after it.
+   *
+   * @param xcodeml Current translation unit.
+   * @param blocks  List of vector blocks.
+   * @return True if the blocked strategy can be applied. False otherwise.
+   */
+  private boolean canApplyBlocking(XcodeProgram xcodeml,
+                                   List<VectorBlock> blocks)
+  {
+    if(blocks.isEmpty()) {
+      return false;
+    }
+    if(_claw.getDefaultLayout().size() != 1) {
+      xcodeml.addWarning("Blocked CPU strategy is only applied with a " +
+          "single horizontal dimension. Fusion is applied instead.",
+          _claw.getPragma());
+      return false;
+    }
+
+    for(Xnode stmt : getBlockedRegion(blocks)) {
+      List<Xnode> nodes = stmt.matchAll(Xcode.F_ASSIGN_STATEMENT);
+      nodes.add(stmt);
+      for(Xnode node : nodes) {
+        if(!node.is(Xcode.F_ASSIGN_STATEMENT)
+            || VectorBlock.isEnclosedIn(blocks, node))
+        {
+          continue;
+        }
+        AssignStatement as = new AssignStatement(node.element());
+        if(as.getRhs() != null && XnodeUtil.findAllReferences(as.getRhs()).
+            contains(as.getLhsName()))
+        {
+          xcodeml.addWarning(String.format("Statement updating %s cannot be " +
+                  "repeated per block. Fusion is applied instead.",
+              as.getLhsName()), node);
+          return false;
+        }
+        if(!Xnode.isOfCode(as.getLhs(), Xcode.VAR)) {
+          xcodeml.addWarning(String.format("Array %s written outside of " +
+                  "vector blocks would be shared by all blocks. Fusion is " +
+                  "applied instead.", as.getLhsName()), node);
+          return false;
+        }
+      }
+      for(Xcode opcode : Arrays.asList(Xcode.EXPR_STATEMENT,
+          Xcode.F_PRINT_STATEMENT, Xcode.F_WRITE_STATEMENT))
+      {
+        List<Xnode> sideEffects = stmt.matchAll(opcode);
+        sideEffects.add(stmt);
+        for(Xnode node : sideEffects) {
+          if(node.is(opcode) && !VectorBlock.isEnclosedIn(blocks, node)) {
+            xcodeml.addWarning("Statement with side effects cannot be " +
+                "repeated per block. Fusion is applied instead.", node);
+            return false;
+          }
+        }
+      }
+    }
+    return checkRegionScalars(xcodeml, blocks);
+  }
+
+  /**
+   * Gather the variables written outside of the vector blocks in the blocked
+   * region and check they can be private to a block. A variable read before
+   * being written in the region would see the value of the previous block.
+   *
+   * @param xcodeml Current translation unit.
+   * @param blocks  List of vector blocks.
+   * @return True if the written variables can be private. False otherwise.
+   */
+  private boolean checkRegionScalars(XcodeProgram xcodeml,
+                                     List<VectorBlock> blocks)
+  {
+    List<Xnode> region = getBlockedRegion(blocks);
+    Set<String> defined = new HashSet<>();
+    Set<String> exposed = new HashSet<>();
+    _regionScalars.clear();
+    for(Xnode stmt : region) {
+      for(Xnode var : stmt.matchAll(Xcode.VAR)) {
+        Xnode writer = var.ancestor();
+        if(!(writer.is(Xcode.F_ASSIGN_STATEMENT)
+            || writer.is(Xcode.F_DO_STATEMENT))
+            || !var.equals(writer.firstChild())
+            || VectorBlock.isEnclosedIn(blocks, writer))
+        {
+          if(!defined.contains(var.value())) {
+            exposed.add(var.value());
+          }
+          continue;
+        }
+        if(!isLocalScalar(xcodeml, var.value())) {
+          xcodeml.addWarning(String.format("Variable %s written outside of " +
+                  "vector blocks cannot be private to a block. Fusion is " +
+                  "applied instead.", var.value()), writer);
+          return false;
+        }
+        _regionScalars.add(var.value());
+        // Writes nested in another statement might not be executed
+        if(writer.ancestor().equals(_fctDef.body())) {
+          defined.add(var.value());
+        }
+      }
+    }
+
+    List<Xnode> body = _fctDef.body().children();
+    List<Xnode> after = region.isEmpty() ? Collections.emptyList()
+        : body.subList(body.indexOf(region.get(region.size() - 1)) + 1,
+        body.size());
+    for(String var : _regionScalars) {
+      boolean readAfter = after.stream().anyMatch(
+          stmt -> !findVarReferences(stmt, var).isEmpty());
+      if(exposed.contains(var) || readAfter) {
+        xcodeml.addWarning(String.format("Variable %s written outside of " +
+                "vector blocks is read %s it in the blocked region. Fusion " +
+                "is applied instead.", var, readAfter ? "after" : "before"),
+            _claw.getPragma());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether the variable is a local scalar of the function without
+   * SAVE attribute.
+   *
+   * @param xcodeml Current translation unit.
+   * @param var     Name of the variable.
+   * @return True if the variable is a local scalar. False otherwise.
+   */
+  private boolean isLocalScalar(XcodeProgram xcodeml, String var) {
+    Xid id = _fctDef.getSymbolTable().get(var);
+    if(id == null) {
+      return false;
+    }
+    if(!xcodeml.getTypeTable().isBasicType(id)) {
+      return true;
+    }
+    FbasicType bt = xcodeml.getTypeTable().getBasicType(id);
+    return !bt.hasIntent() && !bt.isArray()
+        && !bt.getBooleanAttribute(Xattr.IS_SAVE);
+  }
+
+  /**
+   * Get the statements of the function body spanning from the first to the
+   * last vector block.
+   *
+   * @param blocks List of vector blocks.
+   * @return List of top level statements of the function body.
+   */
+  private List<Xnode> getBlockedRegion(List<VectorBlock> blocks) {
+    List<Xnode> body = _fctDef.body().children();
+    int first = body.size();
+    int last = -1;
+    for(VectorBlock block : blocks) {
+      Xnode end = block.isSingleStatement()
+          ? block.getStartStmt() : block.getEndStmt();
+      for(Xnode stmt : Arrays.asList(block.getStartStmt(), end)) {
+        int idx = body.indexOf(getTopLevelStatement(stmt));
+        if(idx >= 0) {
+          first = Math.min(first, idx);
+          last = Math.max(last, idx);
+        }
+      }
+    }
+    return last < 0 ? Collections.emptyList() : body.subList(first, last + 1);
+  }
+
+  /**
+   * Get the statement directly in the function body enclosing the given node.
+   *
+   * @param node Node nested in the function body.
+   * @return Top level statement enclosing the node.
+   */
+  private Xnode getTopLevelStatement(Xnode node) {
+    Xnode crt = node;
+    while(crt.ancestor() != null && !crt.ancestor().equals(_fctDef.body())) {
+      crt = crt.ancestor();
+    }
+    return crt;
+  }
+
+  /**
+   * Get the layout of a temporary field where the horizontal dimension is
+   * replaced by the block dimension.
+   *
+   * @param layout Original layout of the field.
+   * @return Layout sized to the block.
+   */
+  private List<DimensionDefinition> getBlockLayout(
+      List<DimensionDefinition> layout)
+  {
+    String horizontal = _claw.getDefaultLayout().get(0).getIdentifier();
+    List<DimensionDefinition> blockLayout = new ArrayList<>();
+    for(DimensionDefinition dim : layout) {
+      if(dim.getIdentifier().equals(horizontal)) {
+        DimensionDefinition blockDim = _blockedDimension.copy();
+        blockDim.setInsertionPosition(dim.getInsertionPosition());
+        blockLayout.add(blockDim);
+      } else {
+        blockLayout.add(dim);
+      }
+    }
+    return blockLayout;
   }
 
   /**
@@ -408,7 +666,9 @@ public class ScaCPUvectorizeGroup extends Sca {
     if(!_promotions.containsKey(var)) {
       Message.debug(String.format("%s promote variable %s",
           SCA_DEBUG_PREFIX, var));
-      promotionInfo = new PromotionInfo(var, _claw.getLayoutForData(var));
+      promotionInfo = new PromotionInfo(var, _blockedDimension != null ?
+          getBlockLayout(_claw.getLayoutForData(var)) :
+          _claw.getLayoutForData(var));
       Field.promote(promotionInfo, _fctDef, xcodeml);
       _promotions.put(var, promotionInfo);
     } else {
@@ -419,7 +679,8 @@ public class ScaCPUvectorizeGroup extends Sca {
     FbasicType bType = xcodeml.getTypeTable().getBasicType(id);
     if(!bType.isArray()) {
       Field.adaptScalarRefToArrayRef(_promotions.get(var), _fctDef,
-          _claw.getDefaultLayout(), xcodeml);
+          _blockedDimension != null ? getBlockLayout(_claw.getDefaultLayout())
+              : _claw.getDefaultLayout(), xcodeml);
     } else {
       Field.adaptArrayRef(_promotions.get(var), _fctDef.body(), false, xcodeml);
       Field.adaptAllocate(_promotions.get(var), _fctDef.body(), xcodeml);
@@ -430,16 +691,19 @@ public class ScaCPUvectorizeGroup extends Sca {
   /**
    * Generate new DO statement at flagged location.
    *
-   * @param xcodeml Current translation unit.
-   * @param blocks  List of vectorization friendly blocks.
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
+   * @param blocks     List of vectorization friendly blocks.
    */
   private void generateDoStatements(XcodeProgram xcodeml,
+                                    ClawTranslator translator,
                                     List<VectorBlock> blocks)
       throws IllegalTransformationException
   {
     for(VectorBlock block : blocks) {
       NestedDoStatement loops =
           new NestedDoStatement(_claw.getDefaultLayoutReversed(), xcodeml);
+      int lineNo = block.getStartStmt().lineNo();
 
       if(block.isSingleStatement()) {
         block.getStartStmt().insertAfter(loops.getOuterStatement());
@@ -450,11 +714,373 @@ public class ScaCPUvectorizeGroup extends Sca {
         Body.shiftIn(block.getStartStmt(), block.getEndStmt(),
             loops.getInnerStatement().body(), true);
       }
+      hoistInvariant(xcodeml, translator, loops, lineNo);
+
+      boolean combined = loops.size() == 1;
+      if(!combined || !generateSimdDirectives(xcodeml, translator,
+          loops.getInnerStatement(), true, lineNo, Collections.emptySet()))
+      {
+        Directive.generateLoopDirectives(xcodeml,
+            loops.getOuterStatement(), loops.getOuterStatement(),
+            Directive.NO_COLLAPSE);
+      }
+      if(!combined) {
+        generateSimdDirectives(xcodeml, translator, loops.getInnerStatement(),
+            false, lineNo, Collections.emptySet());
+      }
+    }
+  }
+
+  /**
+   * Generate SIMD directive around the inner loop of a vector block if SIMD
+   * generation is enabled and if the loop is vectorizable. The decision is
+   * recorded in the transformation report.
+   *
+   * @param xcodeml      Current translation unit.
+   * @param translator   Current translator.
+   * @param doStmt       Inner loop of the vector block.
+   * @param combined     If true, the SIMD construct is combined with the loop
+   *                     work-sharing construct.
+   * @param lineNo       Line of the vector block in the original code.
+   * @param recomputed   Scalars recomputed at the beginning of every loop and
+   *                     safe to be privatized.
+   * @return True if the SIMD directive has been generated. False otherwise.
+   */
+  private boolean generateSimdDirectives(XcodeProgram xcodeml,
+                                         ClawTranslator translator,
+                                         Xnode doStmt, boolean combined,
+                                         int lineNo, Set<String> recomputed)
+  {
+    if(Context.get().getCompilerDirective() != CompilerDirective.OPENMP
+        || !((OpenMpConfiguration) Context.get().getAcceleratorConfig())
+        .hasSimd())
+    {
+      return false;
+    }
+
+    List<String> privates = new ArrayList<>();
+    String rejection = checkVectorization(doStmt, privates, recomputed);
+    if(rejection != null) {
+      Message.debug(String.format("%s vector block at line %d not " +
+          "vectorized: %s", SCA_DEBUG_PREFIX, lineNo, rejection));
+      translator.addTransformationInfo(SCA_REPORT_NAME, lineNo,
+          "SIMD rejected: " + rejection);
+      return false;
+    }
+
+    // Promoted arrays are asserted aligned only on explicit request
+    List<String> aligned = new ArrayList<>();
+    if(((OpenMpConfiguration) Context.get().getAcceleratorConfig())
+        .isSimdAligned())
+    {
+      for(String array : getReferencedArrays(doStmt)) {
+        if(_promotions.containsKey(array) && !aligned.contains(array)) {
+          aligned.add(array);
+        }
+      }
+    }
+
+    Directive.generateSimdDirectives(xcodeml, doStmt, combined, privates,
+        aligned);
+    translator.addTransformationInfo(SCA_REPORT_NAME, lineNo,
+        "SIMD generated over " +
+            doStmt.matchDirectDescendant(Xcode.VAR).value());
+    return true;
+  }
+
+  /**
+   * Check whether a loop can be vectorized with a SIMD directive.
+   *
+   * @param doStmt     Loop to be checked.
+   * @param privates   List filled with the scalars to be privatized.
+   * @param recomputed Scalars recomputed at the beginning of every loop and
+   *                   safe to be privatized.
+   * @return Null if the loop is vectorizable. Reason of the rejection
+   * otherwise.
+   */
+  private String checkVectorization(Xnode doStmt, List<String> privates,
+                                    Set<String> recomputed)
+  {
+    // Loop carried dependencies on arrays
+    try {
+      DependenceAnalysis analysis = new DependenceAnalysis(doStmt);
+      if(!analysis.isIndependent()) {
+        return String.format("loop carried %s dependence over %s",
+            analysis.getDirectionVector() == DependenceDirection.BACKWARD ?
+                "backward" : "forward", analysis.getInductionVariable());
+      }
+    } catch(Exception e) {
+      return e.getMessage();
+    }
+
+    // Statements breaking the control flow or with side effects
+    for(Xcode opcode : Arrays.asList(Xcode.EXPR_STATEMENT,
+        Xcode.F_PRINT_STATEMENT, Xcode.F_WRITE_STATEMENT,
+        Xcode.F_READ_STATEMENT, Xcode.F_CYCLE_STATEMENT,
+        Xcode.F_EXIT_STATEMENT, Xcode.F_RETURN_STATEMENT,
+        Xcode.F_STOP_STATEMENT, Xcode.GOTO_STATEMENT))
+    {
+      if(doStmt.body().matchDescendant(opcode) != null) {
+        return "unsupported statement " + opcode.code();
+      }
+    }
+    for(Xnode call : doStmt.body().matchAll(Xcode.FUNCTION_CALL)) {
+      if(!call.getBooleanAttribute(Xattr.IS_INTRINSIC)) {
+        return "call to " + new FunctionCall(call).getFctName();
+      }
+    }
 
-      Directive.generateLoopDirectives(xcodeml,
-          loops.getOuterStatement(), loops.getOuterStatement(),
-          Directive.NO_COLLAPSE);
+    // Scalars written in the loop must be private to each iteration
+    String inductionVar = doStmt.matchDirectDescendant(Xcode.VAR).value();
+    for(Xnode node : doStmt.body().matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      AssignStatement as = new AssignStatement(node.element());
+      String name = as.getLhsName();
+      if(!Xnode.isOfCode(as.getLhs(), Xcode.VAR) || privates.contains(name)
+          || name.equals(inductionVar))
+      {
+        continue;
+      }
+      List<Xnode> refs = findVarReferences(doStmt.body(), name);
+      if(refs.isEmpty() || !refs.get(0).equals(as.getLhs())
+          || as.matchAncestor(Xcode.F_IF_STATEMENT) != null
+          && as.matchAncestor(Xcode.F_IF_STATEMENT).isNestedIn(doStmt))
+      {
+        return String.format("scalar %s carried across iterations", name);
+      }
+      if(!recomputed.contains(name)
+          && findVarReferences(_fctDef.body(), name).size() != refs.size())
+      {
+        return String.format("scalar %s used outside of the loop", name);
+      }
+      privates.add(name);
+    }
+
+    // Unit stride accesses over the induction variable
+    boolean contiguous = ((OpenMpConfiguration)
+        Context.get().getAcceleratorConfig()).isSimdContiguous();
+    for(Xnode arrayRef : doStmt.body().matchAll(Xcode.F_ARRAY_REF)) {
+      Xnode var = arrayRef.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+      if(var == null || contiguous && _promotions.containsKey(var.value())) {
+        continue;
+      }
+      List<Xnode> indexes = arrayRef.children();
+      for(int i = 2; i < indexes.size(); ++i) {
+        if(!findVarReferences(indexes.get(i), inductionVar).isEmpty()) {
+          return String.format("non unit stride access to %s", var.value());
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Find all var references including the ones used as array index.
+   *
+   * @param parent Root element to search from.
+   * @param name   Name of the var to be found.
+   * @return A list of all var elements found in document order.
+   */
+  private List<Xnode> findVarReferences(Xnode parent, String name) {
+    List<Xnode> refs = new ArrayList<>();
+    for(Xnode var : parent.matchAll(Xcode.VAR)) {
+      if(var.value().equalsIgnoreCase(name)) {
+        refs.add(var);
+      }
+    }
+    return refs;
+  }
+
+  /**
+   * Get the names of the arrays referenced in the given loop.
+   *
+   * @param doStmt Loop to be checked.
+   * @return List of array names.
+   */
+  private List<String> getReferencedArrays(Xnode doStmt) {
+    List<String> arrays = new ArrayList<>();
+    for(Xnode arrayRef : doStmt.body().matchAll(Xcode.F_ARRAY_REF)) {
+      Xnode var = arrayRef.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+      if(var != null && !arrays.contains(var.value())) {
+        arrays.add(var.value());
+      }
     }
+    return arrays;
+  }
+
+  /**
+   * Generate the blocked DO statements. The horizontal dimension is
+   * strip-mined in blocks and all the statements from the first to the last
+   * vector block are executed inside the block loop. Each vector block is
+   * wrapped in a loop iterating over the current block. Loop invariants of a
+   * vector block are computed before its loop and are private to the block.
+   *
+   * {@code
+   * DO i_blk = istart, iend, block_size
+   *   DO i = i_blk, MIN(i_blk + block_size - 1, iend)
+   *     i_blk_idx = i - i_blk + 1
+   *     ! vector block
+   *   END DO
+   * END DO
+   * }
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
+   * @param blocks     List of vectorization friendly blocks.
+   * @throws IllegalTransformationException If statements cannot be moved.
+   */
+  private void generateBlockedDoStatements(XcodeProgram xcodeml,
+                                           ClawTranslator translator,
+                                           List<VectorBlock> blocks)
+      throws IllegalTransformationException
+  {
+    DimensionDefinition horizontal = _claw.getDefaultLayout().get(0);
+    String inductionVar = horizontal.getIdentifier();
+    String blockVar = inductionVar + BLOCK_SUFFIX;
+    String blockIdxVar = _blockedDimension.getIdentifier();
+    for(String var : Arrays.asList(blockVar, blockIdxVar)) {
+      if(!_fctDef.getSymbolTable().contains(var)) {
+        xcodeml.createIdAndDecl(var, FortranType.INTEGER,
+            XstorageClass.F_LOCAL, _fctDef, DeclarationPosition.LAST);
+      }
+    }
+
+    List<Xnode> region = new ArrayList<>(getBlockedRegion(blocks));
+    List<String> invariants = new ArrayList<>();
+
+    for(VectorBlock block : blocks) {
+      Xnode range = horizontal.generateIndexRange(xcodeml, false, true);
+      Xnode upperBound = range.matchDirectDescendant(Xcode.UPPER_BOUND);
+      // MIN(i_blk + block_size - 1, iend)
+      FunctionCall min =
+          xcodeml.createIntrinsicFctCall(FortranType.INTEGER, Xintrinsic.MIN);
+      min.addArguments(xcodeml.createIntBinaryExpr(Xcode.MINUS_EXPR,
+          xcodeml.createIntBinaryExpr(Xcode.PLUS_EXPR,
+              createIntVar(xcodeml, blockVar),
+              xcodeml.createIntConstant(_blockSize)),
+          xcodeml.createIntConstant(1)));
+      min.addArguments(upperBound.firstChild().cloneNode());
+      upperBound.firstChild().delete();
+      upperBound.append(min);
+      Xnode lowerBound = range.matchDirectDescendant(Xcode.LOWER_BOUND);
+      lowerBound.firstChild().delete();
+      lowerBound.append(createIntVar(xcodeml, blockVar));
+      Xnode step = xcodeml.createNode(Xcode.STEP);
+      step.append(xcodeml.createIntConstant(1));
+      range.append(step);
+
+      Xnode loop =
+          xcodeml.createDoStmt(createIntVar(xcodeml, inductionVar), range);
+
+      // i_blk_idx = i - i_blk + 1
+      Xnode blockIdx = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      blockIdx.append(createIntVar(xcodeml, blockIdxVar));
+      blockIdx.append(xcodeml.createIntBinaryExpr(Xcode.PLUS_EXPR,
+          xcodeml.createIntBinaryExpr(Xcode.MINUS_EXPR,
+              createIntVar(xcodeml, inductionVar),
+              createIntVar(xcodeml, blockVar)),
+          xcodeml.createIntConstant(1)));
+
+      int lineNo = block.getStartStmt().lineNo();
+      if(block.isSingleStatement()) {
+        updateRegionBoundary(region, block.getStartStmt(), loop);
+        block.getStartStmt().insertAfter(loop);
+        loop.body().append(block.getStartStmt(), true);
+        block.getStartStmt().delete();
+      } else {
+        updateRegionBoundary(region, block.getStartStmt(), loop);
+        updateRegionBoundary(region, block.getEndStmt(), loop);
+        block.getEndStmt().insertAfter(loop);
+        Body.shiftIn(block.getStartStmt(), block.getEndStmt(), loop.body(),
+            true);
+      }
+      // Block index is computed before any statement of the vector block
+      loop.body().insert(blockIdx);
+
+      // Invariants are computed once per block before the vector loop
+      Xnode previous = loop.prevSibling();
+      List<String> hoisted = hoistInvariant(xcodeml, translator,
+          new NestedDoStatement(loop, 1), lineNo);
+      if(!hoisted.isEmpty() && region.get(0).equals(loop)) {
+        region.set(0, previous == null
+            ? loop.ancestor().firstChild() : previous.nextSibling());
+      }
+      invariants.addAll(hoisted);
+
+      generateSimdDirectives(xcodeml, translator, loop, false, lineNo,
+          Collections.singleton(blockIdxVar));
+    }
+
+    // Block loop wrapping the whole region
+    Xnode blockRange = horizontal.generateIndexRange(xcodeml, false, true);
+    Xnode blockStep = xcodeml.createNode(Xcode.STEP);
+    blockStep.append(xcodeml.createIntConstant(_blockSize));
+    blockRange.append(blockStep);
+    Xnode blockLoop =
+        xcodeml.createDoStmt(createIntVar(xcodeml, blockVar), blockRange);
+    Xnode first = region.get(0);
+    Xnode last = region.get(region.size() - 1);
+    last.insertAfter(blockLoop);
+    if(first.equals(last)) {
+      blockLoop.body().append(first, true);
+      first.delete();
+    } else {
+      Body.shiftIn(first, last, blockLoop.body(), true);
+    }
+
+    // Temporaries and scalars computed in the region are private to a block
+    List<String> privates = new ArrayList<>(Arrays.asList(inductionVar,
+        blockIdxVar));
+    for(String temporary : _temporaryFieldsToPromote) {
+      if(!privates.contains(temporary)) {
+        privates.add(temporary);
+      }
+    }
+    for(String invariant : invariants) {
+      if(!privates.contains(invariant)) {
+        privates.add(invariant);
+      }
+    }
+    for(Xnode assign : blockLoop.matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      String lhsName = new AssignStatement(assign.element()).getLhsName();
+      if(_scalarFields.contains(lhsName) && !privates.contains(lhsName)) {
+        privates.add(lhsName);
+      }
+    }
+    for(String scalar : _regionScalars) {
+      if(!privates.contains(scalar)) {
+        privates.add(scalar);
+      }
+    }
+    Directive.generateLoopDirectives(xcodeml, blockLoop, blockLoop,
+        Directive.NO_COLLAPSE, privates);
+  }
+
+  /**
+   * Replace a top level statement of the blocked region by its new enclosing
+   * loop if the statement is moved into it.
+   *
+   * @param region Top level statements of the blocked region.
+   * @param stmt   Statement moved into the loop.
+   * @param loop   Loop enclosing the statement.
+   */
+  private void updateRegionBoundary(List<Xnode> region, Xnode stmt,
+                                    Xnode loop)
+  {
+    int idx = region.indexOf(stmt);
+    if(idx == 0 || idx == region.size() - 1) {
+      region.set(idx, loop);
+    }
+  }
+
+  /**
+   * Create an integer variable reference.
+   *
+   * @param xcodeml Current translation unit.
+   * @param name    Name of the variable.
+   * @return Newly created var node.
+   */
+  private Xnode createIntVar(XcodeProgram xcodeml, String name) {
+    return xcodeml.createVar(FortranType.INTEGER, name, Xscope.LOCAL);
   }
 
   /**
@@ -12,18 +12,24 @@ import claw.tatsu.common.Target;
 import claw.tatsu.common.Utility;
 import claw.tatsu.directive.common.DataMovement;
 import claw.tatsu.directive.common.Directive;
+import claw.tatsu.directive.configuration.AcceleratorConfiguration;
+import claw.tatsu.directive.configuration.AcceleratorDataStrategy;
 import claw.tatsu.primitive.*;
 import claw.tatsu.xcodeml.abstraction.*;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.*;
+import claw.wani.ClawConstant;
+import claw.wani.instrumentation.Instrumentation;
 import claw.wani.language.ClawPragma;
 import claw.wani.language.ClawClause;
 import claw.wani.serialization.Serialization;
 import claw.wani.serialization.SerializationStep;
 import claw.wani.transformation.ClawTransformation;
 import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.configuration.ModelConfig;
 import claw.wani.x2t.translator.ClawTranslator;
 
 import java.util.*;
@@ -42,6 +48,15 @@ import java.util.*;
  */
 public class ScaForward extends ClawTransformation {
 
+  private static final int DEFAULT_INLINE_THRESHOLD = 50;
+  private static final List<Xcode> UNSUPPORTED_INLINE_STMTS = Arrays.asList(
+      Xcode.F_RETURN_STATEMENT, Xcode.F_ENTRY_DECL, Xcode.GOTO_STATEMENT,
+      Xcode.STATEMENT_LABEL, Xcode.F_CONTAINS_STATEMENT);
+  private static final List<Xcode> INLINE_SIZE_STMTS = Arrays.asList(
+      Xcode.F_ASSIGN_STATEMENT, Xcode.EXPR_STATEMENT, Xcode.F_DO_STATEMENT,
+      Xcode.F_IF_STATEMENT, Xcode.F_SELECT_CASE_STATEMENT,
+      Xcode.F_WHERE_STATEMENT);
+
   private final Set<String> _promotedVar; // Promoted array from the call
   private final Map<String, PromotionInfo> _promotions; // Info about promotion
   private final Map<String, String> _fctCallMapping; // NamedValue mapping
@@ -413,7 +428,11 @@ public class ScaForward extends ClawTransformation {
         continue;
       }
 
-      if(!fDef.getSymbolTable().contains(varId)) {
+      Xnode value;
+      if(p.hasAttribute(Xattr.PROMOTION_INFO)) {
+        // Member of a derived type argument stored as a separate field
+        value = copyStructMember(xcodeml, fDef, p, argOffset);
+      } else if(!fDef.getSymbolTable().contains(varId)) {
         if(_flatten && !paramType.getBooleanAttribute(Xattr.IS_OPTIONAL)) {
           throw new IllegalTransformationException("Variable " + varId +
               " must be locally defined where the last call to one_column " +
@@ -427,6 +446,7 @@ public class ScaForward extends ClawTransformation {
         type = bt.getType();
         Xnode param = xcodeml.createAndAddParam(varId, type, parentFctType);
         param.setBooleanAttribute(Xattr.IS_INSERTED, true);
+        value = xcodeml.createVar(type, varId, Xscope.LOCAL);
       } else {
 
         // Var exists already. Add to the parameters if not here.
@@ -441,11 +461,12 @@ public class ScaForward extends ClawTransformation {
             param.setBooleanAttribute(Xattr.IS_INSERTED, true);
           }
         }
+        value = xcodeml.createVar(type, varId, Xscope.LOCAL);
       }
 
       // Add variable in the function call before the optional parameters
       Xnode arg = xcodeml.createNamedValue(varId);
-      arg.append(xcodeml.createVar(type, varId, Xscope.LOCAL));
+      arg.append(value);
       Xnode hook = _fCall.arguments().get((i - 1) - argOffset);
       if(hook != null) {
         hook.insertAfter(arg);
@@ -474,6 +495,11 @@ public class ScaForward extends ClawTransformation {
     } else {
       // 2. Adapt function/subroutine in which the function call is nested
       for(Xnode pBase : _fctType.getParameters()) {
+        if(pBase.getBooleanAttribute(Xattr.IS_INSERTED)
+            && pBase.hasAttribute(Xattr.PROMOTION_INFO))
+        {
+          continue; // Struct member fields are copies in the caller
+        }
         String originalParam = pBase.value();
         if(_fctCallMapping.containsKey(originalParam)) {
           originalParam = _fctCallMapping.get(originalParam);
@@ -573,6 +599,8 @@ public class ScaForward extends ClawTransformation {
       fctCallAncestor = _fCall.matchAncestor(Xcode.F_ASSIGN_STATEMENT);
     }
 
+    convertDemotedArguments(xcodeml, fDef, fctCallAncestor, argOffset);
+
     if(_claw.hasClause(ClawClause.CREATE) && Context.isTarget(Target.GPU)) {
       List<String> creates = _fCall.gatherArguments(xcodeml, _fctType, _mod,
           Intent.INOUT, true, false);
@@ -644,6 +672,12 @@ public class ScaForward extends ClawTransformation {
     }
 
     if(_claw.hasClause(ClawClause.PARALLEL) && Context.isTarget(Target.GPU)) {
+      Xnode stopTimer = Instrumentation.generateRegionTimer(xcodeml,
+          (ClawTranslator) translator, _claw, fctCallAncestor,
+          fctCallAncestor);
+      if(stopTimer != null && postHook == fctCallAncestor) {
+        postHook = stopTimer;
+      }
       Directive.generateParallelRegion(xcodeml, fctCallAncestor,
           fctCallAncestor);
     }
@@ -657,6 +691,927 @@ public class ScaForward extends ClawTransformation {
           _claw.getMetadataMap(), outFields,
           _claw.value(ClawClause.SAVEPOINT), SerializationStep.SER_OUT);
     }
+
+    if(_claw.hasClause(ClawClause.INLINE)) {
+      inlineCall(xcodeml, (ClawTranslator) translator, fDef, fctCallAncestor);
+    }
+  }
+
+  /**
+   * Convert the actual arguments associated with demoted dummy arguments of
+   * the called function/subroutine. Read-only arguments are converted with
+   * the real intrinsic. Other arguments must be variables. They are copied
+   * to a temporary of the demoted kind before the call and copied back after
+   * it. The conversions run on the host, so they are refused on GPU target
+   * when data is managed by directives. A named kind is imported from the
+   * module of the called function if it is not visible in the caller.
+   *
+   * @param xcodeml   Current XcodeML file unit.
+   * @param fDef      Function definition in which the call is located.
+   * @param callStmt  Statement holding the function call.
+   * @param argOffset Number of parameters not passed as arguments.
+   * @throws IllegalTransformationException If an argument cannot be
+   *                                        converted.
+   */
+  private void convertDemotedArguments(XcodeProgram xcodeml,
+                                       FfunctionDefinition fDef,
+                                       Xnode callStmt, int argOffset)
+      throws IllegalTransformationException
+  {
+    List<Xnode> params = _fctType.getParameters();
+    List<Xnode> arguments = _fCall.arguments();
+    for(int i = 0; i < arguments.size(); ++i) {
+      Xnode actual = arguments.get(i);
+      Xnode param = null;
+      if(actual.is(Xcode.NAMED_VALUE)) {
+        for(Xnode p : params) {
+          if(p.value().equalsIgnoreCase(actual.getAttribute(Xattr.NAME))) {
+            param = p;
+          }
+        }
+        actual = actual.firstChild();
+      } else if(i + argOffset < params.size()) {
+        param = params.get(i + argOffset);
+      }
+      if(param == null || actual == null
+          || !param.hasAttribute(Xattr.DEMOTION_INFO))
+      {
+        continue;
+      }
+
+      String kind = param.getAttribute(Xattr.DEMOTION_INFO);
+      String varType = null;
+      if(actual.is(Xcode.VAR)) {
+        Xid id = fDef.getSymbolTable().get(actual.value());
+        varType = id != null ? id.getType() : actual.getType();
+        if(kind.equals(Type.getRealKind(varType, xcodeml))) {
+          continue; // Already of the demoted kind
+        }
+      }
+
+      AcceleratorConfiguration config = Context.get().getAcceleratorConfig();
+      if(Context.isTarget(Target.GPU) && config != null
+          && config.getDataStrategy() != AcceleratorDataStrategy.NONE)
+      {
+        throw new IllegalTransformationException(String.format(
+            "Argument %s of %s is demoted to kind %s and cannot be converted " +
+                "on the device. The actual argument must be demoted as well.",
+            param.value(), _calledFctName, kind), _claw.getPragma().lineNo());
+      }
+      importDemotionKind(xcodeml, fDef, kind);
+
+      FbasicType paramType = _localFct ?
+          xcodeml.getTypeTable().getBasicType(param)
+          : _mod.getTypeTable().getBasicType(param);
+      if(paramType != null && paramType.getIntent() == Intent.IN) {
+        FunctionCall conversion =
+            xcodeml.createIntrinsicFctCall(FortranType.REAL, Xintrinsic.REAL);
+        actual.insertAfter(conversion);
+        conversion.addArguments(actual);
+        Xnode kindArg = xcodeml.createNamedValue(Xname.KIND);
+        kindArg.append(kind.matches("[0-9]+") ?
+            xcodeml.createIntConstant(Integer.parseInt(kind)) :
+            xcodeml.createVar(FortranType.INTEGER, kind, Xscope.LOCAL));
+        conversion.addArguments(kindArg);
+        continue;
+      }
+
+      if(varType == null) {
+        throw new IllegalTransformationException(String.format(
+            "Argument %s of %s must be a variable to be converted to kind %s",
+            param.value(), _calledFctName, kind), _claw.getPragma().lineNo());
+      }
+
+      // Copy the variable to a temporary of the demoted kind
+      FbasicType type = Type.duplicateWithKind(varType, kind, xcodeml,
+          new HashMap<>());
+      boolean deferred = type.isArray() && (type.isAllAssumedShape()
+          || type.isAllocatable() || type.isPointer());
+      for(Xattr attr : Arrays.asList(Xattr.INTENT, Xattr.IS_OPTIONAL,
+          Xattr.IS_POINTER, Xattr.IS_TARGET, Xattr.IS_SAVE,
+          Xattr.IS_PARAMETER, Xattr.IS_PUBLIC, Xattr.IS_PRIVATE,
+          Xattr.IS_ALLOCATABLE))
+      {
+        type.removeAttribute(attr);
+      }
+      if(deferred) {
+        type.setBooleanAttribute(Xattr.IS_ALLOCATABLE, true);
+      }
+      xcodeml.getTypeTable().set(type);
+
+      String tmpName = actual.value() + ClawConstant.DEMOTION_SUFFIX;
+      for(int n = 1; fDef.getSymbolTable().contains(tmpName); ++n) {
+        tmpName = actual.value() + ClawConstant.DEMOTION_SUFFIX + n;
+      }
+      xcodeml.createIdAndDecl(tmpName, type.getType(), XstorageClass.F_LOCAL,
+          fDef, DeclarationPosition.LAST);
+
+      Xnode copyIn = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      copyIn.append(xcodeml.createVar(type.getType(), tmpName, Xscope.LOCAL));
+      copyIn.append(actual.cloneNode());
+      callStmt.insertBefore(copyIn);
+
+      Xnode copyOut = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      copyOut.append(actual.cloneNode());
+      copyOut.append(xcodeml.createVar(type.getType(), tmpName, Xscope.LOCAL));
+      callStmt.insertAfter(copyOut);
+
+      actual.insertAfter(
+          xcodeml.createVar(type.getType(), tmpName, Xscope.LOCAL));
+      actual.delete();
+    }
+  }
+
+  /**
+   * Make a named kind of demoted dummy arguments visible in the calling
+   * function. The kind is imported from the module of the called function
+   * when it is not already accessible.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param fDef    Function definition in which the call is located.
+   * @param kind    Integer value or name of an integer constant.
+   * @throws IllegalTransformationException If the kind cannot be imported.
+   */
+  private void importDemotionKind(XcodeProgram xcodeml,
+                                  FfunctionDefinition fDef, String kind)
+      throws IllegalTransformationException
+  {
+    if(kind.matches("[0-9]+") || fDef.getSymbolTable().contains(kind)) {
+      return;
+    }
+    FmoduleDefinition callerModule = fDef.findParentModule();
+    if(callerModule != null && callerModule.getSymbolTable().contains(kind)) {
+      return;
+    }
+
+    // Module of the called function defining the kind
+    String module = null;
+    if(_mod != null && _mod.getIdentifiers().contains(kind)) {
+      module = _mod.getName();
+    } else if(_localFct) {
+      FfunctionDefinition callee = xcodeml.getGlobalDeclarationsTable()
+          .getFunctionDefinition(_calledFctName);
+      FmoduleDefinition calleeModule =
+          callee == null ? null : callee.findParentModule();
+      if(calleeModule != null
+          && calleeModule.getSymbolTable().contains(kind))
+      {
+        module = calleeModule.getName();
+      }
+    }
+    if(module == null || (callerModule != null
+        && module.equalsIgnoreCase(callerModule.getName())))
+    {
+      throw new IllegalTransformationException(String.format(
+          "Kind %s of the demoted arguments of %s is not visible in %s",
+          kind, _calledFctName, fDef.getName()), _claw.getPragma().lineNo());
+    }
+
+    List<Xnode> uses = fDef.getDeclarationTable().uses();
+    if(callerModule != null) {
+      uses.addAll(callerModule.getDeclarationTable().uses());
+    }
+    for(Xnode use : uses) {
+      if(!module.equalsIgnoreCase(use.getAttribute(Xattr.NAME))) {
+        continue;
+      }
+      if(use.is(Xcode.F_USE_DECL)) {
+        return;
+      }
+      for(Xnode renamable : use.matchAll(Xcode.RENAMABLE)) {
+        if(kind.equalsIgnoreCase(renamable.getAttribute(Xattr.USE_NAME))) {
+          return;
+        }
+      }
+    }
+    Xnode use = fDef.getDeclarationTable().get(module);
+    if(Xnode.isOfCode(use, Xcode.F_USE_ONLY_DECL)) {
+      Xnode renamable = xcodeml.createNode(Xcode.RENAMABLE);
+      renamable.setAttribute(Xattr.USE_NAME, kind);
+      use.append(renamable);
+    } else {
+      fDef.getDeclarationTable().insertUseOnlyDecl(xcodeml, module,
+          Collections.singletonList(kind));
+    }
+  }
+
+  /**
+   * Pass a member of a derived type argument to the field created for it in
+   * the callee. The member of the actual argument is copied to a new local
+   * variable before the call and copied back after it unless the field is
+   * intent(in).
+   *
+   * @param xcodeml   Current XcodeML file unit.
+   * @param fDef      Function definition in which the call is located.
+   * @param field     Inserted parameter of the callee holding the member.
+   * @param argOffset Number of parameters not passed as arguments.
+   * @return Var node of the local copy to be passed to the field.
+   * @throws IllegalTransformationException If the member cannot be copied.
+   */
+  private Xnode copyStructMember(XcodeProgram xcodeml, FfunctionDefinition fDef,
+                                 Xnode field, int argOffset)
+      throws IllegalTransformationException
+  {
+    // Find the derived type dummy argument and the member of the field
+    ModelConfig config = Configuration.get().getModelConfig();
+    String dummy = null;
+    String member = null;
+    for(Xnode p : _fctType.getParameters()) {
+      for(String typeName : config.getStructTypes()) {
+        for(String m : config.getStructMembers(typeName)) {
+          if(!p.getBooleanAttribute(Xattr.IS_INSERTED)
+              && field.value().equalsIgnoreCase(p.value() + "_" + m))
+          {
+            dummy = p.value();
+            member = m;
+          }
+        }
+      }
+    }
+    Xnode actual = dummy != null ? findActualArgument(dummy, argOffset) : null;
+    if(!Xnode.isOfCode(actual, Xcode.VAR)) {
+      throw new IllegalTransformationException(String.format(
+          "Field %s of %s must be copied from a member of a variable.",
+          field.value(), _calledFctName), _claw.getPragma().lineNo());
+    }
+
+    Xid actualId = fDef.getSymbolTable().get(actual.value());
+    String structHash = actualId != null ? actualId.getType() : null;
+    if(xcodeml.getTypeTable().isBasicType(structHash)) {
+      structHash = xcodeml.getTypeTable().getBasicType(structHash).getRef();
+    }
+    Xid memberId = xcodeml.getTypeTable().isStructType(structHash)
+        ? xcodeml.getTypeTable().getStructType(structHash).getMember(member)
+        : null;
+    if(memberId == null) {
+      throw new IllegalTransformationException(String.format(
+          "Member %s of %s could not be found.", member, actual.value()),
+          _claw.getPragma().lineNo());
+    }
+
+    // The copy must have the shape of the field
+    FbasicType fieldType = _localFct
+        ? xcodeml.getTypeTable().getBasicType(field)
+        : _mod.getTypeTable().getBasicType(field);
+    FbasicType memberType = xcodeml.getTypeTable().getBasicType(memberId);
+    int fieldRank = fieldType != null ? fieldType.getDimensions() : 0;
+    int memberRank = memberType != null ? memberType.getDimensions() : 0;
+    if(fieldRank != memberRank) {
+      throw new IllegalTransformationException(String.format(
+          "Member %s of %s has %d dimensions but field %s of %s has %d.",
+          member, actual.value(), memberRank, field.value(), _calledFctName,
+          fieldRank), _claw.getPragma().lineNo());
+    }
+
+    String name = actual.value() + "_" + member;
+    int suffix = 1;
+    while(fDef.getSymbolTable().contains(name)) {
+      name = actual.value() + "_" + member + suffix++;
+    }
+    xcodeml.createIdAndDecl(name, memberId.getType(), XstorageClass.F_LOCAL,
+        fDef, DeclarationPosition.LAST);
+
+    Xnode callStmt = _fCall.matchAncestor(Xcode.EXPR_STATEMENT);
+    if(callStmt == null) {
+      callStmt = _fCall.matchAncestor(Xcode.F_ASSIGN_STATEMENT);
+    }
+    Xnode copyIn = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    copyIn.append(xcodeml.createVar(memberId.getType(), name, Xscope.LOCAL));
+    copyIn.append(createMemberRef(xcodeml, actual, memberId));
+    callStmt.insertBefore(copyIn);
+    if(fieldType == null || fieldType.getIntent() != Intent.IN) {
+      Xnode copyOut = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      copyOut.append(createMemberRef(xcodeml, actual, memberId));
+      copyOut.append(
+          xcodeml.createVar(memberId.getType(), name, Xscope.LOCAL));
+      callStmt.insertAfter(copyOut);
+    }
+    return xcodeml.createVar(memberId.getType(), name, Xscope.LOCAL);
+  }
+
+  /**
+   * Create a reference to a member of a derived type variable.
+   *
+   * @param xcodeml  Current XcodeML file unit.
+   * @param var      Var node of the derived type variable.
+   * @param memberId Id of the member in the derived type.
+   * @return Newly created FmemberRef node.
+   */
+  private Xnode createMemberRef(XcodeProgram xcodeml, Xnode var,
+                                Xid memberId)
+  {
+    return xcodeml.createNode(Xcode.F_MEMBER_REF)
+        .setType(memberId.getType())
+        .setAttribute(Xattr.MEMBER, memberId.getName())
+        .append(xcodeml.createNode(Xcode.VAR_REF).setType(var.getType())
+            .append(var.cloneNode()));
+  }
+
+  /**
+   * Find the actual argument of the call associated with a dummy argument
+   * of the callee.
+   *
+   * @param dummy     Name of the dummy argument.
+   * @param argOffset Number of parameters not passed as arguments.
+   * @return Actual argument. Null if not found.
+   */
+  private Xnode findActualArgument(String dummy, int argOffset) {
+    List<Xnode> positional = new ArrayList<>();
+    for(Xnode arg : _fCall.arguments()) {
+      if(!arg.is(Xcode.NAMED_VALUE)) {
+        positional.add(arg);
+      } else if(dummy.equalsIgnoreCase(arg.getAttribute(Xattr.NAME))) {
+        return arg.firstChild();
+      }
+    }
+    int position = -argOffset;
+    for(Xnode p : _fctType.getParameters()) {
+      if(p.getBooleanAttribute(Xattr.IS_INSERTED)) {
+        continue;
+      }
+      if(p.value().equalsIgnoreCase(dummy)) {
+        return position >= 0 && position < positional.size()
+            ? positional.get(position) : null;
+      }
+      ++position;
+    }
+    return null;
+  }
+
+  /**
+   * Replace the forward call by the body of the called subroutine. Dummy
+   * arguments are replaced by the actual arguments of the call and local
+   * variables of the callee are declared in the caller with a prefix.
+   * Actual arguments that are not variables are assigned to temporaries
+   * before the inlined body. The call is kept and a warning is issued if the
+   * callee cannot be inlined.
+   *
+   * @param xcodeml    Current XcodeML file unit.
+   * @param translator Current translator.
+   * @param caller     Function definition in which the call is located.
+   * @param callStmt   Statement holding the function call.
+   */
+  private void inlineCall(XcodeProgram xcodeml, ClawTranslator translator,
+                          FfunctionDefinition caller, Xnode callStmt)
+  {
+    FfunctionDefinition callee = _localFct ? xcodeml.
+        getGlobalDeclarationsTable().getFunctionDefinition(_calledFctName)
+        : null;
+    String reason = checkInlining(xcodeml, caller, callee, callStmt);
+    if(reason == null) {
+      Map<String, Xnode> actuals = mapArguments(xcodeml, caller, callee);
+      if(actuals == null) {
+        reason = "arguments cannot be mapped to the dummy arguments";
+      } else {
+        reason = checkVariables(xcodeml, caller, callee, actuals);
+        if(reason == null) {
+          reason = checkAliasing(xcodeml, callee, actuals);
+        }
+        if(reason == null) {
+          Map<String, String> locals =
+              declareLocals(xcodeml, caller, callee, actuals);
+          assignTemporaries(xcodeml, caller, callee, actuals, callStmt);
+          for(Xnode stmt : callee.body().children()) {
+            if(isRoutineDirective(stmt)) {
+              continue;
+            }
+            Xnode inlined = stmt.cloneNode();
+            replaceVariables(xcodeml, inlined, actuals, locals);
+            callStmt.insertBefore(inlined);
+          }
+          callStmt.delete();
+          Message.debug("SCA forward: inlined call to " + _calledFctName);
+          translator.addTransformationInfo(Sca.SCA_REPORT_NAME,
+              _claw.getPragma().lineNo(),
+              String.format("call to %s inlined", _calledFctName));
+          return;
+        }
+      }
+    }
+    xcodeml.addWarning(String.format("Call to %s cannot be inlined: %s",
+        _calledFctName, reason), _claw.getPragma().lineNo());
+  }
+
+  /**
+   * Check whether the callee can be inlined at the call site.
+   *
+   * @param xcodeml  Current XcodeML file unit.
+   * @param caller   Function definition in which the call is located.
+   * @param callee   Function definition of the called subroutine.
+   * @param callStmt Statement holding the function call.
+   * @return Null if the callee can be inlined. Reason otherwise.
+   */
+  private String checkInlining(XcodeProgram xcodeml,
+                               FfunctionDefinition caller,
+                               FfunctionDefinition callee, Xnode callStmt)
+  {
+    if(callee == null) {
+      return "body of the subroutine is not available in the translation unit";
+    }
+    if(!Xnode.isOfCode(callStmt, Xcode.EXPR_STATEMENT)
+        || _fctType.isFunction() || _fCall.isTbpCall())
+    {
+      return "only direct subroutine calls can be inlined";
+    }
+    if(callee.getName().equalsIgnoreCase(caller.getName())) {
+      return "recursive call";
+    }
+    FmoduleDefinition calleeModule = callee.findParentModule();
+    FmoduleDefinition callerModule = caller.findParentModule();
+    if(calleeModule != null && (callerModule == null
+        || !calleeModule.getName().equalsIgnoreCase(callerModule.getName())))
+    {
+      return "subroutine is defined in another module";
+    }
+    if(!callee.getDeclarationTable().uses().isEmpty()) {
+      return "subroutine has its own use statements";
+    }
+    if(!XnodeUtil.getNodes(callee.body(), UNSUPPORTED_INLINE_STMTS)
+        .isEmpty())
+    {
+      return "subroutine contains unsupported statements";
+    }
+    int threshold = Configuration.get().getIntParameter(
+        Configuration.SCA_FORWARD_INLINE_THRESHOLD, DEFAULT_INLINE_THRESHOLD);
+    int size = XnodeUtil.getNodes(callee.body(), INLINE_SIZE_STMTS).size();
+    if(size > threshold) {
+      return String.format("subroutine has %d statements (threshold is %d)",
+          size, threshold);
+    }
+    return null;
+  }
+
+  /**
+   * Map each dummy argument of the callee to the actual argument of the call.
+   * Named arguments are mapped by name and positional arguments by position.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param caller  Function definition in which the call is located.
+   * @param callee  Function definition of the called subroutine.
+   * @return Map between dummy argument names and actual arguments. Null if
+   * one of the dummy argument cannot be safely replaced.
+   */
+  private Map<String, Xnode> mapArguments(XcodeProgram xcodeml,
+                                          FfunctionDefinition caller,
+                                          FfunctionDefinition callee)
+  {
+    List<String> dummies = _fctType.getParamsNames();
+    Map<String, Xnode> actuals = new HashMap<>();
+    List<Xnode> arguments = _fCall.arguments();
+    for(int i = 0; i < arguments.size(); ++i) {
+      Xnode arg = arguments.get(i);
+      Xnode actual = arg.is(Xcode.NAMED_VALUE) ? arg.firstChild() : arg;
+      // Promotion of the caller updates the declarations but not the type
+      // of the variables passed to the call.
+      if(Xnode.isOfCode(actual, Xcode.VAR)) {
+        Xid id = caller.getSymbolTable().get(actual.value());
+        if(id != null) {
+          actual.setType(id.getType());
+        }
+      }
+      if(arg.is(Xcode.NAMED_VALUE)) {
+        actuals.put(arg.getAttribute(Xattr.NAME).toLowerCase(), actual);
+      } else if(i < dummies.size()) {
+        actuals.put(dummies.get(i).toLowerCase(), actual);
+      } else {
+        return null;
+      }
+    }
+
+    for(String dummy : dummies) {
+      Xnode actual = actuals.get(dummy.toLowerCase());
+      Xid id = callee.getSymbolTable().get(dummy);
+      if(actual == null || id == null) {
+        return null; // Absent optional argument
+      }
+      if(!xcodeml.getTypeTable().isBasicType(id.getType())) {
+        // No type information available. Only a variable can replace it.
+        if(!actual.is(Xcode.VAR)) {
+          return null;
+        }
+        continue;
+      }
+      FbasicType dummyType = xcodeml.getTypeTable().getBasicType(id);
+      if(dummyType.isArray()) {
+        // Array dummy must be associated with a whole array with the same
+        // lower bounds.
+        if(!actual.is(Xcode.VAR) || dummyType.isAllocatable()
+            || dummyType.isPointer()
+            || !xcodeml.getTypeTable().isBasicType(actual.getType())
+            || !hasSameLowerBounds(dummyType,
+            xcodeml.getTypeTable().getBasicType(actual)))
+        {
+          return null;
+        }
+      } else if(!actual.is(Xcode.VAR) && !isArrayElement(actual)
+          && dummyType.getIntent() != Intent.IN)
+      {
+        // Expressions can only replace read-only dummy arguments
+        return null;
+      }
+    }
+    return actuals;
+  }
+
+  /**
+   * Check whether the actual argument is assigned to a temporary before the
+   * inlined body. This is the case of any actual argument that is not a
+   * variable associated with an intent(in) scalar dummy argument.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param callee  Function definition of the called subroutine.
+   * @param dummy   Name of the dummy argument.
+   * @param actual  Actual argument associated with the dummy argument.
+   * @return True if the actual argument is assigned to a temporary.
+   */
+  private boolean isAssignedToTemporary(XcodeProgram xcodeml,
+                                        FfunctionDefinition callee,
+                                        String dummy, Xnode actual)
+  {
+    return !actual.is(Xcode.VAR) && !isWrittenDummy(xcodeml, callee, dummy);
+  }
+
+  /**
+   * Check whether the dummy argument might be updated by the callee.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param callee  Function definition of the called subroutine.
+   * @param dummy   Name of the dummy argument.
+   * @return False if the dummy argument is intent(in). True otherwise.
+   */
+  private boolean isWrittenDummy(XcodeProgram xcodeml,
+                                 FfunctionDefinition callee, String dummy)
+  {
+    Xid id = callee.getSymbolTable().get(dummy);
+    return id == null || !xcodeml.getTypeTable().isBasicType(id.getType())
+        || xcodeml.getTypeTable().getBasicType(id).getIntent() != Intent.IN;
+  }
+
+  /**
+   * Get the name of the variable associated with a dummy argument.
+   *
+   * @param actual Actual argument.
+   * @return Name of the variable or of the referenced array. Null for an
+   * expression.
+   */
+  private String getActualName(Xnode actual) {
+    if(Xnode.isOfCode(actual, Xcode.VAR)) {
+      return actual.value();
+    }
+    if(Xnode.isOfCode(actual, Xcode.F_ARRAY_REF)) {
+      Xnode var = actual.matchSeq(Xcode.VAR_REF, Xcode.VAR);
+      return var != null ? var.value() : null;
+    }
+    return null;
+  }
+
+  /**
+   * Check that the actual arguments pasted in the inlined body are not
+   * updated by the callee through another name. A variable passed to several
+   * dummy arguments, or an array element whose index is updated through
+   * another dummy argument, would be read with a different value once
+   * inlined.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param callee  Function definition of the called subroutine.
+   * @param actuals Map between dummy argument names and actual arguments.
+   * @return Null if the actual arguments can be pasted. Reason otherwise.
+   */
+  private String checkAliasing(XcodeProgram xcodeml,
+                               FfunctionDefinition callee,
+                               Map<String, Xnode> actuals)
+  {
+    // Variables of the host updated by the callee
+    Set<String> hostWritten = new HashSet<>();
+    List<Xnode> writes = new ArrayList<>();
+    for(Xnode assign : callee.body().matchAll(Xcode.F_ASSIGN_STATEMENT)) {
+      writes.add(assign.firstChild());
+    }
+    writes.addAll(callee.body().matchAll(Xcode.ARGUMENTS));
+    for(Xnode write : writes) {
+      List<Xnode> vars = write.matchAll(Xcode.VAR);
+      vars.add(write);
+      for(Xnode var : vars) {
+        if(var.is(Xcode.VAR)
+            && !callee.getDeclarationTable().contains(var.value()))
+        {
+          hostWritten.add(var.value().toLowerCase());
+        }
+      }
+    }
+
+    List<String> dummies = _fctType.getParamsNames();
+    for(String dummy : dummies) {
+      Xnode actual = actuals.get(dummy.toLowerCase());
+      if(isAssignedToTemporary(xcodeml, callee, dummy, actual)) {
+        continue;
+      }
+      List<Xnode> vars = actual.matchAll(Xcode.VAR);
+      vars.add(actual);
+      for(Xnode var : vars) {
+        if(!var.is(Xcode.VAR)) {
+          continue;
+        }
+        if(hostWritten.contains(var.value().toLowerCase())) {
+          return String.format("actual argument of %s reads %s updated by " +
+              "the subroutine", dummy, var.value());
+        }
+        for(String other : dummies) {
+          if(!other.equalsIgnoreCase(dummy)
+              && isWrittenDummy(xcodeml, callee, other)
+              && var.value().equalsIgnoreCase(
+              getActualName(actuals.get(other.toLowerCase()))))
+          {
+            return String.format("actual argument of %s reads %s updated " +
+                "through %s", dummy, var.value(), other);
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Assign the actual arguments that are not variables to temporaries
+   * declared in the caller. The assignments are inserted before the call so
+   * the actual arguments are evaluated once, before the inlined body might
+   * update their operands.
+   *
+   * @param xcodeml  Current XcodeML file unit.
+   * @param caller   Function definition in which the call is located.
+   * @param callee   Function definition of the called subroutine.
+   * @param actuals  Map between dummy argument names and actual arguments.
+   *                 Assigned actual arguments are replaced by their
+   *                 temporary.
+   * @param callStmt Statement holding the function call.
+   */
+  private void assignTemporaries(XcodeProgram xcodeml,
+                                 FfunctionDefinition caller,
+                                 FfunctionDefinition callee,
+                                 Map<String, Xnode> actuals, Xnode callStmt)
+  {
+    for(String dummy : _fctType.getParamsNames()) {
+      Xnode actual = actuals.get(dummy.toLowerCase());
+      if(!isAssignedToTemporary(xcodeml, callee, dummy, actual)) {
+        continue;
+      }
+      String name = callee.getName() + "_" + dummy;
+      int suffix = 1;
+      while(caller.getSymbolTable().contains(name)) {
+        name = callee.getName() + "_" + dummy + suffix++;
+      }
+      FbasicType dummyType = xcodeml.getTypeTable()
+          .getBasicType(callee.getSymbolTable().get(dummy));
+      FortranType baseType = FortranType.fromString(dummyType.getRef());
+      FbasicType type = dummyType.cloneNode();
+      type.setType(xcodeml.getTypeTable().generateHash(
+          baseType == FortranType.NONE ? FortranType.REAL : baseType));
+      type.removeAttribute(Xattr.INTENT);
+      type.removeAttribute(Xattr.IS_OPTIONAL);
+      type.removeAttribute(Xattr.IS_VALUE);
+      xcodeml.getTypeTable().add(type);
+      xcodeml.createIdAndDecl(name, type.getType(), XstorageClass.F_LOCAL,
+          caller, DeclarationPosition.LAST);
+
+      Xnode temporary = xcodeml.createVar(type.getType(), name, Xscope.LOCAL);
+      Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+      assign.append(temporary);
+      assign.append(actual.cloneNode());
+      callStmt.insertBefore(assign);
+      actuals.put(dummy.toLowerCase(), temporary);
+    }
+  }
+
+  /**
+   * Check whether the array reference is a reference to a single element.
+   *
+   * @param node Node to be checked.
+   * @return True if all the indexes are single array index.
+   */
+  private boolean isArrayElement(Xnode node) {
+    if(!Xnode.isOfCode(node, Xcode.F_ARRAY_REF)) {
+      return false;
+    }
+    for(Xnode child : node.children()) {
+      if(child.is(Xcode.INDEX_RANGE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether two array types have the same rank and the same constant
+   * lower bounds.
+   *
+   * @param dummyType  Type of the dummy argument.
+   * @param actualType Type of the actual argument.
+   * @return True if the array element can be accessed with the same indexes.
+   */
+  private boolean hasSameLowerBounds(FbasicType dummyType,
+                                     FbasicType actualType)
+  {
+    if(actualType.getDimensions() != dummyType.getDimensions()
+        || actualType.isAllocatable() || actualType.isPointer())
+    {
+      return false;
+    }
+    for(int i = 0; i < dummyType.getDimensions(); ++i) {
+      String lb = getLowerBound(dummyType.getDimensions(i));
+      if(lb == null || !lb.equals(getLowerBound(actualType.getDimensions(i)))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the constant lower bound of an array dimension.
+   *
+   * @param dimension Dimension node.
+   * @return Lower bound value. Null if not constant.
+   */
+  private String getLowerBound(Xnode dimension) {
+    if(dimension == null) {
+      return null;
+    }
+    if(dimension.is(Xcode.ARRAY_INDEX)) {
+      return "1";
+    }
+    Xnode lowerBound = dimension.matchDirectDescendant(Xcode.LOWER_BOUND);
+    if(lowerBound == null || lowerBound.firstChild() == null) {
+      return "1";
+    }
+    return Xnode.isOfCode(lowerBound.firstChild(), Xcode.F_INT_CONSTANT)
+        ? lowerBound.firstChild().value().trim() : null;
+  }
+
+  /**
+   * Check that the variables used in the callee are not shadowed by variables
+   * of the caller once inlined.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param caller  Function definition in which the call is located.
+   * @param callee  Function definition of the called subroutine.
+   * @param actuals Map between dummy argument names and actual arguments.
+   * @return Null if the variables can be inlined. Reason otherwise.
+   */
+  private String checkVariables(XcodeProgram xcodeml,
+                                FfunctionDefinition caller,
+                                FfunctionDefinition callee,
+                                Map<String, Xnode> actuals)
+  {
+    for(Xnode decl : callee.getDeclarationTable().values(Xcode.VAR_DECL)) {
+      String name = decl.matchSeq(Xcode.NAME).value();
+      if(actuals.containsKey(name.toLowerCase())) {
+        continue;
+      }
+      if(decl.matchDirectDescendant(Xcode.VALUE) != null) {
+        return "local variable " + name + " has an initial value";
+      }
+      Xid id = callee.getSymbolTable().get(name);
+      if(id != null && xcodeml.getTypeTable().isBasicType(id.getType())) {
+        FbasicType type = xcodeml.getTypeTable().getBasicType(id);
+        if(type.isSave() || type.isParameter()
+            || !isMovableType(type, actuals))
+        {
+          return "local variable " + name + " cannot be moved to the caller";
+        }
+      }
+    }
+
+    // Host associated variables must not be hidden by caller variables
+    for(Xnode var : callee.body().matchAll(Xcode.VAR)) {
+      String name = var.value();
+      if(!actuals.containsKey(name.toLowerCase())
+          && !callee.getDeclarationTable().contains(name)
+          && caller.getDeclarationTable().contains(name))
+      {
+        return "variable " + name + " is hidden in the caller";
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check whether the type of a local variable of the callee can be used in
+   * the caller. The variables used in its bounds must be dummy arguments
+   * associated with a variable or an integer constant.
+   *
+   * @param type    Type of the local variable.
+   * @param actuals Map between dummy argument names and actual arguments.
+   * @return True if the type can be declared in the caller.
+   */
+  private boolean isMovableType(FbasicType type, Map<String, Xnode> actuals) {
+    List<Xnode> vars = type.matchAll(Xcode.VAR);
+    if(!vars.isEmpty() && !type.isArray()) {
+      return false;
+    }
+    for(Xnode var : vars) {
+      Xnode actual = actuals.get(var.value().toLowerCase());
+      if(!Xnode.isOfCode(actual, Xcode.VAR)
+          && !Xnode.isOfCode(actual, Xcode.F_INT_CONSTANT))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Declare the local variables of the callee in the caller.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param caller  Function definition in which the call is located.
+   * @param callee  Function definition of the called subroutine.
+   * @param actuals Map between dummy argument names and actual arguments.
+   * @return Map between local variable names and their new names.
+   */
+  private Map<String, String> declareLocals(XcodeProgram xcodeml,
+                                            FfunctionDefinition caller,
+                                            FfunctionDefinition callee,
+                                            Map<String, Xnode> actuals)
+  {
+    Map<String, String> locals = new HashMap<>();
+    for(Xnode decl : callee.getDeclarationTable().values(Xcode.VAR_DECL)) {
+      Xnode name = decl.matchSeq(Xcode.NAME);
+      if(name.value().equalsIgnoreCase(callee.getName())
+          || _fctType.getParamsNames().stream()
+          .anyMatch(p -> p.equalsIgnoreCase(name.value())))
+      {
+        continue;
+      }
+      String newName = callee.getName() + "_" + name.value();
+      int suffix = 1;
+      while(caller.getSymbolTable().contains(newName)) {
+        newName = callee.getName() + "_" + name.value() + suffix++;
+      }
+      String type = name.getType();
+      if(xcodeml.getTypeTable().isBasicType(type)) {
+        FbasicType basicType = xcodeml.getTypeTable().getBasicType(type);
+        if(!basicType.matchAll(Xcode.VAR).isEmpty()) {
+          // Bounds refer to dummy arguments of the callee
+          FbasicType newType = basicType.cloneNode();
+          type = xcodeml.getTypeTable().generateHash(FortranType.ARRAY);
+          newType.setType(type);
+          replaceVariables(xcodeml, newType, actuals,
+              Collections.emptyMap());
+          xcodeml.getTypeTable().add(newType);
+        }
+      }
+      xcodeml.createIdAndDecl(newName, type, XstorageClass.F_LOCAL,
+          caller, DeclarationPosition.LAST);
+      locals.put(name.value().toLowerCase(), newName);
+    }
+    return locals;
+  }
+
+  /**
+   * Replace dummy arguments and local variables in an inlined statement.
+   *
+   * @param xcodeml Current XcodeML file unit.
+   * @param stmt    Inlined statement.
+   * @param actuals Map between dummy argument names and actual arguments.
+   * @param locals  Map between local variable names and their new names.
+   */
+  private void replaceVariables(XcodeProgram xcodeml, Xnode stmt,
+                                Map<String, Xnode> actuals,
+                                Map<String, String> locals)
+  {
+    for(Xnode var : stmt.matchAll(Xcode.VAR)) {
+      String name = var.value().toLowerCase();
+      if(actuals.containsKey(name)) {
+        Xnode actual = actuals.get(name);
+        if(Xnode.isOfCode(var.ancestor(), Xcode.VAR_REF)) {
+          var.ancestor().setType(actual.getType());
+        }
+        var.insertAfter(actual.cloneNode());
+        var.delete();
+      } else if(locals.containsKey(name)) {
+        var.setValue(locals.get(name));
+      }
+    }
+  }
+
+  /**
+   * Check whether the statement is a routine directive generated for the
+   * callee. Such directives are dropped when the body is inlined.
+   *
+   * @param stmt Statement to be checked.
+   * @return True if the statement is a routine directive.
+   */
+  private boolean isRoutineDirective(Xnode stmt) {
+    if(!stmt.is(Xcode.F_PRAGMA_STATEMENT)) {
+      return false;
+    }
+    for(String routine : Context.get().getGenerator()
+        .getRoutineDirective(true))
+    {
+      if(stmt.value().trim().equalsIgnoreCase(routine.trim())) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -8,29 +8,31 @@ import claw.shenron.transformation.Transformation;
 import claw.shenron.translator.Translator;
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.common.Context;
+import claw.tatsu.common.Message;
 import claw.tatsu.directive.common.Directive;
 import claw.tatsu.directive.generator.DirectiveGenerator;
 import claw.tatsu.primitive.Body;
 import claw.tatsu.primitive.Field;
+import claw.tatsu.primitive.Loop;
 import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.abstraction.Xblock;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
-import claw.tatsu.xcodeml.xnode.common.Xattr;
-import claw.tatsu.xcodeml.xnode.common.Xcode;
-import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
-import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.wani.instrumentation.Instrumentation;
+import claw.wani.memory.ManagedMemory;
 import claw.wani.language.ClawPragma;
 import claw.tatsu.directive.configuration.AcceleratorConfiguration;
 import claw.tatsu.directive.configuration.AcceleratorLocalStrategy;
 import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.translator.ClawTranslator;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Specialized version of SCA transformation for GPU target.
@@ -40,6 +42,8 @@ import java.util.List;
  * inout.
  * <li> Do statements over the additional dimensions is added as an outer
  * loop and wrap the entire body of the subroutine.
+ * <li> With kernel fission, the body is split into several such do
+ * statements and local variables live across the split points are promoted.
  * </ul>
  *
  * Generation of OpenACC directives:<ul>
@@ -75,6 +79,13 @@ import java.util.List;
  */
 public class ScaGPU extends Sca {
 
+  private static final String CONTRACTION_SUFFIX = "_s";
+  private static final List<Xcode> FISSION_STATEMENTS = Arrays.asList(
+      Xcode.F_ASSIGN_STATEMENT, Xcode.EXPR_STATEMENT, Xcode.F_DO_STATEMENT,
+      Xcode.F_IF_STATEMENT, Xcode.F_SELECT_CASE_STATEMENT,
+      Xcode.F_WHERE_STATEMENT, Xcode.F_ALLOCATE_STATEMENT,
+      Xcode.F_DEALLOCATE_STATEMENT);
+
   /**
    * Constructs a new SCA transformation triggered from a specific
    * pragma for a GPU target.
@@ -260,7 +271,7 @@ public class ScaGPU extends Sca {
     super.transform(xcodeml, translator, null);
 
     // Apply specific steps for GPU target
-    applySpecificTransformation(xcodeml);
+    applySpecificTransformation(xcodeml, (ClawTranslator) translator);
 
     // Finalize the common steps
     super.finalizeTransformation(xcodeml);
@@ -312,7 +323,7 @@ public class ScaGPU extends Sca {
       removeAttributesWithWaring(xcodeml, _fctType, Xattr.IS_PURE);
 
       // Apply specific steps for GPU
-      applySpecificTransformation(xcodeml);
+      applySpecificTransformation(xcodeml, (ClawTranslator) translator);
 
       // Finalize the common steps
       super.finalizeTransformation(xcodeml);
@@ -322,13 +333,15 @@ public class ScaGPU extends Sca {
   /**
    * Apply specific transformation steps for GPU target.
    *
-   * @param xcodeml Current translation unit.
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
    * @throws IllegalTransformationException If any transformation fails.
    */
-  private void applySpecificTransformation(XcodeProgram xcodeml)
+  private void applySpecificTransformation(XcodeProgram xcodeml,
+                                           ClawTranslator translator)
       throws IllegalTransformationException
   {
-    AcceleratorConfiguration config = Configuration.get().accelerator();
+    AcceleratorConfiguration config = Context.get().getAcceleratorConfig();
 
     // TODO nodep passing!
     int collapse = Directive.generateLoopSeq(xcodeml, _fctDef,
@@ -342,19 +355,7 @@ public class ScaGPU extends Sca {
      * the whole subroutine's body. This is for the moment a really naive
      * transformation idea but it is our start point.
      * Use the first over clause to create it. */
-    NestedDoStatement loops;
-    if(forceAssumedShapedArrayPromotion) {
-      if(_promotions.isEmpty()) {
-        throw new IllegalTransformationException("Cannot assume shape of " +
-            "array in elemental function/subroutine.",
-            _claw.getPragma().lineNo());
-      }
-      PromotionInfo pi = _promotions.entrySet().iterator().next().getValue();
-      loops =
-          new NestedDoStatement(_claw.getDefaultLayoutReversed(), pi, xcodeml);
-    } else {
-      loops = new NestedDoStatement(_claw.getDefaultLayoutReversed(), xcodeml);
-    }
+    NestedDoStatement loops = createColumnLoops(xcodeml);
 
     /* Subroutine/function can have a contains section with inner subroutines
      * or functions. The newly created (nested) do statements should stop
@@ -393,30 +394,344 @@ public class ScaGPU extends Sca {
       }
     }
 
+    // Invariant scalars are computed before the kernel and cannot be private
+    List<String> invariants = hoistInvariant(xcodeml, translator, loops,
+        _claw.getPragma().lineNo());
+
+    // Split large kernels and promote temporaries crossing the split points
+    List<Xnode> kernels = new ArrayList<>();
+    List<String> crossing = new ArrayList<>();
+    if(config.hasFission()) {
+      kernels.addAll(applyFission(xcodeml, translator, loops,
+          config.getFissionSize(), crossing));
+    } else {
+      kernels.add(loops.getOuterStatement());
+    }
+
     // Prepare variables list for present/pcreate clauses and handle
     // promotion/privatize local strategy
     List<String> presentList = _fctDef.getPresentVariables(xcodeml);
     List<String> privateList = Collections.emptyList();
-    List<String> createList = Collections.emptyList();
+    List<String> createList = new ArrayList<>(crossing);
     if(config.getLocalStrategy() == AcceleratorLocalStrategy.PRIVATE) {
       privateList = applyPrivateStrategy(xcodeml);
+      privateList.removeAll(invariants);
     } else if(config.getLocalStrategy() == AcceleratorLocalStrategy.PROMOTE) {
-      createList = applyPromoteStrategy(xcodeml);
+      List<String> contracted = new ArrayList<>();
+      if(config.hasContraction()) {
+        privateList = applyContraction(xcodeml, translator, kernels,
+            contracted);
+      }
+      createList.addAll(applyPromoteStrategy(xcodeml, contracted));
     }
 
     // Generate the data region
-    Xblock doStmtBlock = new Xblock(loops.getOuterStatement());
+    Xblock doStmtBlock =
+        new Xblock(kernels.get(0), kernels.get(kernels.size() - 1));
     Directive.generateDataRegionClause(xcodeml, presentList, createList,
         doStmtBlock);
 
+    // Prefetch the fields of each kernel when they are in managed memory
+    if(ManagedMemory.isEnabled()) {
+      Set<String> fields = new HashSet<>(presentList);
+      fields.addAll(_arrayFieldsInOut);
+      for(Xnode kernel : kernels) {
+        ManagedMemory.generatePrefetch(xcodeml, _fctDef, kernel, fields);
+      }
+    }
+
     // Generate the parallel region
-    Directive.generateParallelLoopClause(xcodeml, privateList,
-        loops.getOuterStatement(), loops.getOuterStatement(), null,
-        loops.size() + collapse);
+    for(Xnode kernel : kernels) {
+      Instrumentation.generateRegionTimer(xcodeml, translator, _claw, kernel,
+          kernel);
+      Directive.generateParallelLoopClause(xcodeml, privateList, kernel,
+          kernel, null, loops.size() + collapse);
+    }
 
     Directive.generateRoutineDirectives(xcodeml, _fctDef);
   }
 
+  /**
+   * Create the nested do statements iterating over the columns.
+   *
+   * @param xcodeml Current translation unit.
+   * @return Newly created nested do statements.
+   * @throws IllegalTransformationException If the shape of the columns cannot
+   *                                        be determined.
+   */
+  private NestedDoStatement createColumnLoops(XcodeProgram xcodeml)
+      throws IllegalTransformationException
+  {
+    if(forceAssumedShapedArrayPromotion) {
+      if(_promotions.isEmpty()) {
+        throw new IllegalTransformationException("Cannot assume shape of " +
+            "array in elemental function/subroutine.",
+            _claw.getPragma().lineNo());
+      }
+      PromotionInfo pi = _promotions.entrySet().iterator().next().getValue();
+      return new NestedDoStatement(_claw.getDefaultLayoutReversed(), pi,
+          xcodeml);
+    }
+    return new NestedDoStatement(_claw.getDefaultLayoutReversed(), xcodeml);
+  }
+
+  /**
+   * Split the column loop into several column loops of bounded size. The body
+   * is split at statement boundaries. Among the possible split points, the
+   * one with the fewest local variables live across it is selected. Those
+   * variables are promoted as their value must survive between two kernels.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Current translator.
+   * @param loops      Column loop holding the whole body.
+   * @param maxSize    Maximum number of statements in a kernel.
+   * @param crossing   List filled with the promoted variables.
+   * @return Outer do statements of the kernels.
+   * @throws IllegalTransformationException If promotion of variable fails.
+   */
+  private List<Xnode> applyFission(XcodeProgram xcodeml,
+                                   ClawTranslator translator,
+                                   NestedDoStatement loops, int maxSize,
+                                   List<String> crossing)
+      throws IllegalTransformationException
+  {
+    List<Xnode> kernels = new ArrayList<>();
+    kernels.add(loops.getOuterStatement());
+
+    // Pragmas stay with the statement they decorate
+    List<List<Xnode>> units = new ArrayList<>();
+    List<Xnode> crt = new ArrayList<>();
+    for(Xnode stmt : loops.getInnerStatement().body().children()) {
+      crt.add(stmt);
+      if(!stmt.is(Xcode.F_PRAGMA_STATEMENT)) {
+        units.add(crt);
+        crt = new ArrayList<>();
+      }
+    }
+    if(!crt.isEmpty()) {
+      units.add(crt);
+    }
+
+    int[] weights = new int[units.size()];
+    int total = 0;
+    for(int i = 0; i < units.size(); ++i) {
+      weights[i] = getStatementCount(units.get(i));
+      total += weights[i];
+    }
+    if(total <= maxSize) {
+      return kernels;
+    }
+
+    // Dependencies of the column temporaries between statements
+    Set<String> temporaries = getColumnTemporaries(xcodeml);
+    loops.getInductionVariables().forEach(v ->
+        temporaries.remove(v.toLowerCase()));
+    List<Set<String>> touched = new ArrayList<>();
+    List<Set<String>> exposed = new ArrayList<>();
+    for(List<Xnode> unit : units) {
+      Set<String> t = new HashSet<>();
+      Set<String> e = new HashSet<>();
+      for(Xnode stmt : unit) {
+        gatherDependencies(stmt, t, e);
+      }
+      t.retainAll(temporaries);
+      e.retainAll(temporaries);
+      touched.add(t);
+      exposed.add(e);
+    }
+
+    // Select split points greedily
+    List<Integer> cuts = new ArrayList<>();
+    int start = 0;
+    int size = 0;
+    for(int i = 0; i < units.size(); ++i) {
+      if(size + weights[i] > maxSize && i > start) {
+        int best = i;
+        int bestCost = getCrossingVariables(touched, exposed, i).size();
+        for(int p = i - 1; p > start; --p) {
+          int cost = getCrossingVariables(touched, exposed, p).size();
+          if(cost < bestCost) {
+            best = p;
+            bestCost = cost;
+          }
+        }
+        cuts.add(best);
+        start = best;
+        size = 0;
+        for(int p = best; p < i; ++p) {
+          size += weights[p];
+        }
+      }
+      size += weights[i];
+    }
+
+    if(cuts.isEmpty()) {
+      return kernels;
+    }
+
+    // Move the statements of each part into its own column loop
+    Set<String> promoted = new TreeSet<>();
+    Xnode hook = loops.getOuterStatement();
+    List<Integer> kernelSizes = new ArrayList<>();
+    List<String> splitLines = new ArrayList<>();
+    int previous = 0;
+    cuts.add(units.size());
+    for(int c = 0; c < cuts.size(); ++c) {
+      int cut = cuts.get(c);
+      int kernelSize = 0;
+      for(int p = previous; p < cut; ++p) {
+        kernelSize += weights[p];
+      }
+      kernelSizes.add(kernelSize);
+      if(c == cuts.size() - 1) {
+        break;
+      }
+      promoted.addAll(getCrossingVariables(touched, exposed, cut));
+      splitLines.add(String.valueOf(units.get(cut).get(0).lineNo()));
+
+      NestedDoStatement kernel = createColumnLoops(xcodeml);
+      hook.insertAfter(kernel.getOuterStatement());
+      int end = cuts.get(c + 1);
+      for(int p = cut; p < end; ++p) {
+        for(Xnode stmt : units.get(p)) {
+          kernel.getInnerStatement().body().append(stmt);
+        }
+      }
+      hook = kernel.getOuterStatement();
+      kernels.add(hook);
+      previous = cut;
+    }
+
+    for(String identifier : promoted) {
+      PromotionInfo promotionInfo = new PromotionInfo(identifier,
+          _claw.getLayoutForData(identifier));
+      Field.promote(promotionInfo, _fctDef, xcodeml);
+      _promotions.put(identifier, promotionInfo);
+      _arrayFieldsInOut.add(identifier);
+      Field.adaptArrayRef(promotionInfo, _fctDef.body(), false, xcodeml);
+      Field.adaptAllocate(promotionInfo, _fctDef.body(), xcodeml);
+      crossing.add(identifier);
+    }
+
+    String msg = String.format("%s: kernel split in %d parallel loops " +
+            "before line(s) %s. Statements per kernel: %s. Promoted " +
+            "temporaries: %s", _fctDef.getName(), kernels.size(),
+        String.join(",", splitLines), kernelSizes.stream().
+            map(String::valueOf).collect(Collectors.joining(",")),
+        promoted.isEmpty() ? "none" : String.join(",", promoted));
+    Message.debug(SCA_DEBUG_PREFIX + " fission " + msg);
+    translator.addTransformationInfo(SCA_REPORT_NAME,
+        _claw.getPragma().lineNo(), msg);
+    return kernels;
+  }
+
+  /**
+   * Count the number of statements in a group of nodes.
+   *
+   * @param nodes Nodes to be counted.
+   * @return Number of statements. At least 1.
+   */
+  private int getStatementCount(List<Xnode> nodes) {
+    int count = 0;
+    for(Xnode node : nodes) {
+      if(FISSION_STATEMENTS.contains(node.opcode())) {
+        ++count;
+      }
+      count += XnodeUtil.getNodes(node, FISSION_STATEMENTS).size();
+    }
+    return Math.max(count, 1);
+  }
+
+  /**
+   * Get the local scalars and arrays of the function that are not promoted
+   * yet. Those are the candidates for promotion across kernels.
+   *
+   * @param xcodeml Current translation unit.
+   * @return Set of lower case identifiers.
+   */
+  private Set<String> getColumnTemporaries(XcodeProgram xcodeml) {
+    Set<String> temporaries = new HashSet<>();
+    List<String> parameters = _fctType.getParamsNames();
+    for(Xnode decl : _fctDef.getDeclarationTable().values(Xcode.VAR_DECL)) {
+      String name = decl.matchSeq(Xcode.NAME).value();
+      if(parameters.stream().anyMatch(name::equalsIgnoreCase)
+          || _promotions.containsKey(name) || hasInitialValue(name))
+      {
+        continue;
+      }
+      Xid id = _fctDef.getSymbolTable().get(name);
+      if(id == null || xcodeml.getTypeTable().isFunctionType(id.getType())) {
+        continue;
+      }
+      if(xcodeml.getTypeTable().isBasicType(id.getType())) {
+        FbasicType bt = xcodeml.getTypeTable().getBasicType(id);
+        if(bt.isParameter() || bt.isSave() || bt.isPointer()) {
+          continue;
+        }
+      }
+      temporaries.add(name.toLowerCase());
+    }
+    return temporaries;
+  }
+
+  /**
+   * Gather the variables referenced in a statement and the variables read
+   * before being written in it. Only an assignment to a scalar or a do
+   * statement induction variable is considered as a full definition.
+   *
+   * @param stmt    Statement to be analyzed.
+   * @param touched Set filled with all referenced variables.
+   * @param exposed Set filled with the variables read before definition.
+   */
+  private void gatherDependencies(Xnode stmt, Set<String> touched,
+                                  Set<String> exposed)
+  {
+    Set<String> defined = new HashSet<>();
+    Xnode lhs = null;
+    if(stmt.is(Xcode.F_ASSIGN_STATEMENT)
+        && Xnode.isOfCode(stmt.firstChild(), Xcode.VAR))
+    {
+      lhs = stmt.firstChild();
+    }
+    for(Xnode doStmt : stmt.matchAll(Xcode.F_DO_STATEMENT)) {
+      defined.add(Loop.extractInductionVariable(doStmt).toLowerCase());
+    }
+    if(stmt.is(Xcode.F_DO_STATEMENT)) {
+      defined.add(Loop.extractInductionVariable(stmt).toLowerCase());
+    }
+    for(Xnode var : stmt.matchAll(Xcode.VAR)) {
+      String name = var.value().toLowerCase();
+      touched.add(name);
+      if(!var.equals(lhs) && !defined.contains(name)) {
+        exposed.add(name);
+      }
+    }
+  }
+
+  /**
+   * Get the temporaries defined before the split point and read after it.
+   *
+   * @param touched Variables referenced in each group of statements.
+   * @param exposed Variables read before definition in each group.
+   * @param cut     Index of the first group after the split point.
+   * @return Set of variables live across the split point.
+   */
+  private Set<String> getCrossingVariables(List<Set<String>> touched,
+                                           List<Set<String>> exposed,
+                                           int cut)
+  {
+    Set<String> before = new HashSet<>();
+    for(int i = 0; i < cut; ++i) {
+      before.addAll(touched.get(i));
+    }
+    Set<String> after = new HashSet<>();
+    for(int i = cut; i < exposed.size(); ++i) {
+      after.addAll(exposed.get(i));
+    }
+    before.retainAll(after);
+    return before;
+  }
+
   /**
    * Apply the private local array strategy. Gather all information about
    * local array requiring a privatization.
@@ -439,14 +754,18 @@ public class ScaGPU extends Sca {
    * Apply the promotion local array strategy. Gather all information about
    * local variable requiring a promotion and apply it.
    *
-   * @param xcodeml Current translation unit.
+   * @param xcodeml    Current translation unit.
+   * @param contracted List of local arrays that are not promoted.
    * @return List of promoted variable requiring an allocation.
    * @throws IllegalTransformationException If promotion of variable fails.
    */
-  private List<String> applyPromoteStrategy(XcodeProgram xcodeml)
+  private List<String> applyPromoteStrategy(XcodeProgram xcodeml,
+                                            List<String> contracted)
       throws IllegalTransformationException
   {
     List<String> createList = _fctDef.getLocalVariables(xcodeml, true);
+    createList.removeAll(contracted);
+    createList.removeAll(_promotions.keySet());
     for(String arrayIdentifier : createList) {
       _arrayFieldsInOut.add(arrayIdentifier);
       PromotionInfo promotionInfo = new PromotionInfo(arrayIdentifier,
@@ -461,4 +780,221 @@ public class ScaGPU extends Sca {
     return createList;
   }
 
+  /**
+   * Apply the contraction of local arrays for the promotion local array
+   * strategy. A local array whose references are all located in the
+   * generated parallel loop lives only within one column iteration. It is
+   * kept private instead of being promoted. If it is only used element by
+   * element in a single do statement and each element is written before being
+   * read, the array is further contracted to a scalar.
+   *
+   * @param xcodeml       Current translation unit.
+   * @param translator    Current translator.
+   * @param parallelLoops Generated parallel loops.
+   * @param contracted    List filled with the local arrays not promoted.
+   * @return List of local arrays and scalars to be privatized.
+   */
+  private List<String> applyContraction(XcodeProgram xcodeml,
+                                        ClawTranslator translator,
+                                        List<Xnode> parallelLoops,
+                                        List<String> contracted)
+  {
+    List<String> privates = new ArrayList<>();
+    List<String> contractedArrays = new ArrayList<>();
+    List<String> contractedScalars = new ArrayList<>();
+    int savedElements = 0;
+    int runtimeSized = 0;
+
+    for(String identifier : _fctDef.getLocalVariables(xcodeml, true)) {
+      if(_promotions.containsKey(identifier)) {
+        continue;
+      }
+      Xid id = _fctDef.getSymbolTable().get(identifier);
+      FbasicType bt = id != null
+          ? xcodeml.getTypeTable().getBasicType(id) : null;
+      if(bt == null || bt.isAllocatable() || bt.isSave() || bt.isPointer()
+          || bt.isTarget() || hasInitialValue(identifier))
+      {
+        continue;
+      }
+
+      List<Xnode> references = findReferences(identifier);
+      if(references.isEmpty() || parallelLoops.stream().noneMatch(loop ->
+          references.stream().allMatch(ref -> ref.isNestedIn(loop))))
+      {
+        continue;
+      }
+
+      Integer elements = getColumnElements(bt);
+      if(elements == null) {
+        ++runtimeSized;
+      } else {
+        savedElements += elements;
+      }
+
+      contracted.add(identifier);
+      String scalar = contractToScalar(xcodeml, identifier, bt, references);
+      if(scalar != null) {
+        contractedScalars.add(identifier);
+        privates.add(scalar);
+      } else {
+        contractedArrays.add(identifier);
+        privates.add(identifier);
+      }
+    }
+
+    if(!privates.isEmpty()) {
+      String horizontal = _claw.getDefaultLayout().stream().
+          map(d -> d.getUpperBound().isVar() ? d.getUpperBound().getValue()
+              : String.valueOf(d.getUpperBound().getIntValue())).
+          collect(Collectors.joining(" x "));
+      String msg = String.format("%s: %d local array(s) not promoted. " +
+              "Private: %s. Scalar: %s. Device memory saved: %d element(s) " +
+              "x %s%s", _fctDef.getName(), privates.size(),
+          contractedArrays.isEmpty() ? "none"
+              : String.join(",", contractedArrays),
+          contractedScalars.isEmpty() ? "none"
+              : String.join(",", contractedScalars),
+          savedElements, horizontal, runtimeSized > 0
+              ? String.format(" + %d runtime sized array(s)", runtimeSized)
+              : "");
+      Message.debug(SCA_DEBUG_PREFIX + " contraction " + msg);
+      translator.addTransformationInfo(SCA_REPORT_NAME,
+          _claw.getPragma().lineNo(), msg);
+    }
+    return privates;
+  }
+
+  /**
+   * Contract a column local array to a scalar if it is only referenced with
+   * the induction variable of a single do statement and if each element is
+   * written before being read in an iteration.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param identifier Identifier of the local array.
+   * @param bt         Type of the local array.
+   * @param references All references to the local array.
+   * @return Name of the created scalar. Null if the array is not contracted.
+   */
+  private String contractToScalar(XcodeProgram xcodeml, String identifier,
+                                  FbasicType bt, List<Xnode> references)
+  {
+    if(bt.getDimensions() != 1) {
+      return null;
+    }
+
+    Xnode doStmt = null;
+    List<Xnode> arrayRefs = new ArrayList<>();
+    for(Xnode ref : references) {
+      Xnode arrayRef = ref.ancestor() != null
+          ? ref.ancestor().ancestor() : null;
+      if(!Xnode.isOfCode(arrayRef, Xcode.F_ARRAY_REF)
+          || arrayRef.matchAll(Xcode.ARRAY_INDEX).size() != 1)
+      {
+        return null;
+      }
+      Xnode index = arrayRef.matchDirectDescendant(Xcode.ARRAY_INDEX).
+          firstChild();
+      Xnode enclosingLoop = arrayRef.matchAncestor(Xcode.F_DO_STATEMENT);
+      if(enclosingLoop == null || !Xnode.isOfCode(index, Xcode.VAR)
+          || !index.value().equalsIgnoreCase(
+          Loop.extractInductionVariable(enclosingLoop))
+          || (doStmt != null && !doStmt.equals(enclosingLoop)))
+      {
+        return null;
+      }
+      doStmt = enclosingLoop;
+      arrayRefs.add(arrayRef);
+    }
+
+    // First reference must be an unconditional write in the iteration
+    Xnode firstStmt = arrayRefs.get(0).matchAncestor(Xcode.F_ASSIGN_STATEMENT);
+    if(firstStmt == null || !firstStmt.ancestor().equals(doStmt.body())
+        || !firstStmt.firstChild().equals(arrayRefs.get(0)))
+    {
+      return null;
+    }
+
+    String scalar = identifier + CONTRACTION_SUFFIX;
+    if(!_fctDef.getSymbolTable().contains(scalar)) {
+      xcodeml.createIdAndDecl(scalar, bt.getRef(), XstorageClass.F_LOCAL,
+          _fctDef, DeclarationPosition.LAST);
+    }
+    for(Xnode arrayRef : arrayRefs) {
+      arrayRef.insertAfter(
+          xcodeml.createVar(bt.getRef(), scalar, Xscope.LOCAL));
+      arrayRef.delete();
+    }
+    return scalar;
+  }
+
+  /**
+   * Find all variable references to the given identifier in the function
+   * body.
+   *
+   * @param identifier Identifier of the variable.
+   * @return List of var nodes.
+   */
+  private List<Xnode> findReferences(String identifier) {
+    return _fctDef.body().matchAll(Xcode.VAR).stream().
+        filter(v -> v.value().equalsIgnoreCase(identifier)).
+        collect(Collectors.toList());
+  }
+
+  /**
+   * Check whether the declaration of a variable has an initial value.
+   *
+   * @param identifier Identifier of the variable.
+   * @return True if an initial value is given. False otherwise.
+   */
+  private boolean hasInitialValue(String identifier) {
+    Xnode decl = _fctDef.getDeclarationTable().get(identifier);
+    return decl != null && decl.matchDirectDescendant(Xcode.VALUE) != null;
+  }
+
+  /**
+   * Compute the number of elements of a local array for one column.
+   *
+   * @param bt Type of the local array.
+   * @return Number of elements. Null if the size is only known at runtime.
+   */
+  private Integer getColumnElements(FbasicType bt) {
+    int elements = 1;
+    for(int i = 0; i < bt.getDimensions(); ++i) {
+      Xnode dim = bt.getDimensions(i);
+      Integer extent = null;
+      if(dim.is(Xcode.ARRAY_INDEX)) {
+        extent = getIntConstant(dim.firstChild());
+      } else if(dim.is(Xcode.INDEX_RANGE)) {
+        Xnode lower = dim.matchDirectDescendant(Xcode.LOWER_BOUND);
+        Xnode upper = dim.matchDirectDescendant(Xcode.UPPER_BOUND);
+        Integer lb = lower == null ? Integer.valueOf(1)
+            : getIntConstant(lower.firstChild());
+        Integer ub = upper == null ? null : getIntConstant(upper.firstChild());
+        extent = lb != null && ub != null ? ub - lb + 1 : null;
+      }
+      if(extent == null) {
+        return null;
+      }
+      elements *= extent;
+    }
+    return elements;
+  }
+
+  /**
+   * Get the value of an integer constant node.
+   *
+   * @param node Node to be evaluated.
+   * @return Integer value. Null if the node is not an integer constant.
+   */
+  private Integer getIntConstant(Xnode node) {
+    if(!Xnode.isOfCode(node, Xcode.F_INT_CONSTANT)) {
+      return null;
+    }
+    try {
+      return Integer.parseInt(node.value().trim());
+    } catch(NumberFormatException ignored) {
+      return null;
+    }
+  }
 }
@@ -173,6 +173,27 @@ public class VectorBlock {
     return false;
   }
 
+  /**
+   * Check if the given node is one of the statements of the block or is nested
+   * in one of them.
+   *
+   * @param node Node to look for.
+   * @return True if the node is enclosed by the block. False otherwise.
+   */
+  public boolean encloses(Xnode node) {
+    Xnode crtStmt = getStartStmt();
+    while(crtStmt != null) {
+      if(crtStmt.equals(node) || node.isNestedIn(crtStmt)) {
+        return true;
+      }
+      if(isSingleStatement() || crtStmt.equals(getEndStmt())) {
+        break;
+      }
+      crtStmt = crtStmt.nextSibling();
+    }
+    return false;
+  }
+
   /**
    * Check if the given node is the direct sibling of this node.
    *
@@ -254,4 +275,15 @@ public class VectorBlock {
     return blocks.stream().anyMatch(b -> b.contains(as));
   }
 
+  /**
+   * Check if a block encloses the given node.
+   *
+   * @param blocks List of blocks.
+   * @param node   Node to look for.
+   * @return True if a block encloses the node. False otherwise.
+   */
+  public static boolean isEnclosedIn(List<VectorBlock> blocks, Xnode node) {
+    return blocks.stream().anyMatch(b -> b.encloses(node));
+  }
+
 }
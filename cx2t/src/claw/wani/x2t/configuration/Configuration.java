@@ -38,6 +38,7 @@ import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -88,6 +89,8 @@ public class Configuration {
   public static final String CPU_STRATEGY = "cpu_trans_strategy";
   public static final String CPU_STRATEGY_SINGLE = "single";
   public static final String CPU_STRATEGY_FUSION = "fusion";
+  public static final String CPU_STRATEGY_BLOCKED = "blocked";
+  public static final String CPU_BLOCK_SIZE = "cpu_block_size";
   // SCA configuration keys
   public static final String SCA_ELEMENTAL_PROMOTION_ASSUMED =
       "sca_elemental_promotion_assumed";
@@ -98,6 +101,14 @@ public class Configuration {
   public static final String SCA_SERIALIZATION_READ = "read";
   public static final String SCA_SERIALIZATION_WRITE = "write";
   public static final String SCA_SERIALIZATION_READ_WRITE = "all";
+  public static final String SCA_SERIALIZATION_SAMPLING =
+      "sca_serialization_sampling";
+  public static final String SCA_SERIALIZATION_WINDOW_START =
+      "sca_serialization_window_start";
+  public static final String SCA_SERIALIZATION_WINDOW_END =
+      "sca_serialization_window_end";
+  public static final String SCA_SERIALIZATION_FIELDS =
+      "sca_serialization_fields";
   public static final String SCA_FORWARD_UPDATE_ENABLED =
       "sca_forward_update_enabled";
   public static final String SCA_FORWARD_UPDATE_DIRECTION =
@@ -105,6 +116,16 @@ public class Configuration {
   public static final String SCA_FORWARD_UPDATE_IN = "in";
   public static final String SCA_FORWARD_UPDATE_OUT = "out";
   public static final String SCA_FORWARD_UPDATE_INOUT = "inout";
+  public static final String SCA_FORWARD_INLINE_THRESHOLD =
+      "sca_forward_inline_threshold";
+  public static final String SCA_LOOP_INVARIANT_MOTION =
+      "sca_loop_invariant_motion";
+  // Instrumentation configuration keys
+  public static final String INSTRUMENTATION_MODE = "instrumentation_mode";
+  public static final String INSTRUMENTATION_MODE_NONE = "none";
+  public static final String INSTRUMENTATION_MODE_TIMER = "timer";
+  public static final String INSTRUMENTATION_MODULE = "instrumentation_module";
+  public static final String MANAGED_MEMORY_MODULE = "managed_memory_module";
 
   // env var
   private static final String CLAW_TRANS_SET_PATH = "CLAW_TRANS_SET_PATH";
@@ -162,17 +183,7 @@ public class Configuration {
     }
 
     // Init specific configuration if needed
-    switch(directive) {
-      case OPENACC:
-        _accelerator = new OpenAccConfiguration(_parameters);
-        break;
-      case OPENMP:
-        _accelerator = new OpenMpConfiguration(_parameters);
-        break;
-      default:
-        _accelerator = new AcceleratorConfiguration(_parameters);
-        break;
-    }
+    _accelerator = createAcceleratorConfiguration(directive, _parameters);
 
     _groups = new ArrayList<>();
     _availableGroups = new HashMap<>();
@@ -235,22 +246,61 @@ public class Configuration {
     setUserDefinedTarget(userDefinedTarget);
     setUserDefineDirective(userDefinedDirective);
 
-    switch(getCurrentDirective()) {
-      case OPENACC:
-        _accelerator = new OpenAccConfiguration(_parameters);
-        break;
-      case OPENMP:
-        _accelerator = new OpenMpConfiguration(_parameters);
-        break;
-      default:
-        _accelerator = new AcceleratorConfiguration(_parameters);
-    }
+    _accelerator =
+        createAcceleratorConfiguration(getCurrentDirective(), _parameters);
 
     Context.get().init(getCurrentDirective(), getCurrentTarget(), _accelerator,
         userMaxColumns);
 
     if(modelConfig != null) {
+      Context.get().getDependencies().addInput(modelConfig);
       getModelConfig().load(modelConfig);
+    } else {
+      getModelConfig().reset();
+    }
+  }
+
+  /**
+   * Create the accelerator configuration specific to a directive language.
+   *
+   * @param directive  Directive language.
+   * @param parameters Map of all configuration parameters.
+   * @return New accelerator configuration.
+   */
+  private static AcceleratorConfiguration createAcceleratorConfiguration(
+      CompilerDirective directive, Map<String, String> parameters)
+  {
+    switch(directive) {
+      case OPENACC:
+        return new OpenAccConfiguration(parameters);
+      case OPENMP:
+        return new OpenMpConfiguration(parameters);
+      default:
+        return new AcceleratorConfiguration(parameters);
+    }
+  }
+
+  /**
+   * Load the tuned parameters of the kernels and set a specific accelerator
+   * configuration for each of them. The tuned parameters override the
+   * parameters of the current configuration.
+   *
+   * @param tuningConfig Path to the tuning configuration file.
+   * @throws Exception If the tuning configuration cannot be loaded.
+   */
+  public void loadTuning(String tuningConfig) throws Exception {
+    TuningConfig tuning = new TuningConfig();
+    tuning.load(tuningConfig);
+    Context.get().getDependencies().addInput(tuningConfig);
+    for(Map.Entry<String, Map<String, String>> kernel :
+        tuning.getKernels().entrySet())
+    {
+      Map<String, String> parameters = new HashMap<>(_parameters);
+      parameters.putAll(kernel.getValue());
+      parameters.put(OpenAccConfiguration.OPENACC_LAUNCH_CLAUSES,
+          Boolean.TRUE.toString());
+      Context.get().setKernelConfig(kernel.getKey(),
+          createAcceleratorConfiguration(getCurrentDirective(), parameters));
     }
   }
 
@@ -357,6 +407,8 @@ public class Configuration {
         DocumentBuilderFactory.newInstance();
     DocumentBuilder builder = factory.newDocumentBuilder();
     Document document = builder.parse(xmlFile);
+    Context.get().getDependencies().addInput(xmlFile.getPath());
+    Context.get().getDependencies().addInput(xsdSchema.getPath());
 
     try {
       validate(document, xsdSchema);
@@ -396,6 +448,15 @@ public class Configuration {
     return _parameters.getOrDefault(key, null);
   }
 
+  /**
+   * Get all the parameters of the configuration.
+   *
+   * @return Unmodifiable view of the parameters by key.
+   */
+  public Map<String, String> getParameters() {
+    return Collections.unmodifiableMap(_parameters);
+  }
+
   /**
    * Get boolean value of a parameter.
    *
@@ -408,6 +469,25 @@ public class Configuration {
         && _parameters.get(key).equalsIgnoreCase(Xname.TRUE);
   }
 
+  /**
+   * Get integer value of a parameter.
+   *
+   * @param key          Key of the parameter.
+   * @param defaultValue Value returned if the parameter doesn't exists or is
+   *                     not a valid integer.
+   * @return Value of the parameter.
+   */
+  public int getIntParameter(String key, int defaultValue) {
+    if(!_parameters.containsKey(key)) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(_parameters.get(key).trim());
+    } catch(NumberFormatException ignored) {
+      return defaultValue;
+    }
+  }
+
   /**
    * Get the GPU specific configuration information.
    *
@@ -501,6 +581,7 @@ public class Configuration {
     for(String path : _transSetPaths) {
       Path jar = Paths.get(path, jarFile);
       if(jar.toFile().exists()) {
+        Context.get().getDependencies().addInput(jar.toString());
         external = new URLClassLoader(new URL[]{
             new URL("file://" + jar.toString())},
             this.getClass().getClassLoader());
@@ -804,6 +885,10 @@ public class Configuration {
     if(value != null && !value.isEmpty()) {
       _parameters.remove(key.toLowerCase());
       _parameters.put(key, value);
+      // Accelerator parameters are read when the configuration is created
+      _accelerator =
+          createAcceleratorConfiguration(getCurrentDirective(), _parameters);
+      Context.get().setAcceleratorConfig(_accelerator);
     }
   }
 
@@ -5,6 +5,7 @@
 package claw.wani.x2t.configuration;
 
 import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.wani.ClawConstant;
 import net.consensys.cava.toml.Toml;
 import net.consensys.cava.toml.TomlArray;
 import net.consensys.cava.toml.TomlParseResult;
@@ -32,6 +33,13 @@ public class ModelConfig {
   private static final String KEY_DIMENSION_ITERATION = "iteration";
   private static final String KEY_LAYOUTS = "layouts";
   private static final String KEY_LAYOUT_POSITION = "position";
+  private static final String KEY_STRUCTS = "structs";
+  private static final String KEY_STRUCT_TYPE = "type";
+  private static final String KEY_STRUCT_MEMBERS = "members";
+  private static final String KEY_STRUCT_LAYOUT = "layout";
+  private static final String KEY_PRECISION = "precision";
+  private static final String KEY_PRECISION_KIND = "kind";
+  private static final String KEY_PRECISION_FIELDS = "fields";
 
   private static final String DEFAULT_LAYOUT_ID = "default";
   private static final String DEFAULT_LOWER_BOUND = "1";
@@ -54,14 +62,26 @@ public class ModelConfig {
       + "%s in not available in this configuration.";
   static final String ERR_NO_BASE_DIM =
       "Layout %s is missing the base dimension \":\"";
+  static final String ERR_STRUCT_NO_TYPE =
+      "Struct definition is missing type information";
+  static final String ERR_STRUCT_NO_MEMBERS =
+      "Struct %s is missing members information";
+  static final String ERR_LAYOUT_NOT_AVAIL = "Layout %s defined in struct "
+      + "%s in not available in this configuration.";
+  static final String ERR_PRECISION_NO_FIELDS =
+      "Precision is missing fields information";
 
   // Dotted key from the configuration file
   private static final String KEY_MODEL_NAME = "model.name";
 
   private final Map<String, DimensionDefinition> _dimensions;
   private final Map<String, List<DimensionDefinition>> _layouts;
+  private final Map<String, List<String>> _structMembers;
+  private final Map<String, String> _structLayouts;
+  private final List<String> _demotedFields;
 
   private String _modelName;
+  private String _demotionKind;
   private boolean _isLoaded;
 
   /**
@@ -70,6 +90,10 @@ public class ModelConfig {
   public ModelConfig() {
     _dimensions = new LinkedHashMap<>();
     _layouts = new HashMap<>();
+    _structMembers = new LinkedHashMap<>();
+    _structLayouts = new HashMap<>();
+    _demotedFields = new ArrayList<>();
+    _demotionKind = ClawConstant.DEFAULT_DEMOTION_KIND;
     _isLoaded = false;
   }
 
@@ -81,9 +105,22 @@ public class ModelConfig {
    *                   specification.
    */
   void load(String configPath) throws Exception {
+    reset();
+    load(new FileInputStream(configPath));
+  }
+
+  /**
+   * Drop the information of a previously loaded configuration.
+   */
+  void reset() {
     _dimensions.clear();
     _layouts.clear();
-    load(new FileInputStream(configPath));
+    _structMembers.clear();
+    _structLayouts.clear();
+    _demotedFields.clear();
+    _demotionKind = ClawConstant.DEFAULT_DEMOTION_KIND;
+    _modelName = null;
+    _isLoaded = false;
   }
 
   void load(InputStream is) throws Exception {
@@ -94,6 +131,8 @@ public class ModelConfig {
       _modelName = result.getString(KEY_MODEL_NAME);
       readDimensions(result);
       readLayouts(result);
+      readStructs(result);
+      readPrecision(result);
     }
     _isLoaded = true;
   }
@@ -214,6 +253,88 @@ public class ModelConfig {
     }
   }
 
+  /**
+   * Read the derived types whose members are stored as separate arrays. This
+   * section is optional.
+   *
+   * The structs can be defined as follows:
+   *
+   * [[structs]]
+   * type = "t_state"          # name of the derived type
+   * members = [ "t", "q" ]    # members stored as separate arrays
+   * layout = "id"             # if not specified, default layout
+   *
+   * @param result The current TOML parse result object.
+   * @throws Exception If the result is not conform to the specifications.
+   */
+  private void readStructs(TomlParseResult result) throws Exception {
+    TomlArray structs = result.getArray(KEY_STRUCTS);
+    if(structs == null) {
+      return;
+    }
+
+    for(int i = 0; i < structs.size(); ++i) {
+      TomlTable struct = structs.getTable(i);
+      String typeName = struct.getString(KEY_STRUCT_TYPE);
+      if(typeName == null) {
+        throw new Exception(ERR_STRUCT_NO_TYPE);
+      }
+
+      TomlArray members = struct.getArray(KEY_STRUCT_MEMBERS);
+      if(members == null || members.isEmpty()) {
+        throw new Exception(String.format(ERR_STRUCT_NO_MEMBERS, typeName));
+      }
+
+      String layoutId = struct.getString(KEY_STRUCT_LAYOUT);
+      if(layoutId != null && !_layouts.containsKey(layoutId)) {
+        throw new Exception(String.format(ERR_LAYOUT_NOT_AVAIL, layoutId,
+            typeName));
+      }
+
+      List<String> memberNames = new ArrayList<>();
+      for(int j = 0; j < members.size(); ++j) {
+        memberNames.add(members.getString(j).toLowerCase());
+      }
+      _structMembers.put(typeName.toLowerCase(), memberNames);
+      if(layoutId != null) {
+        _structLayouts.put(typeName.toLowerCase(), layoutId);
+      }
+    }
+  }
+
+  /**
+   * Read the fields demoted to a lower precision in the SCA kernels. This
+   * section is optional.
+   *
+   * The precision can be defined as follows:
+   *
+   * [precision]
+   * kind = 4                # if not specified, 4 by default
+   * fields = [ "t", "q" ]   # fields demoted in the SCA kernels
+   *
+   * @param result The current TOML parse result object.
+   * @throws Exception If the result is not conform to the specifications.
+   */
+  private void readPrecision(TomlParseResult result) throws Exception {
+    TomlTable precision = result.getTable(KEY_PRECISION);
+    if(precision == null) {
+      return;
+    }
+
+    TomlArray fields = precision.getArray(KEY_PRECISION_FIELDS);
+    if(fields == null || fields.isEmpty()) {
+      throw new Exception(ERR_PRECISION_NO_FIELDS);
+    }
+    for(int i = 0; i < fields.size(); ++i) {
+      _demotedFields.add(fields.getString(i).toLowerCase());
+    }
+
+    String kind = readStringOrInt(precision, KEY_PRECISION_KIND);
+    if(!kind.isEmpty()) {
+      _demotionKind = kind;
+    }
+  }
+
   /**
    * Read value if present or return null.
    *
@@ -407,4 +528,56 @@ public class ModelConfig {
     return _isLoaded;
   }
 
+  /**
+   * Get the derived types whose members are stored as separate arrays.
+   *
+   * @return Set of derived type names.
+   */
+  public Set<String> getStructTypes() {
+    return _structMembers.keySet();
+  }
+
+  /**
+   * Get the members of a derived type to be stored as separate arrays.
+   *
+   * @param typeName Derived type name.
+   * @return List of member names. Empty list if the type is not defined.
+   */
+  public List<String> getStructMembers(String typeName) {
+    if(typeName == null) {
+      return Collections.emptyList();
+    }
+    return _structMembers.getOrDefault(typeName.toLowerCase(),
+        Collections.emptyList());
+  }
+
+  /**
+   * Get the layout applied to the members of a derived type stored as
+   * separate arrays.
+   *
+   * @param typeName Derived type name.
+   * @return The layout identifier if defined. Null otherwise.
+   */
+  public String getStructLayout(String typeName) {
+    return typeName == null ? null
+        : _structLayouts.get(typeName.toLowerCase());
+  }
+
+  /**
+   * Get the fields demoted to a lower precision in the SCA kernels.
+   *
+   * @return List of field names. Empty list if no precision is defined.
+   */
+  public List<String> getDemotedFields() {
+    return Collections.unmodifiableList(_demotedFields);
+  }
+
+  /**
+   * Get the kind of the fields demoted in the SCA kernels.
+   *
+   * @return Kind value. Integer value or name of an integer constant.
+   */
+  public String getDemotionKind() {
+    return _demotionKind;
+  }
 }
@@ -0,0 +1,187 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.configuration;
+
+import net.consensys.cava.toml.Toml;
+import net.consensys.cava.toml.TomlArray;
+import net.consensys.cava.toml.TomlParseResult;
+import net.consensys.cava.toml.TomlTable;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Tuning configuration of the accelerator parameters. This class reads and
+ * holds the parameter grid explored by the autotuning and the tuned
+ * parameter values of each kernel. A kernel is a function/subroutine in which
+ * directives are generated.
+ *
+ * @author clementval
+ */
+public class TuningConfig {
+
+  private static final String KEY_GRID = "grid";
+  private static final String KEY_KERNELS = "kernels";
+  private static final String KEY_KERNEL_NAME = "name";
+
+  // Accelerator parameters that can be tuned per kernel
+  private static final Set<String> TUNABLE_PARAMETERS =
+      new HashSet<>(Arrays.asList("acc_vector_length", "acc_num_gangs",
+          "acc_num_workers", "acc_execution_mode", "omp_num_threads",
+          "omp_num_teams", "omp_scheduler_chunk_size", "omp_execution_mode"));
+
+  static final String ERR_MALFORMATTED =
+      "Tuning configuration file not formatted correctly.";
+  static final String ERR_NOT_TUNABLE =
+      "Parameter %s cannot be tuned per kernel.";
+  static final String ERR_GRID_NO_VALUES = "Grid parameter %s has no value.";
+  static final String ERR_KERNEL_NO_NAME =
+      "Kernel definition is missing name information";
+
+  private final Map<String, List<String>> _grid;
+  private final Map<String, Map<String, String>> _kernels;
+
+  /**
+   * Constructs an empty tuning configuration.
+   */
+  public TuningConfig() {
+    _grid = new LinkedHashMap<>();
+    _kernels = new LinkedHashMap<>();
+  }
+
+  /**
+   * Load a tuning configuration file and read its content.
+   *
+   * @param configPath Path to the tuning configuration file.
+   * @throws Exception If the configuration does not conform to the
+   *                   specification.
+   */
+  public void load(String configPath) throws Exception {
+    load(new FileInputStream(configPath));
+  }
+
+  void load(InputStream is) throws Exception {
+    _grid.clear();
+    _kernels.clear();
+    TomlParseResult result = Toml.parse(is);
+    if(result.hasErrors()) {
+      throw new Exception(ERR_MALFORMATTED);
+    }
+    readGrid(result);
+    readKernels(result);
+  }
+
+  /**
+   * Read the parameter grid explored by the autotuning. This section is
+   * optional.
+   *
+   * The grid can be defined as follows:
+   *
+   * [grid]
+   * omp_num_threads = [ 1, 2, 4 ]
+   * omp_scheduler_chunk_size = [ 0, 16 ]
+   *
+   * @param result The current TOML parse result object.
+   * @throws Exception If the result is not conform to the specifications.
+   */
+  private void readGrid(TomlParseResult result) throws Exception {
+    TomlTable grid = result.getTable(KEY_GRID);
+    if(grid == null) {
+      return;
+    }
+    for(String key : new TreeSet<>(grid.keySet())) {
+      checkTunable(key);
+      List<String> values = new ArrayList<>();
+      Object value = grid.get(key);
+      if(value instanceof TomlArray) {
+        for(Object element : ((TomlArray) value).toList()) {
+          values.add(String.valueOf(element));
+        }
+      } else if(value != null) {
+        values.add(String.valueOf(value));
+      }
+      if(values.isEmpty()) {
+        throw new Exception(String.format(ERR_GRID_NO_VALUES, key));
+      }
+      _grid.put(key, values);
+    }
+  }
+
+  /**
+   * Read the tuned parameter values of the kernels. This section is optional.
+   *
+   * The kernels can be defined as follows:
+   *
+   * [[kernels]]
+   * name = "compute_column"   # name of the function/subroutine
+   * omp_num_threads = 4       # tuned parameters
+   *
+   * @param result The current TOML parse result object.
+   * @throws Exception If the result is not conform to the specifications.
+   */
+  private void readKernels(TomlParseResult result) throws Exception {
+    TomlArray kernels = result.getArray(KEY_KERNELS);
+    if(kernels == null) {
+      return;
+    }
+    for(int i = 0; i < kernels.size(); ++i) {
+      TomlTable kernel = kernels.getTable(i);
+      String name = kernel.getString(KEY_KERNEL_NAME);
+      if(name == null) {
+        throw new Exception(ERR_KERNEL_NO_NAME);
+      }
+      Map<String, String> parameters = new HashMap<>();
+      for(String key : kernel.keySet()) {
+        if(!key.equals(KEY_KERNEL_NAME)) {
+          checkTunable(key);
+          parameters.put(key, String.valueOf(kernel.get(key)));
+        }
+      }
+      _kernels.put(name.toLowerCase(), parameters);
+    }
+  }
+
+  private static void checkTunable(String key) throws Exception {
+    if(!TUNABLE_PARAMETERS.contains(key)) {
+      throw new Exception(String.format(ERR_NOT_TUNABLE, key));
+    }
+  }
+
+  /**
+   * Get all the points of the parameter grid. Each point is a combination of
+   * one value per grid parameter. The last parameter varies the fastest.
+   *
+   * @return List of parameter maps. Empty if no grid is defined.
+   */
+  public List<Map<String, String>> getGridPoints() {
+    List<Map<String, String>> points = new ArrayList<>();
+    if(_grid.isEmpty()) {
+      return points;
+    }
+    points.add(new LinkedHashMap<>());
+    for(Map.Entry<String, List<String>> parameter : _grid.entrySet()) {
+      List<Map<String, String>> extended = new ArrayList<>();
+      for(Map<String, String> point : points) {
+        for(String value : parameter.getValue()) {
+          Map<String, String> newPoint = new LinkedHashMap<>(point);
+          newPoint.put(parameter.getKey(), value);
+          extended.add(newPoint);
+        }
+      }
+      points = extended;
+    }
+    return points;
+  }
+
+  /**
+   * Get the tuned parameters of all kernels.
+   *
+   * @return Map from the lower case kernel name to its tuned parameters.
+   */
+  public Map<String, Map<String, String>> getKernels() {
+    return _kernels;
+  }
+}
@@ -22,11 +22,15 @@ import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.wani.language.ClawPragma;
 import claw.wani.language.ClawClause;
 import claw.wani.transformation.internal.OpenAccContinuation;
+import claw.wani.transformation.ll.caching.Hcaching;
 import claw.wani.transformation.ll.caching.Kcaching;
 import claw.wani.transformation.ll.directive.DirectivePrimitive;
 import claw.wani.transformation.ll.loop.*;
 import claw.wani.transformation.ll.utility.ArrayToFctCall;
+import claw.wani.transformation.ll.utility.Demotion;
 import claw.wani.transformation.ll.utility.UtilityRemove;
+import claw.wani.report.KernelInfo;
+import claw.wani.report.TransformationInfo;
 import claw.wani.transformation.sca.*;
 import claw.wani.x2t.configuration.Configuration;
 import claw.wani.x2t.configuration.GroupConfiguration;
@@ -43,11 +47,17 @@ import java.util.*;
 
 public class ClawTranslator implements Translator {
 
+  private static final int DEFAULT_CPU_BLOCK_SIZE = 32;
+
   // Hold all transformation groups
   private final Map<Class, TransformationGroup> _tGroups;
   // Hold cross-transformation elements
   private final Map<Element, Object> _crossTransformationTable;
   private final Map<ClawDirectiveKey, Deque<ClawPragma>> _blockDirectives;
+  // Hold information to be included in the transformation report
+  private final List<TransformationInfo> _transformationInfos;
+  // Hold the kernels instrumented for runtime profiling
+  private final List<KernelInfo> _kernelInfos;
   private int _transformationCounter = 0;
 
   /**
@@ -77,6 +87,9 @@ public class ClawTranslator implements Translator {
     _crossTransformationTable = new HashMap<>();
 
     _blockDirectives = new Hashtable<>();
+
+    _transformationInfos = new ArrayList<>();
+    _kernelInfos = new ArrayList<>();
   }
 
   @Override
@@ -103,12 +116,24 @@ public class ClawTranslator implements Translator {
       case KCACHE:
         addTransformation(xcodeml, new Kcaching(analyzedPragma));
         break;
+      case HCACHE:
+        addTransformation(xcodeml, new Hcaching(analyzedPragma));
+        break;
+      case DEMOTE:
+        addTransformation(xcodeml, new Demotion(analyzedPragma));
+        break;
       case LOOP_FUSION:
         addTransformation(xcodeml, new LoopFusion(analyzedPragma));
         break;
       case LOOP_INTERCHANGE:
         addTransformation(xcodeml, new LoopInterchange(analyzedPragma));
         break;
+      case LOOP_TILE:
+        addTransformation(xcodeml, new LoopTiling(analyzedPragma));
+        break;
+      case LOOP_UNROLL:
+        addTransformation(xcodeml, new LoopUnroll(analyzedPragma));
+        break;
       case LOOP_EXTRACT:
         addTransformation(xcodeml, new LoopExtraction(analyzedPragma));
         break;
@@ -157,8 +182,13 @@ public class ClawTranslator implements Translator {
       if(Context.get().getTarget() == Target.GPU) {
         addTransformation(xcodeml, new ScaGPU(analyzedPragma));
       } else {
-        if(Configuration.get().getParameter(Configuration.CPU_STRATEGY).
-            equalsIgnoreCase(Configuration.CPU_STRATEGY_FUSION))
+        String strategy =
+            Configuration.get().getParameter(Configuration.CPU_STRATEGY);
+        if(strategy.equalsIgnoreCase(Configuration.CPU_STRATEGY_BLOCKED)) {
+          addTransformation(xcodeml, new ScaCPUvectorizeGroup(analyzedPragma,
+              true, Configuration.get().getIntParameter(
+              Configuration.CPU_BLOCK_SIZE, DEFAULT_CPU_BLOCK_SIZE)));
+        } else if(strategy.equalsIgnoreCase(Configuration.CPU_STRATEGY_FUSION))
         {
           addTransformation(xcodeml,
               new ScaCPUvectorizeGroup(analyzedPragma, true));
@@ -483,4 +513,46 @@ public class ClawTranslator implements Translator {
     _crossTransformationTable.remove(key.element());
     _crossTransformationTable.put(key.element(), value);
   }
+
+  /**
+   * Record information about an applied transformation to be included in the
+   * transformation report.
+   *
+   * @param transformation Name of the transformation recording the info.
+   * @param lineNo         Line number in the original code.
+   * @param message        Information message.
+   */
+  public void addTransformationInfo(String transformation, int lineNo,
+                                    String message)
+  {
+    _transformationInfos.add(
+        new TransformationInfo(transformation, lineNo, message));
+  }
+
+  /**
+   * Get all information recorded by the transformations.
+   *
+   * @return List of transformation information.
+   */
+  public List<TransformationInfo> getTransformationInfos() {
+    return _transformationInfos;
+  }
+
+  /**
+   * Record an instrumented kernel to be included in the kernel name table.
+   *
+   * @param info Information about the kernel.
+   */
+  public void addKernelInfo(KernelInfo info) {
+    _kernelInfos.add(info);
+  }
+
+  /**
+   * Get all kernels instrumented during the transformation.
+   *
+   * @return List of kernel information.
+   */
+  public List<KernelInfo> getKernelInfos() {
+    return _kernelInfos;
+  }
 }
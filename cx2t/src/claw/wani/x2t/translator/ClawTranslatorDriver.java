@@ -42,6 +42,7 @@ public class ClawTranslatorDriver {
   private boolean _canTransform = false;
   private ClawTranslator _translator;
   private XcodeProgram _translationUnit = null;
+  private TransformationCache _cache = null;
 
   /**
    * ClawTranslatorDriver ctor.
@@ -73,14 +74,35 @@ public class ClawTranslatorDriver {
     }
   }
 
+  /**
+   * Set the cache used to reuse the transformation results of unchanged
+   * functions.
+   *
+   * @param cache Transformation cache. Null to disable caching.
+   */
+  public void setTransformationCache(TransformationCache cache) {
+    _cache = cache;
+  }
+
   /**
    * Analysis the XcodeML/F directives and categorized them in corresponding
    * transformation with the help of the translator.
    */
   public void analyze() {
-    _translationUnit = (_xcodemlInputFile == null) ?
+    analyze((_xcodemlInputFile == null) ?
         XcodeProgram.createFromStdInput() :
-        XcodeProgram.createFromFile(_xcodemlInputFile);
+        XcodeProgram.createFromFile(_xcodemlInputFile));
+  }
+
+  /**
+   * Analysis the XcodeML/F directives of an already loaded translation unit.
+   * Used when the same front-end output is translated for several
+   * target/directive pairs.
+   *
+   * @param translationUnit Translation unit to be analyzed and transformed.
+   */
+  public void analyze(XcodeProgram translationUnit) {
+    _translationUnit = translationUnit;
 
     if(_translationUnit.hasErrors()) {
       abort();
@@ -93,6 +115,10 @@ public class ClawTranslatorDriver {
           "is not advised for CPU target.", 0);
     }
 
+    if(_cache != null) {
+      _cache.prepare(_translationUnit);
+    }
+
     try {
       // Check all pragma found in the translation unit
       for(Xnode pragma : _translationUnit.matchAll(Xcode.F_PRAGMA_STATEMENT)) {
@@ -142,6 +168,15 @@ public class ClawTranslatorDriver {
       }
     }
 
+    if(_cache != null) {
+      try {
+        _cache.apply(_translationUnit, _translator);
+      } catch(IllegalTransformationException e) {
+        _translationUnit.addError(e.getMessage(), e.getStartLine());
+        abort();
+      }
+    }
+
     // Analysis done, the transformation can be performed.
     _canTransform = true;
   }
@@ -207,6 +242,10 @@ public class ClawTranslatorDriver {
         }
       }
 
+      if(_cache != null) {
+        _cache.store(_translationUnit, _translator);
+      }
+
       if(_xcodemlOutputFile != null) {
         // Write transformed IR to file
         _translationUnit.write(_xcodemlOutputFile, ClawConstant.INDENT_OUTPUT);
@@ -0,0 +1,1133 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.translator;
+
+import claw.ClawVersion;
+import claw.shenron.transformation.Transformation;
+import claw.shenron.transformation.TransformationGroup;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Message;
+import claw.tatsu.primitive.Xmod;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.module.ModuleCache;
+import claw.tatsu.xcodeml.module.SignatureUpdate;
+import claw.tatsu.xcodeml.xnode.XnodeUtil;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.wani.report.TransformationInfo;
+import claw.wani.transformation.sca.ScaForward;
+import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.configuration.GroupConfiguration;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Cache of the transformation results of the function definitions across
+ * translations. The entry of a function is keyed by a digest of its subtree,
+ * of the type table entries it references transitively, of the specification
+ * part of its module, of the functions of the translation unit it calls and
+ * of the configuration. The directives are part of the subtree. Type hashes
+ * are renamed in order of first appearance and positions are ignored so the
+ * key is stable across front-end runs and line shifts.
+ *
+ * On a hit, the transformed subtree and its types are grafted in place of the
+ * function, the signature updates of the module files are replayed and the
+ * transformations of the function are removed from the pipeline.
+ *
+ * The cache is conservative. A translation unit is not cached when a
+ * transformation is not triggered by a directive located in a function or
+ * when a transformation modifies something else than the functions and their
+ * own types.
+ *
+ * @author clementval
+ */
+public class TransformationCache {
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final String ENTRY_EXTENSION = ".xml";
+  private static final String XMOD_EXTENSION = ".xmod";
+  private static final String ROOT_ELEMENT = "transformationCache";
+  private static final String INPUTS_ELEMENT = "inputs";
+  private static final String INPUT_ELEMENT = "input";
+  private static final String FUNCTION_ELEMENT = "function";
+  private static final String TYPES_ELEMENT = "types";
+  private static final String SIGNATURES_ELEMENT = "signatures";
+  private static final String SIGNATURE_ELEMENT = "signature";
+  private static final String INFOS_ELEMENT = "infos";
+  private static final String INFO_ELEMENT = "info";
+  private static final String VERSION_ATTR = "version";
+  private static final String LINE_ATTR = "line";
+  private static final String FILE_ATTR = "file";
+  private static final String PATH_ATTR = "path";
+  private static final String DIGEST_ATTR = "digest";
+  private static final String MODULE_ATTR = "module";
+  private static final String IMPORT_ATTR = "import";
+  private static final String TRANSFORMATION_ATTR = "transformation";
+  private static final String MESSAGE_ATTR = "message";
+
+  private static final List<Xattr> TYPE_ATTRIBUTES =
+      Arrays.asList(Xattr.TYPE, Xattr.REF, Xattr.RETURN_TYPE, Xattr.EXTENDS);
+  private static final List<String> POSITION_ATTRIBUTES =
+      Arrays.asList(Xattr.LINENO.toString(), Xattr.FILE.toString());
+  private static final List<String> CACHEABLE_PACKAGES = Arrays.asList(
+      "claw.wani.transformation.ll.",
+      "claw.wani.transformation.sca.",
+      "claw.wani.transformation.internal.");
+
+  private final Path _directory;
+  private final Map<Node, Unit> _units;
+  private final Map<Node, Unit> _pragmas;
+  private final Map<String, byte[]> _typeDigests;
+  private final Set<String> _sharedTypes;
+  private final Map<String, String> _fileDigests;
+  private byte[] _outsideDigest;
+  private boolean _enabled;
+
+  /**
+   * Function definition considered by the cache in the current translation.
+   */
+  private static class Unit {
+    private FfunctionDefinition _fctDef;
+    private final String _fctType;
+    private final Map<String, String> _ids;
+    private final String _key;
+    private final int _firstLine;
+    private final int _lastLine;
+    private final String _file;
+    private final List<Transformation> _transformations = new ArrayList<>();
+    private boolean _cacheable = true;
+    private boolean _hit = false;
+
+    Unit(FfunctionDefinition fctDef, Map<String, String> ids, String key) {
+      _fctDef = fctDef;
+      _fctType = fctDef.name().getType();
+      _ids = ids;
+      _key = key;
+      _firstLine = fctDef.lineNo();
+      _lastLine = getLastLine(fctDef.element(), _firstLine);
+      _file = fctDef.filename();
+    }
+  }
+
+  /**
+   * Constructs a new transformation cache.
+   *
+   * @param directory Directory where the cache entries are stored.
+   */
+  public TransformationCache(String directory) {
+    _directory = Paths.get(directory);
+    _units = new LinkedHashMap<>();
+    _pragmas = new HashMap<>();
+    _typeDigests = new HashMap<>();
+    _sharedTypes = new HashSet<>();
+    _fileDigests = new HashMap<>();
+  }
+
+  /**
+   * Compute the keys of the function definitions before the analysis of the
+   * translation unit.
+   *
+   * @param xcodeml Current translation unit.
+   */
+  public void prepare(XcodeProgram xcodeml) {
+    _units.clear();
+    _pragmas.clear();
+    _typeDigests.clear();
+    _sharedTypes.clear();
+    _enabled = true;
+
+    Map<String, Node> types = getTypes(xcodeml);
+    for(Map.Entry<String, Node> type : types.entrySet()) {
+      _typeDigests.put(type.getKey(), digestNode(type.getValue()));
+    }
+
+    Map<String, FfunctionDefinition> fctDefs = new HashMap<>();
+    for(FfunctionDefinition fctDef : xcodeml.getAllFctDef()) {
+      fctDefs.putIfAbsent(fctDef.getName().toLowerCase(), fctDef);
+    }
+
+    byte[] configuration = digestConfiguration();
+    Map<String, Integer> usage = new HashMap<>();
+    for(FfunctionDefinition fctDef : xcodeml.getAllFctDef()) {
+      // Functions with internal procedures are not cached
+      if(fctDef.findParentFunction() != null
+          || !fctDef.matchAll(Xcode.F_FUNCTION_DEFINITION).isEmpty())
+      {
+        continue;
+      }
+      Map<String, String> ids = new LinkedHashMap<>();
+      Set<String> owned = new HashSet<>();
+      MessageDigest md = createDigest();
+      md.update(configuration);
+      md.update(digestFunction(fctDef, types, fctDefs, ids, owned));
+      Unit unit = new Unit(fctDef, ids, toHex(md.digest()));
+      _units.put(fctDef.element(), unit);
+      for(Xnode pragma : fctDef.matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+        _pragmas.put(pragma.element(), unit);
+      }
+      // Types of the module and of the callees are only part of the key
+      for(String hash : owned) {
+        usage.merge(hash, 1, Integer::sum);
+      }
+    }
+
+    CanonicalWriter outside = new CanonicalWriter(types, createDigest());
+    updateOutside(xcodeml, outside);
+    _outsideDigest = outside.digest();
+    _sharedTypes.addAll(outside.getIds().keySet());
+    for(Map.Entry<String, Integer> use : usage.entrySet()) {
+      if(use.getValue() > 1) {
+        _sharedTypes.add(use.getKey());
+      }
+    }
+    /* The function type and the parameter types of a function belong to it
+     * even if they are referenced by the module symbols or by its callers.
+     * Transformations such as SCA update them. */
+    for(Unit unit : _units.values()) {
+      _sharedTypes.removeAll(getSignatureTypes(xcodeml, unit._fctType));
+    }
+  }
+
+  /**
+   * Get the function type and the types of its parameters.
+   *
+   * @param xcodeml Current translation unit.
+   * @param fctType Function type hash.
+   * @return Set of type hashes.
+   */
+  private static Set<String> getSignatureTypes(XcodeProgram xcodeml,
+                                               String fctType)
+  {
+    Set<String> hashes = new HashSet<>();
+    hashes.add(fctType);
+    FfunctionType type = xcodeml.getTypeTable().getFunctionType(fctType);
+    if(type != null) {
+      for(Xnode param : type.getParameters()) {
+        hashes.add(param.getType());
+      }
+    }
+    return hashes;
+  }
+
+  /**
+   * Graft the cached results after the analysis of the translation unit. The
+   * transformations of the functions found in the cache are removed from the
+   * pipeline.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Translator holding the transformations.
+   * @throws IllegalTransformationException If a signature update cannot be
+   *                                        replayed.
+   */
+  public void apply(XcodeProgram xcodeml, ClawTranslator translator)
+      throws IllegalTransformationException
+  {
+    String instrumentation = Configuration.get()
+        .getParameter(Configuration.INSTRUMENTATION_MODE);
+    if(!_enabled || (instrumentation != null && !instrumentation
+        .equalsIgnoreCase(Configuration.INSTRUMENTATION_MODE_NONE)))
+    {
+      _enabled = false;
+      Message.debug("Transformation cache disabled: instrumentation");
+      return;
+    }
+
+    // Attribute each transformation to the function holding its directive
+    for(TransformationGroup group : translator.getGroups().values()) {
+      for(Transformation t : group.getTransformations()) {
+        Xnode pragma = t.getDirective() == null ? null
+            : t.getDirective().getPragma();
+        Unit unit = pragma == null ? null : _pragmas.get(pragma.element());
+        if(unit == null) {
+          _enabled = false;
+          Message.debug("Transformation cache disabled: transformation " +
+              t.getClass().getSimpleName() + " outside of a function");
+          return;
+        }
+        unit._transformations.add(t);
+        if(!isCacheable(t)) {
+          unit._cacheable = false;
+        }
+      }
+    }
+
+    /* Callees might be modified by the transformations of their caller. Only
+     * the forward transformation is known to read them without changes. */
+    Map<String, Unit> byName = new HashMap<>();
+    for(Unit unit : _units.values()) {
+      byName.put(unit._fctDef.getName().toLowerCase(), unit);
+    }
+    for(Unit unit : _units.values()) {
+      boolean onlyForward = true;
+      for(Transformation t : unit._transformations) {
+        onlyForward &= t instanceof ScaForward;
+      }
+      if(onlyForward) {
+        continue;
+      }
+      for(String callee : getCallees(unit._fctDef)) {
+        Unit calleeUnit = byName.get(callee);
+        if(calleeUnit != null && calleeUnit != unit) {
+          calleeUnit._cacheable = false;
+        }
+      }
+    }
+
+    Set<Transformation> cached = new HashSet<>();
+    for(Unit unit : _units.values()) {
+      if(!unit._cacheable || unit._transformations.isEmpty()) {
+        continue;
+      }
+      Document entry = readEntry(unit._key);
+      if(entry != null && hasValidInputs(entry)
+          && graft(xcodeml, translator, unit, entry))
+      {
+        unit._hit = true;
+        cached.addAll(unit._transformations);
+        Message.debug("Transformation cache hit: " + unit._fctDef.getName());
+      }
+    }
+
+    if(!cached.isEmpty()) {
+      for(TransformationGroup group : translator.getGroups().values()) {
+        List<Transformation> remaining = new ArrayList<>();
+        for(Transformation t : group.getTransformations()) {
+          if(!cached.contains(t)) {
+            remaining.add(t);
+          }
+        }
+        group.setTransformations(remaining);
+      }
+    }
+  }
+
+  /**
+   * Store the results of the transformed functions that were not found in
+   * the cache. Nothing is stored if a transformation modified the translation
+   * unit outside of the functions.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Translator holding the transformation information.
+   */
+  public void store(XcodeProgram xcodeml, ClawTranslator translator) {
+    if(!_enabled) {
+      Message.debug("Transformation cache: nothing stored while disabled");
+      return;
+    }
+    Map<String, Node> types = getTypes(xcodeml);
+    CanonicalWriter outside = new CanonicalWriter(types, createDigest());
+    updateOutside(xcodeml, outside);
+    if(!Arrays.equals(_outsideDigest, outside.digest())) {
+      Message.debug("Transformation cache: translation unit not cached");
+      return;
+    }
+    for(String hash : _sharedTypes) {
+      Node type = types.get(hash);
+      if(type == null
+          || !Arrays.equals(_typeDigests.get(hash), digestNode(type)))
+      {
+        Message.debug("Transformation cache: shared type " + hash +
+            " modified, translation unit not cached");
+        return;
+      }
+    }
+
+    // Signature updates must be attributed to a function
+    Map<Unit, List<SignatureUpdate>> signatures = new HashMap<>();
+    ModuleCache moduleCache = Context.get().getModuleCache();
+    for(SignatureUpdate update : moduleCache.getSignatureUpdates()) {
+      Unit unit = _units.get(update.getFctDef().element());
+      if(unit == null || !unit._fctType.equals(update.getFctType().getType()))
+      {
+        Message.debug("Transformation cache: signature update of " +
+            update.getFctDef().getName() + " not attributed to a function");
+        return;
+      }
+      signatures.computeIfAbsent(unit, u -> new ArrayList<>()).add(update);
+    }
+
+    try {
+      List<String[]> inputs = getInputDigests(xcodeml);
+      for(Unit unit : _units.values()) {
+        if(unit._cacheable && !unit._hit && !unit._transformations.isEmpty()) {
+          Document entry = createEntry(unit, types, inputs,
+              signatures.getOrDefault(unit, Collections.emptyList()),
+              translator.getTransformationInfos());
+          if(entry == null) {
+            Message.debug("Transformation cache: " + unit._fctDef.getName() +
+                " uses types it does not own, not cached");
+          } else {
+            writeEntry(unit._key, entry);
+          }
+        }
+      }
+    } catch(Exception e) {
+      Message.debug("Transformation cache not written: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Check whether a transformation only modifies the function holding its
+   * directive.
+   *
+   * @param t Transformation to check.
+   * @return True if the transformation results can be cached.
+   */
+  private static boolean isCacheable(Transformation t) {
+    String className = t.getClass().getName();
+    for(String pkg : CACHEABLE_PACKAGES) {
+      if(className.startsWith(pkg)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Graft a cache entry in place of the function.
+   *
+   * @param xcodeml    Current translation unit.
+   * @param translator Translator receiving the transformation information.
+   * @param unit       Function to be replaced.
+   * @param entry      Cache entry.
+   * @return True if the entry has been grafted. False if it does not fit the
+   * current translation unit. The translation unit is not modified in this
+   * case.
+   * @throws IllegalTransformationException If a signature update cannot be
+   *                                        replayed.
+   */
+  private boolean graft(XcodeProgram xcodeml, ClawTranslator translator,
+                        Unit unit, Document entry)
+      throws IllegalTransformationException
+  {
+    Element root = entry.getDocumentElement();
+    int shift;
+    try {
+      shift = unit._firstLine - Integer.parseInt(root.getAttribute(LINE_ATTR));
+    } catch(NumberFormatException e) {
+      return false;
+    }
+    Element function = getChild(root, FUNCTION_ELEMENT);
+    Element cachedTypes = getChild(root, TYPES_ELEMENT);
+    Element cachedFct = function == null ? null : getChild(function,
+        Xcode.F_FUNCTION_DEFINITION.toString());
+    if(cachedFct == null || cachedTypes == null) {
+      return false;
+    }
+
+    // Map the canonical ids back to the hashes of the current type table
+    Map<String, String> hashes = new HashMap<>();
+    for(Map.Entry<String, String> id : unit._ids.entrySet()) {
+      hashes.put(id.getValue(), id.getKey());
+    }
+    for(Element type : getChildren(cachedTypes)) {
+      String id = type.getAttribute(Xattr.TYPE.toString());
+      if(!hashes.containsKey(id)) {
+        FortranType fortranType = getFortranType(id);
+        if(fortranType == null) {
+          return false;
+        }
+        String hash;
+        do {
+          hash = xcodeml.getTypeTable().generateHash(fortranType);
+        } while(hashes.containsValue(hash));
+        hashes.put(id, hash);
+      }
+    }
+
+    List<Xnode> types = new ArrayList<>();
+    Map<String, Node> currentTypes = getTypes(xcodeml);
+    for(Element type : getChildren(cachedTypes)) {
+      Xnode imported = xcodeml.importNode(new Xnode(type));
+      rename(imported.element(), hashes);
+      Node current = currentTypes.get(imported.getType());
+      if(current != null && _sharedTypes.contains(imported.getType())
+          && !Arrays.equals(digestNode(current),
+          digestNode(imported.element())))
+      {
+        return false;
+      }
+      types.add(imported);
+    }
+
+    Xnode fct = xcodeml.importNode(new Xnode(cachedFct));
+    rename(fct.element(), hashes);
+    relocate(fct.element(), shift, root.getAttribute(FILE_ATTR), unit._file);
+
+    // Entry fits the translation unit. Apply it.
+    for(Xnode type : types) {
+      xcodeml.getTypeTable().set(type);
+    }
+    Element fctDef = unit._fctDef.element();
+    while(fctDef.getFirstChild() != null) {
+      fctDef.removeChild(fctDef.getFirstChild());
+    }
+    while(fct.element().getFirstChild() != null) {
+      fctDef.appendChild(fct.element().getFirstChild());
+    }
+    unit._fctDef = new FfunctionDefinition(new Xnode(fctDef));
+
+    Element signatures = getChild(root, SIGNATURES_ELEMENT);
+    if(signatures != null) {
+      FfunctionType fctType =
+          xcodeml.getTypeTable().getFunctionType(unit._fctType);
+      for(Element signature : getChildren(signatures)) {
+        Xmod.updateSignature(signature.getAttribute(MODULE_ATTR), xcodeml,
+            unit._fctDef, fctType,
+            Boolean.parseBoolean(signature.getAttribute(IMPORT_ATTR)));
+      }
+    }
+
+    Element infos = getChild(root, INFOS_ELEMENT);
+    if(infos != null) {
+      for(Element info : getChildren(infos)) {
+        translator.addTransformationInfo(
+            info.getAttribute(TRANSFORMATION_ATTR),
+            Integer.parseInt(info.getAttribute(LINE_ATTR)) + shift,
+            info.getAttribute(MESSAGE_ATTR));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Create the cache entry of a transformed function.
+   *
+   * @param unit       Transformed function.
+   * @param types      Current type table entries by hash.
+   * @param inputs     Files read by the translation with their digest.
+   * @param signatures Signature updates of the function.
+   * @param infos      Transformation information of the translation.
+   * @return Cache entry. Null if the function uses types it does not own.
+   * @throws Exception If the document cannot be created.
+   */
+  private Document createEntry(Unit unit, Map<String, Node> types,
+                               List<String[]> inputs,
+                               List<SignatureUpdate> signatures,
+                               List<TransformationInfo> infos)
+      throws Exception
+  {
+    CanonicalWriter writer =
+        new CanonicalWriter(types, null, new LinkedHashMap<>(unit._ids));
+    writer.update(unit._fctDef.element());
+    writer.updateClosure();
+    for(String hash : writer.getIds().keySet()) {
+      // Types of the translation unit used by the transformation
+      if(!unit._ids.containsKey(hash) && _typeDigests.containsKey(hash)) {
+        return null;
+      }
+    }
+
+    Document entry = XnodeUtil.createDocumentBuilder().newDocument();
+    Element root = entry.createElement(ROOT_ELEMENT);
+    root.setAttribute(VERSION_ATTR, ClawVersion.VERSION);
+    root.setAttribute(LINE_ATTR, Integer.toString(unit._firstLine));
+    root.setAttribute(FILE_ATTR, unit._file);
+    entry.appendChild(root);
+
+    Element inputsElement = appendChild(root, INPUTS_ELEMENT);
+    for(String[] input : inputs) {
+      Element inputElement = appendChild(inputsElement, INPUT_ELEMENT);
+      inputElement.setAttribute(PATH_ATTR, input[0]);
+      inputElement.setAttribute(DIGEST_ATTR, input[1]);
+    }
+
+    Map<String, String> ids = writer.getIds();
+    Element function = appendChild(root, FUNCTION_ELEMENT);
+    Node fct = entry.importNode(unit._fctDef.element(), true);
+    rename(fct, ids);
+    function.appendChild(fct);
+
+    Element typesElement = appendChild(root, TYPES_ELEMENT);
+    for(String hash : ids.keySet()) {
+      Node type = types.get(hash);
+      if(type != null) {
+        Node copy = entry.importNode(type, true);
+        rename(copy, ids);
+        typesElement.appendChild(copy);
+      }
+    }
+
+    Element signaturesElement = appendChild(root, SIGNATURES_ELEMENT);
+    for(SignatureUpdate update : signatures) {
+      Element signature = appendChild(signaturesElement, SIGNATURE_ELEMENT);
+      signature.setAttribute(MODULE_ATTR, update.getModuleName());
+      signature.setAttribute(IMPORT_ATTR,
+          Boolean.toString(update.isImportFctType()));
+    }
+
+    Element infosElement = appendChild(root, INFOS_ELEMENT);
+    for(TransformationInfo info : infos) {
+      if(info.getLineNo() >= unit._firstLine
+          && info.getLineNo() <= unit._lastLine)
+      {
+        Element infoElement = appendChild(infosElement, INFO_ELEMENT);
+        infoElement.setAttribute(TRANSFORMATION_ATTR,
+            info.getTransformation());
+        infoElement.setAttribute(LINE_ATTR,
+            Integer.toString(info.getLineNo()));
+        infoElement.setAttribute(MESSAGE_ATTR, info.getMessage());
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * Get the files read by the translation with their current digest. The
+   * module files of the modules defined in the translation unit are
+   * excluded as they are covered by the key.
+   *
+   * @param xcodeml Current translation unit.
+   * @return List of path and digest pairs.
+   * @throws IOException If a file cannot be read.
+   */
+  private List<String[]> getInputDigests(XcodeProgram xcodeml)
+      throws IOException
+  {
+    Set<String> localModules = new HashSet<>();
+    for(Xnode module : xcodeml.matchAll(Xcode.F_MODULE_DEFINITION)) {
+      localModules.add(module.getAttribute(Xattr.NAME).toLowerCase() + ".");
+    }
+    List<String[]> inputs = new ArrayList<>();
+    for(String input : Context.get().getDependencies().getInputs()) {
+      Path path = Paths.get(input);
+      String name = path.getFileName().toString().toLowerCase();
+      if(name.endsWith(XMOD_EXTENSION) && localModules.stream()
+          .anyMatch(name::startsWith))
+      {
+        continue;
+      }
+      if(Files.isRegularFile(path)) {
+        inputs.add(new String[]{input, digestFile(input)});
+      }
+    }
+    return inputs;
+  }
+
+  /**
+   * Check that the files read when the entry was created did not change.
+   *
+   * @param entry Cache entry.
+   * @return True if all the files have the same digest.
+   */
+  private boolean hasValidInputs(Document entry) {
+    if(!ClawVersion.VERSION.equals(
+        entry.getDocumentElement().getAttribute(VERSION_ATTR)))
+    {
+      return false;
+    }
+    Element inputs = getChild(entry.getDocumentElement(), INPUTS_ELEMENT);
+    if(inputs == null) {
+      return false;
+    }
+    for(Element input : getChildren(inputs)) {
+      try {
+        if(!input.getAttribute(DIGEST_ATTR)
+            .equals(digestFile(input.getAttribute(PATH_ATTR))))
+        {
+          return false;
+        }
+      } catch(IOException e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String digestFile(String file) throws IOException {
+    String digest = _fileDigests.get(file);
+    if(digest == null) {
+      MessageDigest md = createDigest();
+      byte[] buffer = new byte[8192];
+      try(InputStream in = Files.newInputStream(Paths.get(file))) {
+        int read;
+        while((read = in.read(buffer)) > 0) {
+          md.update(buffer, 0, read);
+        }
+      }
+      digest = toHex(md.digest());
+      _fileDigests.put(file, digest);
+    }
+    return digest;
+  }
+
+  private Document readEntry(String key) {
+    Path file = _directory.resolve(key + ENTRY_EXTENSION);
+    if(!Files.isRegularFile(file)) {
+      return null;
+    }
+    try {
+      return XnodeUtil.createDocumentBuilder().parse(file.toFile());
+    } catch(Exception e) {
+      Message.debug("Transformation cache entry ignored: " + e.getMessage());
+      return null;
+    }
+  }
+
+  private void writeEntry(String key, Document entry) throws Exception {
+    TransformerFactory factory = TransformerFactory.newInstance();
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+    factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    Transformer transformer = factory.newTransformer();
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    transformer.transform(new DOMSource(entry), new StreamResult(content));
+    Files.createDirectories(_directory);
+    ModuleCache.writeIfChanged(_directory.resolve(key + ENTRY_EXTENSION),
+        content.toByteArray());
+  }
+
+  /**
+   * Compute the digest of the relevant part of the configuration.
+   *
+   * @return Digest of the configuration.
+   */
+  private static byte[] digestConfiguration() {
+    MessageDigest md = createDigest();
+    updateString(md, ClawVersion.VERSION);
+    updateString(md, String.valueOf(Configuration.get().getCurrentTarget()));
+    updateString(md,
+        String.valueOf(Configuration.get().getCurrentDirective()));
+    updateString(md, Boolean.toString(Configuration.get().isForcePure()));
+    updateString(md, Integer.toString(Context.get().getMaxColumns()));
+    for(Map.Entry<String, String> parameter :
+        new TreeMap<>(Configuration.get().getParameters()).entrySet())
+    {
+      updateString(md, parameter.getKey());
+      updateString(md, String.valueOf(parameter.getValue()));
+    }
+    for(GroupConfiguration group : Configuration.get().getGroups()) {
+      updateString(md, group.getName());
+      updateString(md, group.getTransformationClassName());
+    }
+    return md.digest();
+  }
+
+  /**
+   * Compute the digest of a function with the specification part of its
+   * module, the functions of the translation unit it calls and all the types
+   * they reference.
+   *
+   * @param fctDef  Function definition.
+   * @param types   Type table entries by hash.
+   * @param fctDefs Function definitions of the translation unit by name.
+   * @param ids     Map receiving the canonical id of each type hash.
+   * @param owned   Set receiving the types referenced by the function itself.
+   *                Can be null.
+   * @return Digest of the function.
+   */
+  static byte[] digestFunction(FfunctionDefinition fctDef,
+                               Map<String, Node> types,
+                               Map<String, FfunctionDefinition> fctDefs,
+                               Map<String, String> ids, Set<String> owned)
+  {
+    CanonicalWriter writer = new CanonicalWriter(types, createDigest(), ids);
+    writer.update(fctDef.element());
+    writer.updateClosure();
+    if(owned != null) {
+      owned.addAll(ids.keySet());
+    }
+
+    Xnode module = fctDef.findParentModule();
+    if(module != null) {
+      writer.updateString(module.getAttribute(Xattr.NAME));
+      for(Xnode child : module.children()) {
+        if(!child.is(Xcode.F_CONTAINS_STATEMENT)) {
+          writer.update(child.element());
+        }
+      }
+    }
+
+    Set<String> visited = new HashSet<>();
+    visited.add(fctDef.getName().toLowerCase());
+    Deque<FfunctionDefinition> pending = new ArrayDeque<>();
+    pending.add(fctDef);
+    while(!pending.isEmpty()) {
+      for(String callee : getCallees(pending.poll())) {
+        FfunctionDefinition calleeDef = fctDefs.get(callee);
+        if(calleeDef != null && visited.add(callee)) {
+          writer.updateString(callee);
+          writer.update(calleeDef.element());
+          pending.add(calleeDef);
+        }
+      }
+    }
+    writer.updateClosure();
+    return writer.digest();
+  }
+
+  /**
+   * Feed the translation unit without the cached functions into the writer.
+   *
+   * @param xcodeml Current translation unit.
+   * @param writer  Writer receiving the outside part.
+   */
+  private void updateOutside(XcodeProgram xcodeml, CanonicalWriter writer) {
+    for(Unit unit : _units.values()) {
+      writer.skip(unit._fctDef.element(), unit._fctType);
+    }
+    if(xcodeml.getGlobalSymbolsTable() != null
+        && xcodeml.getGlobalSymbolsTable().element() != null)
+    {
+      writer.update(xcodeml.getGlobalSymbolsTable().element());
+    }
+    if(xcodeml.getGlobalDeclarationsTable() != null
+        && xcodeml.getGlobalDeclarationsTable().element() != null)
+    {
+      writer.update(xcodeml.getGlobalDeclarationsTable().element());
+    }
+    writer.updateClosure();
+  }
+
+  /**
+   * Get the names of the functions called in a function.
+   *
+   * @param fctDef Function definition.
+   * @return Lower case names in order of first appearance.
+   */
+  private static Set<String> getCallees(FfunctionDefinition fctDef) {
+    Set<String> callees = new LinkedHashSet<>();
+    for(Xnode call : fctDef.matchAll(Xcode.FUNCTION_CALL)) {
+      Xnode name = call.matchDirectDescendant(Xcode.NAME);
+      if(name != null) {
+        callees.add(name.value().toLowerCase());
+      }
+    }
+    return callees;
+  }
+
+  /**
+   * Map the type hashes to their type table entry.
+   *
+   * @param xcodeml Current translation unit.
+   * @return Map of type hash to type table node.
+   */
+  static Map<String, Node> getTypes(XcodeProgram xcodeml) {
+    Map<String, Node> types = new LinkedHashMap<>();
+    if(xcodeml.getTypeTable() == null
+        || xcodeml.getTypeTable().element() == null)
+    {
+      return types;
+    }
+    for(Xnode type : xcodeml.getTypeTable().children()) {
+      types.put(type.getType(), type.element());
+    }
+    return types;
+  }
+
+  /**
+   * Get the Fortran type matching the prefix of a canonical id.
+   *
+   * @param id Canonical id.
+   * @return Fortran type. Null if the prefix is unknown.
+   */
+  private static FortranType getFortranType(String id) {
+    for(FortranType type : FortranType.values()) {
+      if(!id.isEmpty() && type != FortranType.NONE && type.isOfType(id)) {
+        return type;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Replace the type hashes of a subtree according to the mapping.
+   *
+   * @param node    Root of the subtree.
+   * @param mapping Replacement of the type hashes.
+   */
+  private static void rename(Node node, Map<String, String> mapping) {
+    if(node.getNodeType() != Node.ELEMENT_NODE) {
+      return;
+    }
+    Element element = (Element) node;
+    for(Xattr attribute : TYPE_ATTRIBUTES) {
+      String value = mapping.get(element.getAttribute(attribute.toString()));
+      if(value != null && element.hasAttribute(attribute.toString())) {
+        element.setAttribute(attribute.toString(), value);
+      }
+    }
+    for(Node child = node.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      rename(child, mapping);
+    }
+  }
+
+  /**
+   * Shift the line numbers of a subtree and replace its file name.
+   *
+   * @param node    Root of the subtree.
+   * @param shift   Number of lines to be added.
+   * @param oldFile File name of the cached code.
+   * @param newFile File name of the current code.
+   */
+  private static void relocate(Node node, int shift, String oldFile,
+                               String newFile)
+  {
+    if(node.getNodeType() != Node.ELEMENT_NODE) {
+      return;
+    }
+    Element element = (Element) node;
+    String lineNo = element.getAttribute(Xattr.LINENO.toString());
+    if(!lineNo.isEmpty()) {
+      element.setAttribute(Xattr.LINENO.toString(),
+          Integer.toString(Integer.parseInt(lineNo) + shift));
+    }
+    if(element.hasAttribute(Xattr.FILE.toString())
+        && element.getAttribute(Xattr.FILE.toString()).equals(oldFile))
+    {
+      element.setAttribute(Xattr.FILE.toString(), newFile);
+    }
+    for(Node child = node.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      relocate(child, shift, oldFile, newFile);
+    }
+  }
+
+  private static int getLastLine(Node node, int lastLine) {
+    if(node.getNodeType() != Node.ELEMENT_NODE) {
+      return lastLine;
+    }
+    String lineNo = ((Element) node).getAttribute(Xattr.LINENO.toString());
+    if(!lineNo.isEmpty()) {
+      lastLine = Math.max(lastLine, Integer.parseInt(lineNo));
+    }
+    for(Node child = node.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      lastLine = getLastLine(child, lastLine);
+    }
+    return lastLine;
+  }
+
+  private static Element getChild(Element parent, String name) {
+    for(Element child : getChildren(parent)) {
+      if(child.getNodeName().equals(name)) {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  private static List<Element> getChildren(Element parent) {
+    List<Element> children = new ArrayList<>();
+    for(Node child = parent.getFirstChild(); child != null;
+        child = child.getNextSibling())
+    {
+      if(child.getNodeType() == Node.ELEMENT_NODE) {
+        children.add((Element) child);
+      }
+    }
+    return children;
+  }
+
+  private static Element appendChild(Element parent, String name) {
+    Element child = parent.getOwnerDocument().createElement(name);
+    parent.appendChild(child);
+    return child;
+  }
+
+  private static byte[] digestNode(Node node) {
+    CanonicalWriter writer = new CanonicalWriter(Collections.emptyMap(),
+        createDigest(), new HashMap<>());
+    writer.update(node);
+    return writer.digest();
+  }
+
+  private static void updateString(MessageDigest md, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    md.update((byte) (bytes.length >>> 24));
+    md.update((byte) (bytes.length >>> 16));
+    md.update((byte) (bytes.length >>> 8));
+    md.update((byte) bytes.length);
+    md.update(bytes);
+  }
+
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch(NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] digest) {
+    StringBuilder sb = new StringBuilder();
+    for(byte b : digest) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Canonical serialization of XcodeML subtrees. Type hashes are replaced by
+   * an id made of the type prefix and the order of first appearance. The
+   * positions are ignored. The type table entries referenced by the
+   * serialized subtrees are collected to be serialized as well.
+   */
+  static class CanonicalWriter {
+
+    private final Map<String, Node> _types;
+    private final MessageDigest _md;
+    private final Map<String, String> _ids;
+    private final Map<Node, String> _skipped;
+    private final Set<String> _opaque;
+    private int _closure = 0;
+
+    CanonicalWriter(Map<String, Node> types, MessageDigest md) {
+      this(types, md, new LinkedHashMap<>());
+    }
+
+    /**
+     * Constructs a new writer.
+     *
+     * @param types Type table entries by hash.
+     * @param md    Digest to update. Can be null if only the ids are needed.
+     * @param ids   Map of type hash to canonical id to be completed.
+     */
+    CanonicalWriter(Map<String, Node> types, MessageDigest md,
+                    Map<String, String> ids)
+    {
+      _types = types;
+      _md = md;
+      _ids = ids;
+      _skipped = new HashMap<>();
+      _opaque = new HashSet<>();
+    }
+
+    /**
+     * Serialize only the name of an element and not its content.
+     *
+     * @param element Element to be skipped.
+     * @param type    Type hash of the element. Its entry is not serialized.
+     */
+    void skip(Node element, String type) {
+      _skipped.put(element, type);
+      _opaque.add(type);
+    }
+
+    Map<String, String> getIds() {
+      return _ids;
+    }
+
+    byte[] digest() {
+      return _md.digest();
+    }
+
+    void updateString(String value) {
+      if(_md != null) {
+        TransformationCache.updateString(_md, value);
+      }
+    }
+
+    /**
+     * Serialize all the type table entries referenced so far, including the
+     * ones they reference.
+     */
+    void updateClosure() {
+      while(_closure < _ids.size()) {
+        String hash = new ArrayList<>(_ids.keySet()).get(_closure++);
+        Node type = _types.get(hash);
+        if(type != null && !_opaque.contains(hash)) {
+          update(type);
+        }
+      }
+    }
+
+    /**
+     * Serialize a subtree.
+     *
+     * @param node Root of the subtree.
+     */
+    void update(Node node) {
+      switch(node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+          updateString("<" + node.getNodeName());
+          if(_skipped.containsKey(node)) {
+            updateString(id(_skipped.get(node)));
+            break;
+          }
+          updateAttributes((Element) node);
+          for(Node child = node.getFirstChild(); child != null;
+              child = child.getNextSibling())
+          {
+            update(child);
+          }
+          updateString(">");
+          break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+        case Node.COMMENT_NODE:
+          updateString(node.getNodeType() + node.getNodeValue());
+          break;
+        default:
+          break;
+      }
+    }
+
+    private void updateAttributes(Element element) {
+      NamedNodeMap attributes = element.getAttributes();
+      SortedMap<String, String> sorted = new TreeMap<>();
+      for(int i = 0; i < attributes.getLength(); ++i) {
+        Node attribute = attributes.item(i);
+        sorted.put(attribute.getNodeName(), attribute.getNodeValue());
+      }
+      for(Xattr typeAttribute : TYPE_ATTRIBUTES) {
+        String value = sorted.get(typeAttribute.toString());
+        if(value != null) {
+          sorted.put(typeAttribute.toString(), id(value));
+        }
+      }
+      for(Map.Entry<String, String> attribute : sorted.entrySet()) {
+        if(!POSITION_ATTRIBUTES.contains(attribute.getKey())) {
+          updateString("@" + attribute.getKey());
+          updateString(attribute.getValue());
+        }
+      }
+    }
+
+    /**
+     * Get the canonical id of a type hash. Values that are not in the type
+     * table are kept as is.
+     *
+     * @param hash Type hash.
+     * @return Canonical id.
+     */
+    private String id(String hash) {
+      if(!_ids.containsKey(hash)) {
+        if(!_types.containsKey(hash) || hash.isEmpty()) {
+          return hash;
+        }
+        _ids.put(hash, hash.charAt(0) + "_" + _ids.size());
+      }
+      return _ids.get(hash);
+    }
+  }
+}
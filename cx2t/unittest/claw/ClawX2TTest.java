@@ -0,0 +1,71 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw;
+
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the multi-target helpers of the translator driver.
+ *
+ * @author clementval
+ */
+public class ClawX2TTest {
+
+  @Test
+  public void parseVariantsTest() {
+    List<String[]> variants = ClawX2T.parseVariants("gpu:openacc");
+    assertEquals(1, variants.size());
+    assertArrayEquals(new String[]{"gpu", "openacc"}, variants.get(0));
+
+    variants = ClawX2T.parseVariants("gpu:openacc, cpu:openmp ,cpu:none");
+    assertEquals(3, variants.size());
+    assertArrayEquals(new String[]{"gpu", "openacc"}, variants.get(0));
+    assertArrayEquals(new String[]{"cpu", "openmp"}, variants.get(1));
+    assertArrayEquals(new String[]{"cpu", "none"}, variants.get(2));
+  }
+
+  @Test
+  public void parseMalformedVariantsTest() {
+    String[] malformed = {
+        "gpu", "gpu:", ":openacc", ":", "gpu:openacc:cpu",
+        "gpu:openacc,", "gpu:openacc,cpu", "gpu:openacc,,cpu:openmp", ""
+    };
+    for(String value : malformed) {
+      try {
+        ClawX2T.parseVariants(value);
+        fail("Malformed pairs accepted: " + value);
+      } catch(IllegalArgumentException ex) {
+        assertTrue(ex.getMessage().startsWith(
+            "Malformed target:directive pair: "));
+      }
+    }
+  }
+
+  @Test
+  public void getVariantFilenameTest() {
+    TransformationHelper.loadConfiguration("gpu", "openacc");
+    assertNull(ClawX2T.getVariantFilename(null));
+    assertEquals("out.openacc.gpu.f90",
+        ClawX2T.getVariantFilename("out.f90"));
+    assertEquals("out.v1.openacc.gpu.f90",
+        ClawX2T.getVariantFilename("out.v1.f90"));
+    assertEquals("out.openacc.gpu", ClawX2T.getVariantFilename("out"));
+
+    String dir = "build.dir" + File.separator;
+    assertEquals(dir + "out.openacc.gpu",
+        ClawX2T.getVariantFilename(dir + "out"));
+    assertEquals(dir + "out.openacc.gpu.xml",
+        ClawX2T.getVariantFilename(dir + "out.xml"));
+
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    assertEquals("out.openmp.cpu.f90", ClawX2T.getVariantFilename("out.f90"));
+  }
+}
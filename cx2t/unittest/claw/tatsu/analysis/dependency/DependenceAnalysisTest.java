@@ -7,16 +7,19 @@ package claw.tatsu.analysis.dependency;
 import claw.tatsu.common.CompilerDirective;
 import claw.tatsu.common.Context;
 import claw.tatsu.common.Target;
+import claw.tatsu.directive.common.ReductionOperator;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
-
 import helper.TestConstant;
+import helper.XmlHelper;
 import org.junit.Test;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -163,4 +166,49 @@ public class DependenceAnalysisTest {
       fail();
     }
   }
+
+  /**
+   * Test the detection of scalar reductions in a block of statements.
+   */
+  @Test
+  public void reductionAnalysisTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+
+    Xnode body = xcodeml.createNode(Xcode.BODY);
+    // s = s + a; t = t + a; t = b; u = u * a; u = a * u; v = v + a; w = v
+    body.append(createAccumulation(xcodeml, "s", Xcode.PLUS_EXPR));
+    body.append(createAccumulation(xcodeml, "t", Xcode.PLUS_EXPR));
+    body.append(XmlHelper.createAssign(xcodeml, "t",
+        XmlHelper.createVar(xcodeml, "b")));
+    body.append(createAccumulation(xcodeml, "u", Xcode.MUL_EXPR));
+    body.append(createAccumulation(xcodeml, "u", Xcode.MUL_EXPR));
+    body.append(createAccumulation(xcodeml, "v", Xcode.PLUS_EXPR));
+    body.append(XmlHelper.createAssign(xcodeml, "w",
+        XmlHelper.createVar(xcodeml, "v")));
+
+    ReductionAnalysis analysis = new ReductionAnalysis(xcodeml,
+        body.firstChild(), body.lastChild());
+    assertTrue(analysis.hasReduction());
+    Map<ReductionOperator, List<String>> reductions =
+        analysis.getReductions();
+    assertEquals(2, reductions.size());
+    assertEquals(Collections.singletonList("s"),
+        reductions.get(ReductionOperator.SUM));
+    assertEquals(Collections.singletonList("u"),
+        reductions.get(ReductionOperator.PRODUCT));
+
+    analysis.exclude(Collections.singletonList("u"));
+    assertEquals(1, analysis.getReductions().size());
+    analysis.exclude(Collections.singletonList("s"));
+    assertFalse(analysis.hasReduction());
+  }
+
+  private Xnode createAccumulation(XcodeProgram xcodeml, String name,
+                                   Xcode operator)
+  {
+    return XmlHelper.createAssign(xcodeml, name,
+        XmlHelper.createExpr(xcodeml, operator,
+            XmlHelper.createVar(xcodeml, name),
+            XmlHelper.createVar(xcodeml, "a")));
+  }
 }
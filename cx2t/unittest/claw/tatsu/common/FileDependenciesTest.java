@@ -0,0 +1,58 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the features of the FileDependencies class
+ *
+ * @author clementval
+ */
+public class FileDependenciesTest {
+
+  @Test
+  public void depfileTest() {
+    FileDependencies dependencies = new FileDependencies();
+    dependencies.addInput("/mods/./b.xmod");
+    dependencies.addInput("/mods/a.claw.xmod");
+    dependencies.addInput("/mods/b.xmod");
+    dependencies.addInput(null);
+    assertEquals(2, dependencies.getInputs().size());
+    assertEquals("out/x.f90 out/x.xml: \\\n" +
+            "  /mods/a.claw.xmod \\\n" +
+            "  /mods/b.xmod\n" +
+            "\n/mods/a.claw.xmod:\n" +
+            "\n/mods/b.xmod:\n",
+        dependencies.formatDepfile(Arrays.asList("out/x.f90", "out/x.xml")));
+
+    dependencies.clear();
+    assertTrue(dependencies.getInputs().isEmpty());
+    assertEquals("x.f90:\n",
+        dependencies.formatDepfile(Collections.singletonList("x.f90")));
+  }
+
+  @Test
+  public void escapeTest() {
+    assertEquals("my\\ dir/a\\#1$$x.xmod",
+        FileDependencies.escape("my dir/a#1$x.xmod"));
+  }
+
+  @Test
+  public void outputsTest() {
+    FileDependencies dependencies = new FileDependencies();
+    dependencies.addOutput("b/mod.claw.xmod");
+    dependencies.addOutput("a/mod.claw.xmod");
+    dependencies.addOutput("a/../a/mod.claw.xmod");
+    assertEquals(Arrays.asList("a/mod.claw.xmod", "b/mod.claw.xmod"),
+        Arrays.asList(dependencies.getOutputs().toArray()));
+  }
+}
@@ -34,5 +34,7 @@ public class EnumTest {
         AcceleratorDataStrategy.fromString("kernel"));
     assertEquals(AcceleratorDataStrategy.KERNEL,
         AcceleratorDataStrategy.fromString("KERNEL"));
+    assertEquals(AcceleratorDataStrategy.MANAGED,
+        AcceleratorDataStrategy.fromString("managed"));
   }
 }
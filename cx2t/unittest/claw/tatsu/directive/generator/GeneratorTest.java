@@ -5,9 +5,14 @@
 package claw.tatsu.directive.generator;
 
 import claw.tatsu.common.CompilerDirective;
+import claw.tatsu.common.Context;
+import claw.tatsu.common.Target;
+import claw.tatsu.directive.common.ReductionOperator;
+import claw.tatsu.directive.configuration.OpenAccConfiguration;
+import claw.tatsu.directive.configuration.OpenMpConfiguration;
 import org.junit.Test;
 
-import java.util.Collections;
+import java.util.*;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.*;
@@ -35,6 +40,8 @@ public class GeneratorTest {
     assertEquals(0,
         gen.getStartDataRegion(Collections.emptyList()).length);
     assertEquals(0, gen.getEndDataRegion().length);
+    assertEquals(0, gen.getStartSimdDirective(true, "").length);
+    assertEquals(0, gen.getEndSimdDirective(false).length);
 
     assertTrue(gen.getParallelKeyword().isEmpty());
     assertTrue(gen.getPrivateClause("").isEmpty());
@@ -47,4 +54,115 @@ public class GeneratorTest {
     assertSame(CompilerDirective.NONE, gen.getDirectiveLanguage());
   }
 
+  @Test
+  public void openMpSimdTest() {
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("omp_simd", "true");
+    parameters.put("omp_simdlen", "8");
+    parameters.put("omp_simd_alignment", "64");
+    OpenMpConfiguration config = new OpenMpConfiguration(parameters);
+    assertFalse(config.isSimdAligned());
+    parameters.put("omp_simd_aligned", "true");
+    config = new OpenMpConfiguration(parameters);
+    assertTrue(config.hasSimd());
+    assertEquals(8, config.getSimdlen());
+    assertEquals(0, config.getSafelen());
+    assertEquals(64, config.getSimdAlignment());
+    assertTrue(config.isSimdAligned());
+    assertTrue(config.isSimdContiguous());
+
+    Context.get().init(CompilerDirective.OPENMP, Target.CPU, config, 80);
+    DirectiveGenerator gen = Context.get().getGenerator();
+
+    String clauses = gen.getSimdClauses(Collections.singletonList("s"),
+        Arrays.asList("a", "b"));
+    assertEquals("simdlen(8) aligned(a,b:64) private(s)", clauses);
+
+    String[] start = gen.getStartSimdDirective(false, clauses);
+    assertEquals(1, start.length);
+    assertEquals("omp simd simdlen(8) aligned(a,b:64) private(s)", start[0]);
+    assertEquals("omp do simd", gen.getStartSimdDirective(true, "")[0]);
+    assertEquals("omp end simd", gen.getEndSimdDirective(false)[0]);
+    assertEquals("omp end do simd", gen.getEndSimdDirective(true)[0]);
+
+    assertEquals("simdlen(8)",
+        gen.getSimdClauses(null, Collections.emptyList()));
+
+    // Aligned clause is opt-in
+    parameters.put("omp_simd_aligned", "false");
+    Context.get().init(CompilerDirective.OPENMP, Target.CPU,
+        new OpenMpConfiguration(parameters), 80);
+    assertEquals("simdlen(8) private(s)", Context.get().getGenerator()
+        .getSimdClauses(Collections.singletonList("s"),
+            Arrays.asList("a", "b")));
+  }
+
+  @Test
+  public void kernelConfigTest() {
+    Map<String, String> parameters = new HashMap<>();
+    OpenMpConfiguration global = new OpenMpConfiguration(parameters);
+    parameters.put("omp_num_threads", "4");
+    parameters.put("omp_scheduler_chunk_size", "16");
+    OpenMpConfiguration tuned = new OpenMpConfiguration(parameters);
+
+    Context.get().init(CompilerDirective.OPENMP, Target.CPU, global, 80);
+    Context.get().setKernelConfig("Compute", tuned);
+    DirectiveGenerator gen = Context.get().getGenerator();
+
+    Context.get().selectKernel("compute");
+    assertSame(tuned, Context.get().getAcceleratorConfig());
+    assertEquals("omp parallel num_threads(4)",
+        gen.getStartParallelDirective(null)[0]);
+    assertEquals("omp do schedule(static, 16)",
+        gen.getStartLoopDirective(0, false, false, "")[0]);
+
+    Context.get().selectKernel("other");
+    assertSame(global, Context.get().getAcceleratorConfig());
+    assertEquals("omp parallel", gen.getStartParallelDirective(null)[0]);
+    assertEquals("omp do", gen.getStartLoopDirective(0, false, false, "")[0]);
+
+    parameters.clear();
+    parameters.put("acc_num_gangs", "8");
+    parameters.put("acc_vector_length", "128");
+    Context.get().init(CompilerDirective.OPENACC, Target.GPU,
+        new OpenAccConfiguration(parameters), 80);
+    gen = Context.get().getGenerator();
+    assertEquals("acc parallel", gen.getStartParallelDirective(null)[0]);
+    parameters.put("acc_launch_clauses", "true");
+    Context.get().setKernelConfig("compute",
+        new OpenAccConfiguration(parameters));
+    Context.get().selectKernel("COMPUTE");
+    assertEquals("acc parallel num_gangs(8) vector_length(128) private(a)",
+        gen.getStartParallelDirective("private(a)")[0]);
+    Context.get().selectKernel(null);
+    assertEquals("acc parallel", gen.getStartParallelDirective(null)[0]);
+  }
+
+  @Test
+  public void reductionClauseTest() {
+    Map<ReductionOperator, List<String>> reductions =
+        new EnumMap<>(ReductionOperator.class);
+    reductions.put(ReductionOperator.SUM, Arrays.asList("a", "b"));
+    reductions.put(ReductionOperator.MAX, Collections.singletonList("c"));
+
+    assertEquals("reduction(+:a,b) reduction(max:c)",
+        new OpenAcc().getReductionClause(reductions));
+    assertEquals("reduction(+:a,b) reduction(max:c)",
+        new OpenMp().getReductionClause(reductions));
+    assertTrue(new DirectiveNone().getReductionClause(reductions).isEmpty());
+    assertTrue(new OpenAcc().getReductionClause(
+        Collections.emptyMap()).isEmpty());
+  }
+
+  @Test
+  public void cacheDirectiveTest() {
+    List<String> subArrays = Arrays.asList("a(i-1:i+1,j-1:j+1)", "b(i,k)");
+    String[] directive = new OpenAcc().getCacheDirective(subArrays);
+    assertEquals(1, directive.length);
+    assertEquals("acc cache(a(i-1:i+1,j-1:j+1),b(i,k))", directive[0]);
+    assertEquals(0, new OpenMp().getCacheDirective(subArrays).length);
+    assertEquals(0, new DirectiveNone().getCacheDirective(subArrays).length);
+    assertEquals(0,
+        new OpenAcc().getCacheDirective(Collections.emptyList()).length);
+  }
 }
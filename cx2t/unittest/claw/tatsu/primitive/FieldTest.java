@@ -4,6 +4,7 @@
  */
 package claw.tatsu.primitive;
 
+import claw.tatsu.xcodeml.xnode.Xname;
 import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.abstraction.PromotionInfo;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
@@ -160,6 +161,39 @@ public class FieldTest {
     assertEquals("", p3.getFormattedDimensions());
   }
 
+  @Test
+  public void demotePrecisionTest() throws IllegalTransformationException {
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_PROMOTION);
+    assertNotNull(xcodeml);
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+
+    // Scalar of the default kind
+    assertFalse(Field.demotePrecision("s1", "4", fctDef, xcodeml));
+    String type = fctDef.getSymbolTable().get("s1").getType();
+    assertTrue(FortranType.REAL.isOfType(type));
+    assertNotEquals(Xname.TYPE_F_REAL, type);
+    assertEquals("4", Type.getRealKind(type, xcodeml));
+    assertEquals(type, fctDef.getDeclarationTable().get("s1").
+        matchSeq(Xcode.NAME).getType());
+
+    // Array keeps its dimensions and the original type is unchanged
+    String original = fctDef.getSymbolTable().get("a").getType();
+    Field.demotePrecision("a", "sp", fctDef, xcodeml);
+    FbasicType demoted = xcodeml.getTypeTable().
+        getBasicType(fctDef.getSymbolTable().get("a"));
+    assertNotEquals(original, demoted.getType());
+    assertEquals(2, demoted.getDimensions());
+    assertEquals("sp", Type.getRealKind(demoted.getType(), xcodeml));
+    assertEquals("", Type.getRealKind(original, xcodeml));
+
+    try {
+      Field.demotePrecision("unknown", "4", fctDef, xcodeml);
+      fail();
+    } catch(IllegalTransformationException ignored) {
+    }
+  }
+
   @Test
   public void promoteTest() {
     DimensionDefinition dim1 = new DimensionDefinition("dim1", "1", "30");
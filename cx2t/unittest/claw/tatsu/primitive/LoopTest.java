@@ -5,9 +5,11 @@
 package claw.tatsu.primitive;
 
 import claw.tatsu.xcodeml.abstraction.DimensionDefinition;
+import claw.tatsu.xcodeml.abstraction.NestedDoStatement;
 import claw.tatsu.xcodeml.exception.IllegalTransformationException;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeML;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.tatsu.xcodeml.xnode.common.Xscope;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
@@ -15,6 +17,8 @@ import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import helper.XmlHelper;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static junit.framework.TestCase.fail;
@@ -93,4 +97,74 @@ public class LoopTest {
     int doStmtCnt3 = f1.matchAll(Xcode.F_DO_STATEMENT).size();
     assertEquals(doStmtCnt1 + 1, doStmtCnt3);
   }
+
+  @Test
+  public void hoistInvariantTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+    assertNotNull(xcodeml);
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+
+    NestedDoStatement nest = new NestedDoStatement(Collections.singletonList(
+        new DimensionDefinition("i", "1", "10")), xcodeml);
+    fctDef.body().append(nest.getOuterStatement());
+    Xnode body = nest.getInnerStatement().body();
+
+    // s = p + q
+    body.append(XmlHelper.createAssign(xcodeml, "s",
+        XmlHelper.createExpr(xcodeml, Xcode.PLUS_EXPR,
+            XmlHelper.createVar(xcodeml, "p"),
+            XmlHelper.createVar(xcodeml, "q"))));
+    // y = z * (s * q)
+    Xnode sq = XmlHelper.createExpr(xcodeml, Xcode.MUL_EXPR,
+        XmlHelper.createVar(xcodeml, "s"), XmlHelper.createVar(xcodeml, "q"));
+    body.append(XmlHelper.createAssign(xcodeml, "y",
+        XmlHelper.createExpr(xcodeml, Xcode.MUL_EXPR,
+            XmlHelper.createVar(xcodeml, "z"), sq)));
+    // t = t + p
+    body.append(XmlHelper.createAssign(xcodeml, "t",
+        XmlHelper.createExpr(xcodeml, Xcode.PLUS_EXPR,
+            XmlHelper.createVar(xcodeml, "t"),
+            XmlHelper.createVar(xcodeml, "p"))));
+
+    List<String> hoisted = Loop.hoistInvariant(xcodeml, fctDef, nest,
+        Arrays.asList("y", "z"));
+    assertEquals(Arrays.asList("s", "claw_inv_0"), hoisted);
+    assertTrue(fctDef.getSymbolTable().contains("claw_inv_0"));
+
+    // s and the temporary are computed before the loop
+    Xnode tmpAssign = nest.getOuterStatement().prevSibling();
+    assertNotNull(tmpAssign);
+    assertEquals("claw_inv_0", tmpAssign.firstChild().value());
+    assertTrue(tmpAssign.lastChild().is(Xcode.MUL_EXPR));
+    assertEquals("s", tmpAssign.prevSibling().firstChild().value());
+
+    // y and t remain in the loop
+    assertEquals(2, body.children().size());
+    Xnode rhs = body.firstChild().lastChild();
+    assertEquals("claw_inv_0", rhs.lastChild().value());
+    assertEquals("t", body.lastChild().firstChild().value());
+  }
+
+  @Test
+  public void hasUnitStepTest() {
+    XcodeML xcodeml = XmlHelper.getDummyXcodeProgram();
+    assertNotNull(xcodeml);
+
+    DimensionDefinition d1 = new DimensionDefinition("i", "1", "10");
+    Xnode inductionI = xcodeml.createVar(FortranType.INTEGER,
+        "i", Xscope.LOCAL);
+
+    Xnode withStep = xcodeml.createDoStmt(inductionI,
+        d1.generateIndexRange(xcodeml, true, false));
+    Xnode withoutStep = xcodeml.createDoStmt(inductionI.cloneNode(),
+        d1.generateIndexRange(xcodeml, false, false));
+    assertTrue(Loop.hasUnitStep(withStep));
+    assertTrue(Loop.hasUnitStep(withoutStep));
+
+    withStep.matchSeq(Xcode.INDEX_RANGE, Xcode.STEP, Xcode.F_INT_CONSTANT)
+        .setValue("2");
+    assertFalse(Loop.hasUnitStep(withStep));
+    assertFalse(Loop.hasUnitStep(inductionI));
+    assertFalse(Loop.hasUnitStep(null));
+  }
 }
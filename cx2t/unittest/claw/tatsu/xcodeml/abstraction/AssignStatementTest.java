@@ -4,11 +4,15 @@
  */
 package claw.tatsu.xcodeml.abstraction;
 
+import claw.tatsu.directive.common.ReductionOperator;
 import claw.tatsu.xcodeml.xnode.common.Xcode;
 import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
 import claw.tatsu.xcodeml.xnode.common.Xnode;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Xintrinsic;
 import helper.TestConstant;
+import helper.XmlHelper;
 import org.junit.Test;
 
 import java.util.List;
@@ -63,4 +67,56 @@ public class AssignStatementTest {
     List<AssignStatement> assignStatements = fctDef.gatherAssignStatements();
     assertEquals(4, assignStatements.size());
   }
+
+  @Test
+  public void reductionOperatorTest() {
+    XcodeProgram xcodeml = XmlHelper.getDummyXcodeProgram();
+
+    // s = s + a
+    Xnode plus = xcodeml.createNode(Xcode.PLUS_EXPR);
+    plus.append(XmlHelper.createVar(xcodeml, "s"));
+    plus.append(XmlHelper.createVar(xcodeml, "a"));
+    assertEquals(ReductionOperator.SUM,
+        getReduction(xcodeml, "s", plus));
+
+    // s = (a + s) + b
+    Xnode inner = xcodeml.createNode(Xcode.PLUS_EXPR);
+    inner.append(XmlHelper.createVar(xcodeml, "a"));
+    inner.append(XmlHelper.createVar(xcodeml, "s"));
+    Xnode outer = xcodeml.createNode(Xcode.PLUS_EXPR);
+    outer.append(inner);
+    outer.append(XmlHelper.createVar(xcodeml, "b"));
+    assertEquals(ReductionOperator.SUM,
+        getReduction(xcodeml, "s", outer));
+
+    // s = a - s is not a reduction
+    Xnode minus = xcodeml.createNode(Xcode.MINUS_EXPR);
+    minus.append(XmlHelper.createVar(xcodeml, "a"));
+    minus.append(XmlHelper.createVar(xcodeml, "s"));
+    assertNull(getReduction(xcodeml, "s", minus));
+
+    // s = s * s is not a reduction
+    Xnode mul = xcodeml.createNode(Xcode.MUL_EXPR);
+    mul.append(XmlHelper.createVar(xcodeml, "s"));
+    mul.append(XmlHelper.createVar(xcodeml, "s"));
+    assertNull(getReduction(xcodeml, "s", mul));
+
+    // s = MAX(s, a)
+    FunctionCall max =
+        xcodeml.createIntrinsicFctCall(FortranType.REAL, Xintrinsic.MAX);
+    max.addArguments(XmlHelper.createVar(xcodeml, "s"));
+    max.addArguments(XmlHelper.createVar(xcodeml, "a"));
+    assertEquals(ReductionOperator.MAX,
+        getReduction(xcodeml, "s", max));
+
+    // s = a is not a reduction
+    assertNull(getReduction(xcodeml, "s", XmlHelper.createVar(xcodeml, "a")));
+  }
+
+  private ReductionOperator getReduction(XcodeProgram xcodeml, String lhs,
+                                         Xnode rhs)
+  {
+    return new AssignStatement(XmlHelper.createAssign(xcodeml, lhs, rhs)
+        .element()).getReductionOperator();
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.backend;
+
+import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import helper.TestConstant;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the OmniBackendDriver class
+ *
+ * @author clementval
+ */
+public class OmniBackendDriverTest {
+
+  private static Document parse(String xml) throws Exception {
+    return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new InputSource(new StringReader(xml)));
+  }
+
+  private static List<String> getTypes(Document unit) {
+    List<String> types = new ArrayList<>();
+    Node typeTable =
+        unit.getElementsByTagName(Xname.TYPE_TABLE).item(0);
+    for(Node type = typeTable.getFirstChild(); type != null;
+        type = type.getNextSibling())
+    {
+      types.add(((Element) type).getAttribute(Xname.ATTR_TYPE));
+    }
+    return types;
+  }
+
+  @Test
+  public void splitUnitsTest() throws Exception {
+    Document doc = parse("<XcodeProgram source=\"mo.f90\">" +
+        "<typeTable>" +
+        "<FbasicType type=\"R0\" ref=\"Freal\"/>" +
+        "<FbasicType type=\"U0\" ref=\"Fint\"/>" +
+        "<FbasicType type=\"R1\" ref=\"R0\"/>" +
+        "<FfunctionType type=\"F0\" return_type=\"Fvoid\"/>" +
+        "</typeTable>" +
+        "<globalSymbols><id type=\"F0\"><name>f</name></id></globalSymbols>" +
+        "<globalDeclarations>" +
+        "<FmoduleDefinition name=\"m\" lineno=\"1\">" +
+        "<symbols><id type=\"R1\"><name>x</name></id></symbols>" +
+        "</FmoduleDefinition>" +
+        "<FfunctionDefinition lineno=\"10\"><name type=\"F0\">f</name>" +
+        "</FfunctionDefinition>" +
+        "</globalDeclarations>" +
+        "</XcodeProgram>");
+    List<Document> units = OmniBackendDriver.splitUnits(doc);
+    assertEquals(2, units.size());
+    String[] names = {Xname.F_MODULE_DEFINITION, Xname.F_FUNCTION_DEFINITION};
+    for(int i = 0; i < units.size(); ++i) {
+      Element root = units.get(i).getDocumentElement();
+      assertEquals("mo.f90", root.getAttribute("source"));
+      assertEquals(1, root.getElementsByTagName("globalSymbols").getLength());
+      Element declarations = (Element) root
+          .getElementsByTagName(Xname.GLOBAL_DECLARATIONS).item(0);
+      assertEquals(1, declarations.getChildNodes().getLength());
+      assertEquals(names[i], declarations.getFirstChild().getNodeName());
+    }
+
+    // Only the reachable types are copied, in their original order
+    assertEquals(Arrays.asList("R0", "R1", "F0"), getTypes(units.get(0)));
+    assertEquals(Collections.singletonList("F0"), getTypes(units.get(1)));
+
+    // Original document is not modified
+    assertEquals(2, doc.getElementsByTagName(Xname.GLOBAL_DECLARATIONS)
+        .item(0).getChildNodes().getLength());
+    assertEquals(4, getTypes(doc).size());
+  }
+
+  @Test
+  public void parallelOutputTest() throws Exception {
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_HCACHE);
+    assertNotNull(xcodeml);
+    assertEquals(3,
+        OmniBackendDriver.splitUnits(xcodeml.getDocument()).size());
+    Path dir = Files.createTempDirectory("claw-decompile");
+    try {
+      OmniBackendDriver backend =
+          new OmniBackendDriver(OmniBackendDriver.Lang.FORTRAN);
+      Path sequential = dir.resolve("sequential.f90");
+      assertTrue(backend.decompile(sequential.toString(), xcodeml, 80,
+          false));
+      byte[] expected = Files.readAllBytes(sequential);
+
+      // Repeated to expose races between the decompiler threads
+      backend.setThreads(3);
+      Path parallel = dir.resolve("parallel.f90");
+      for(int i = 0; i < 10; ++i) {
+        assertTrue(backend.decompile(parallel.toString(), xcodeml, 80,
+            false));
+        assertArrayEquals(expected, Files.readAllBytes(parallel));
+      }
+    } finally {
+      for(File file : Objects.requireNonNull(dir.toFile().listFiles())) {
+        Files.delete(file.toPath());
+      }
+      Files.delete(dir);
+    }
+  }
+
+  @Test
+  public void splitUnsupportedTest() throws Exception {
+    Document doc = parse("<XcodeProgram><typeTable/><globalSymbols/>" +
+        "<globalDeclarations>" +
+        "<FfunctionDefinition/><FblockDataDefinition/>" +
+        "</globalDeclarations></XcodeProgram>");
+    assertTrue(OmniBackendDriver.splitUnits(doc).isEmpty());
+  }
+}
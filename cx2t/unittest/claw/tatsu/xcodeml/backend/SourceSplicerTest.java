@@ -0,0 +1,140 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.backend;
+
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the SourceSplicer and ModifiedUnitTracker classes
+ *
+ * @author clementval
+ */
+public class SourceSplicerTest {
+
+  private static final String XCODEML = "<XcodeProgram source=\"mo.f90\">" +
+      "<typeTable>" +
+      "<FbasicType type=\"R0\" ref=\"Freal\"/>" +
+      "<FbasicType type=\"R1\" ref=\"Freal\"/>" +
+      "</typeTable>" +
+      "<globalSymbols/>" +
+      "<globalDeclarations>" +
+      "<FfunctionDefinition lineno=\"2\" file=\"mo.f90\">" +
+      "<name>a</name><symbols><id type=\"R0\"><name>x</name></id></symbols>" +
+      "<declarations/><body/></FfunctionDefinition>" +
+      "<FfunctionDefinition lineno=\"6\" file=\"mo.f90\">" +
+      "<name>b</name><symbols><id type=\"R1\"><name>y</name></id></symbols>" +
+      "<declarations/><body/></FfunctionDefinition>" +
+      "</globalDeclarations>" +
+      "</XcodeProgram>";
+
+  private static final List<String> SOURCE = Arrays.asList(
+      "# 1 \"mo.f90\"",
+      "! Header comment",
+      "SUBROUTINE a ( )",
+      "  REAL :: x",
+      "END SUBROUTINE a",
+      "",
+      "subroutine b()",
+      "  real   :: y",
+      "end subroutine b");
+
+  private static XcodeProgram createProgram() throws Exception {
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new InputSource(new StringReader(XCODEML)));
+    XcodeProgram xcodeml = XcodeProgram.createFromDocument(doc);
+    assertNotNull(xcodeml);
+    return xcodeml;
+  }
+
+  private static String splice(ModifiedUnitTracker tracker,
+                               boolean lineDirectives)
+      throws Exception
+  {
+    SourceSplicer splicer = new SourceSplicer("mo.pp.f90", SOURCE,
+        lineDirectives);
+    StringWriter out = new StringWriter();
+    boolean done = splicer.splice(tracker, unit -> "SUBROUTINE " +
+        unit.matchDirectDescendant(Xcode.NAME).value() + " ! new\n", out);
+    return done ? out.toString() : null;
+  }
+
+  @Test
+  public void unmodifiedTest() throws Exception {
+    XcodeProgram xcodeml = createProgram();
+    ModifiedUnitTracker tracker = new ModifiedUnitTracker(xcodeml);
+    assertEquals(2, tracker.getUnits().size());
+    assertTrue(tracker.getModifiedUnits().isEmpty());
+    assertFalse(tracker.hasStructuralChange());
+    assertEquals(String.join("\n", SOURCE.subList(1, SOURCE.size())) + "\n",
+        splice(tracker, false));
+  }
+
+  @Test
+  public void modifiedUnitTest() throws Exception {
+    XcodeProgram xcodeml = createProgram();
+    ModifiedUnitTracker tracker = new ModifiedUnitTracker(xcodeml);
+    Xnode unitB = tracker.getUnits().get(1);
+    unitB.body().append(xcodeml.createComment("transformed"));
+    List<Xnode> modified = tracker.getModifiedUnits();
+    assertEquals(1, modified.size());
+    assertEquals(unitB, modified.get(0));
+    assertEquals("! Header comment\nSUBROUTINE a ( )\n  REAL :: x\n" +
+        "END SUBROUTINE a\n\nSUBROUTINE b ! new\n", splice(tracker, false));
+  }
+
+  @Test
+  public void modifiedTypeTest() throws Exception {
+    XcodeProgram xcodeml = createProgram();
+    ModifiedUnitTracker tracker = new ModifiedUnitTracker(xcodeml);
+    xcodeml.getTypeTable().getBasicType("R0").setAttribute(Xattr.INTENT,
+        "in");
+    List<Xnode> modified = tracker.getModifiedUnits();
+    assertEquals(1, modified.size());
+    assertEquals(tracker.getUnits().get(0), modified.get(0));
+    assertEquals("# 1 \"mo.f90\"\n! Header comment\nSUBROUTINE a ! new\n" +
+        "# 6 \"mo.f90\"\nsubroutine b()\n  real   :: y\n" +
+        "end subroutine b\n", splice(tracker, true));
+  }
+
+  @Test
+  public void structuralChangeTest() throws Exception {
+    XcodeProgram xcodeml = createProgram();
+    ModifiedUnitTracker tracker = new ModifiedUnitTracker(xcodeml);
+    Xnode unitB = tracker.getUnits().get(1);
+    unitB.insertAfter(unitB.cloneNode());
+    assertTrue(tracker.hasStructuralChange());
+    assertNull(splice(tracker, false));
+  }
+
+  @Test
+  public void unlocatedUnitTest() throws Exception {
+    XcodeProgram xcodeml = createProgram();
+    ModifiedUnitTracker tracker = new ModifiedUnitTracker(xcodeml);
+    tracker.getUnits().get(1).setAttribute(Xattr.LINENO, "8");
+    assertNull(splice(tracker, false));
+  }
+
+  @Test
+  public void fixedFormTest() {
+    assertTrue(SourceSplicer.isFixedForm("mo.f"));
+    assertTrue(SourceSplicer.isFixedForm("/tmp/abc.pp.F"));
+    assertFalse(SourceSplicer.isFixedForm("mo.f90"));
+    assertFalse(SourceSplicer.isFixedForm("mo"));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.module;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Test the features of the ModuleCache class
+ *
+ * @author clementval
+ */
+public class ModuleCacheTest {
+
+  @Test
+  public void writeIfChangedTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-module-cache");
+    Path file = dir.resolve("mod.claw.xmod");
+    byte[] content = "<OmniFortranModule/>".getBytes(StandardCharsets.UTF_8);
+    byte[] other = "<OmniFortranModule></OmniFortranModule>"
+        .getBytes(StandardCharsets.UTF_8);
+    try {
+      assertTrue(ModuleCache.writeIfChanged(file, content));
+      assertArrayEquals(content, Files.readAllBytes(file));
+
+      FileTime old = FileTime.fromMillis(0);
+      Files.setLastModifiedTime(file, old);
+      assertFalse(ModuleCache.writeIfChanged(file, content));
+      assertEquals(old, Files.getLastModifiedTime(file));
+
+      assertTrue(ModuleCache.writeIfChanged(file, other));
+      assertArrayEquals(other, Files.readAllBytes(file));
+      assertNotEquals(old, Files.getLastModifiedTime(file));
+
+      // No temporary file left behind
+      assertEquals(1, dir.toFile().list().length);
+    } finally {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @Test
+  public void permissionsTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-module-cache");
+    assumeTrue(Files.getFileStore(dir)
+        .supportsFileAttributeView(PosixFileAttributeView.class));
+    Path file = dir.resolve("mod.claw.xmod");
+    Path reference = dir.resolve("reference");
+    byte[] content = "<OmniFortranModule/>".getBytes(StandardCharsets.UTF_8);
+    byte[] other = "<OmniFortranModule></OmniFortranModule>"
+        .getBytes(StandardCharsets.UTF_8);
+    try {
+      // New file gets the same permissions as any file created by the process
+      Files.write(reference, content);
+      assertTrue(ModuleCache.writeIfChanged(file, content));
+      assertEquals(Files.getPosixFilePermissions(reference),
+          Files.getPosixFilePermissions(file));
+
+      // Existing file keeps its permissions
+      Set<PosixFilePermission> permissions =
+          PosixFilePermissions.fromString("rw-rw-r--");
+      Files.setPosixFilePermissions(file, permissions);
+      assertTrue(ModuleCache.writeIfChanged(file, other));
+      assertEquals(permissions, Files.getPosixFilePermissions(file));
+    } finally {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(reference);
+      Files.deleteIfExists(dir);
+    }
+  }
+
+  @Test
+  public void dirtyTest() {
+    ModuleCache cache = new ModuleCache();
+    cache.markDirty("mod");
+    assertFalse(cache.isDirty("mod"));
+    cache.add("Mod", null);
+    assertFalse(cache.isDirty("mod"));
+    cache.markDirty("MOD");
+    assertTrue(cache.isDirty("mod"));
+    cache.add("mod", null);
+    assertFalse(cache.isDirty("mod"));
+  }
+}
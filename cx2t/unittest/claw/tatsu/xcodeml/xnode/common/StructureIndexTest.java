@@ -0,0 +1,96 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.tatsu.xcodeml.xnode.common;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the StructureIndex class
+ *
+ * @author clementval
+ */
+public class StructureIndexTest {
+
+  private static Document parse(String xml) throws Exception {
+    return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new InputSource(new StringReader(xml)));
+  }
+
+  private static Element get(Document doc, String name) {
+    return (Element) doc.getElementsByTagName(name).item(0);
+  }
+
+  private static List<String> names(List<Node> nodes) {
+    List<String> names = new ArrayList<>();
+    for(Node node : nodes) {
+      names.add(node.getNodeName());
+    }
+    return names;
+  }
+
+  @Test
+  public void queryTest() throws Exception {
+    Document doc = parse("<r><s/><a><x/></a><b/><c><e/></c><d/></r>");
+    StructureIndex index = StructureIndex.of(doc);
+    assertNotNull(index);
+    assertSame(index, StructureIndex.of(doc));
+
+    assertEquals(0, index.depth(doc.getDocumentElement()));
+    assertEquals(2, index.depth(get(doc, "x")));
+    assertTrue(index.isAncestor(doc.getDocumentElement(), get(doc, "x")));
+    assertTrue(index.isAncestor(get(doc, "a"), get(doc, "x")));
+    assertFalse(index.isAncestor(get(doc, "x"), get(doc, "x")));
+    assertFalse(index.isAncestor(get(doc, "b"), get(doc, "x")));
+
+    // Nodes containing the bounds are not between them
+    assertEquals("[a, x, b, c, e]",
+        names(index.between(get(doc, "s"), get(doc, "d"))).toString());
+    assertEquals("[b]",
+        names(index.between(get(doc, "x"), get(doc, "e"))).toString());
+    assertTrue(index.between(get(doc, "d"), get(doc, "s")).isEmpty());
+  }
+
+  @Test
+  public void mutationTest() throws Exception {
+    Document doc = parse("<r><a/><b/></r>");
+    StructureIndex index = StructureIndex.of(doc);
+    Element a = get(doc, "a");
+    Element b = get(doc, "b");
+    assertTrue(index.between(a, b).isEmpty());
+
+    // Insert more elements than the gap between a and b can hold
+    Element last = a;
+    for(int i = 0; i < 40; ++i) {
+      Element n = doc.createElement("n");
+      n.appendChild(doc.createElement("m"));
+      doc.getDocumentElement().insertBefore(n, b);
+      last = n;
+    }
+    assertEquals(80, index.between(a, b).size());
+    assertEquals(2, index.depth(last.getFirstChild()));
+    assertTrue(index.isAncestor(last, last.getFirstChild()));
+
+    // Move b inside a
+    a.appendChild(b);
+    assertEquals(2, index.depth(b));
+    assertTrue(index.isAncestor(a, b));
+    assertEquals(78, index.between(a, last).size());
+
+    doc.getDocumentElement().removeChild(last);
+    assertEquals(Xnode.UNDEF_DEPTH, index.depth(last));
+    assertFalse(index.isAncestor(doc.getDocumentElement(), last));
+  }
+}
@@ -11,7 +11,9 @@ import claw.tatsu.xcodeml.abstraction.HoistedNestedDoStatement;
 import claw.tatsu.xcodeml.xnode.XnodeUtil;
 import helper.TestConstant;
 import org.junit.Test;
+import org.w3c.dom.Node;
 
+import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
 import java.util.Arrays;
 import java.util.List;
@@ -50,6 +52,58 @@ public class XnodeUtilTest {
     assertEquals(3, stmts.size());
   }
 
+  @Test
+  public void compactLoadingTest() {
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_PROGRAM);
+    assertNotNull(xcodeml);
+
+    // Indentation text nodes are removed at load time
+    assertFalse(hasWhitespaceTextNode(xcodeml.getDocument()));
+
+    // Element navigation is not affected
+    Xnode fctDef = xcodeml.matchDescendant(Xcode.F_FUNCTION_DEFINITION);
+    assertNotNull(fctDef);
+    assertEquals(Xcode.NAME, fctDef.firstChild().opcode());
+    assertEquals(Xcode.BODY, fctDef.lastChild().opcode());
+    assertEquals(fctDef.children().size() - 1,
+        fctDef.children().indexOf(fctDef.lastChild()));
+    assertNull(fctDef.child(fctDef.children().size()));
+    assertNull(fctDef.child(-1));
+  }
+
+  @Test
+  public void compactNodeCountTest() throws Exception {
+    // program.xml has 2389 nodes as parsed and 1124 once compacted
+    Node parsed = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new File(TestConstant.TEST_PROGRAM));
+    XcodeProgram xcodeml =
+        XcodeProgram.createFromFile(TestConstant.TEST_PROGRAM);
+    assertNotNull(xcodeml);
+    int compacted = countNodes(xcodeml.getDocument());
+    assertTrue(compacted * 2 < countNodes(parsed));
+  }
+
+  private int countNodes(Node node) {
+    int count = 1;
+    for(Node n = node.getFirstChild(); n != null; n = n.getNextSibling()) {
+      count += countNodes(n);
+    }
+    return count;
+  }
+
+  private boolean hasWhitespaceTextNode(Node node) {
+    for(Node n = node.getFirstChild(); n != null; n = n.getNextSibling()) {
+      if((n.getNodeType() == Node.TEXT_NODE
+          && n.getNodeValue().trim().isEmpty() && node.getChildNodes()
+          .getLength() > 1) || hasWhitespaceTextNode(n))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Test
   public void gatherArgumentsTest() {
     String arg1 = "nz";
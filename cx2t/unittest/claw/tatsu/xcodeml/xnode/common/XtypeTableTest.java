@@ -33,6 +33,13 @@ public class XtypeTableTest {
       "<FstructType type=\"" + STRUCT_TYPE_HASH_2 + "\" " +
       "extends=\"" + STRUCT_TYPE_HASH_1 + "\">" +
       "<symbols></symbols></FstructType></typeTable>";
+  private static final String STRUCT_MEMBER_TYPE_TABLE = "<typeTable>" +
+      "<FstructType type=\"" + STRUCT_TYPE_HASH_1 + "\">" +
+      "<symbols><id type=\"Freal\"><name>temp</name></id></symbols>" +
+      "</FstructType>" +
+      "<FstructType type=\"" + STRUCT_TYPE_HASH_2 + "\" " +
+      "extends=\"" + STRUCT_TYPE_HASH_1 + "\">" +
+      "<symbols></symbols></FstructType></typeTable>";
 
   @Test
   public void basicTypeTableTest() {
@@ -124,6 +131,24 @@ public class XtypeTableTest {
     assertEquals(4, clone.size());
   }
 
+  @Test
+  public void structMemberTest() {
+    XtypeTable typeTable =
+        XmlHelper.createXtypeTableFromString(STRUCT_MEMBER_TYPE_TABLE);
+    assertNotNull(typeTable);
+    FstructType structType1 = typeTable.getStructType(STRUCT_TYPE_HASH_1);
+    FstructType structType2 = typeTable.getStructType(STRUCT_TYPE_HASH_2);
+    assertNotNull(structType1);
+    assertNotNull(structType2);
+
+    assertNotNull(structType1.getMember("temp"));
+    assertEquals("Freal", structType1.getMember("TEMP").getType());
+    assertNull(structType1.getMember("q"));
+    assertNull(structType1.getMember(null));
+    // Members of the extended type are not looked up
+    assertNull(structType2.getMember("temp"));
+  }
+
   @Test
   public void hashTest() {
     XtypeTable typeTable =
@@ -152,4 +177,19 @@ public class XtypeTableTest {
     assertEquals(13, charHash.length());
     assertTrue(charHash.startsWith("C"));
   }
+
+  @Test
+  public void seededHashTest() {
+    XtypeTable typeTable1 =
+        XmlHelper.createXtypeTableFromString(BASIC_TYPE_TABLE);
+    XtypeTable typeTable2 =
+        XmlHelper.createXtypeTableFromString(BASIC_TYPE_TABLE);
+    assertNotNull(typeTable1);
+    assertNotNull(typeTable2);
+    typeTable1.setHashSeed(42);
+    typeTable2.setHashSeed(42);
+    String hash1 = typeTable1.generateHash(FortranType.INTEGER);
+    assertEquals(hash1, typeTable2.generateHash(FortranType.INTEGER));
+    assertNotEquals(hash1, typeTable1.generateHash(FortranType.INTEGER));
+  }
 }
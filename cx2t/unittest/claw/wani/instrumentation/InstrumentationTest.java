@@ -0,0 +1,112 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.instrumentation;
+
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.wani.report.KernelInfo;
+import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.translator.ClawTranslator;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the timer instrumentation of the generated parallel regions.
+ *
+ * @author clementval
+ */
+public class InstrumentationTest {
+
+  private XcodeProgram _xcodeml;
+
+  private ClawTranslator transform(String target, String directive,
+                                   String file, String mode)
+  {
+    TransformationHelper.loadConfiguration(target, directive);
+    if(mode != null) {
+      Configuration.get().overrideConfigurationParameter(
+          Configuration.INSTRUMENTATION_MODE, mode);
+    }
+    _xcodeml = TransformationHelper.loadProgram(file);
+    ClawTranslator translator = TransformationHelper.transform(_xcodeml);
+    assertFalse(_xcodeml.hasErrors());
+    return translator;
+  }
+
+  private static String getTimerCall(Xnode stmt) {
+    assertTrue(Xnode.isOfCode(stmt, Xcode.EXPR_STATEMENT));
+    FunctionCall call = new FunctionCall(stmt.firstChild());
+    return call.getFctName() + "(" + call.arguments().get(0).value() + ")";
+  }
+
+  @Test
+  public void cpuTimerTest() {
+    ClawTranslator translator = transform("cpu", "openmp",
+        TestConstant.TEST_SCA_COLUMN, Configuration.INSTRUMENTATION_MODE_TIMER);
+    FfunctionDefinition fctDef = _xcodeml.getAllFctDef().get(0);
+
+    // Timer calls surround the parallel region
+    List<Xnode> pragmas = fctDef.body().matchAll(Xcode.F_PRAGMA_STATEMENT);
+    Xnode parallel = pragmas.get(0);
+    Xnode endParallel = pragmas.get(pragmas.size() - 1);
+    assertEquals("omp parallel", parallel.value());
+    assertEquals("omp end parallel", endParallel.value());
+    assertEquals("claw_timer_start(mo_column_compute_column_1)",
+        getTimerCall(parallel.prevSibling()));
+    assertEquals("claw_timer_stop(mo_column_compute_column_1)",
+        getTimerCall(endParallel.nextSibling()));
+    assertEquals("claw_timer", fctDef.getDeclarationTable().uses().get(0)
+        .getAttribute(Xattr.NAME));
+
+    // Kernel is recorded for the kernel name table
+    assertEquals(1, translator.getKernelInfos().size());
+    KernelInfo info = translator.getKernelInfos().get(0);
+    assertEquals("mo_column_compute_column_1", info.getName());
+    assertEquals("compute_column", info.getFunction());
+    assertEquals("sca", info.getTransformation());
+    assertTrue(info.getLineNo() > 0);
+  }
+
+  @Test
+  public void gpuTimerTest() {
+    ClawTranslator translator = transform("gpu", "openacc",
+        TestConstant.TEST_SCA_LOCAL, Configuration.INSTRUMENTATION_MODE_TIMER);
+    FfunctionDefinition fctDef = _xcodeml.getAllFctDef().get(0);
+
+    // Timer calls are inside the data region and outside the kernel
+    List<Xnode> pragmas = fctDef.body().matchAll(Xcode.F_PRAGMA_STATEMENT);
+    Xnode parallel = pragmas.get(1);
+    Xnode endParallel = pragmas.get(pragmas.size() - 2);
+    assertEquals("acc parallel", parallel.value());
+    assertEquals("acc end parallel", endParallel.value());
+    assertEquals("claw_timer_start(sca_local_compute_local_1)",
+        getTimerCall(parallel.prevSibling()));
+    assertEquals("claw_timer_stop(sca_local_compute_local_1)",
+        getTimerCall(endParallel.nextSibling()));
+    assertEquals(1, translator.getKernelInfos().size());
+  }
+
+  @Test
+  public void disabledTest() {
+    for(String mode : new String[]{null,
+        Configuration.INSTRUMENTATION_MODE_NONE})
+    {
+      ClawTranslator translator = transform("cpu", "openmp",
+          TestConstant.TEST_SCA_COLUMN, mode);
+      assertFalse(Instrumentation.isEnabled());
+      assertTrue(translator.getKernelInfos().isEmpty());
+      assertTrue(_xcodeml.matchAll(Xcode.EXPR_STATEMENT).isEmpty());
+    }
+  }
+}
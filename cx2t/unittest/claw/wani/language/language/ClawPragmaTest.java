@@ -218,6 +218,92 @@ public class ClawPragmaTest {
     assertTargets(l, targets);
   }
 
+  /**
+   * Test various input for the CLAW loop tile directive.
+   */
+  @Test
+  public void tileTest() {
+    // Valid directives
+    analyzeValidClawLoopTile("claw loop-tile size(32)",
+        Collections.singletonList(32), false, false, null);
+    analyzeValidClawLoopTile("claw loop-tile size(32,4)",
+        Arrays.asList(32, 4), false, false, null);
+    analyzeValidClawLoopTile("claw loop-tile size( 8, 8, 2 )",
+        Arrays.asList(8, 8, 2), false, false, null);
+    analyzeValidClawLoopTile("claw loop-tile size(32,4) native",
+        Arrays.asList(32, 4), true, false, null);
+    analyzeValidClawLoopTile("claw loop-tile size(32,4) parallel native",
+        Arrays.asList(32, 4), true, true, null);
+    analyzeValidClawLoopTile("claw loop-tile size(16) target(gpu) native",
+        Collections.singletonList(16), true, false,
+        Collections.singletonList(Target.GPU));
+
+    // Invalid directives
+    analyzeInvalidClawLanguage("claw loop-tile");
+    analyzeInvalidClawLanguage("claw loop-tile size()");
+    analyzeInvalidClawLanguage("claw loop-tile size(i,j)");
+    analyzeInvalidClawLanguage("claw loop-tile size(32) native native");
+  }
+
+  /**
+   * Assert the result for valid loop tile CLAW directive
+   *
+   * @param raw      Raw string value of the CLAW directive to be analyzed.
+   * @param sizes    Expected tile sizes.
+   * @param isNative Expected native clause.
+   * @param parallel Expected parallel clause.
+   * @param targets  List of expected targets.
+   */
+  private void analyzeValidClawLoopTile(String raw, List<Integer> sizes,
+                                        boolean isNative, boolean parallel,
+                                        List<Target> targets)
+  {
+    ClawPragma l = analyze(raw, ClawDirective.LOOP_TILE);
+    assertNotNull(l);
+    assertEquals(sizes, l.getTileSizes());
+    assertEquals(isNative, l.hasClause(ClawClause.NATIVE));
+    assertEquals(parallel, l.hasClause(ClawClause.PARALLEL));
+    assertTargets(l, targets);
+  }
+
+  /**
+   * Test various input for the CLAW loop unroll directive.
+   */
+  @Test
+  public void unrollTest() {
+    // Valid directives
+    analyzeValidClawLoopUnroll("claw loop-unroll factor(4)", 4, false, null);
+    analyzeValidClawLoopUnroll("claw loop-unroll factor( 2 ) jam", 2, true,
+        null);
+    analyzeValidClawLoopUnroll("claw loop-unroll factor(8) target(cpu) jam",
+        8, true, Collections.singletonList(Target.CPU));
+
+    // Invalid directives
+    analyzeInvalidClawLanguage("claw loop-unroll");
+    analyzeInvalidClawLanguage("claw loop-unroll factor()");
+    analyzeInvalidClawLanguage("claw loop-unroll factor(n)");
+    analyzeInvalidClawLanguage("claw loop-unroll factor(2,2)");
+    analyzeInvalidClawLanguage("claw loop-unroll factor(2) jam jam");
+  }
+
+  /**
+   * Assert the result for valid loop unroll CLAW directive
+   *
+   * @param raw     Raw string value of the CLAW directive to be analyzed.
+   * @param factor  Expected unroll factor.
+   * @param jam     Expected jam clause.
+   * @param targets List of expected targets.
+   */
+  private void analyzeValidClawLoopUnroll(String raw, int factor, boolean jam,
+                                          List<Target> targets)
+  {
+    ClawPragma l = analyze(raw, ClawDirective.LOOP_UNROLL);
+    assertNotNull(l);
+    assertEquals(factor, l.getUnrollFactor());
+    assertEquals(jam, l.hasClause(ClawClause.JAM));
+    assertTargets(l, targets);
+  }
+
   /**
    * Assert the information sorted in the target list.
    *
@@ -685,6 +771,94 @@ public class ClawPragmaTest {
     assertTargets(l, targets);
   }
 
+  /**
+   * Test various input for the CLAW hcache directive.
+   */
+  @Test
+  public void hcacheTest() {
+    // Valid directives
+    analyzeValidHcache("claw hcache data(var1)",
+        Collections.singletonList("var1"), null);
+    analyzeValidHcache("claw hcache data(var1,var2)",
+        Arrays.asList("var1", "var2"), null);
+    analyzeValidHcache("claw hcache data(var1,var2) target(gpu)",
+        Arrays.asList("var1", "var2"), Collections.singletonList(Target.GPU));
+    analyzeValidHcache("claw hcache data(var1) target(cpu,gpu)",
+        Collections.singletonList("var1"),
+        Arrays.asList(Target.CPU, Target.GPU));
+
+    // Invalid directives
+    analyzeInvalidClawLanguage("claw hcache");
+    analyzeInvalidClawLanguage("claw hcache data()");
+    analyzeInvalidClawLanguage("claw hcache data(var1) offset(0,1)");
+    analyzeInvalidClawLanguage("claw hcache data(var1) init");
+  }
+
+  /**
+   * Assert the result for valid CLAW hcache directive
+   *
+   * @param raw     Raw string value of the CLAW directive to be analyzed.
+   * @param data    List of identifiers to be checked.
+   * @param targets List of expected targets.
+   */
+  private void analyzeValidHcache(String raw, List<String> data,
+                                  List<Target> targets)
+  {
+    ClawPragma l = analyze(raw, ClawDirective.HCACHE);
+    assertNotNull(l);
+    assertClauseListValues(l, ClawClause.DATA, data);
+    assertTargets(l, targets);
+  }
+
+  /**
+   * Test various input for the CLAW demote directive.
+   */
+  @Test
+  public void demoteTest() {
+    // Valid directives
+    analyzeValidDemote("claw demote", null, null, null);
+    analyzeValidDemote("claw demote data(t,q)", Arrays.asList("t", "q"),
+        null, null);
+    analyzeValidDemote("claw demote kind(4)", null, "4", null);
+    analyzeValidDemote("claw demote kind(sp) data(t)",
+        Collections.singletonList("t"), "sp", null);
+    analyzeValidDemote("claw demote data(t) kind(4) target(gpu)",
+        Collections.singletonList("t"), "4",
+        Collections.singletonList(Target.GPU));
+
+    // Invalid directives
+    analyzeInvalidClawLanguage("claw demote data()");
+    analyzeInvalidClawLanguage("claw demote kind()");
+    analyzeInvalidClawLanguage("claw demote kind(4) kind(8)");
+    analyzeInvalidClawLanguage("claw demote data(t) init");
+  }
+
+  /**
+   * Assert the result for valid CLAW demote directive
+   *
+   * @param raw     Raw string value of the CLAW directive to be analyzed.
+   * @param data    List of identifiers to be checked. Null if no data clause.
+   * @param kind    Expected kind. Null if no kind clause.
+   * @param targets List of expected targets.
+   */
+  private void analyzeValidDemote(String raw, List<String> data, String kind,
+                                  List<Target> targets)
+  {
+    ClawPragma l = analyze(raw, ClawDirective.DEMOTE);
+    assertNotNull(l);
+    if(data == null) {
+      assertFalse(l.hasClause(ClawClause.DATA));
+    } else {
+      assertClauseListValues(l, ClawClause.DATA, data);
+    }
+    if(kind == null) {
+      assertFalse(l.hasClause(ClawClause.KIND));
+    } else {
+      assertEquals(kind, l.value(ClawClause.KIND));
+    }
+    assertTargets(l, targets);
+  }
+
   /**
    * Check clause with list of String as values.
    *
@@ -1397,6 +1571,26 @@ public class ClawPragmaTest {
         null, DataMovement.DEVICE_TO_HOST, false);
   }
 
+  @Test
+  public void scaForwardInlineTest() {
+    ClawPragma l = analyze("claw sca forward inline", ClawDirective.SCA);
+    assertNotNull(l);
+    assertTrue(l.hasClause(ClawClause.FORWARD));
+    assertTrue(l.hasClause(ClawClause.INLINE));
+
+    l = analyze("claw sca forward create inline update", ClawDirective.SCA);
+    assertNotNull(l);
+    assertTrue(l.hasClause(ClawClause.INLINE));
+    assertTrue(l.hasClause(ClawClause.CREATE));
+    assertTrue(l.hasClause(ClawClause.UPDATE));
+
+    l = analyze("claw sca forward", ClawDirective.SCA);
+    assertNotNull(l);
+    assertFalse(l.hasClause(ClawClause.INLINE));
+
+    analyzeInvalidClawLanguage("claw sca forward inline inline");
+  }
+
   /**
    * Assert the result for valid CLAW SCA directive
    */
@@ -1518,7 +1712,7 @@ public class ClawPragmaTest {
   public void errorHandlingTest() {
     analyzeErrors("claw loop-fusion group(g", 1);
     analyzeErrors("claw loop-fusion group", 1);
-    analyzeErrors("claw loop", 19);
+    analyzeErrors("claw loop", 23);
   }
 
   private void analyzeErrors(String pragma, int nbExpectedToken) {
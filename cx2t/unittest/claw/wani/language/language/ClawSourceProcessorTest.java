@@ -0,0 +1,93 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.language.language;
+
+import claw.tatsu.xcodeml.exception.IllegalDirectiveException;
+import claw.wani.language.ClawSourceProcessor;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the ClawSourceProcessor class
+ *
+ * @author clementval
+ */
+public class ClawSourceProcessorTest {
+
+  private String preprocess(String input, Map<String, String> replacements)
+      throws Exception
+  {
+    StringWriter writer = new StringWriter();
+    ClawSourceProcessor.preprocess(
+        new BufferedReader(new StringReader(input)), writer, replacements);
+    return writer.toString();
+  }
+
+  @Test
+  public void ignoreBlockTest() throws Exception {
+    String input = "x = 1\n" +
+        "!$claw ignore\n" +
+        "call foo(a, &\n" +
+        "  b)\n" +
+        "!$claw end ignore\n" +
+        "y = 2 + &\n" +
+        "  3\n";
+    String expected = "x = 1\n" +
+        "!$claw ignore\n" +
+        "!$claw ignorecall foo(a, __CLAWAMP__\n" +
+        "!$claw ignore  b)\n" +
+        "!$claw end ignore\n" +
+        "y = 2 + &\n" +
+        "  3\n";
+    assertEquals(expected, preprocess(input, Collections.emptyMap()));
+  }
+
+  @Test
+  public void replacementTest() throws Exception {
+    Map<String, String> replacements = new LinkedHashMap<>();
+    replacements.put("mo.claw.pp.f90", "mo.f90");
+    replacements.put("/tmp/claw/", "");
+    String input = "# 1 \"/tmp/claw/mo.claw.pp.f90\"\nx = 1\n";
+    assertEquals("# 1 \"mo.f90\"\nx = 1\n", preprocess(input, replacements));
+  }
+
+  @Test
+  public void unbalancedIgnoreTest() throws Exception {
+    String[] inputs = {
+        "!$claw ignore\nx = 1\n",
+        "x = 1\n!$claw end ignore\n",
+        "!$claw ignore\n!$claw ignore\n!$claw end ignore\n"
+    };
+    int[] lines = {1, 2, 2};
+    for(int i = 0; i < inputs.length; ++i) {
+      try {
+        preprocess(inputs[i], Collections.emptyMap());
+        fail();
+      } catch(IllegalDirectiveException ide) {
+        assertEquals(lines[i], ide.getDirectiveLine());
+      }
+    }
+  }
+
+  @Test
+  public void postprocessTest() {
+    assertEquals("call foo(a, &",
+        ClawSourceProcessor.postprocessLine(
+            "!$claw ignorecall foo(a, __CLAWAMP__"));
+    assertEquals("", ClawSourceProcessor.postprocessLine("!$claw ignore"));
+    assertEquals("", ClawSourceProcessor.postprocessLine("!$claw end ignore"));
+    assertEquals("!$acc parallel",
+        ClawSourceProcessor.postprocessLine("!$claw verbatim !$acc parallel"));
+    assertEquals("x = y + z", ClawSourceProcessor.postprocessLine("x = y + z"));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.report;
+
+import claw.wani.x2t.translator.ClawTranslator;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the generation of the kernel name table.
+ *
+ * @author clementval
+ */
+public class ClawKernelTableTest {
+
+  @Test
+  public void generateTest() throws Exception {
+    String longName =
+        "mo_radiation_scheme_compute_shortwave_fluxes_with_aerosols_1";
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    ClawTranslator translator = new ClawTranslator();
+    translator.addKernelInfo(new KernelInfo("mo_column_compute_column_1",
+        "mo_column.f90", "compute_column", 12, "sca"));
+    translator.addKernelInfo(new KernelInfo(longName,
+        "mo_radiation_scheme.f90", "compute_shortwave_fluxes_with_aerosols",
+        0, "loop-extract"));
+
+    Path table =
+        Files.createTempFile("claw", ClawKernelTable.KERNEL_TABLE_SUFFIX);
+    try {
+      new ClawKernelTable(table.toString()).generate(translator);
+      List<String> lines = Files.readAllLines(table, StandardCharsets.UTF_8);
+      assertEquals(3, lines.size());
+      assertTrue(lines.get(0).startsWith("# kernel"));
+
+      // Names are written in full as the first field of each line
+      assertEquals(Arrays.asList("mo_column_compute_column_1",
+          "mo_column.f90", "compute_column", "12", "sca"),
+          Arrays.asList(lines.get(1).trim().split("\\s+")));
+      assertEquals(Arrays.asList(longName, "mo_radiation_scheme.f90",
+          "compute_shortwave_fluxes_with_aerosols", "-", "loop-extract"),
+          Arrays.asList(lines.get(2).trim().split("\\s+")));
+    } finally {
+      Files.delete(table);
+    }
+  }
+}
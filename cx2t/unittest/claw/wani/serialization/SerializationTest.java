@@ -0,0 +1,322 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.serialization;
+
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.xnode.Xname;
+import claw.tatsu.xcodeml.xnode.common.*;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.wani.x2t.configuration.Configuration;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the savepoint generation of the Serialization helper class with
+ * sampling, window and field subset settings.
+ *
+ * @author clementval
+ */
+public class SerializationTest {
+
+  private static final String COUNTER = "claw_ser_sp_out";
+  private static final List<String> FIELDS = Arrays.asList("q", "t(:,1)");
+
+  private XcodeProgram _xcodeml;
+  private FfunctionDefinition _fctDef;
+
+  /**
+   * Generate a write savepoint after the first statement of the function
+   * compute_column with the given serialization settings.
+   *
+   * @param settings Key/value pairs of configuration parameters.
+   * @return Nodes inserted after the hook.
+   */
+  private List<Xnode> generate(String... settings) {
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    Configuration.get().overrideConfigurationParameter(
+        Configuration.SCA_SERIALIZATION_ENABLED, "true");
+    Configuration.get().overrideConfigurationParameter(
+        Configuration.SCA_SERIALIZATION_ENABLED_DIRECTION,
+        Configuration.SCA_SERIALIZATION_WRITE);
+    for(int i = 0; i < settings.length; i += 2) {
+      Configuration.get().overrideConfigurationParameter(settings[i],
+          settings[i + 1]);
+    }
+    _xcodeml = TransformationHelper.loadProgram(TestConstant.TEST_SCA_COLUMN);
+    _fctDef = getFunction();
+
+    Xnode hook = _fctDef.body().firstChild();
+    Xnode next = hook.nextSibling();
+    Xnode last = Serialization.generateWriteSavepoint(_xcodeml, hook,
+        Collections.emptyMap(), FIELDS, "sp", SerializationStep.SER_OUT);
+
+    // Read the symbols and declarations again from the translation unit
+    _fctDef = getFunction();
+    List<Xnode> inserted = new ArrayList<>();
+    for(Xnode crt = hook.nextSibling(); crt != null && !crt.equals(next);
+        crt = crt.nextSibling())
+    {
+      inserted.add(crt);
+    }
+    assertEquals(last, inserted.get(inserted.size() - 1));
+    return inserted;
+  }
+
+  /**
+   * Get the function compute_column. The symbols and declarations tables are
+   * read from the translation unit at each call.
+   *
+   * @return Function definition.
+   */
+  private FfunctionDefinition getFunction() {
+    FfunctionDefinition fctDef = _xcodeml.getGlobalDeclarationsTable()
+        .getFunctionDefinition("compute_column");
+    assertNotNull(fctDef);
+    return fctDef;
+  }
+
+  /**
+   * Get the names of the fields written by a list of savepoint calls.
+   *
+   * @param calls Savepoint calls.
+   * @return Set of serialized field names.
+   */
+  private static Set<String> getWrittenFields(List<Xnode> calls) {
+    Set<String> fields = new HashSet<>();
+    for(Xnode call : calls) {
+      assertTrue(Xnode.isOfCode(call, Xcode.EXPR_STATEMENT));
+      FunctionCall fctCall = new FunctionCall(call.firstChild());
+      if(fctCall.getFctName().equals("fs_write_field")) {
+        fields.add(fctCall.arguments().get(3).value());
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Build a compact textual representation of the guard condition.
+   *
+   * @param expr Expression node.
+   * @return Representation of the expression.
+   */
+  private static String expr(Xnode expr) {
+    switch(expr.opcode()) {
+      case VAR:
+      case F_INT_CONSTANT:
+        return expr.value();
+      case FUNCTION_CALL:
+        FunctionCall call = new FunctionCall(expr);
+        return String.format("%s(%s,%s)", call.getFctName(),
+            expr(call.arguments().get(0)), expr(call.arguments().get(1)));
+      case LOG_AND_EXPR:
+        return binary(expr, ".AND.");
+      case LOG_GE_EXPR:
+        return binary(expr, ">=");
+      case LOG_LE_EXPR:
+        return binary(expr, "<=");
+      case LOG_EQ_EXPR:
+        return binary(expr, "==");
+      case MINUS_EXPR:
+        return binary(expr, "-");
+      case PLUS_EXPR:
+        return binary(expr, "+");
+      default:
+        fail("Unexpected node in guard: " + expr.opcode());
+        return null;
+    }
+  }
+
+  private static String binary(Xnode expr, String operator) {
+    return String.format("%s %s %s", expr(expr.child(0)), operator,
+        expr(expr.child(1)));
+  }
+
+  /**
+   * Check the increment of the counter and the guard wrapping the savepoint
+   * calls.
+   *
+   * @param inserted  Nodes inserted after the hook.
+   * @param condition Expected representation of the guard condition.
+   */
+  private void checkGuard(List<Xnode> inserted, String condition) {
+    assertEquals(2, inserted.size());
+    Xnode increment = inserted.get(0);
+    assertTrue(Xnode.isOfCode(increment, Xcode.F_ASSIGN_STATEMENT));
+    assertEquals(COUNTER, increment.child(0).value());
+    assertEquals(COUNTER + " + 1", expr(increment.child(1)));
+
+    Xnode guard = inserted.get(1);
+    assertTrue(Xnode.isOfCode(guard, Xcode.F_IF_STATEMENT));
+    assertEquals(condition,
+        expr(guard.matchDirectDescendant(Xcode.CONDITION).child(0)));
+    List<Xnode> calls =
+        guard.matchDirectDescendant(Xcode.THEN).body().children();
+    assertEquals(3, calls.size());
+    assertEquals(new HashSet<>(Arrays.asList("q", "t(:,1)")),
+        getWrittenFields(calls));
+    checkCounter();
+  }
+
+  /**
+   * Check the declaration of the counter: a local integer with the SAVE
+   * attribute initialized to 0.
+   */
+  private void checkCounter() {
+    assertTrue(_fctDef.getSymbolTable().contains(COUNTER));
+    Xid id = _fctDef.getSymbolTable().get(COUNTER);
+    assertEquals(XstorageClass.F_LOCAL.toString(), id.getSclass());
+    FbasicType type = _xcodeml.getTypeTable().getBasicType(id);
+    assertNotNull(type);
+    assertEquals(Xname.TYPE_F_INT, type.getRef());
+    assertTrue(type.hasAttribute(Xattr.IS_SAVE));
+    assertFalse(type.hasIntent());
+
+    Xnode decl = _fctDef.getDeclarationTable().get(COUNTER);
+    assertNotNull(decl);
+    Xnode value = decl.matchDirectDescendant(Xcode.VALUE);
+    assertNotNull(value);
+    assertTrue(Xnode.isOfCode(value.firstChild(), Xcode.F_INT_CONSTANT));
+    assertEquals("0", value.firstChild().value());
+  }
+
+  @Test
+  public void defaultSettingsTest() {
+    List<Xnode> inserted = generate();
+    assertEquals(3, inserted.size());
+    FunctionCall savepoint = new FunctionCall(inserted.get(0).firstChild());
+    assertEquals("fs_create_savepoint", savepoint.getFctName());
+    assertEquals(new HashSet<>(FIELDS),
+        getWrittenFields(inserted.subList(1, 3)));
+    assertFalse(_fctDef.getSymbolTable().contains(COUNTER));
+    assertTrue(_fctDef.body().matchAll(Xcode.F_IF_STATEMENT).isEmpty());
+
+    // Explicit default values give the same output
+    inserted = generate(Configuration.SCA_SERIALIZATION_SAMPLING, "1",
+        Configuration.SCA_SERIALIZATION_WINDOW_START, "1",
+        Configuration.SCA_SERIALIZATION_WINDOW_END, "0",
+        Configuration.SCA_SERIALIZATION_FIELDS, " ");
+    assertEquals(3, inserted.size());
+    assertEquals(new HashSet<>(FIELDS),
+        getWrittenFields(inserted.subList(1, 3)));
+    assertFalse(_fctDef.getSymbolTable().contains(COUNTER));
+  }
+
+  @Test
+  public void disabledTest() {
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    Configuration.get().overrideConfigurationParameter(
+        Configuration.SCA_SERIALIZATION_SAMPLING, "2");
+    _xcodeml = TransformationHelper.loadProgram(TestConstant.TEST_SCA_COLUMN);
+    Xnode hook = getFunction().body().firstChild();
+    Xnode next = hook.nextSibling();
+    assertEquals(hook, Serialization.generateWriteSavepoint(_xcodeml, hook,
+        Collections.emptyMap(), FIELDS, "sp", SerializationStep.SER_OUT));
+    assertEquals(next, hook.nextSibling());
+    assertFalse(getFunction().getSymbolTable().contains(COUNTER));
+  }
+
+  @Test
+  public void samplingTest() {
+    checkGuard(generate(Configuration.SCA_SERIALIZATION_SAMPLING, "3"),
+        "mod(" + COUNTER + " - 1,3) == 0");
+  }
+
+  @Test
+  public void windowStartTest() {
+    checkGuard(generate(Configuration.SCA_SERIALIZATION_WINDOW_START, "5"),
+        COUNTER + " >= 5");
+  }
+
+  @Test
+  public void windowEndTest() {
+    checkGuard(generate(Configuration.SCA_SERIALIZATION_WINDOW_END, "10"),
+        COUNTER + " <= 10");
+  }
+
+  @Test
+  public void windowTest() {
+    checkGuard(generate(Configuration.SCA_SERIALIZATION_WINDOW_START, "5",
+        Configuration.SCA_SERIALIZATION_WINDOW_END, "10"),
+        COUNTER + " >= 5 .AND. " + COUNTER + " <= 10");
+  }
+
+  @Test
+  public void samplingWindowStartTest() {
+    checkGuard(generate(Configuration.SCA_SERIALIZATION_SAMPLING, "2",
+        Configuration.SCA_SERIALIZATION_WINDOW_START, "5"),
+        COUNTER + " >= 5 .AND. mod(" + COUNTER + " - 5,2) == 0");
+  }
+
+  @Test
+  public void samplingWindowEndTest() {
+    checkGuard(generate(Configuration.SCA_SERIALIZATION_SAMPLING, "2",
+        Configuration.SCA_SERIALIZATION_WINDOW_END, "10"),
+        COUNTER + " <= 10 .AND. mod(" + COUNTER + " - 1,2) == 0");
+  }
+
+  @Test
+  public void samplingWindowTest() {
+    checkGuard(generate(Configuration.SCA_SERIALIZATION_SAMPLING, "2",
+        Configuration.SCA_SERIALIZATION_WINDOW_START, "5",
+        Configuration.SCA_SERIALIZATION_WINDOW_END, "10"),
+        COUNTER + " >= 5 .AND. " + COUNTER + " <= 10 .AND. mod("
+            + COUNTER + " - 5,2) == 0");
+  }
+
+  @Test
+  public void counterNameTest() {
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    Configuration.get().overrideConfigurationParameter(
+        Configuration.SCA_SERIALIZATION_ENABLED, "true");
+    Configuration.get().overrideConfigurationParameter(
+        Configuration.SCA_SERIALIZATION_ENABLED_DIRECTION,
+        Configuration.SCA_SERIALIZATION_WRITE);
+    Configuration.get().overrideConfigurationParameter(
+        Configuration.SCA_SERIALIZATION_SAMPLING, "2");
+    _xcodeml = TransformationHelper.loadProgram(TestConstant.TEST_SCA_COLUMN);
+
+    // Two savepoints with the same name get their own counter
+    Xnode hook = getFunction().body().firstChild();
+    Serialization.generateWriteSavepoint(_xcodeml, hook,
+        Collections.emptyMap(), FIELDS, "sp", SerializationStep.SER_OUT);
+    Serialization.generateWriteSavepoint(_xcodeml, hook,
+        Collections.emptyMap(), FIELDS, "sp", SerializationStep.SER_OUT);
+    _fctDef = getFunction();
+    checkCounter();
+    assertTrue(_fctDef.getSymbolTable().contains(COUNTER + "_1"));
+    assertNotNull(_fctDef.getDeclarationTable().get(COUNTER + "_1"));
+  }
+
+  @Test
+  public void fieldSubsetTest() {
+    List<Xnode> inserted =
+        generate(Configuration.SCA_SERIALIZATION_FIELDS, " T, w");
+    assertEquals(2, inserted.size());
+    assertEquals(Collections.singleton("t(:,1)"), getWrittenFields(inserted));
+
+    inserted = generate(Configuration.SCA_SERIALIZATION_FIELDS, "w");
+    assertEquals(1, inserted.size());
+    assertTrue(getWrittenFields(inserted).isEmpty());
+  }
+
+  @Test
+  public void fieldSubsetSamplingTest() {
+    List<Xnode> inserted = generate(Configuration.SCA_SERIALIZATION_FIELDS,
+        "q", Configuration.SCA_SERIALIZATION_SAMPLING, "4");
+    assertEquals(2, inserted.size());
+    Xnode guard = inserted.get(1);
+    List<Xnode> calls =
+        guard.matchDirectDescendant(Xcode.THEN).body().children();
+    assertEquals(2, calls.size());
+    assertEquals(Collections.singleton("q"), getWrittenFields(calls));
+    checkCounter();
+  }
+}
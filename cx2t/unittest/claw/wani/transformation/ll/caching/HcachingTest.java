@@ -0,0 +1,172 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.caching;
+
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.error.XanalysisError;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the generated code of the hcache transformation.
+ *
+ * @author clementval
+ */
+public class HcachingTest {
+
+  private static final String ELEMENT_TYPE = "R7f61a3c0a120";
+
+  private static XcodeProgram load(String target, String directive) {
+    TransformationHelper.loadConfiguration(target, directive);
+    return TransformationHelper.loadProgram(TestConstant.TEST_HCACHE);
+  }
+
+  private static XcodeProgram transform(String target, String directive) {
+    XcodeProgram xcodeml = load(target, directive);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  private static FfunctionDefinition getFct(XcodeProgram xcodeml,
+                                            String name)
+  {
+    for(FfunctionDefinition fctDef : xcodeml.getAllFctDef()) {
+      if(fctDef.getName().equals(name)) {
+        return fctDef;
+      }
+    }
+    fail("Function " + name + " not found");
+    return null;
+  }
+
+  private static Xnode getInnerLoop(FfunctionDefinition fctDef) {
+    return fctDef.body().matchDirectDescendant(Xcode.F_DO_STATEMENT).body()
+        .matchDirectDescendant(Xcode.F_DO_STATEMENT);
+  }
+
+  private static List<String> getAssignedNames(Xnode from, int count) {
+    String[] names = new String[count];
+    Xnode stmt = from;
+    for(int i = 0; i < count; ++i) {
+      assertTrue(Xnode.isOfCode(stmt, Xcode.F_ASSIGN_STATEMENT));
+      names[i] = new AssignStatement(stmt.element()).getLhsName();
+      stmt = stmt.nextSibling();
+    }
+    return Arrays.asList(names);
+  }
+
+  private static boolean hasWarning(XcodeProgram xcodeml, String prefix,
+                                    FfunctionDefinition fctDef)
+  {
+    for(XanalysisError warning : xcodeml.getWarnings()) {
+      if(warning.getMessage().startsWith(prefix)
+          && warning.getLine() > fctDef.lineNo()
+          && warning.getLine() < fctDef.lineNo() + 20)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void rotationTest() {
+    XcodeProgram xcodeml = transform("cpu", "openmp");
+    FfunctionDefinition fctDef = getFct(xcodeml, "stencil");
+    assertTrue(TransformationHelper.getPragmas(fctDef).isEmpty());
+
+    // Scalars are declared without the intent of the array
+    for(String name : Arrays.asList("a_hm1_", "a_h__", "a_hp1_")) {
+      assertTrue(fctDef.getSymbolTable().contains(name));
+      FbasicType type = xcodeml.getTypeTable()
+          .getBasicType(fctDef.getSymbolTable().get(name));
+      assertEquals(Intent.NONE, type.getIntent());
+      assertNotEquals(ELEMENT_TYPE, type.getType());
+    }
+
+    // a(1,j) and a(2,j) are preloaded before the innermost loop
+    Xnode innerLoop = getInnerLoop(fctDef);
+    Xnode outerBody = innerLoop.ancestor();
+    assertEquals(Arrays.asList("a_h__", "a_hp1_"),
+        getAssignedNames(outerBody.firstChild(), 2));
+    assertEquals(innerLoop, outerBody.child(2));
+
+    // Values are shifted and only a(i+1,j) is loaded in the loop
+    assertEquals(Arrays.asList("a_hm1_", "a_h__", "a_hp1_", "b"),
+        getAssignedNames(innerLoop.body().firstChild(), 4));
+    List<Xnode> refs = innerLoop.body().matchAll(Xcode.F_ARRAY_REF);
+    assertEquals(2, refs.size());
+    assertEquals("a", refs.get(0).matchSeq(Xcode.VAR_REF, Xcode.VAR).value());
+    assertEquals("i+1", refs.get(0).matchSeq(Xcode.ARRAY_INDEX)
+        .firstChild().constructRepresentation(false, false));
+    assertEquals("b", refs.get(1).matchSeq(Xcode.VAR_REF, Xcode.VAR).value());
+  }
+
+  @Test
+  public void scalarTypeTest() {
+    // Element type without intent is used as is for the scalars
+    XcodeProgram xcodeml = load("cpu", "openmp");
+    xcodeml.getTypeTable().getBasicType(ELEMENT_TYPE)
+        .removeAttribute(Xattr.INTENT);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    FfunctionDefinition fctDef = getFct(xcodeml, "stencil");
+    assertEquals(ELEMENT_TYPE, fctDef.getSymbolTable().get("a_h__").getType());
+  }
+
+  @Test
+  public void conditionalTest() {
+    XcodeProgram xcodeml = transform("cpu", "openmp");
+    FfunctionDefinition fctDef = getFct(xcodeml, "stencil_if");
+    assertFalse(fctDef.getSymbolTable().contains("a_h__"));
+    assertEquals(3, getInnerLoop(fctDef).matchAll(Xcode.F_ARRAY_REF).stream()
+        .filter(r -> r.matchSeq(Xcode.VAR_REF, Xcode.VAR).value()
+            .equals("a")).count());
+    assertTrue(hasWarning(xcodeml, "Variable a is conditionally referenced",
+        fctDef));
+  }
+
+  @Test
+  public void callArgumentTest() {
+    for(String[] target : Arrays.asList(new String[]{"cpu", "openmp"},
+        new String[]{"gpu", "openacc"}))
+    {
+      XcodeProgram xcodeml = transform(target[0], target[1]);
+      FfunctionDefinition fctDef = getFct(xcodeml, "stencil_call");
+      assertFalse(fctDef.getSymbolTable().contains("a_h__"));
+      assertTrue(TransformationHelper.getPragmas(fctDef).isEmpty());
+      assertTrue(hasWarning(xcodeml, "Variable a is written in the loop nest",
+          fctDef));
+    }
+  }
+
+  @Test
+  public void cacheDirectiveTest() {
+    XcodeProgram xcodeml = transform("gpu", "openacc");
+    for(String name : Arrays.asList("stencil", "stencil_if")) {
+      FfunctionDefinition fctDef = getFct(xcodeml, name);
+      assertEquals(Collections.singletonList("acc cache(a(i-1:i+1,j))"),
+          TransformationHelper.getPragmas(fctDef));
+      assertTrue(getInnerLoop(fctDef).body().firstChild()
+          .is(Xcode.F_PRAGMA_STATEMENT));
+      assertFalse(fctDef.getSymbolTable().contains("a_h__"));
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.loop;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the generated code of the loop-tile transformation.
+ *
+ * @author clementval
+ */
+public class LoopTilingTest {
+
+  private static XcodeProgram loadLoopNest() {
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    return TransformationHelper.loadProgram(TestConstant.TEST_LOOP_NEST);
+  }
+
+  private static String getRange(Xnode doStmt) {
+    Xnode range = doStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    return doStmt.matchDirectDescendant(Xcode.VAR).value() + "=" +
+        range.matchDirectDescendant(Xcode.LOWER_BOUND)
+            .constructRepresentation(false, false) + ":" +
+        range.matchDirectDescendant(Xcode.UPPER_BOUND)
+            .constructRepresentation(false, false) + ":" +
+        range.matchDirectDescendant(Xcode.STEP).firstChild()
+            .constructRepresentation(false, false);
+  }
+
+  /**
+   * Check that an element loop iterates over the tile as
+   * {@code DO i = i_tile, MIN(i_tile + size - 1, iend)}.
+   */
+  private static void assertTileBound(Xnode doStmt, String tileVar,
+                                      String size, String upperBound)
+  {
+    Xnode range = doStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    assertEquals(tileVar, range.matchSeq(Xcode.LOWER_BOUND, Xcode.VAR).value());
+    Xnode min = range.matchSeq(Xcode.UPPER_BOUND, Xcode.FUNCTION_CALL);
+    assertNotNull(min);
+    assertEquals("min", min.matchDirectDescendant(Xcode.NAME).value());
+    List<Xnode> args = min.matchDirectDescendant(Xcode.ARGUMENTS).children();
+    assertEquals(2, args.size());
+    assertEquals(tileVar + "+" + size + "-1",
+        args.get(0).constructRepresentation(false, false));
+    assertEquals(upperBound, args.get(1).value());
+  }
+
+  @Test
+  public void tileTest() {
+    XcodeProgram xcodeml = loadLoopNest();
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    assertTrue(fctDef.getSymbolTable().contains("j_tile"));
+    assertTrue(fctDef.getSymbolTable().contains("i_tile"));
+    assertTrue(TransformationHelper.getPragmas(fctDef).isEmpty());
+
+    // Tile loops first, then element loops iterating over a single tile
+    List<Xnode> loops = fctDef.body().matchAll(Xcode.F_DO_STATEMENT);
+    assertEquals(4, loops.size());
+    assertEquals("j_tile=1:m:2", getRange(loops.get(0)));
+    assertEquals("i_tile=1:n:4", getRange(loops.get(1)));
+    assertTileBound(loops.get(2), "j_tile", "2", "m");
+    assertTileBound(loops.get(3), "i_tile", "4", "n");
+    assertEquals(1, loops.get(3).body().children().size());
+  }
+
+  @Test
+  public void nonUnitStepTest() {
+    XcodeProgram xcodeml = loadLoopNest();
+    Xnode innerLoop = xcodeml.matchAll(Xcode.F_DO_STATEMENT).get(1);
+    innerLoop.matchSeq(Xcode.INDEX_RANGE, Xcode.STEP, Xcode.F_INT_CONSTANT)
+        .setValue("2");
+    TransformationHelper.transform(xcodeml);
+    assertTrue(xcodeml.hasErrors());
+    assertEquals("Only loops with a unit step can be tiled",
+        xcodeml.getErrors().get(0).getMessage());
+    assertEquals(2, xcodeml.matchAll(Xcode.F_DO_STATEMENT).size());
+  }
+
+  @Test
+  public void nonRectangularTest() {
+    XcodeProgram xcodeml = loadLoopNest();
+    Xnode innerLoop = xcodeml.matchAll(Xcode.F_DO_STATEMENT).get(1);
+    Xnode lowerBound = innerLoop.matchSeq(Xcode.INDEX_RANGE,
+        Xcode.LOWER_BOUND, Xcode.F_INT_CONSTANT);
+    lowerBound.insertAfter(
+        innerLoop.matchDirectDescendant(Xcode.VAR).cloneNode().setValue("j"));
+    lowerBound.delete();
+    TransformationHelper.transform(xcodeml);
+    assertTrue(xcodeml.hasErrors());
+    assertTrue(xcodeml.getErrors().get(0).getMessage()
+        .startsWith("Iteration space is not rectangular"));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.ll.loop;
+
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the generated code of the loop-unroll transformation.
+ *
+ * @author clementval
+ */
+public class LoopUnrollTest {
+
+  private static XcodeProgram loadLoopNest(String directive) {
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    XcodeProgram xcodeml =
+        TransformationHelper.loadProgram(TestConstant.TEST_LOOP_NEST);
+    xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT).get(0).setValue(directive);
+    return xcodeml;
+  }
+
+  private static String getBound(Xnode doStmt, Xcode bound) {
+    return doStmt.matchSeq(Xcode.INDEX_RANGE, bound).firstChild()
+        .constructRepresentation(false, false);
+  }
+
+  private static String getLhs(Xnode assign) {
+    return assign.firstChild().constructRepresentation(false, false);
+  }
+
+  @Test
+  public void unrollTest() {
+    XcodeProgram xcodeml = loadLoopNest("claw loop-unroll factor(4)");
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    assertEquals(2, fctDef.body().children().size());
+
+    // Unrolled loop with the replicated inner loop
+    Xnode unrolled = fctDef.body().firstChild();
+    assertEquals("m-3", getBound(unrolled, Xcode.UPPER_BOUND));
+    assertEquals("4", getBound(unrolled, Xcode.STEP));
+    List<Xnode> copies = unrolled.body().children();
+    assertEquals(4, copies.size());
+    assertEquals("a(i,j)", getLhs(copies.get(0).body().firstChild()));
+    assertEquals("a(i,j+1)", getLhs(copies.get(1).body().firstChild()));
+    assertEquals("a(i,j+3)", getLhs(copies.get(3).body().firstChild()));
+
+    // Epilogue loop for the remaining iterations
+    Xnode epilogue = fctDef.body().lastChild();
+    assertTrue(epilogue.is(Xcode.F_DO_STATEMENT));
+    assertEquals("m", getBound(epilogue, Xcode.UPPER_BOUND));
+    assertEquals(1, epilogue.body().children().size());
+  }
+
+  @Test
+  public void unrollJamTest() {
+    XcodeProgram xcodeml = loadLoopNest("claw loop-unroll factor(2) jam");
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    Xnode unrolled = fctDef.body().firstChild();
+    assertEquals("2", getBound(unrolled, Xcode.STEP));
+    assertEquals(1, unrolled.body().children().size());
+
+    // Copies of the body are fused in the inner loop
+    Xnode innerLoop = unrolled.body().firstChild();
+    assertTrue(innerLoop.is(Xcode.F_DO_STATEMENT));
+    List<Xnode> stmts = innerLoop.body().children();
+    assertEquals(2, stmts.size());
+    assertEquals("a(i,j)", getLhs(stmts.get(0)));
+    assertEquals("a(i,j+1)", getLhs(stmts.get(1)));
+  }
+
+  @Test
+  public void nonUnitStepTest() {
+    XcodeProgram xcodeml = loadLoopNest("claw loop-unroll factor(4)");
+    xcodeml.matchAll(Xcode.F_DO_STATEMENT).get(0)
+        .matchSeq(Xcode.INDEX_RANGE, Xcode.STEP, Xcode.F_INT_CONSTANT)
+        .setValue("2");
+    TransformationHelper.transform(xcodeml);
+    assertTrue(xcodeml.hasErrors());
+    assertEquals("Only loops with a unit step can be unrolled",
+        xcodeml.getErrors().get(0).getMessage());
+    assertEquals(2, xcodeml.matchAll(Xcode.F_DO_STATEMENT).size());
+  }
+
+  @Test
+  public void unrollFactorTest() {
+    XcodeProgram xcodeml = loadLoopNest("claw loop-unroll factor(1)");
+    TransformationHelper.transform(xcodeml);
+    assertTrue(xcodeml.hasErrors());
+    assertEquals("Unroll factor must be greater than 1",
+        xcodeml.getErrors().get(0).getMessage());
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.sca;
+
+import claw.tatsu.xcodeml.abstraction.AssignStatement;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.common.Xscope;
+import claw.tatsu.xcodeml.xnode.common.XstorageClass;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.wani.x2t.configuration.Configuration;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the generated code of the SCA transformation for CPU target.
+ *
+ * @author clementval
+ */
+public class ScaCPUvectorizeGroupTest {
+
+  private static XcodeProgram load(String... parameters) {
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    for(int i = 0; i < parameters.length; i += 2) {
+      Configuration.get().overrideConfigurationParameter(parameters[i],
+          parameters[i + 1]);
+    }
+    return TransformationHelper.loadProgram(TestConstant.TEST_SCA_COLUMN);
+  }
+
+  private static XcodeProgram transform(XcodeProgram xcodeml) {
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  private static XcodeProgram transform(String... parameters) {
+    return transform(load(parameters));
+  }
+
+  /**
+   * Insert a scalar assignment between the two vector blocks of the column
+   * fixture: after the k loop and before the last statement.
+   */
+  private static void insertBetweenBlocks(XcodeProgram xcodeml, String lhs,
+                                          String rhs)
+  {
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    for(String var : new String[]{lhs, rhs}) {
+      if(!fctDef.getSymbolTable().contains(var)) {
+        xcodeml.createIdAndDecl(var, FortranType.REAL, XstorageClass.F_LOCAL,
+            fctDef, DeclarationPosition.LAST);
+      }
+    }
+    Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    assign.append(xcodeml.createVar(FortranType.REAL, lhs, Xscope.LOCAL));
+    assign.append(xcodeml.createVar(FortranType.REAL, rhs, Xscope.LOCAL));
+    fctDef.body().matchDirectDescendant(Xcode.F_DO_STATEMENT)
+        .insertAfter(assign);
+  }
+
+  private static boolean hasWarning(XcodeProgram xcodeml, String text) {
+    return xcodeml.getWarnings().stream()
+        .anyMatch(w -> w.getMessage().contains(text));
+  }
+
+  private static String getInductionVar(Xnode doStmt) {
+    return doStmt.matchDirectDescendant(Xcode.VAR).value();
+  }
+
+  private static String getRange(Xnode doStmt) {
+    Xnode range = doStmt.matchDirectDescendant(Xcode.INDEX_RANGE);
+    return range.matchDirectDescendant(Xcode.LOWER_BOUND)
+        .constructRepresentation(false, false) + ":" +
+        range.matchSeq(Xcode.STEP, Xcode.F_INT_CONSTANT).value();
+  }
+
+  @Test
+  public void blockedStrategyTest() {
+    XcodeProgram xcodeml = transform(Configuration.CPU_STRATEGY,
+        Configuration.CPU_STRATEGY_BLOCKED, Configuration.CPU_BLOCK_SIZE,
+        "16");
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+
+    // Temporary promoted with the block size
+    FbasicType s = xcodeml.getTypeTable()
+        .getBasicType(fctDef.getSymbolTable().get("s"));
+    assertTrue(s.isArray());
+    assertEquals(1, s.getDimensions());
+    assertEquals("16", s.getDimensions(0)
+        .matchSeq(Xcode.UPPER_BOUND, Xcode.F_INT_CONSTANT).value());
+
+    // Block loop wrapping the region from the first to the last vector block
+    List<Xnode> topLevelLoops = fctDef.body().matchAll(Xcode.F_DO_STATEMENT);
+    Xnode blockLoop = topLevelLoops.get(0);
+    assertEquals("proma_blk", getInductionVar(blockLoop));
+    assertEquals("1:16", getRange(blockLoop));
+    assertEquals("omp do private(proma,proma_blk_idx,s,k)",
+        blockLoop.prevSibling().value());
+
+    // Each vector block iterates over the current block only
+    List<Xnode> vectorLoops = blockLoop.matchAll(Xcode.F_DO_STATEMENT);
+    assertEquals(3, vectorLoops.size());
+    assertEquals("k", getInductionVar(vectorLoops.get(0)));
+    for(Xnode loop : vectorLoops.subList(1, 3)) {
+      assertEquals("proma", getInductionVar(loop));
+      assertEquals("proma_blk:1", getRange(loop));
+      AssignStatement blockIdx =
+          new AssignStatement(loop.body().firstChild().element());
+      assertEquals("proma_blk_idx", blockIdx.getLhsName());
+    }
+    Xnode sAssign = vectorLoops.get(1).body().child(2);
+    assertEquals("s(proma_blk_idx)",
+        sAssign.firstChild().constructRepresentation(false, false));
+  }
+
+  @Test
+  public void blockedInvariantTest() {
+    XcodeProgram xcodeml = transform(Configuration.CPU_STRATEGY,
+        Configuration.CPU_STRATEGY_BLOCKED, Configuration.CPU_BLOCK_SIZE,
+        "16", Configuration.SCA_LOOP_INVARIANT_MOTION, "true");
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    Xnode blockLoop = fctDef.body().matchAll(Xcode.F_DO_STATEMENT).get(0);
+    assertEquals("omp do private(proma,proma_blk_idx,s,claw_inv_0,k)",
+        blockLoop.prevSibling().value());
+
+    // c*k is computed once per block before the vector loop
+    Xnode kLoop = blockLoop.body().firstChild();
+    assertEquals("k", getInductionVar(kLoop));
+    AssignStatement invariant =
+        new AssignStatement(kLoop.body().firstChild().element());
+    assertEquals("claw_inv_0", invariant.getLhsName());
+    Xnode vectorLoop = invariant.nextSibling();
+    assertEquals("proma", getInductionVar(vectorLoop));
+    assertEquals("claw_inv_0",
+        vectorLoop.body().child(1).lastChild().value());
+  }
+
+  @Test
+  public void blockedRegionScalarTest() {
+    // w is written between the blocks and is private to each block
+    XcodeProgram xcodeml = load(Configuration.CPU_STRATEGY,
+        Configuration.CPU_STRATEGY_BLOCKED, Configuration.CPU_BLOCK_SIZE,
+        "16");
+    insertBetweenBlocks(xcodeml, "w", "c");
+    transform(xcodeml);
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    Xnode blockLoop = fctDef.body().matchAll(Xcode.F_DO_STATEMENT).get(0);
+    assertEquals("proma_blk", getInductionVar(blockLoop));
+    assertEquals("omp do private(proma,proma_blk_idx,s,k,w)",
+        blockLoop.prevSibling().value());
+  }
+
+  @Test
+  public void blockedRegionDependenceTest() {
+    // c is read by the first block and written after it. The second block
+    // iteration would read the new value: fusion is applied instead.
+    XcodeProgram xcodeml = load(Configuration.CPU_STRATEGY,
+        Configuration.CPU_STRATEGY_BLOCKED, Configuration.CPU_BLOCK_SIZE,
+        "16");
+    insertBetweenBlocks(xcodeml, "c", "w");
+    transform(xcodeml);
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    assertNull(fctDef.getSymbolTable().get("proma_blk"));
+    assertTrue(hasWarning(xcodeml, "Variable c written outside of vector " +
+        "blocks is read before it"));
+
+    // Value of w is needed after the blocked region
+    xcodeml = load(Configuration.CPU_STRATEGY,
+        Configuration.CPU_STRATEGY_BLOCKED, Configuration.CPU_BLOCK_SIZE,
+        "16");
+    insertBetweenBlocks(xcodeml, "w", "c");
+    fctDef = xcodeml.getAllFctDef().get(0);
+    Xnode read = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    read.append(xcodeml.createVar(FortranType.REAL, "c", Xscope.LOCAL));
+    read.append(xcodeml.createVar(FortranType.REAL, "w", Xscope.LOCAL));
+    fctDef.body().append(read);
+    transform(xcodeml);
+    assertNull(fctDef.getSymbolTable().get("proma_blk"));
+    assertTrue(hasWarning(xcodeml, "Variable w written outside of vector " +
+        "blocks is read after it"));
+  }
+
+  @Test
+  public void simdAlignedTest() {
+    XcodeProgram xcodeml = transform("omp_simd", "true",
+        "omp_simd_alignment", "64");
+    List<String> pragmas = TransformationHelper.getPragmas(xcodeml);
+    assertTrue(pragmas.contains("omp do simd"));
+    for(String pragma : pragmas) {
+      assertFalse(pragma.contains("aligned"));
+    }
+
+    xcodeml = transform("omp_simd", "true", "omp_simd_alignment", "64",
+        "omp_simd_aligned", "true");
+    pragmas = TransformationHelper.getPragmas(xcodeml);
+    assertTrue(pragmas.contains("omp do simd aligned(t,s,q:64)"));
+    assertTrue(pragmas.contains("omp do simd aligned(q,s:64)"));
+  }
+
+  @Test
+  public void fusionStrategyTest() {
+    XcodeProgram xcodeml = transform(Configuration.CPU_STRATEGY,
+        Configuration.CPU_STRATEGY_FUSION);
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+
+    // Temporary promoted with the horizontal dimension
+    assertNull(fctDef.getSymbolTable().get("proma_blk"));
+    FbasicType s = xcodeml.getTypeTable()
+        .getBasicType(fctDef.getSymbolTable().get("s"));
+    assertEquals("nproma", s.getDimensions(0)
+        .matchSeq(Xcode.UPPER_BOUND, Xcode.VAR).value());
+    for(Xnode loop : fctDef.body().matchAll(Xcode.F_DO_STATEMENT)) {
+      assertNotEquals("proma_blk", getInductionVar(loop));
+    }
+  }
+}
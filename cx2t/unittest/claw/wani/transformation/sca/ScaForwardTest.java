@@ -0,0 +1,492 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.sca;
+
+import claw.tatsu.primitive.Type;
+import claw.tatsu.xcodeml.error.XanalysisError;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.common.Xscope;
+import claw.tatsu.xcodeml.xnode.common.XstorageClass;
+import claw.tatsu.xcodeml.xnode.fortran.DeclarationPosition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FmoduleDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
+import claw.tatsu.xcodeml.xnode.fortran.Intent;
+import claw.wani.x2t.configuration.Configuration;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the generated code of the SCA forward transformation.
+ *
+ * @author clementval
+ */
+public class ScaForwardTest {
+
+  private static XcodeProgram transform(String target, String directive,
+                                        String pragma, String... parameters)
+  {
+    TransformationHelper.loadConfiguration(target, directive);
+    for(int i = 0; i < parameters.length; i += 2) {
+      Configuration.get().overrideConfigurationParameter(parameters[i],
+          parameters[i + 1]);
+    }
+    XcodeProgram xcodeml = load(pragma);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  private static XcodeProgram load(String pragma) {
+    XcodeProgram xcodeml =
+        TransformationHelper.loadProgram(TestConstant.TEST_SCA_FORWARD);
+    getCaller(xcodeml).body().firstChild().setValue(pragma);
+    return xcodeml;
+  }
+
+  private static XcodeProgram loadDemoted(String target, String directive,
+                                          String modelConfig)
+  {
+    TransformationHelper.loadConfiguration(target, directive, modelConfig);
+    return load("claw sca forward");
+  }
+
+  private static FfunctionDefinition getCallee(XcodeProgram xcodeml) {
+    for(FfunctionDefinition fctDef : xcodeml.getAllFctDef()) {
+      if(fctDef.getName().equals("compute_column")) {
+        return fctDef;
+      }
+    }
+    fail("Function compute_column not found");
+    return null;
+  }
+
+  private static boolean hasError(XcodeProgram xcodeml, String part) {
+    for(XanalysisError error : xcodeml.getErrors()) {
+      if(error.getMessage().contains(part)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String getAssignment(Xnode stmt) {
+    assertTrue(Xnode.isOfCode(stmt, Xcode.F_ASSIGN_STATEMENT));
+    return stmt.firstChild().value() + "=" + stmt.lastChild().value();
+  }
+
+  private static String getSymbolicKindConfig() throws IOException {
+    Path config = Files.createTempFile("model_precision", ".toml");
+    config.toFile().deleteOnExit();
+    String content = new String(Files.readAllBytes(
+        Paths.get(TestConstant.TEST_MODEL_CONFIG_PRECISION)),
+        StandardCharsets.UTF_8);
+    Files.write(config, content.replace("kind = 4", "kind = \"sp\"")
+        .getBytes(StandardCharsets.UTF_8));
+    return config.toString();
+  }
+
+  private static FfunctionDefinition getCaller(XcodeProgram xcodeml) {
+    return xcodeml.getGlobalDeclarationsTable()
+        .getFunctionDefinition("compute");
+  }
+
+  private static boolean hasWarning(XcodeProgram xcodeml, String prefix) {
+    for(XanalysisError warning : xcodeml.getWarnings()) {
+      if(warning.getMessage().startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void forwardTest() {
+    XcodeProgram xcodeml =
+        transform("gpu", "openacc", "claw sca forward");
+    FfunctionDefinition caller = getCaller(xcodeml);
+    List<Xnode> calls = caller.body().matchAll(Xcode.FUNCTION_CALL);
+    assertEquals(1, calls.size());
+    Xnode named = calls.get(0).matchSeq(Xcode.ARGUMENTS, Xcode.NAMED_VALUE);
+    assertNotNull(named);
+    assertEquals("nproma", named.firstChild().value());
+  }
+
+  @Test
+  public void inlineTest() {
+    XcodeProgram xcodeml =
+        transform("gpu", "openacc", "claw sca forward inline");
+    FfunctionDefinition caller = getCaller(xcodeml);
+    assertTrue(caller.body().matchAll(Xcode.FUNCTION_CALL).isEmpty());
+    assertFalse(hasWarning(xcodeml, "Call to compute_column"));
+
+    // Callee locals are declared in the caller with a prefix
+    assertTrue(caller.getSymbolTable().contains("compute_column_c"));
+    assertTrue(caller.getSymbolTable().contains("compute_column_k"));
+    assertTrue(caller.getSymbolTable().contains("compute_column_proma"));
+    assertFalse(caller.getSymbolTable()
+        .contains("compute_column_compute_column"));
+
+    // Dummy arguments are replaced by the actual arguments
+    List<Xnode> loops = caller.body().matchAll(Xcode.F_DO_STATEMENT);
+    assertEquals(2, loops.size());
+    assertEquals("compute_column_proma",
+        loops.get(0).matchDirectDescendant(Xcode.VAR).value());
+    assertEquals("nproma", loops.get(0).matchSeq(Xcode.INDEX_RANGE,
+        Xcode.UPPER_BOUND, Xcode.VAR).value());
+    assertEquals("t(compute_column_proma,compute_column_k)",
+        loops.get(1).body().firstChild().firstChild()
+            .constructRepresentation(false, false));
+    assertEquals("acc data present(t,q)",
+        TransformationHelper.getPragmas(caller).get(0));
+  }
+
+  @Test
+  public void inlinePromotedLocalTest() {
+    XcodeProgram xcodeml =
+        transform("cpu", "openmp", "claw sca forward inline");
+    FfunctionDefinition caller = getCaller(xcodeml);
+    assertTrue(caller.body().matchAll(Xcode.FUNCTION_CALL).isEmpty());
+
+    // Scalar promoted in the callee is sized with the caller's variable
+    FbasicType s = xcodeml.getTypeTable().getBasicType(
+        caller.getSymbolTable().get("compute_column_s"));
+    assertEquals(1, s.getDimensions());
+    assertEquals("nproma", s.getDimensions(0)
+        .matchSeq(Xcode.UPPER_BOUND, Xcode.VAR).value());
+  }
+
+  @Test
+  public void inlineThresholdTest() {
+    XcodeProgram xcodeml = transform("gpu", "openacc",
+        "claw sca forward inline",
+        Configuration.SCA_FORWARD_INLINE_THRESHOLD, "2");
+    FfunctionDefinition caller = getCaller(xcodeml);
+    assertEquals(1, caller.body().matchAll(Xcode.FUNCTION_CALL).size());
+    assertTrue(hasWarning(xcodeml, "Call to compute_column cannot be " +
+        "inlined: subroutine has"));
+    assertFalse(caller.getSymbolTable().contains("compute_column_c"));
+  }
+
+  @Test
+  public void inlineInitializedLocalTest() {
+    TransformationHelper.loadConfiguration("gpu", "openacc");
+    XcodeProgram xcodeml =
+        TransformationHelper.loadProgram(TestConstant.TEST_SCA_FORWARD);
+    getCaller(xcodeml).body().firstChild()
+        .setValue("claw sca forward inline");
+    FfunctionDefinition callee = xcodeml.getGlobalDeclarationsTable()
+        .getFunctionDefinition("compute_column");
+    callee.getDeclarationTable().get("c")
+        .append(xcodeml.createNode(Xcode.VALUE)
+            .append(xcodeml.createIntConstant(1)));
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    assertTrue(hasWarning(xcodeml, "Call to compute_column cannot be " +
+        "inlined: local variable c has an initial value"));
+    assertEquals(1,
+        getCaller(xcodeml).body().matchAll(Xcode.FUNCTION_CALL).size());
+  }
+
+  private static List<Xnode> getCallArguments(XcodeProgram xcodeml) {
+    return getCaller(xcodeml).body().matchSeq(Xcode.EXPR_STATEMENT,
+        Xcode.FUNCTION_CALL, Xcode.ARGUMENTS).children();
+  }
+
+  private static XcodeProgram transformInline(XcodeProgram xcodeml) {
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  @Test
+  public void inlineExpressionTest() {
+    // call compute_column(nz + 1, q, t)
+    TransformationHelper.loadConfiguration("gpu", "openacc");
+    XcodeProgram xcodeml = load("claw sca forward inline");
+    Xnode nz = getCallArguments(xcodeml).get(0);
+    Xnode plus = xcodeml.createIntBinaryExpr(Xcode.PLUS_EXPR,
+        nz.cloneNode(), xcodeml.createIntConstant(1));
+    nz.insertAfter(plus);
+    nz.delete();
+    transformInline(xcodeml);
+
+    // The expression is evaluated once before the inlined body
+    FfunctionDefinition caller = getCaller(xcodeml);
+    assertTrue(caller.body().matchAll(Xcode.FUNCTION_CALL).isEmpty());
+    assertTrue(caller.getSymbolTable().contains("compute_column_nz"));
+    Xnode assign = caller.body().matchDirectDescendant(
+        Xcode.F_ASSIGN_STATEMENT);
+    assertEquals("compute_column_nz", assign.firstChild().value());
+    assertTrue(assign.lastChild().is(Xcode.PLUS_EXPR));
+    assertFalse(xcodeml.getTypeTable().getBasicType(
+        caller.getSymbolTable().get("compute_column_nz")).hasIntent());
+    for(Xnode var : caller.body().matchAll(Xcode.VAR)) {
+      if(var.value().equals("nz")) {
+        assertTrue(var.ancestor().is(Xcode.PLUS_EXPR));
+      }
+    }
+    Xnode kLoop = caller.body().matchAll(Xcode.F_DO_STATEMENT).get(1);
+    assertEquals("compute_column_k",
+        kLoop.matchDirectDescendant(Xcode.VAR).value());
+    assertEquals("compute_column_nz", kLoop.matchSeq(Xcode.INDEX_RANGE,
+        Xcode.UPPER_BOUND, Xcode.VAR).value());
+  }
+
+  @Test
+  public void inlineAliasingTest() {
+    // call compute_column(nz, q, q)
+    TransformationHelper.loadConfiguration("gpu", "openacc");
+    XcodeProgram xcodeml = load("claw sca forward inline");
+    List<Xnode> arguments = getCallArguments(xcodeml);
+    arguments.get(2).insertAfter(arguments.get(1).cloneNode());
+    arguments.get(2).delete();
+    transformInline(xcodeml);
+    assertEquals(1,
+        getCaller(xcodeml).body().matchAll(Xcode.FUNCTION_CALL).size());
+    assertTrue(hasWarning(xcodeml, "Call to compute_column cannot be " +
+        "inlined: actual argument of q reads q updated through t"));
+  }
+
+  @Test
+  public void inlineArrayElementTest() {
+    // call compute_column(w(m), q, t) with nz intent(inout) and m updated by
+    // compute_column through host association
+    TransformationHelper.loadConfiguration("gpu", "openacc");
+    XcodeProgram xcodeml = load("claw sca forward inline");
+    FfunctionDefinition caller = getCaller(xcodeml);
+    FfunctionDefinition callee = getCallee(xcodeml);
+    xcodeml.getTypeTable().getBasicType(callee.getSymbolTable().get("nz"))
+        .setAttribute(Xattr.INTENT, Intent.INOUT.toString());
+    Xnode update = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    update.append(xcodeml.createVar(FortranType.INTEGER, "m", Xscope.LOCAL));
+    update.append(xcodeml.createIntConstant(1));
+    callee.body().append(update);
+
+    FbasicType wType = xcodeml.createBasicType(FortranType.INTEGER,
+        Intent.NONE);
+    wType.addDimension(xcodeml.createEmptyAssumedShaped());
+    xcodeml.getTypeTable().add(wType);
+    xcodeml.createIdAndDecl("w", wType.getType(), XstorageClass.F_LOCAL,
+        caller, DeclarationPosition.LAST);
+    Xnode element = xcodeml.createArrayRef(wType,
+        xcodeml.createVar(wType.getType(), "w", Xscope.LOCAL));
+    element.append(xcodeml.createNode(Xcode.ARRAY_INDEX)
+        .append(xcodeml.createVar(FortranType.INTEGER, "m", Xscope.LOCAL)));
+    Xnode nz = getCallArguments(xcodeml).get(0);
+    nz.insertAfter(element);
+    nz.delete();
+    transformInline(xcodeml);
+
+    assertEquals(1, caller.body().matchAll(Xcode.FUNCTION_CALL).size());
+    assertTrue(hasWarning(xcodeml, "Call to compute_column cannot be " +
+        "inlined: actual argument of nz reads m updated by the subroutine"));
+  }
+
+  private static XcodeProgram loadStruct(String modelConfig) {
+    TransformationHelper.loadConfiguration("cpu", "openmp", modelConfig);
+    return TransformationHelper.loadProgram(TestConstant.TEST_SCA_STRUCT);
+  }
+
+  private static FfunctionDefinition getStructCaller(XcodeProgram xcodeml) {
+    return xcodeml.getGlobalDeclarationsTable()
+        .getFunctionDefinition("compute");
+  }
+
+  private static String getCopy(Xnode stmt) {
+    assertTrue(Xnode.isOfCode(stmt, Xcode.F_ASSIGN_STATEMENT));
+    return stmt.firstChild().constructRepresentation(false, false) + "=" +
+        stmt.lastChild().constructRepresentation(false, false);
+  }
+
+  @Test
+  public void structMemberTest() {
+    XcodeProgram xcodeml = loadStruct(TestConstant.TEST_MODEL_CONFIG_SOA);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    // The callee gets a new field for the member
+    FfunctionDefinition callee = getCallee(xcodeml);
+    assertTrue(callee.getSymbolTable().contains("s_t"));
+    assertTrue(callee.body().matchAll(Xcode.F_MEMBER_REF).isEmpty());
+
+    // The caller passes a copy of the member of its actual argument
+    FfunctionDefinition caller = getStructCaller(xcodeml);
+    assertEquals(xcodeml.getTypeTable().getStructType("S7f3c1e4061b0")
+            .getMember("t").getType(),
+        caller.getSymbolTable().get("st_t").getType());
+    Xnode callStmt = caller.body().matchDirectDescendant(
+        Xcode.EXPR_STATEMENT);
+    assertEquals("st_t=st%t", getCopy(callStmt.prevSibling()));
+    assertEquals("st%t=st_t", getCopy(callStmt.nextSibling()));
+    Xnode field = null;
+    for(Xnode arg : callStmt.matchSeq(Xcode.FUNCTION_CALL, Xcode.ARGUMENTS)
+        .children())
+    {
+      if(arg.is(Xcode.NAMED_VALUE)
+          && arg.getAttribute(Xattr.NAME).equals("s_t"))
+      {
+        field = arg.firstChild();
+      }
+    }
+    assertNotNull(field);
+    assertEquals("st_t", field.value());
+  }
+
+  @Test
+  public void structMemberIntentInTest() {
+    XcodeProgram xcodeml = loadStruct(TestConstant.TEST_MODEL_CONFIG_SOA);
+    xcodeml.getTypeTable().getBasicType("S7f3c1e409900")
+        .setAttribute(Xattr.INTENT, Intent.IN.toString());
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    // The member is not copied back
+    Xnode callStmt = getStructCaller(xcodeml).body()
+        .matchDirectDescendant(Xcode.EXPR_STATEMENT);
+    assertEquals("st_t=st%t", getCopy(callStmt.prevSibling()));
+    assertNull(callStmt.nextSibling());
+  }
+
+  @Test
+  public void structMemberPromotedTest() throws IOException {
+    // Without the struct layout, the field is promoted and the member of the
+    // caller has not enough dimensions to be copied.
+    Path config = Files.createTempFile("model_soa", ".toml");
+    config.toFile().deleteOnExit();
+    String content = new String(Files.readAllBytes(
+        Paths.get(TestConstant.TEST_MODEL_CONFIG_SOA)),
+        StandardCharsets.UTF_8);
+    Files.write(config, content.replace("layout = \"soa\"", "")
+        .getBytes(StandardCharsets.UTF_8));
+    XcodeProgram xcodeml = loadStruct(config.toString());
+    TransformationHelper.transform(xcodeml);
+    assertTrue(hasError(xcodeml, "Member t of st has 1 dimensions but field " +
+        "s_t of compute_column has 2."));
+  }
+
+  @Test
+  public void demoteTest() {
+    XcodeProgram xcodeml = loadDemoted("cpu", "openmp",
+        TestConstant.TEST_MODEL_CONFIG_PRECISION);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    // Fields of the kernel are demoted
+    FfunctionDefinition callee = getCallee(xcodeml);
+    for(String name : Arrays.asList("t", "q")) {
+      assertEquals("4", Type.getRealKind(
+          callee.getSymbolTable().get(name).getType(), xcodeml));
+    }
+
+    // Actual arguments are copied to temporaries around the call
+    FfunctionDefinition caller = getCaller(xcodeml);
+    for(String name : Arrays.asList("t_demoted", "q_demoted")) {
+      assertTrue(caller.getSymbolTable().contains(name));
+      FbasicType type = xcodeml.getTypeTable()
+          .getBasicType(caller.getSymbolTable().get(name));
+      assertEquals("4", Type.getRealKind(type.getType(), xcodeml));
+      assertEquals(Intent.NONE, type.getIntent());
+      assertTrue(type.isAllocatable());
+    }
+    Xnode callStmt =
+        caller.body().matchAll(Xcode.FUNCTION_CALL).get(0).ancestor();
+    List<String> before = Arrays.asList(
+        getAssignment(callStmt.prevSibling().prevSibling()),
+        getAssignment(callStmt.prevSibling()));
+    List<String> after = Arrays.asList(
+        getAssignment(callStmt.nextSibling()),
+        getAssignment(callStmt.nextSibling().nextSibling()));
+    assertTrue(before.contains("q_demoted=q"));
+    assertTrue(before.contains("t_demoted=t"));
+    assertTrue(after.contains("q=q_demoted"));
+    assertTrue(after.contains("t=t_demoted"));
+    List<String> args = new ArrayList<>();
+    for(Xnode arg : callStmt.matchSeq(Xcode.FUNCTION_CALL, Xcode.ARGUMENTS)
+        .children())
+    {
+      if(arg.is(Xcode.VAR)) {
+        args.add(arg.value());
+      }
+    }
+    assertEquals(Arrays.asList("nz", "q_demoted", "t_demoted"), args);
+  }
+
+  @Test
+  public void demoteReadOnlyTest() {
+    XcodeProgram xcodeml = loadDemoted("cpu", "openmp",
+        TestConstant.TEST_MODEL_CONFIG_PRECISION);
+    FfunctionDefinition callee = getCallee(xcodeml);
+    xcodeml.getTypeTable().getBasicType(callee.getSymbolTable().get("t"))
+        .setIntent(Intent.IN);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    // Read-only argument is converted in the call
+    FfunctionDefinition caller = getCaller(xcodeml);
+    assertFalse(caller.getSymbolTable().contains("t_demoted"));
+    assertTrue(caller.getSymbolTable().contains("q_demoted"));
+    List<Xnode> conversions = new ArrayList<>();
+    for(Xnode call : caller.body().matchAll(Xcode.FUNCTION_CALL)) {
+      if(call.matchSeq(Xcode.NAME).value().equals("real")) {
+        conversions.add(call);
+      }
+    }
+    assertEquals(1, conversions.size());
+    Xnode conversionArgs = conversions.get(0).matchSeq(Xcode.ARGUMENTS);
+    assertEquals("t", conversionArgs.firstChild().value());
+    assertEquals("kind", conversionArgs.lastChild().getAttribute(Xattr.NAME));
+    assertEquals("4", conversionArgs.lastChild().firstChild().value());
+  }
+
+  @Test
+  public void demoteDeviceTest() {
+    XcodeProgram xcodeml = loadDemoted("gpu", "openacc",
+        TestConstant.TEST_MODEL_CONFIG_PRECISION);
+    TransformationHelper.transform(xcodeml);
+    assertTrue(hasError(xcodeml, "cannot be converted on the device"));
+  }
+
+  @Test
+  public void demoteSymbolicKindTest() throws IOException {
+    String modelConfig = getSymbolicKindConfig();
+
+    // Kind is not defined in the module of the kernel
+    XcodeProgram xcodeml = loadDemoted("cpu", "openmp", modelConfig);
+    TransformationHelper.transform(xcodeml);
+    assertTrue(hasError(xcodeml, "Kind sp of the demoted arguments of " +
+        "compute_column is not visible in compute"));
+
+    // Kind is defined in the module shared by the caller and the kernel
+    xcodeml = loadDemoted("cpu", "openmp", modelConfig);
+    FmoduleDefinition mod =
+        xcodeml.getGlobalDeclarationsTable().getModuleDefinition("mo_forward");
+    mod.getSymbolTable().add(xcodeml.createId(FortranType.INTEGER,
+        XstorageClass.F_PARAM, "sp"));
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    FfunctionDefinition caller = getCaller(xcodeml);
+    assertTrue(caller.getDeclarationTable().uses().isEmpty());
+    FbasicType type = xcodeml.getTypeTable()
+        .getBasicType(caller.getSymbolTable().get("q_demoted"));
+    assertEquals("sp", Type.getRealKind(type.getType(), xcodeml));
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.transformation.sca;
+
+import claw.tatsu.common.Context;
+import claw.tatsu.directive.configuration.OpenAccConfiguration;
+import claw.tatsu.xcodeml.abstraction.FunctionCall;
+import claw.tatsu.xcodeml.xnode.common.Xattr;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.wani.x2t.configuration.Configuration;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the generated code of the SCA transformation for GPU target.
+ *
+ * @author clementval
+ */
+public class ScaGPUTest {
+
+  private static XcodeProgram load(String... parameters) {
+    TransformationHelper.loadConfiguration("gpu", "openacc");
+    for(int i = 0; i < parameters.length; i += 2) {
+      Configuration.get().overrideConfigurationParameter(parameters[i],
+          parameters[i + 1]);
+    }
+    return TransformationHelper.loadProgram(TestConstant.TEST_SCA_LOCAL);
+  }
+
+  private static XcodeProgram transform(String... parameters) {
+    XcodeProgram xcodeml = load(parameters);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  private static FbasicType getType(XcodeProgram xcodeml, String name) {
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    return xcodeml.getTypeTable()
+        .getBasicType(fctDef.getSymbolTable().get(name));
+  }
+
+  @Test
+  public void contractionTest() {
+    XcodeProgram xcodeml = transform("accelerator_local_strategy", "promote",
+        "accelerator_contraction", "true");
+    List<String> pragmas = TransformationHelper.getPragmas(xcodeml);
+    assertEquals("acc data present(q)", pragmas.get(0));
+    assertTrue(pragmas.contains("acc loop gang vector private(w_s,u)"));
+
+    // w is written before being read in each iteration: contracted to scalar
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    assertTrue(fctDef.getSymbolTable().contains("w_s"));
+    for(Xnode var : fctDef.body().matchAll(Xcode.VAR)) {
+      assertNotEquals("w", var.value());
+    }
+    // u(k-1) is read from the previous iteration: kept as private array
+    assertEquals(1, getType(xcodeml, "u").getDimensions());
+  }
+
+  @Test
+  public void contractionDisabledTest() {
+    // Contraction is disabled by default
+    XcodeProgram xcodeml = transform("accelerator_local_strategy", "promote");
+    List<String> pragmas = TransformationHelper.getPragmas(xcodeml);
+    assertEquals("acc data present(q) pcreate(w,u)", pragmas.get(0));
+    assertTrue(pragmas.contains("acc loop gang vector"));
+    assertEquals(2, getType(xcodeml, "w").getDimensions());
+    assertEquals(2, getType(xcodeml, "u").getDimensions());
+  }
+
+  @Test
+  public void contractionSavedArrayTest() {
+    XcodeProgram xcodeml = load("accelerator_local_strategy", "promote",
+        "accelerator_contraction", "true");
+    getType(xcodeml, "w").setBooleanAttribute(Xattr.IS_SAVE, true);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+
+    // Saved array outlives the column iteration and is promoted
+    List<String> pragmas = TransformationHelper.getPragmas(xcodeml);
+    assertEquals("acc data present(q) pcreate(w)", pragmas.get(0));
+    assertTrue(pragmas.contains("acc loop gang vector private(u)"));
+    assertEquals(2, getType(xcodeml, "w").getDimensions());
+  }
+
+  @Test
+  public void kernelConfigTest() {
+    // Local strategy tuned for the kernel only
+    XcodeProgram xcodeml = load();
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("accelerator_local_strategy", "promote");
+    parameters.put("accelerator_contraction", "true");
+    Context.get().setKernelConfig("compute_local",
+        new OpenAccConfiguration(parameters));
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    assertTrue(TransformationHelper.getPragmas(xcodeml).stream()
+        .anyMatch(p -> p.endsWith("private(w_s,u)")));
+    assertTrue(xcodeml.getAllFctDef().get(0).getSymbolTable()
+        .contains("w_s"));
+
+    // Global configuration is selected back once the kernel is transformed
+    assertSame(Configuration.get().accelerator(),
+        Context.get().getAcceleratorConfig());
+  }
+
+  private static List<Xnode> getKernels(XcodeProgram xcodeml) {
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    List<Xnode> kernels = new ArrayList<>();
+    for(Xnode loop : fctDef.body().matchAll(Xcode.F_DO_STATEMENT)) {
+      if(loop.matchDirectDescendant(Xcode.VAR).value().equals("proma")) {
+        kernels.add(loop);
+      }
+    }
+    return kernels;
+  }
+
+  private static long countStatements(Xnode kernel) {
+    return kernel.body().children().stream()
+        .filter(n -> !n.is(Xcode.F_PRAGMA_STATEMENT)).count();
+  }
+
+  @Test
+  public void fissionTest() {
+    XcodeProgram xcodeml = transform("accelerator_fission_size", "5");
+    List<Xnode> kernels = getKernels(xcodeml);
+    assertEquals(2, kernels.size());
+    assertEquals(2, countStatements(kernels.get(0)));
+    assertEquals(1, countStatements(kernels.get(1)));
+
+    // c is live across the split and must survive between the kernels
+    assertEquals(1, getType(xcodeml, "c").getDimensions());
+    assertEquals("nproma", getType(xcodeml, "c").getDimensions(0)
+        .matchSeq(Xcode.UPPER_BOUND, Xcode.VAR).value());
+    List<String> pragmas = TransformationHelper.getPragmas(xcodeml);
+    assertEquals("acc data present(q) pcreate(c)", pragmas.get(0));
+    assertEquals(2, pragmas.stream().filter("acc parallel"::equals).count());
+    assertEquals("acc end data", pragmas.get(pragmas.size() - 1));
+  }
+
+  @Test
+  public void fissionSplitAllTest() {
+    XcodeProgram xcodeml = transform("accelerator_fission_size", "1");
+    List<Xnode> kernels = getKernels(xcodeml);
+    assertEquals(3, kernels.size());
+    for(Xnode kernel : kernels) {
+      assertEquals(1, countStatements(kernel));
+    }
+  }
+
+  @Test
+  public void fissionNotNeededTest() {
+    // The whole body fits in one kernel
+    XcodeProgram xcodeml = transform("accelerator_fission_size", "10");
+    assertEquals(1, getKernels(xcodeml).size());
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    assertEquals("Freal", fctDef.getSymbolTable().get("c").getType());
+    assertEquals("acc data present(q)",
+        TransformationHelper.getPragmas(xcodeml).get(0));
+  }
+
+  private static XcodeProgram transformManaged(String... parameters) {
+    TransformationHelper.loadConfiguration("gpu", "openacc");
+    Configuration.get().overrideConfigurationParameter(
+        "accelerator_data_strategy", "managed");
+    for(int i = 0; i < parameters.length; i += 2) {
+      Configuration.get().overrideConfigurationParameter(parameters[i],
+          parameters[i + 1]);
+    }
+    XcodeProgram xcodeml =
+        TransformationHelper.loadProgram(TestConstant.TEST_SCA_MANAGED);
+    TransformationHelper.transform(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  private static List<String> getPrefetchCalls(Xnode kernel) {
+    List<String> calls = new ArrayList<>();
+    Xnode stmt = kernel.prevSibling();
+    while(stmt != null && stmt.is(Xcode.F_PRAGMA_STATEMENT)) {
+      stmt = stmt.prevSibling();
+    }
+    while(stmt != null && stmt.is(Xcode.EXPR_STATEMENT)) {
+      FunctionCall call = new FunctionCall(stmt.firstChild());
+      calls.add(0, call.getFctName() + "("
+          + call.arguments().get(0).value() + ")");
+      stmt = stmt.prevSibling();
+    }
+    return calls;
+  }
+
+  @Test
+  public void managedTest() {
+    XcodeProgram xcodeml = transformManaged();
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    List<Xnode> kernels = getKernels(xcodeml);
+    assertEquals(1, kernels.size());
+
+    // t is only read, q only written and r read and written in the kernel
+    assertEquals(Arrays.asList("claw_managed_prefetch_out(q)",
+        "claw_managed_prefetch_inout(r)", "claw_managed_prefetch_in(t)"),
+        getPrefetchCalls(kernels.get(0)));
+    List<Xnode> uses = fctDef.getDeclarationTable().uses();
+    assertEquals(1, uses.size());
+    assertEquals("claw_managed", uses.get(0).getAttribute(Xattr.NAME));
+
+    // No data region with the managed strategy
+    List<String> pragmas = TransformationHelper.getPragmas(xcodeml);
+    assertEquals("acc parallel", pragmas.get(0));
+    for(String pragma : pragmas) {
+      assertFalse(pragma.startsWith("acc data"));
+    }
+  }
+
+  @Test
+  public void managedModuleTest() {
+    XcodeProgram xcodeml = transformManaged(
+        Configuration.MANAGED_MEMORY_MODULE, "my_managed");
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    assertEquals(Arrays.asList("my_managed_prefetch_out(q)",
+        "my_managed_prefetch_inout(r)", "my_managed_prefetch_in(t)"),
+        getPrefetchCalls(getKernels(xcodeml).get(0)));
+    assertEquals("my_managed", fctDef.getDeclarationTable().uses().get(0)
+        .getAttribute(Xattr.NAME));
+  }
+
+  @Test
+  public void managedDisabledTest() {
+    // Present strategy generates a data region and no prefetch
+    XcodeProgram xcodeml = transform();
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    assertTrue(fctDef.getDeclarationTable().uses().isEmpty());
+    assertTrue(getPrefetchCalls(getKernels(xcodeml).get(0)).isEmpty());
+  }
+}
@@ -85,6 +85,14 @@ public class ConfigurationTest {
       assertEquals(Configuration.CPU_STRATEGY_SINGLE,
           Configuration.get().getParameter(Configuration.CPU_STRATEGY));
 
+      assertEquals(32, Configuration.get().
+          getIntParameter(Configuration.CPU_BLOCK_SIZE, 0));
+      Configuration.get().overrideConfigurationParameter(
+          Configuration.CPU_BLOCK_SIZE, "16");
+      assertEquals(16, Configuration.get().
+          getIntParameter(Configuration.CPU_BLOCK_SIZE, 0));
+      assertEquals(8, Configuration.get().getIntParameter(DUMMY_KEY, 8));
+
       assertNull(Configuration.get().getParameter(DUMMY_KEY));
       Configuration.get().
           overrideConfigurationParameter(DUMMY_KEY, DUMMY_VALUE);
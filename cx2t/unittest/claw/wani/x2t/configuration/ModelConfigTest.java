@@ -12,6 +12,7 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.Assert.*;
@@ -64,6 +65,49 @@ public class ModelConfigTest {
       assertTrue(cfg.getLayout("unknown").isEmpty());
       assertTrue(cfg.getLayout(null).isEmpty());
 
+      assertTrue(cfg.getStructTypes().isEmpty());
+
+      // No field is demoted without precision information
+      assertTrue(cfg.getDemotedFields().isEmpty());
+      assertEquals("4", cfg.getDemotionKind());
+
+    } catch(Exception ignored) {
+      fail();
+    }
+  }
+
+  @Test
+  public void structTest() {
+    ModelConfig cfg = new ModelConfig();
+    try {
+      cfg.load(TestConstant.TEST_MODEL_CONFIG_STRUCT);
+
+      // Check correctness of struct-of-arrays information
+      assertEquals(2, cfg.getStructTypes().size());
+      assertEquals(Arrays.asList("temp", "q"),
+          cfg.getStructMembers("t_state"));
+      assertEquals("gpu", cfg.getStructLayout("t_state"));
+      assertEquals(Collections.singletonList("dt"),
+          cfg.getStructMembers("t_tend"));
+      assertNull(cfg.getStructLayout("t_tend"));
+      assertTrue(cfg.getStructMembers("unknown").isEmpty());
+      assertTrue(cfg.getStructMembers(null).isEmpty());
+      assertNull(cfg.getStructLayout("unknown"));
+    } catch(Exception ignored) {
+      fail();
+    }
+  }
+
+  @Test
+  public void precisionTest() {
+    ModelConfig cfg = new ModelConfig();
+    try {
+      cfg.load(TestConstant.TEST_MODEL_CONFIG_PRECISION);
+
+      // Check correctness of precision information
+      assertEquals(Arrays.asList("t", "q"), cfg.getDemotedFields());
+      assertEquals("4", cfg.getDemotionKind());
+      assertTrue(cfg.getStructTypes().isEmpty());
     } catch(Exception ignored) {
       fail();
     }
@@ -166,6 +210,38 @@ public class ModelConfigTest {
         String.format(ModelConfig.ERR_NO_BASE_DIM, "layout1"));
   }
 
+  @Test
+  public void structErrorCheckTest() {
+    StringBuilder config = new StringBuilder();
+    config.append("[model]").append("\n");
+    config.append("name = \"model_name\"").append("\n");
+    config.append("[[dimensions]]").append("\n");
+    config.append("id=\"dim1\"").append("\n");
+    config.append("[dimensions.size]").append("\n");
+    config.append("upper = \"nproma\"").append("\n");
+    config.append("[[layouts]]").append("\n");
+    config.append("id=\"default\"").append("\n");
+    config.append("position = [ \"dim1\", \":\" ]").append("\n");
+
+    config.append("[[structs]]").append("\n");
+    assertError(config, ModelConfig.ERR_STRUCT_NO_TYPE);
+
+    config.append("type = \"t_state\"").append("\n");
+    assertError(config,
+        String.format(ModelConfig.ERR_STRUCT_NO_MEMBERS, "t_state"));
+
+    config.append("members = [ \"t\" ]").append("\n");
+    config.append("layout = \"layout1\"").append("\n");
+    assertError(config,
+        String.format(ModelConfig.ERR_LAYOUT_NOT_AVAIL, "layout1", "t_state"));
+
+    config.delete(config.length() - "layout = \"layout1\"\n".length(),
+        config.length());
+    config.append("[precision]").append("\n");
+    config.append("kind = \"sp\"").append("\n");
+    assertError(config, ModelConfig.ERR_PRECISION_NO_FIELDS);
+  }
+
   private void assertError(StringBuilder config, String expectedError) {
     try {
       ModelConfig cfg = new ModelConfig();
@@ -0,0 +1,75 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.configuration;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test method of the TuningConfig class
+ *
+ * @author clementval
+ */
+public class TuningConfigTest {
+
+  private static InputStream toStream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void loadTest() throws Exception {
+    TuningConfig cfg = new TuningConfig();
+    assertTrue(cfg.getGridPoints().isEmpty());
+    cfg.load(toStream("[grid]\n" +
+        "omp_scheduler_chunk_size = [0, 16]\n" +
+        "omp_num_threads = [1, 2, 4]\n" +
+        "[[kernels]]\n" +
+        "name = \"Compute\"\n" +
+        "omp_num_threads = 4\n" +
+        "omp_execution_mode = \"teams_distribute\"\n"));
+
+    List<Map<String, String>> points = cfg.getGridPoints();
+    assertEquals(6, points.size());
+    assertEquals("{omp_num_threads=1, omp_scheduler_chunk_size=0}",
+        points.get(0).toString());
+    assertEquals("{omp_num_threads=1, omp_scheduler_chunk_size=16}",
+        points.get(1).toString());
+    assertEquals("{omp_num_threads=4, omp_scheduler_chunk_size=16}",
+        points.get(5).toString());
+
+    Map<String, String> kernel = cfg.getKernels().get("compute");
+    assertNotNull(kernel);
+    assertEquals(2, kernel.size());
+    assertEquals("4", kernel.get("omp_num_threads"));
+    assertEquals("teams_distribute", kernel.get("omp_execution_mode"));
+  }
+
+  private void assertLoadError(String content, String error) {
+    try {
+      new TuningConfig().load(toStream(content));
+      fail();
+    } catch(Exception e) {
+      assertEquals(error, e.getMessage());
+    }
+  }
+
+  @Test
+  public void errorTest() {
+    assertLoadError("[grid\n", TuningConfig.ERR_MALFORMATTED);
+    assertLoadError("[grid]\nomp_simd = [true]\n",
+        String.format(TuningConfig.ERR_NOT_TUNABLE, "omp_simd"));
+    assertLoadError("[grid]\nomp_num_threads = []\n",
+        String.format(TuningConfig.ERR_GRID_NO_VALUES, "omp_num_threads"));
+    assertLoadError("[[kernels]]\nomp_num_threads = 2\n",
+        TuningConfig.ERR_KERNEL_NO_NAME);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package claw.wani.x2t.translator;
+
+import claw.shenron.transformation.Transformation;
+import claw.shenron.transformation.TransformationGroup;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
+import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import helper.TestConstant;
+import helper.TransformationHelper;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the features of the TransformationCache class
+ *
+ * @author clementval
+ */
+public class TransformationCacheTest {
+
+  private static XcodeProgram createProgram(String realType, String fctType,
+                                            int lineNo, String value)
+      throws Exception
+  {
+    String xml = "<XcodeProgram source=\"mo.f90\">" +
+        "<typeTable>" +
+        "<FbasicType type=\"" + realType + "\" ref=\"Freal\"/>" +
+        "<FfunctionType type=\"" + fctType + "\" return_type=\"Fvoid\"/>" +
+        "</typeTable>" +
+        "<globalSymbols/>" +
+        "<globalDeclarations>" +
+        "<FfunctionDefinition lineno=\"" + lineNo + "\" file=\"mo.f90\">" +
+        "<name type=\"" + fctType + "\">a</name>" +
+        "<symbols><id type=\"" + realType + "\"><name>x</name></id>" +
+        "</symbols><declarations/><body>" +
+        "<FassignStatement lineno=\"" + (lineNo + 1) + "\">" +
+        "<Var type=\"" + realType + "\">x</Var>" +
+        "<FrealConstant type=\"Freal\">" + value + "</FrealConstant>" +
+        "</FassignStatement></body></FfunctionDefinition>" +
+        "</globalDeclarations>" +
+        "</XcodeProgram>";
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new InputSource(new StringReader(xml)));
+    XcodeProgram xcodeml = XcodeProgram.createFromDocument(doc);
+    assertNotNull(xcodeml);
+    return xcodeml;
+  }
+
+  private static byte[] digest(XcodeProgram xcodeml, Map<String, String> ids)
+  {
+    FfunctionDefinition fctDef = xcodeml.getAllFctDef().get(0);
+    return TransformationCache.digestFunction(fctDef,
+        TransformationCache.getTypes(xcodeml), Collections.emptyMap(), ids,
+        null);
+  }
+
+  @Test
+  public void canonicalDigestTest() throws Exception {
+    Map<String, String> ids1 = new LinkedHashMap<>();
+    Map<String, String> ids2 = new LinkedHashMap<>();
+    byte[] d1 = digest(createProgram("R7f001", "F7f002", 1, "1.0"), ids1);
+    byte[] d2 = digest(createProgram("R5a010", "F5a020", 12, "1.0"), ids2);
+
+    // Type hashes and positions do not change the key
+    assertArrayEquals(d1, d2);
+    assertEquals(Arrays.asList("F_0", "R_1"), new ArrayList<>(ids1.values()));
+    assertEquals(ids1.values().toString(), ids2.values().toString());
+    assertEquals("R_1", ids2.get("R5a010"));
+
+    byte[] d3 = digest(createProgram("R7f001", "F7f002", 1, "2.0"),
+        new HashMap<>());
+    assertFalse(Arrays.equals(d1, d3));
+  }
+
+  private static XcodeProgram translate(TransformationCache cache,
+                                        List<Transformation> applied)
+      throws Exception
+  {
+    TransformationHelper.loadConfiguration("cpu", "openmp");
+    XcodeProgram xcodeml =
+        TransformationHelper.loadProgram(TestConstant.TEST_SCA_COLUMN);
+    cache.prepare(xcodeml);
+    ClawTranslator translator = new ClawTranslator();
+    for(Xnode pragma : xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+      if(translator.isHandledPragma(pragma)) {
+        translator.generateTransformation(xcodeml, pragma);
+      }
+    }
+    translator.finalizeTranslation(xcodeml);
+    cache.apply(xcodeml, translator);
+    for(TransformationGroup group : translator.getGroups().values()) {
+      applied.addAll(group.getTransformations());
+      group.applyTransformations(xcodeml, translator);
+    }
+    cache.store(xcodeml, translator);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  @Test
+  public void moduleProcedureRoundTripTest() throws Exception {
+    Path dir = Files.createTempDirectory("claw-transformation-cache");
+    try {
+      TransformationCache cache = new TransformationCache(dir.toString());
+
+      // SCA changes the function type of the module procedure
+      List<Transformation> applied = new ArrayList<>();
+      XcodeProgram transformed = translate(cache, applied);
+      assertFalse(applied.isEmpty());
+      File[] entries = dir.toFile().listFiles();
+      assertNotNull(entries);
+      assertEquals(1, entries.length);
+
+      // Second translation grafts the entry instead of transforming
+      applied.clear();
+      XcodeProgram grafted = translate(cache, applied);
+      assertTrue(applied.isEmpty());
+
+      FfunctionDefinition fctDef = grafted.getAllFctDef().get(0);
+      FfunctionType fctType =
+          grafted.getTypeTable().getFunctionType(fctDef);
+      assertEquals(4, fctType.getParameters().size());
+      assertTrue(fctDef.getSymbolTable().contains("nproma"));
+      Map<String, String> ids1 = new LinkedHashMap<>();
+      Map<String, String> ids2 = new LinkedHashMap<>();
+      assertArrayEquals(digest(transformed, ids1), digest(grafted, ids2));
+      assertEquals(ids1.values().toString(), ids2.values().toString());
+    } finally {
+      File[] entries = dir.toFile().listFiles();
+      if(entries != null) {
+        for(File entry : entries) {
+          Files.delete(entry.toPath());
+        }
+      }
+      Files.delete(dir);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is released under terms of BSD license
+ * See LICENSE file for more information
+ */
+package helper;
+
+import claw.shenron.transformation.TransformationGroup;
+import claw.tatsu.common.Context;
+import claw.tatsu.xcodeml.exception.IllegalDirectiveException;
+import claw.tatsu.xcodeml.exception.IllegalTransformationException;
+import claw.tatsu.xcodeml.xnode.common.Xcode;
+import claw.tatsu.xcodeml.xnode.common.XcodeProgram;
+import claw.tatsu.xcodeml.xnode.common.Xnode;
+import claw.wani.x2t.configuration.Configuration;
+import claw.wani.x2t.translator.ClawTranslator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Helper class to apply the CLAW transformations on a translation unit in the
+ * unit tests. The transformations are applied in the same way as the
+ * translator driver does but errors are kept in the translation unit instead
+ * of aborting the translation.
+ *
+ * @author clementval
+ */
+public class TransformationHelper {
+
+  private TransformationHelper() {
+    // Hide implicit public ctor
+  }
+
+  /**
+   * Load the default configuration for the given target and directive.
+   *
+   * @param target    Target name.
+   * @param directive Directive name.
+   */
+  public static void loadConfiguration(String target, String directive) {
+    loadConfiguration(target, directive, null);
+  }
+
+  /**
+   * Load the default configuration for the given target and directive. The
+   * test data directory is used to locate the module files.
+   *
+   * @param target      Target name.
+   * @param directive   Directive name.
+   * @param modelConfig Path to the model configuration. Can be null.
+   */
+  public static void loadConfiguration(String target, String directive,
+                                       String modelConfig)
+  {
+    try {
+      Configuration.get().load(TestConstant.TEST_CONFIG_PATH, null,
+          modelConfig, target, directive, 80);
+    } catch(Exception e) {
+      fail(e.getMessage());
+    }
+    Context.get().getModuleCache()
+        .addSearchPath(new File(TestConstant.TEST_DATA).getParent());
+  }
+
+  /**
+   * Load a translation unit from a file.
+   *
+   * @param path Path to the XcodeML/F file.
+   * @return Translation unit.
+   */
+  public static XcodeProgram loadProgram(String path) {
+    assertTrue(new File(path).exists());
+    XcodeProgram xcodeml = XcodeProgram.createFromFile(path);
+    assertNotNull(xcodeml);
+    assertFalse(xcodeml.hasErrors());
+    return xcodeml;
+  }
+
+  /**
+   * Analyze the CLAW directives of the translation unit and apply the
+   * transformations if the analysis did not report any error.
+   *
+   * @param xcodeml Translation unit to be transformed.
+   * @return Translator used for the transformation.
+   */
+  public static ClawTranslator transform(XcodeProgram xcodeml) {
+    ClawTranslator translator = new ClawTranslator();
+    try {
+      for(Xnode pragma : xcodeml.matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+        if(translator.isHandledPragma(pragma)) {
+          translator.generateTransformation(xcodeml, pragma);
+        }
+      }
+      translator.finalizeTranslation(xcodeml);
+      if(xcodeml.hasErrors()) {
+        return translator;
+      }
+      for(TransformationGroup group : translator.getGroups().values()) {
+        group.applyTransformations(xcodeml, translator);
+      }
+    } catch(IllegalDirectiveException e) {
+      xcodeml.addError(e.getMessage(), e.getDirectiveLine());
+    } catch(IllegalTransformationException e) {
+      xcodeml.addError(e.getMessage(), e.getStartLine());
+    } catch(Exception e) {
+      fail(e.getMessage());
+    }
+    return translator;
+  }
+
+  /**
+   * Get the values of all the pragma statements of the given node.
+   *
+   * @param root Root node of the search.
+   * @return List of pragma values in document order.
+   */
+  public static List<String> getPragmas(Xnode root) {
+    List<String> pragmas = new ArrayList<>();
+    for(Xnode pragma : root.matchAll(Xcode.F_PRAGMA_STATEMENT)) {
+      pragmas.add(pragma.value());
+    }
+    return pragmas;
+  }
+}
@@ -9,6 +9,7 @@ import claw.tatsu.xcodeml.xnode.common.*;
 import claw.tatsu.xcodeml.xnode.fortran.FbasicType;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionDefinition;
 import claw.tatsu.xcodeml.xnode.fortran.FfunctionType;
+import claw.tatsu.xcodeml.xnode.fortran.FortranType;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 
@@ -122,4 +123,25 @@ public class XmlHelper {
     assertNotNull(n);
     return n;
   }
+
+  public static Xnode createVar(XcodeML xcodeml, String name) {
+    return xcodeml.createVar(FortranType.REAL, name, Xscope.LOCAL);
+  }
+
+  public static Xnode createExpr(XcodeML xcodeml, Xcode opcode, Xnode lhs,
+                                 Xnode rhs)
+  {
+    Xnode expr = xcodeml.createNode(opcode);
+    expr.setType(FortranType.REAL.toString());
+    expr.append(lhs);
+    expr.append(rhs);
+    return expr;
+  }
+
+  public static Xnode createAssign(XcodeML xcodeml, String lhs, Xnode rhs) {
+    Xnode assign = xcodeml.createNode(Xcode.F_ASSIGN_STATEMENT);
+    assign.append(createVar(xcodeml, lhs));
+    assign.append(rhs);
+    return assign;
+  }
 }
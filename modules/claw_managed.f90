@@ -0,0 +1,40 @@
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+! Default managed memory module used by the managed data strategy
+! (accelerator_data_strategy = managed). The fields of each SCA kernel are
+! prefetched with one of the subroutines below before the kernel is launched,
+! depending on whether the kernel reads them, writes them or both.
+!
+! This module is a portable stand-in that does nothing, so the generated code
+! runs wherever managed memory is handled by the compiler and the runtime. A
+! platform specific module can implement the prefetch and advice calls of the
+! runtime (e.g. cudaMemPrefetchAsync and cudaMemAdvise) and be selected with
+! the managed_memory_module parameter. It must provide the same subroutines.
+
+module claw_managed
+  implicit none
+  private
+
+  public :: claw_managed_prefetch_in, claw_managed_prefetch_out, &
+            claw_managed_prefetch_inout
+
+contains
+
+  ! Array only read by the next kernel. Can be advised as read mostly.
+  subroutine claw_managed_prefetch_in(array)
+    type(*), dimension(..), intent(in) :: array
+  end subroutine claw_managed_prefetch_in
+
+  ! Array only written by the next kernel. Its content does not need to be
+  ! migrated, only its location.
+  subroutine claw_managed_prefetch_out(array)
+    type(*), dimension(..), intent(in) :: array
+  end subroutine claw_managed_prefetch_out
+
+  ! Array read and written by the next kernel.
+  subroutine claw_managed_prefetch_inout(array)
+    type(*), dimension(..), intent(in) :: array
+  end subroutine claw_managed_prefetch_inout
+
+end module claw_managed
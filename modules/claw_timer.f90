@@ -0,0 +1,151 @@
+! This file is released under terms of BSD license
+! See LICENSE file for more information
+!
+! Default timing module used by the CLAW instrumentation of the generated
+! parallel regions (instrumentation_mode = timer). Timings are accumulated per
+! kernel name and printed with claw_timer_report. Kernel names can be mapped
+! back to the original code with the .kernels table generated next to the
+! transformed file.
+!
+! Start times are kept on a stack per thread so timed regions can be nested
+! and timed concurrently from OpenMP threads. The time of a kernel is summed
+! over all the threads timing it. Kernel names are stored with their full
+! length.
+!
+! A user supplied module must provide the same <module>_start(name) and
+! <module>_stop(name) subroutines.
+
+module claw_timer
+  use iso_fortran_env, only: int64, real64, output_unit, error_unit
+  implicit none
+  private
+
+  public :: claw_timer_start, claw_timer_stop, claw_timer_report, &
+            claw_timer_reset
+
+  integer, parameter :: max_kernels = 1024
+  integer, parameter :: max_depth = 64
+
+  type kernel_timer
+    character(len=:), allocatable :: name
+    integer(kind=int64) :: ticks = 0
+    integer :: calls = 0
+  end type kernel_timer
+
+  type(kernel_timer) :: kernels(max_kernels)
+  integer :: nb_kernels = 0
+
+  ! Started kernels of the current thread
+  integer :: depth = 0
+  integer :: stack_kernel(max_depth)
+  integer(kind=int64) :: stack_start(max_depth)
+  integer :: last_kernel = 0
+  !$omp threadprivate(depth, stack_kernel, stack_start, last_kernel)
+
+contains
+
+  ! Get the index of a kernel in the table. The kernel is added if not
+  ! present yet. Returns 0 if the table is full.
+  integer function get_kernel(name)
+    character(len=*), intent(in) :: name
+    integer :: i
+
+    !$omp critical (claw_timer_table)
+    get_kernel = 0
+    ! Fast path when the same kernel is started and stopped
+    if(last_kernel > 0) then
+      if(kernels(last_kernel)%name == name) get_kernel = last_kernel
+    end if
+
+    if(get_kernel == 0) then
+      do i = 1, nb_kernels
+        if(kernels(i)%name == name) then
+          get_kernel = i
+          exit
+        end if
+      end do
+    end if
+
+    if(get_kernel == 0 .and. nb_kernels < max_kernels) then
+      nb_kernels = nb_kernels + 1
+      kernels(nb_kernels)%name = name
+      get_kernel = nb_kernels
+    end if
+    !$omp end critical (claw_timer_table)
+    if(get_kernel > 0) last_kernel = get_kernel
+  end function get_kernel
+
+  subroutine claw_timer_start(name)
+    character(len=*), intent(in) :: name
+    integer :: k
+
+    k = get_kernel(name)
+    if(k == 0) return
+    if(depth == max_depth) then
+      write(error_unit, '(2a)') 'claw_timer: too many nested kernels: ', name
+      return
+    end if
+    depth = depth + 1
+    stack_kernel(depth) = k
+    call system_clock(stack_start(depth))
+  end subroutine claw_timer_start
+
+  subroutine claw_timer_stop(name)
+    character(len=*), intent(in) :: name
+    integer(kind=int64) :: now
+    integer :: k, d
+
+    call system_clock(now)
+    k = get_kernel(name)
+    if(k == 0) return
+
+    ! Innermost start of the kernel. Kernels started after it and not
+    ! stopped are dropped.
+    do d = depth, 1, -1
+      if(stack_kernel(d) == k) exit
+    end do
+    if(d == 0) return
+    depth = d - 1
+
+    !$omp critical (claw_timer_table)
+    kernels(k)%ticks = kernels(k)%ticks + (now - stack_start(d))
+    kernels(k)%calls = kernels(k)%calls + 1
+    !$omp end critical (claw_timer_table)
+  end subroutine claw_timer_stop
+
+  subroutine claw_timer_report(unit)
+    integer, intent(in), optional :: unit
+    integer(kind=int64) :: rate
+    real(kind=real64) :: total
+    integer :: i, out, width
+
+    out = output_unit
+    if(present(unit)) out = unit
+
+    width = len('kernel')
+    do i = 1, nb_kernels
+      width = max(width, len(kernels(i)%name))
+    end do
+
+    call system_clock(count_rate=rate)
+    write(out, '(a)') 'CLAW kernel timings'
+    write(out, '(a,a12,2a16)') 'kernel' // repeat(' ', width - 6), &
+        'calls', 'total (s)', 'mean (s)'
+    do i = 1, nb_kernels
+      total = real(kernels(i)%ticks, real64) / real(rate, real64)
+      write(out, '(a,i12,2es16.6)') kernels(i)%name // &
+          repeat(' ', width - len(kernels(i)%name)), kernels(i)%calls, &
+          total, total / max(1, kernels(i)%calls)
+    end do
+  end subroutine claw_timer_report
+
+  subroutine claw_timer_reset()
+    integer :: i
+
+    do i = 1, nb_kernels
+      kernels(i)%ticks = 0
+      kernels(i)%calls = 0
+    end do
+  end subroutine claw_timer_reset
+
+end module claw_timer